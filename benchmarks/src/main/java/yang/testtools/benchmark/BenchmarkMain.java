@@ -0,0 +1,19 @@
+package yang.testtools.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH main with the gc profiler always on, the suites report throughput and allocation rate.
+ * Takes the usual JMH arguments, e.g. {@code java -jar target/benchmarks.jar Reactor -p corpus=large}.
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
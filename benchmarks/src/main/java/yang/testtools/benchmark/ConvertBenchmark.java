@@ -0,0 +1,27 @@
+package yang.testtools.benchmark;
+
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import yang.testtools.yangparser.YangToJson;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Every module of the corpus converted to its dto, one operation is the whole corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ConvertBenchmark {
+
+    @Benchmark
+    public void convertToDto(CorpusState state, Blackhole blackhole) {
+        YangToJson yangToJson = new YangToJson();
+        for (Module module : state.modules) {
+            blackhole.consume(yangToJson.convertToDto(state.schemaContext, module));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package yang.testtools.benchmark;
+
+import org.opendaylight.yangtools.yang.model.api.*;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import org.openjdk.jmh.annotations.*;
+import yang.testtools.helper.YangUtils;
+
+import java.io.File;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * One of the fixture corpora under ./corpus (or -Dcorpus.dir), parsed once per trial.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+    @Param({"small", "medium", "large"})
+    public String corpus;
+
+    public String directory;
+    public List<File> files;
+    public EffectiveSchemaContext schemaContext;
+    public List<Module> modules;
+    // every data node of the data trees, choices and cases included
+    public List<DataSchemaNode> dataNodes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Paths.get(System.getProperty("corpus.dir", "corpus"), corpus).toString();
+        files = YangUtils.getYangFiles(directory);
+        schemaContext = YangUtils.getSchemaContext(files);
+        modules = new ArrayList<>(schemaContext.getModules());
+        dataNodes = new ArrayList<>();
+        for (Module module : modules) {
+            collect(module.getChildNodes());
+        }
+    }
+
+    private void collect(Collection<? extends DataSchemaNode> nodes) {
+        for (DataSchemaNode node : nodes) {
+            dataNodes.add(node);
+            if (node instanceof DataNodeContainer) {
+                collect(((DataNodeContainer) node).getChildNodes());
+            } else if (node instanceof ChoiceSchemaNode) {
+                collect(((ChoiceSchemaNode) node).getCases());
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package yang.testtools.benchmark;
+
+import org.opendaylight.yangtools.yang.model.api.DataSchemaNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.odlservice.FilterParser;
+import yang.testtools.yangparser.MySchemaContextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter of every data node of the corpus, the paths are the xpaths of the json without key predicates.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterParserBenchmark {
+    private List<String> namespaces;
+    private List<String> paths;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState state) {
+        namespaces = new ArrayList<>();
+        paths = new ArrayList<>();
+        for (DataSchemaNode node : state.dataNodes) {
+            String xpath = MySchemaContextUtils.getXpathFromSchemaNode(state.schemaContext, node);
+            if (xpath == null || xpath.isEmpty()) {
+                continue;
+            }
+            String path = xpath.substring(1).replaceAll("\\[[^\\]]*\\]", "");
+            String rootModule = path.substring(0, path.indexOf(':'));
+            namespaces.add(YangUtils.getNamespace(rootModule));
+            paths.add(path.substring(rootModule.length() + 1));
+        }
+    }
+
+    @Benchmark
+    public void xmlParser(CorpusState state, Blackhole blackhole) {
+        for (int i = 0; i < paths.size(); i++) {
+            blackhole.consume(FilterParser.xmlParser(namespaces.get(i), paths.get(i)));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package yang.testtools.benchmark;
+
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import org.openjdk.jmh.annotations.*;
+import yang.testtools.helper.YangUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ReactorBenchmark {
+
+    @Benchmark
+    public EffectiveSchemaContext getSchemaContext(CorpusState state) throws Exception {
+        return YangUtils.getSchemaContext(state.directory);
+    }
+}
@@ -0,0 +1,76 @@
+package yang.testtools.benchmark;
+
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.yangparser.YangToJson;
+import yang.testtools.yangparser.schema.ModuleDto;
+import yang.testtools.yangparser.schema.compact.CompactModule;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Heap retained by all converted modules of a corpus, as ModuleDto and as CompactModule, per node.
+ * Not a JMH benchmark, run it on its own with a fixed heap so collections settle:
+ * {@code java -Xms2g -Xmx2g -cp target/benchmarks.jar yang.testtools.benchmark.RetainedHeap large}.
+ */
+public class RetainedHeap {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Exception {
+        String corpus = args.length > 0 ? args[0] : "large";
+        EffectiveSchemaContext schemaContext = YangUtils.getSchemaContext(
+                YangUtils.getYangFiles(Paths.get(System.getProperty("corpus.dir", "corpus"), corpus).toString()));
+
+        int nodes = 0;
+        for (Module module : schemaContext.getModules()) {
+            nodes += new YangToJson().convertToCompact(schemaContext, module).nodeCount();
+        }
+
+        long before = usedHeap();
+        List<ModuleDto> dtos = new ArrayList<>();
+        YangToJson yangToJson = new YangToJson();
+        for (Module module : schemaContext.getModules()) {
+            dtos.add(yangToJson.convertToDto(schemaContext, module));
+        }
+        yangToJson = null;
+        long dtoBytes = usedHeap() - before;
+        System.out.println("held " + dtos.size() + " modules");
+        dtos = null;
+
+        before = usedHeap();
+        List<CompactModule> compactModules = new ArrayList<>();
+        yangToJson = new YangToJson();
+        for (Module module : schemaContext.getModules()) {
+            compactModules.add(yangToJson.convertToCompact(schemaContext, module));
+        }
+        yangToJson = null;
+        long compactBytes = usedHeap() - before;
+        System.out.println("held " + compactModules.size() + " modules");
+
+        System.out.printf("%s: %d nodes%n", corpus, nodes);
+        System.out.printf("ModuleDto      %,12d bytes %8.1f bytes/node%n", dtoBytes, (double) dtoBytes / nodes);
+        System.out.printf("CompactModule  %,12d bytes %8.1f bytes/node%n", compactBytes, (double) compactBytes / nodes);
+    }
+
+    /**
+     * Used heap once full collections stop freeing anything.
+     */
+    private static long usedHeap() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long now = MEMORY.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,102 @@
+package yang.testtools.benchmark;
+
+import org.opendaylight.yangtools.yang.model.api.DataSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.TypedDataSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.type.LeafrefTypeDefinition;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import yang.testtools.yangparser.LeafrefResolver;
+import yang.testtools.yangparser.MySchemaContextUtils;
+import yang.testtools.yangparser.XpathIndex;
+import yang.testtools.yangparser.YangToJson;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Xpath, leafref targets and type info of single nodes, outside of the conversion of whole modules. One operation is
+ * every node of the corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchemaNodeBenchmark {
+    private List<String> leafXpaths;
+    private List<TypedDataSchemaNode> leafrefs;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState state) {
+        XpathIndex xpathIndex = XpathIndex.of(state.schemaContext);
+        leafXpaths = new ArrayList<>();
+        leafrefs = new ArrayList<>();
+        for (DataSchemaNode node : state.dataNodes) {
+            if (node instanceof TypedDataSchemaNode) {
+                String xpath = MySchemaContextUtils.getXpathFromSchemaNode(state.schemaContext, node);
+                if (xpathIndex.find(xpath) != null) {
+                    leafXpaths.add(xpath);
+                }
+                if (((TypedDataSchemaNode) node).getType() instanceof LeafrefTypeDefinition) {
+                    leafrefs.add((TypedDataSchemaNode) node);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void getXpathFromSchemaNode(CorpusState state, Blackhole blackhole) {
+        for (DataSchemaNode node : state.dataNodes) {
+            blackhole.consume(MySchemaContextUtils.getXpathFromSchemaNode(state.schemaContext, node));
+        }
+    }
+
+    /**
+     * Target, base type and target xpath of every leafref, each resolving the path on its own.
+     */
+    @Benchmark
+    public void resolveLeafrefs(CorpusState state, Blackhole blackhole) {
+        for (TypedDataSchemaNode leaf : leafrefs) {
+            LeafrefTypeDefinition type = (LeafrefTypeDefinition) leaf.getType();
+            blackhole.consume(MySchemaContextUtils.getBaseTypeForLeafRef(type, state.schemaContext, leaf));
+            DataSchemaNode target = MySchemaContextUtils.getSchemaNodeForLeafRef(type, state.schemaContext, leaf);
+            blackhole.consume(MySchemaContextUtils.getXpathFromSchemaNode(state.schemaContext, target));
+        }
+    }
+
+    /**
+     * Same with a new resolver each operation, paths shared by several leaves resolve once.
+     */
+    @Benchmark
+    public void resolveLeafrefsMemoized(CorpusState state, Blackhole blackhole) {
+        LeafrefResolver resolver = new LeafrefResolver(state.schemaContext);
+        for (TypedDataSchemaNode leaf : leafrefs) {
+            blackhole.consume(resolver.resolve((LeafrefTypeDefinition) leaf.getType(), leaf));
+        }
+    }
+
+    /**
+     * Every leaf converted on its own with one converter each operation, the first lookup of every type definition
+     * misses the type cache.
+     */
+    @Benchmark
+    public void convertLeaves(CorpusState state, Blackhole blackhole) {
+        YangToJson yangToJson = new YangToJson();
+        for (String xpath : leafXpaths) {
+            blackhole.consume(yangToJson.convertSubtree(state.schemaContext, xpath, 0));
+        }
+    }
+
+    /**
+     * Same with a new converter for every leaf, type info and leafref targets are computed each time. The difference
+     * to {@link #convertLeaves} is what their caches save.
+     */
+    @Benchmark
+    public void convertLeavesUncached(CorpusState state, Blackhole blackhole) {
+        for (String xpath : leafXpaths) {
+            blackhole.consume(new YangToJson().convertSubtree(state.schemaContext, xpath, 0));
+        }
+    }
+}
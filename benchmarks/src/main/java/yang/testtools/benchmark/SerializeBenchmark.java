@@ -0,0 +1,43 @@
+package yang.testtools.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import yang.testtools.yangparser.YangToJson;
+import yang.testtools.yangparser.schema.ModuleDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the converted dtos with the mapper of {@link YangToJson}, no file io.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializeBenchmark {
+    private ObjectMapper mapper;
+    private List<ModuleDto> moduleDtos;
+
+    @Setup(Level.Trial)
+    public void setUp(CorpusState state) {
+        YangToJson yangToJson = new YangToJson();
+        mapper = yangToJson.getMapper();
+        moduleDtos = new ArrayList<>();
+        for (Module module : state.modules) {
+            moduleDtos.add(yangToJson.convertToDto(state.schemaContext, module));
+        }
+    }
+
+    @Benchmark
+    public void writeValueAsBytes(Blackhole blackhole) throws Exception {
+        for (ModuleDto moduleDto : moduleDtos) {
+            blackhole.consume(mapper.writeValueAsBytes(moduleDto));
+        }
+    }
+}
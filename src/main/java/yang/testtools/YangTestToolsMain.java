@@ -2,13 +2,99 @@ package yang.testtools;
 
 import org.opendaylight.yangtools.yang.model.parser.api.YangSyntaxErrorException;
 import org.opendaylight.yangtools.yang.parser.spi.meta.ReactorException;
+import yang.testtools.generator.PayloadCase;
+import yang.testtools.generator.PayloadOptions;
+import yang.testtools.generator.YangCorpusGenerator;
+import yang.testtools.generator.YangCorpusOptions;
+import yang.testtools.odlservice.RestconfStubServer;
+import yang.testtools.server.SchemaServer;
+import yang.testtools.validator.InstanceValidator;
+import yang.testtools.validator.ValidationError;
+import yang.testtools.yangparser.YangParserOptions;
 import yang.testtools.yangparser.YangParserUtils;
+import yang.testtools.yangparser.YangWatcher;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 public class YangTestToolsMain {
-    public static void main(String[] args) throws IOException, YangSyntaxErrorException, ReactorException, URISyntaxException, ClassNotFoundException {
+    public static void main(String[] args) throws IOException, YangSyntaxErrorException, ReactorException, URISyntaxException, ClassNotFoundException, InterruptedException {
+        if (args.length > 1 && args[0].equals("watch")) {
+            new YangWatcher(new YangParserOptions(), 500, Arrays.copyOfRange(args, 1, args.length)).watch();
+            return;
+        }
+        if (args.length > 2 && args[0].equals("serve")) {
+            new SchemaServer(new YangParserOptions(), 256, Arrays.copyOfRange(args, 2, args.length))
+                    .start(Integer.parseInt(args[1]));
+            return;
+        }
+        if (args.length > 1 && args[0].equals("restconf-stub")) {
+            // restconf-stub <port> [delay millis]
+            new RestconfStubServer(64, args.length > 2 ? Long.parseLong(args[2]) : 0).start(Integer.parseInt(args[1]));
+            return;
+        }
+        if (args.length > 3 && args[0].equals("subtree")) {
+            String json = YangParserUtils.subtreeToJson(new YangParserOptions(), args[1], Integer.parseInt(args[2]),
+                    Arrays.copyOfRange(args, 3, args.length));
+            System.out.println(json == null ? "No data node at " + args[1] : json);
+            return;
+        }
+        if (args.length > 3 && args[0].equals("validate")) {
+            // validate <config|all> <payload.json> <yang paths...>
+            List<ValidationError> errors = YangParserUtils.validatePayload(new YangParserOptions(), Paths.get(args[2]),
+                    InstanceValidator.Content.valueOf(args[1].toUpperCase(Locale.ROOT)),
+                    Arrays.copyOfRange(args, 3, args.length));
+            for (ValidationError error : errors) {
+                System.out.println(error.getPath() + ": " + error.getMessage());
+            }
+            System.out.println(errors.isEmpty() ? "Valid." : errors.size() + " errors.");
+            return;
+        }
+        if (args.length > 2 && args[0].equals("constraints")) {
+            // constraints <payload.json> <yang paths...>
+            List<ValidationError> errors = YangParserUtils.checkConstraints(new YangParserOptions(), Paths.get(args[1]),
+                    Arrays.copyOfRange(args, 2, args.length));
+            for (ValidationError error : errors) {
+                System.out.println(error.getPath() + ": " + error.getMessage());
+            }
+            System.out.println(errors.isEmpty() ? "All must/when hold." : errors.size() + " errors.");
+            return;
+        }
+        if (args.length > 3 && args[0].equals("payload")) {
+            // payload <payload.json> <list size> <yang paths...>
+            PayloadOptions options = new PayloadOptions();
+            options.setListSize(Integer.parseInt(args[2]));
+            long values = YangParserUtils.generatePayload(new YangParserOptions(), options, Paths.get(args[1]),
+                    Arrays.copyOfRange(args, 3, args.length));
+            System.out.println("Written " + values + " values to " + args[1]);
+            return;
+        }
+        if (args.length > 2 && args[0].equals("negative")) {
+            // negative <directory> <yang paths...>
+            PayloadOptions options = new PayloadOptions();
+            options.setListSize(2);
+            options.setNestedListSize(1);
+            options.setOptionalChance(1.0);
+            YangParserOptions parserOptions = new YangParserOptions();
+            parserOptions.setParallelism(Runtime.getRuntime().availableProcessors());
+            List<PayloadCase> cases = YangParserUtils.generateNegativePayloads(parserOptions, options,
+                    Paths.get(args[1]), Arrays.copyOfRange(args, 2, args.length));
+            System.out.println("Written " + cases.size() + " payloads to " + args[1]);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("generate")) {
+            YangCorpusOptions options = new YangCorpusOptions();
+            if (args.length > 2) {
+                options.setModuleCount(Integer.parseInt(args[2]));
+            }
+            int schemaNodes = YangCorpusGenerator.generate(options, Paths.get(args[1]));
+            System.out.println("Generated " + options.getModuleCount() + " modules, " + schemaNodes + " schema nodes.");
+            return;
+        }
 //        if (args == null || args.length <= 0) {
 //            System.out.println("Need input yang directory path.");
 //            return;
@@ -0,0 +1,236 @@
+package yang.testtools.binary;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+
+import static yang.testtools.binary.SchemaBinaryWriter.*;
+
+/**
+ * Reads a {@code .ysb} written by {@link SchemaBinaryWriter}. Opening maps the file and reads only its header,
+ * each read decodes just the records of the nodes it returns. Can be used concurrently.
+ * <p>
+ * Nodes come back as the json tree they have in the module json. {@code mapper.treeToValue} turns them into
+ * {@code ContainerDto}/{@code LeafDto} when needed.
+ */
+public class SchemaBinaryReader {
+    private final MappedByteBuffer buffer;
+    private final int indexCount;
+    private final int indexStart;
+    private final int namesStart;
+
+    private SchemaBinaryReader(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        byte[] magic = new byte[MAGIC.length];
+        buffer.duplicate().get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a schema binary file, or of another version");
+        }
+        int nodeCount = buffer.getInt(4);
+        this.indexCount = buffer.getInt(8);
+        this.indexStart = HEADER_SIZE + nodeCount * NODE_ENTRY_SIZE;
+        this.namesStart = indexStart + indexCount * INDEX_ENTRY_SIZE;
+    }
+
+    public static SchemaBinaryReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            return new SchemaBinaryReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Number of data tree nodes with an xpath.
+     */
+    public int size() {
+        return indexCount;
+    }
+
+    public boolean contains(String xpath) {
+        return find(xpath) >= 0;
+    }
+
+    /**
+     * The whole module, equal to its json.
+     */
+    public ObjectNode readModule() throws IOException {
+        ObjectNode module = decode(0);
+        JsonNode dataTree = module.get("dataTree");
+        if (dataTree instanceof ObjectNode) {
+            expandChildren((ObjectNode) dataTree, 0, Integer.MAX_VALUE);
+        }
+        return module;
+    }
+
+    /**
+     * One node, its children are left as their xpaths.
+     *
+     * @param xpath as written into the json
+     * @return null when no node has that xpath
+     */
+    public ObjectNode readNode(String xpath) throws IOException {
+        int node = find(xpath);
+        if (node < 0) {
+            return null;
+        }
+        ObjectNode result = decode(node);
+        for (String field : CHILD_FIELDS) {
+            JsonNode children = result.get(field);
+            if (children instanceof ObjectNode) {
+                Iterator<Map.Entry<String, JsonNode>> iterator = children.fields();
+                while (iterator.hasNext()) {
+                    Map.Entry<String, JsonNode> child = iterator.next();
+                    child.setValue(TextNode.valueOf(xpathOf(child.getValue().intValue())));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A node with its descendants, the same tree as {@code YangToJson#convertSubtree} gives.
+     *
+     * @param xpath    as written into the json
+     * @param maxDepth container/list levels read below the node, negative for all
+     * @return null when no node has that xpath
+     */
+    public ObjectNode readSubtree(String xpath, int maxDepth) throws IOException {
+        int node = find(xpath);
+        if (node < 0) {
+            return null;
+        }
+        return expand(node, 0, maxDepth < 0 ? Integer.MAX_VALUE : maxDepth);
+    }
+
+    private ObjectNode expand(int node, int depth, int maxDepth) throws IOException {
+        ObjectNode result = decode(node);
+        if (depth >= maxDepth) {
+            // only the header, as a container cut off by the depth limit is converted
+            result.remove(CHILD_FIELDS);
+            return result;
+        }
+        expandChildren(result, depth + 1, maxDepth);
+        return result;
+    }
+
+    private void expandChildren(ObjectNode parent, int depth, int maxDepth) throws IOException {
+        for (String field : CHILD_FIELDS) {
+            JsonNode children = parent.get(field);
+            if (!(children instanceof ObjectNode)) {
+                continue;
+            }
+            boolean leaves = field.equals("leaf") || field.equals("leafList");
+            Iterator<Map.Entry<String, JsonNode>> iterator = children.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> child = iterator.next();
+                int node = child.getValue().intValue();
+                if (!leaves) {
+                    child.setValue(expand(node, depth, maxDepth));
+                    continue;
+                }
+                ObjectNode leaf = decode(node);
+                if (maxDepth != Integer.MAX_VALUE) {
+                    limitCases(leaf, depth, maxDepth);
+                }
+                child.setValue(leaf);
+            }
+        }
+    }
+
+    /**
+     * The cases of a choice are part of its record, their containers count as siblings of the choice.
+     */
+    private static void limitCases(ObjectNode leaf, int depth, int maxDepth) {
+        for (JsonNode caseNode : leaf.path("typeProperty").path("cases")) {
+            for (String field : CHILD_FIELDS) {
+                boolean leaves = field.equals("leaf") || field.equals("leafList");
+                for (JsonNode child : caseNode.path(field)) {
+                    if (leaves) {
+                        limitCases((ObjectNode) child, depth, maxDepth);
+                    } else {
+                        limitDepth((ObjectNode) child, depth, maxDepth);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void limitDepth(ObjectNode container, int depth, int maxDepth) {
+        if (depth >= maxDepth) {
+            container.remove(CHILD_FIELDS);
+            return;
+        }
+        for (String field : CHILD_FIELDS) {
+            boolean leaves = field.equals("leaf") || field.equals("leafList");
+            for (JsonNode child : container.path(field)) {
+                if (leaves) {
+                    limitCases((ObjectNode) child, depth + 1, maxDepth);
+                } else {
+                    limitDepth((ObjectNode) child, depth + 1, maxDepth);
+                }
+            }
+        }
+    }
+
+    private ObjectNode decode(int node) throws IOException {
+        int entry = HEADER_SIZE + node * NODE_ENTRY_SIZE;
+        long offset = buffer.getLong(entry);
+        byte[] record = new byte[buffer.getInt(entry + 8)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(Math.toIntExact(offset));
+        view.get(record);
+        ObjectNode result = (ObjectNode) SMILE_MAPPER.readTree(record);
+        if (result.path("xpath").isBoolean()) {
+            result.put("xpath", xpathOf(node));
+        }
+        return result;
+    }
+
+    private String xpathOf(int node) {
+        int indexPosition = buffer.getInt(HEADER_SIZE + node * NODE_ENTRY_SIZE + 12);
+        return indexPosition < 0 ? null : new String(name(indexPosition), StandardCharsets.UTF_8);
+    }
+
+    private byte[] name(int indexPosition) {
+        int entry = indexStart + indexPosition * INDEX_ENTRY_SIZE;
+        byte[] name = new byte[buffer.getInt(entry + 4)];
+        ByteBuffer view = buffer.duplicate();
+        view.position(namesStart + buffer.getInt(entry));
+        view.get(name);
+        return name;
+    }
+
+    /**
+     * Binary search of the index.
+     *
+     * @return node number, -1 when not found
+     */
+    private int find(String xpath) {
+        byte[] key = xpath.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = indexCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compare(name(middle), key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return buffer.getInt(indexStart + middle * INDEX_ENTRY_SIZE + 8);
+            }
+        }
+        return -1;
+    }
+}
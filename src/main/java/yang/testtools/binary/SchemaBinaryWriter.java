@@ -0,0 +1,162 @@
+package yang.testtools.binary;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileParser;
+import yang.testtools.yangparser.schema.ModuleDto;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Writes a module as {@code .ysb}: the same content as its json, every data tree node a separate Smile record
+ * found through an xpath index, so {@link SchemaBinaryReader} decodes only the nodes asked for.
+ * <pre>
+ * header   "YSB" version(1)  int nodeCount  int indexCount  int namesLength
+ * nodes    nodeCount x (long offset, int length, int indexPosition or -1)
+ * index    indexCount x (int nameOffset, int nameLength, int node), sorted by the UTF-8 bytes of the xpath
+ * names    the xpaths, UTF-8
+ * records  Smile without header, one per node
+ * </pre>
+ * Node 0 is the module without the nodes of its data tree. In a record the leaf/container/leafList/list maps
+ * of the data tree and of containers hold the number of the child node instead of the child, and the xpath of an
+ * indexed node is {@code true}, its text is in the index.
+ */
+public class SchemaBinaryWriter {
+    static final byte[] MAGIC = {'Y', 'S', 'B', 1};
+    static final int HEADER_SIZE = 16;
+    static final int NODE_ENTRY_SIZE = 16;
+    static final int INDEX_ENTRY_SIZE = 12;
+    static final List<String> CHILD_FIELDS = List.of("leaf", "container", "leafList", "list");
+
+    static final ObjectMapper SMILE_MAPPER = new ObjectMapper(SmileFactory.builder()
+            // the records are read back with the default settings a header would announce
+            .disable(SmileGenerator.Feature.WRITE_HEADER)
+            .disable(SmileParser.Feature.REQUIRE_HEADER)
+            .build());
+
+    private final List<ObjectNode> nodes = new ArrayList<>();
+
+    private SchemaBinaryWriter() {
+    }
+
+    /**
+     * @param mapper the mapper of the json output, so the records hold what the json would
+     * @return bytes written
+     */
+    public static long write(ObjectMapper mapper, ModuleDto moduleDto, Path destination) throws IOException {
+        SchemaBinaryWriter writer = new SchemaBinaryWriter();
+        ObjectNode root = mapper.valueToTree(moduleDto);
+        writer.nodes.add(root);
+        JsonNode dataTree = root.get("dataTree");
+        if (dataTree instanceof ObjectNode) {
+            writer.detachChildren((ObjectNode) dataTree);
+        }
+        return writer.writeFile(destination);
+    }
+
+    /**
+     * Replaces the children by their node numbers, depth first.
+     */
+    private void detachChildren(ObjectNode parent) {
+        for (String field : CHILD_FIELDS) {
+            JsonNode children = parent.get(field);
+            if (!(children instanceof ObjectNode)) {
+                continue;
+            }
+            Iterator<Map.Entry<String, JsonNode>> iterator = children.fields();
+            while (iterator.hasNext()) {
+                Map.Entry<String, JsonNode> child = iterator.next();
+                if (!(child.getValue() instanceof ObjectNode)) {
+                    continue;
+                }
+                ObjectNode childNode = (ObjectNode) child.getValue();
+                child.setValue(IntNode.valueOf(nodes.size()));
+                nodes.add(childNode);
+                detachChildren(childNode);
+            }
+        }
+    }
+
+    private long writeFile(Path destination) throws IOException {
+        // first node wins when two nodes share an xpath
+        Map<String, Integer> nodesByXpath = new HashMap<>();
+        for (int i = 1; i < nodes.size(); i++) {
+            JsonNode xpath = nodes.get(i).get("xpath");
+            if (xpath != null && xpath.isTextual()) {
+                nodesByXpath.putIfAbsent(xpath.asText(), i);
+            }
+        }
+        List<byte[]> names = new ArrayList<>();
+        Map<byte[], Integer> nodesByName = new IdentityHashMap<>();
+        for (Map.Entry<String, Integer> entry : nodesByXpath.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            nodesByName.put(name, entry.getValue());
+        }
+        names.sort(SchemaBinaryWriter::compare);
+
+        int[] indexPositions = new int[nodes.size()];
+        Arrays.fill(indexPositions, -1);
+        int namesLength = 0;
+        for (int i = 0; i < names.size(); i++) {
+            indexPositions[nodesByName.get(names.get(i))] = i;
+            namesLength += names.get(i).length;
+        }
+
+        List<byte[]> records = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            ObjectNode node = nodes.get(i);
+            if (indexPositions[i] >= 0) {
+                // the reader takes it from the index, the field stays in place to keep the order of the json
+                node.put("xpath", true);
+            }
+            records.add(SMILE_MAPPER.writeValueAsBytes(node));
+        }
+
+        long offset = HEADER_SIZE + (long) nodes.size() * NODE_ENTRY_SIZE + (long) names.size() * INDEX_ENTRY_SIZE
+                + namesLength;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(destination), 1 << 16))) {
+            out.write(MAGIC);
+            out.writeInt(nodes.size());
+            out.writeInt(names.size());
+            out.writeInt(namesLength);
+            for (int i = 0; i < nodes.size(); i++) {
+                out.writeLong(offset);
+                out.writeInt(records.get(i).length);
+                out.writeInt(indexPositions[i]);
+                offset += records.get(i).length;
+            }
+            int nameOffset = 0;
+            for (byte[] name : names) {
+                out.writeInt(nameOffset);
+                out.writeInt(name.length);
+                out.writeInt(nodesByName.get(name));
+                nameOffset += name.length;
+            }
+            for (byte[] name : names) {
+                out.write(name);
+            }
+            for (byte[] record : records) {
+                out.write(record);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Unsigned byte order, the order the reader searches the index in.
+     */
+    static int compare(byte[] a, byte[] b) {
+        return Arrays.compareUnsigned(a, b);
+    }
+}
@@ -0,0 +1,901 @@
+package yang.testtools.generator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Range;
+import org.opendaylight.yangtools.yang.model.api.DataSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.SchemaContext;
+import org.opendaylight.yangtools.yang.model.api.TypeDefinition;
+import yang.testtools.helper.TypeRestrictions;
+import yang.testtools.yangparser.schema.ContainerDto;
+import yang.testtools.yangparser.schema.DataTreeDto;
+import yang.testtools.yangparser.schema.LeafDto;
+import yang.testtools.yangparser.schema.ModuleDto;
+import yang.testtools.yangparser.schema.type.BitsType;
+import yang.testtools.yangparser.schema.type.EnumType;
+import yang.testtools.yangparser.schema.type.TypeProperty;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a corpus of payloads that each break exactly one constraint, for device regression suites. A valid
+ * payload from {@link PayloadGenerator} is the base, every leaf, leaf-list and list found in it gives the cases its
+ * {@link TypeProperty} and {@link LeafDto} allow: range min-1/max+1, lengths just outside the limits, a value in the
+ * first gap between the allowed intervals of the type definition, a value not
+ * matching the patterns, too many fraction digits, the wrong json type, unknown enums/bits/identities, a missing
+ * mandatory leaf or key, a duplicate list entry or leaf-list value, a dangling leafref, state data in a config
+ * payload and an unknown member. Each schema node is broken where it first occurs in the base.
+ * <p>
+ * Files are named {@code 00012-range-above.json}, index.json lists them with their {@link PayloadCase}.
+ * Cases are derived from the base in memory and written concurrently, each file is streamed from the shared base.
+ * A case holds the top-level node it breaks, the top-level nodes its leafrefs point into and the top-level leaves,
+ * 00000-valid.json the whole base.
+ * <p>
+ * Leaves some leafref points to are left as they are, so only the intended constraint breaks. must conditions are
+ * not taken into account, the base may already violate them.
+ */
+public class NegativePayloadGenerator {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final String INDEX = "index.json";
+    private static final String CASE_FILE = "[0-9][0-9][0-9][0-9][0-9]*-*.json";
+    private static final long MAX_LENGTH_CASE = 1 << 20; // longer limits are not broken by length-above
+    private static final String[] MISMATCH_CHARACTERS = {"#", " ", "!", "0", "a", "A", "-", ".", "_", ":"};
+
+    private enum Kind {
+        LEAF, LEAF_LIST, CONTAINER, LIST, ANY
+    }
+
+    /**
+     * A schema node as found by its member name in the payload, the nodes of choice cases are members of the
+     * node holding the choice.
+     */
+    private static final class Member {
+        final String module;
+        final String name; // "module:name"
+        final String xpath;
+        final Kind kind;
+        final boolean config;
+        final boolean mandatory;
+        final TypeProperty type;
+        final String key; // first key, list only
+        final Map<String, Member> children = new LinkedHashMap<>();
+        String top; // qualified name of the top-level node holding it
+
+        Member(String module, String name, String xpath, Kind kind, boolean config, boolean mandatory,
+               TypeProperty type, String key) {
+            this.module = module;
+            this.name = name;
+            this.xpath = xpath;
+            this.kind = kind;
+            this.config = config;
+            this.mandatory = mandatory;
+            this.type = type;
+            this.key = key;
+        }
+
+        boolean isLeafref() {
+            return type != null && type.getLeafref() != null && type.getLeafref().isPresent();
+        }
+    }
+
+    /**
+     * The member field of the object container is set to value, or removed when value is null.
+     */
+    private static final class Mutation {
+        final PayloadFailure failure;
+        final JsonNode container;
+        final String field;
+        final JsonNode value;
+        final String path;
+        final String detail;
+        String top; // top-level node it changes, null for the whole document
+
+        Mutation(PayloadFailure failure, JsonNode container, String field, JsonNode value, String path, String detail) {
+            this.failure = failure;
+            this.container = container;
+            this.field = field;
+            this.value = value;
+            this.path = path;
+            this.detail = detail;
+        }
+    }
+
+    private final PayloadOptions options;
+    private final Member root = new Member(null, null, null, Kind.CONTAINER, true, false, null, null);
+    private final Set<String> referenced = new HashSet<>(); // xpaths leafrefs point to
+    private final Map<String, Set<String>> references = new HashMap<>(); // top-level nodes leafrefs under a top-level node point into
+    private final Random random;
+
+    // state of the walk over the base
+    private final List<Mutation> mutations = new ArrayList<>();
+    private final Set<Member> visited = new HashSet<>();
+    private final Set<Member> visitedObjects = new HashSet<>();
+    private final Map<String, Set<String>> targetValues = new HashMap<>();
+    private final List<Object[]> leafrefs = new ArrayList<>(); // member, object, field, path
+    private final Map<String, DataSchemaNode> schemaNodes = new HashMap<>(); // leaves, leaf-lists and lists by xpath
+    private SchemaContext schemaContext;
+
+    public NegativePayloadGenerator(Collection<ModuleDto> modules, PayloadOptions options) {
+        this.options = options;
+        this.random = new Random(options.getSeed());
+        for (ModuleDto module : modules) {
+            DataTreeDto dataTree = module.getDataTree();
+            if (dataTree != null) {
+                addChildren(root, module.getName(), module.getTypes(), dataTree.getLeaf(), dataTree.getContainer(),
+                        dataTree.getLeafList(), dataTree.getList());
+            }
+        }
+    }
+
+    /**
+     * Writes the base and one file per case into directory, replacing the files of an earlier corpus.
+     *
+     * @param schemaContext the modules were converted from, for the base payload
+     * @return the cases, as written to index.json
+     */
+    public List<PayloadCase> write(SchemaContext schemaContext, Collection<ModuleDto> modules, Path directory,
+                                   int parallelism) throws IOException {
+        ByteArrayOutputStream base = new ByteArrayOutputStream();
+        new PayloadGenerator(schemaContext, modules, options).write(base);
+        JsonNode document = MAPPER.readTree(base.toByteArray());
+
+        this.schemaContext = schemaContext;
+        schemaNodes.clear();
+        for (Module module : schemaContext.getModules()) {
+            for (DataSchemaNode child : module.getChildNodes()) {
+                PayloadGenerator.indexSchema(schemaContext, child, null, schemaNodes);
+            }
+        }
+        mutations.clear();
+        visited.clear();
+        visitedObjects.clear();
+        targetValues.clear();
+        leafrefs.clear();
+        mutations.add(new Mutation(PayloadFailure.VALID, null, null, null, "/", "base payload"));
+        if (document instanceof ObjectNode) {
+            visit((ObjectNode) document, root, "", null, 0);
+        }
+        for (Object[] leafref : leafrefs) {
+            danglingLeafref((Member) leafref[0], (ObjectNode) leafref[1], (String) leafref[2], (String) leafref[3]);
+        }
+
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> earlier = Files.newDirectoryStream(directory, CASE_FILE)) {
+            for (Path file : earlier) {
+                Files.delete(file);
+            }
+        }
+        int digits = Math.max(5, String.valueOf(mutations.size() - 1).length());
+        List<PayloadCase> cases = new ArrayList<>();
+        for (int i = 0; i < mutations.size(); i++) {
+            Mutation mutation = mutations.get(i);
+            String file = String.format("%0" + digits + "d-%s.json", i, mutation.failure.getLabel());
+            cases.add(new PayloadCase(file, mutation.failure.getLabel(), mutation.path, mutation.detail));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < mutations.size(); i++) {
+                Mutation mutation = mutations.get(i);
+                Path file = directory.resolve(cases.get(i).getFile());
+                tasks.add(pool.submit(() -> writeCase(document, mutation, file)));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(directory.resolve(INDEX).toFile(), cases);
+        return cases;
+    }
+
+    private void addChildren(Member parent, String module, Map<String, TypeProperty> types,
+                             Optional<Map<String, LeafDto>> leaves, Optional<Map<String, ContainerDto>> containers,
+                             Optional<Map<String, LeafDto>> leafLists, Optional<Map<String, ContainerDto>> lists) {
+        if (leaves != null && leaves.isPresent()) {
+            leaves.get().forEach((name, leaf) -> addLeaf(parent, module, name, leaf, false, types));
+        }
+        if (leafLists != null && leafLists.isPresent()) {
+            leafLists.get().forEach((name, leaf) -> addLeaf(parent, module, name, leaf, true, types));
+        }
+        if (containers != null && containers.isPresent()) {
+            containers.get().forEach((name, container) -> addContainer(parent, module, name, container, false, types));
+        }
+        if (lists != null && lists.isPresent()) {
+            lists.get().forEach((name, container) -> addContainer(parent, module, name, container, true, types));
+        }
+    }
+
+    private void addLeaf(Member parent, String module, String name, LeafDto leaf, boolean leafList,
+                         Map<String, TypeProperty> types) {
+        String qualifiedName = qualify(module, name);
+        String leafModule = moduleOf(qualifiedName);
+        TypeProperty type = leaf.getTypeProperty();
+        if (type == null && leaf.getTypeRef() != null && types != null) {
+            type = types.get(leaf.getTypeRef());
+        }
+        String typeName = type == null ? null : type.getName();
+        if ("choice".equals(typeName)) {
+            if (type.getCases() != null && type.getCases().isPresent()) {
+                for (DataTreeDto caseTree : type.getCases().get().values()) {
+                    addChildren(parent, leafModule, types, caseTree.getLeaf(), caseTree.getContainer(),
+                            caseTree.getLeafList(), caseTree.getList());
+                }
+            }
+            return;
+        }
+        boolean any = "anydata".equals(typeName) || "anyxml".equals(typeName);
+        Member member = new Member(leafModule, qualifiedName, leaf.getXpath(),
+                any ? Kind.ANY : leafList ? Kind.LEAF_LIST : Kind.LEAF, leaf.isConfig(), leaf.isMandatory(), type, null);
+        member.top = parent == root ? qualifiedName : parent.top;
+        parent.children.putIfAbsent(qualifiedName, member);
+        if (member.isLeafref()) {
+            String target = type.getLeafref().get();
+            referenced.add(target);
+            references.computeIfAbsent(member.top, top -> new HashSet<>()).add(topOf(target));
+        }
+    }
+
+    private void addContainer(Member parent, String module, String name, ContainerDto container, boolean list,
+                              Map<String, TypeProperty> types) {
+        String qualifiedName = qualify(module, name);
+        String containerModule = moduleOf(qualifiedName);
+        String key = list && container.getKey() != null ? container.getKey().orElse(null) : null;
+        Member member = new Member(containerModule, qualifiedName, container.getXpath(),
+                list ? Kind.LIST : Kind.CONTAINER, container.isConfig(), false, null, key);
+        member.top = parent == root ? qualifiedName : parent.top;
+        parent.children.putIfAbsent(qualifiedName, member);
+        addChildren(member, containerModule, types, container.getLeaf(), container.getContainer(),
+                container.getLeafList(), container.getList());
+    }
+
+    /**
+     * Type the member was converted from, leafrefs followed to the type of their target, null without a schema node.
+     */
+    private TypeDefinition<?> definition(Member member) {
+        DataSchemaNode node = member.xpath == null ? null : schemaNodes.get(member.xpath);
+        return node == null ? null : TypeRestrictions.declaredType(schemaContext, node);
+    }
+
+    private static String qualify(String module, String name) {
+        return name.indexOf(':') < 0 ? module + ":" + name : name;
+    }
+
+    /**
+     * "dev:interfaces" of "/dev:interfaces/dev:interface[name]/dev:name".
+     */
+    private static String topOf(String xpath) {
+        int end = xpath.indexOf('/', 1);
+        String top = end < 0 ? xpath.substring(1) : xpath.substring(1, end);
+        int predicate = top.indexOf('[');
+        return predicate < 0 ? top : top.substring(0, predicate);
+    }
+
+    private static String moduleOf(String qualifiedName) {
+        return qualifiedName.substring(0, qualifiedName.indexOf(':'));
+    }
+
+    private static String memberName(String objectModule, Member member) {
+        return member.module.equals(objectModule) ? member.name.substring(member.module.length() + 1) : member.name;
+    }
+
+    /**
+     * Collects the cases of the members of object, then of its descendants.
+     */
+    private void visit(ObjectNode object, Member schema, String path, String objectModule, int depth) {
+        if (visitedObjects.add(schema)) {
+            objectCases(object, schema, path, objectModule, depth);
+        }
+        Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            Member member = schema.children.get(objectModule == null ? field.getKey() : qualify(objectModule, field.getKey()));
+            if (member == null) {
+                continue;
+            }
+            String memberPath = path + "/" + field.getKey();
+            JsonNode value = field.getValue();
+            if (member.kind == Kind.LEAF || member.kind == Kind.LEAF_LIST) {
+                collectTargetValues(member, value);
+            }
+            boolean first = visited.add(member);
+            int from = mutations.size();
+            switch (member.kind) {
+                case LEAF:
+                    if (first) {
+                        leafCases(object, field.getKey(), value, member, memberPath);
+                    }
+                    break;
+                case LEAF_LIST:
+                    if (first && value.isArray() && value.size() > 0) {
+                        leafListCases(object, field.getKey(), (ArrayNode) value, member, memberPath);
+                    }
+                    break;
+                case CONTAINER:
+                    if (value.isObject()) {
+                        visit((ObjectNode) value, member, memberPath, member.module, depth + 1);
+                    }
+                    break;
+                case LIST:
+                    if (!value.isArray() || value.size() == 0) {
+                        break;
+                    }
+                    if (first) {
+                        listCases(object, field.getKey(), (ArrayNode) value, member, memberPath);
+                    }
+                    for (int i = 0; i < value.size(); i++) {
+                        if (value.get(i).isObject()) {
+                            visit((ObjectNode) value.get(i), member, memberPath + "[" + i + "]", member.module, depth + 1);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+            for (int i = from; i < mutations.size(); i++) {
+                if (mutations.get(i).top == null) {
+                    mutations.get(i).top = member.top;
+                }
+            }
+        }
+    }
+
+    private void collectTargetValues(Member member, JsonNode value) {
+        if (!referenced.contains(member.xpath)) {
+            return;
+        }
+        Set<String> values = targetValues.computeIfAbsent(member.xpath, xpath -> new HashSet<>());
+        if (value.isArray()) {
+            value.forEach(element -> values.add(element.asText()));
+        } else {
+            values.add(value.asText());
+        }
+    }
+
+    /**
+     * State data and unknown members added to the object, mandatory leaves removed from it.
+     */
+    private void objectCases(ObjectNode object, Member schema, String path, String objectModule, int depth) {
+        String objectPath = path.isEmpty() ? "/" : path;
+        if (depth == 1) {
+            mutations.add(new Mutation(PayloadFailure.UNKNOWN_MEMBER, object, "no-such-node", NODES.textNode("x"),
+                    path + "/no-such-node", "member not in the schema"));
+        }
+        for (Member member : schema.children.values()) {
+            String field = memberName(objectModule, member);
+            if (options.isConfig() && schema.config && !member.config) {
+                JsonNode value = stateValue(member);
+                if (value != null) {
+                    Mutation mutation = new Mutation(PayloadFailure.STATE_DATA, object, field, value, path + "/" + field,
+                            "config false " + member.kind.name().toLowerCase(Locale.ROOT) + " " + member.name);
+                    mutation.top = member.top;
+                    mutations.add(mutation);
+                }
+            }
+            if (member.kind == Kind.LEAF && member.mandatory && !member.isLeafref() && object.has(field)
+                    && !referenced.contains(member.xpath) && !field.equals(schema.key)) {
+                Mutation mutation = new Mutation(PayloadFailure.MISSING_MANDATORY, object, field, null,
+                        objectPath, "mandatory leaf " + member.name + " left out");
+                mutation.top = member.top;
+                mutations.add(mutation);
+            }
+        }
+    }
+
+    private JsonNode stateValue(Member member) {
+        switch (member.kind) {
+            case LEAF:
+            case LEAF_LIST:
+                ValueSpace values = ValueSpace.of(member.type, definition(member), "/" + member.name);
+                Object value = values == null ? null : values.random(random);
+                if (value == null) {
+                    return null;
+                }
+                return member.kind == Kind.LEAF ? toNode(value) : NODES.arrayNode().add(toNode(value));
+            case LIST:
+                return NODES.arrayNode().add(NODES.objectNode());
+            default:
+                return NODES.objectNode();
+        }
+    }
+
+    private void leafCases(ObjectNode object, String field, JsonNode value, Member member, String path) {
+        if (referenced.contains(member.xpath)) {
+            return;
+        }
+        if (member.isLeafref()) {
+            leafrefs.add(new Object[]{member, object, field, path});
+            return;
+        }
+        for (Mutation mutation : typeCases(object, field, value, member, path, Function.identity())) {
+            mutations.add(mutation);
+        }
+    }
+
+    private void leafListCases(ObjectNode object, String field, ArrayNode value, Member member, String path) {
+        if (referenced.contains(member.xpath)) {
+            return;
+        }
+        if (member.config) {
+            ArrayNode duplicated = value.deepCopy().add(value.get(0));
+            mutations.add(new Mutation(PayloadFailure.DUPLICATE_LEAF_LIST_VALUE, object, field, duplicated, path,
+                    "value " + value.get(0) + " twice"));
+        }
+        if (member.isLeafref()) {
+            return;
+        }
+        // the first value is broken, the others stay
+        Function<JsonNode, JsonNode> inArray = element -> {
+            ArrayNode copy = value.deepCopy();
+            copy.set(0, element);
+            return copy;
+        };
+        mutations.addAll(typeCases(object, field, value.get(0), member, path + "[0]", inArray));
+    }
+
+    private void listCases(ObjectNode object, String field, ArrayNode entries, Member list, String path) {
+        JsonNode first = entries.get(0);
+        ArrayNode duplicated = NODES.arrayNode();
+        duplicated.addAll(entries);
+        duplicated.add(first);
+        mutations.add(new Mutation(PayloadFailure.DUPLICATE_KEY, object, field, duplicated,
+                path + "[" + entries.size() + "]", "entry 0 repeated"));
+        if (list.key == null || !first.isObject()) {
+            return;
+        }
+        Member key = list.children.get(qualify(list.module, list.key));
+        if (key != null && !referenced.contains(key.xpath) && first.has(list.key)) {
+            ObjectNode withoutKey = ((ObjectNode) first).deepCopy();
+            withoutKey.remove(list.key);
+            ArrayNode changed = NODES.arrayNode();
+            changed.add(withoutKey);
+            for (int i = 1; i < entries.size(); i++) {
+                changed.add(entries.get(i));
+            }
+            mutations.add(new Mutation(PayloadFailure.MISSING_KEY, object, field, changed, path + "[0]",
+                    "key " + list.key + " left out"));
+        }
+    }
+
+    private void danglingLeafref(Member member, ObjectNode object, String field, String path) {
+        if (member.type.getRequireInstance() != null && member.type.getRequireInstance().isPresent()
+                && !member.type.getRequireInstance().get()) {
+            return;
+        }
+        Set<String> existing = targetValues.getOrDefault(member.type.getLeafref().get(), Collections.emptySet());
+        // within the allowed ranges and lengths of the target, so only the reference is broken
+        ValueSpace values = ValueSpace.of(member.type, definition(member), "/");
+        if (values == null) {
+            return;
+        }
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Object value = values.random(random);
+            if (value != null && value != ValueSpace.EMPTY && !existing.contains(String.valueOf(value))) {
+                JsonNode node = toNode(value);
+                Mutation mutation = new Mutation(PayloadFailure.DANGLING_LEAFREF, object, field,
+                        member.kind == Kind.LEAF ? node : NODES.arrayNode().add(node), path,
+                        node + " is not a value of " + member.type.getLeafref().get());
+                mutation.top = member.top;
+                mutations.add(mutation);
+                return;
+            }
+        }
+    }
+
+    private interface TypeCase {
+        Mutation of(PayloadFailure failure, JsonNode value, String detail);
+    }
+
+    /**
+     * Values breaking the type of the leaf, wrap turns the value into the member value.
+     */
+    private List<Mutation> typeCases(ObjectNode object, String field, JsonNode value, Member member, String path,
+                                     Function<JsonNode, JsonNode> wrap) {
+        List<Mutation> cases = new ArrayList<>();
+        TypeProperty type = member.type;
+        TypeDefinition<?> definition = definition(member);
+        // the converted name of a type restricting a typedef is the typedef's
+        String name = type == null ? "" : definition != null ? TypeRestrictions.builtinName(definition)
+                : type.getName() == null ? "" : type.getName();
+        TypeCase mutation = (failure, broken, detail) ->
+                new Mutation(failure, object, field, wrap.apply(broken), path, detail);
+        switch (name) {
+            case "int8":
+            case "int16":
+            case "int32":
+            case "uint8":
+            case "uint16":
+            case "uint32":
+            case "int64":
+            case "uint64": {
+                boolean quoted = name.endsWith("64");
+                Function<BigInteger, JsonNode> node = number -> quoted ? NODES.textNode(number.toString())
+                        : NODES.numberNode(number);
+                List<Range<BigInteger>> ranges = intervals(TypeRestrictions.ranges(definition, BigInteger::new),
+                        new BigInteger(bound(type.getMin(), integerBound(name, false))),
+                        new BigInteger(bound(type.getMax(), integerBound(name, true))));
+                BigInteger min = ranges.get(0).lowerEndpoint();
+                BigInteger max = ranges.get(ranges.size() - 1).upperEndpoint();
+                BigInteger below = min.subtract(BigInteger.ONE);
+                BigInteger above = max.add(BigInteger.ONE);
+                cases.add(mutation.of(PayloadFailure.RANGE_BELOW, node.apply(below), below + " below min " + min));
+                cases.add(mutation.of(PayloadFailure.RANGE_ABOVE, node.apply(above), above + " above max " + max));
+                BigInteger gap = gap(ranges, number -> number.add(BigInteger.ONE));
+                if (gap != null) {
+                    cases.add(mutation.of(PayloadFailure.RANGE_GAP, node.apply(gap),
+                            gap + " is not in " + format(ranges)));
+                }
+                BigInteger current = new BigInteger(value.asText());
+                cases.add(mutation.of(PayloadFailure.WRONG_JSON_TYPE,
+                        quoted ? NODES.numberNode(current) : NODES.textNode(current.toString()),
+                        name + (quoted ? " as a json number" : " as a json string")));
+                break;
+            }
+            case "decimal64": {
+                int fractionDigits = type.getFractionDigits() == null ? 18 : type.getFractionDigits().orElse(18);
+                BigDecimal step = BigDecimal.ONE.movePointLeft(fractionDigits);
+                BigDecimal lowest = BigDecimal.valueOf(Long.MIN_VALUE, fractionDigits);
+                BigDecimal highest = BigDecimal.valueOf(Long.MAX_VALUE, fractionDigits);
+                List<Range<BigDecimal>> ranges = intervals(TypeRestrictions.ranges(definition, BigDecimal::new),
+                        new BigDecimal(bound(type.getMin(), lowest.toPlainString())),
+                        new BigDecimal(bound(type.getMax(), highest.toPlainString())));
+                BigDecimal min = ranges.get(0).lowerEndpoint();
+                BigDecimal max = ranges.get(ranges.size() - 1).upperEndpoint();
+                BigDecimal below = min.subtract(step).setScale(fractionDigits);
+                BigDecimal above = max.add(step).setScale(fractionDigits);
+                cases.add(mutation.of(PayloadFailure.RANGE_BELOW, NODES.textNode(below.toPlainString()),
+                        below.toPlainString() + " below min " + min.toPlainString()));
+                cases.add(mutation.of(PayloadFailure.RANGE_ABOVE, NODES.textNode(above.toPlainString()),
+                        above.toPlainString() + " above max " + max.toPlainString()));
+                BigDecimal gap = gap(ranges, number -> number.add(step));
+                if (gap != null) {
+                    String text = gap.setScale(fractionDigits).toPlainString();
+                    cases.add(mutation.of(PayloadFailure.RANGE_GAP, NODES.textNode(text),
+                            text + " is not in " + format(ranges)));
+                }
+                BigDecimal current = new BigDecimal(value.asText());
+                BigDecimal finer = current.add(step.movePointLeft(1));
+                if (!contains(ranges, finer)) {
+                    finer = current.subtract(step.movePointLeft(1));
+                }
+                if (contains(ranges, finer)) {
+                    cases.add(mutation.of(PayloadFailure.FRACTION_DIGITS, NODES.textNode(finer.toPlainString()),
+                            finer.toPlainString() + " has more than " + fractionDigits + " fraction digits"));
+                }
+                cases.add(mutation.of(PayloadFailure.WRONG_JSON_TYPE, NODES.numberNode(current),
+                        "decimal64 as a json number"));
+                break;
+            }
+            case "string":
+                stringCases(cases, value.asText(), lengths(type, definition), type, mutation);
+                cases.add(mutation.of(PayloadFailure.WRONG_JSON_TYPE, NODES.numberNode(1),
+                        "string as a json number"));
+                break;
+            case "binary": {
+                List<Range<Long>> lengths = lengths(type, definition);
+                long min = lengths.get(0).lowerEndpoint();
+                long max = lengths.get(lengths.size() - 1).upperEndpoint();
+                if (min > 0) {
+                    cases.add(mutation.of(PayloadFailure.LENGTH_BELOW,
+                            NODES.textNode(Base64.getEncoder().encodeToString(new byte[(int) min - 1])),
+                            (min - 1) + " bytes, min length " + min));
+                }
+                if (max < MAX_LENGTH_CASE) {
+                    cases.add(mutation.of(PayloadFailure.LENGTH_ABOVE,
+                            NODES.textNode(Base64.getEncoder().encodeToString(new byte[(int) max + 1])),
+                            (max + 1) + " bytes, max length " + max));
+                }
+                Long gap = gap(lengths, length -> length + 1);
+                if (gap != null && gap < MAX_LENGTH_CASE) {
+                    cases.add(mutation.of(PayloadFailure.LENGTH_GAP,
+                            NODES.textNode(Base64.getEncoder().encodeToString(new byte[gap.intValue()])),
+                            gap + " bytes, length not in " + format(lengths)));
+                }
+                cases.add(mutation.of(PayloadFailure.INVALID_BASE64, NODES.textNode("not base64!"),
+                        "not base64"));
+                break;
+            }
+            case "boolean":
+                cases.add(mutation.of(PayloadFailure.WRONG_JSON_TYPE, NODES.textNode(value.asText()),
+                        "boolean as a json string"));
+                break;
+            case "empty":
+                cases.add(mutation.of(PayloadFailure.WRONG_JSON_TYPE, NODES.textNode(""),
+                        "empty as \"\" instead of [null]"));
+                break;
+            case "enumeration": {
+                Set<String> names = type.getOptions() == null || type.getOptions().isEmpty() ? Collections.emptySet()
+                        : type.getOptions().get().stream().map(EnumType::getName).collect(Collectors.toSet());
+                String unknown = unused("no-such-enum", names);
+                cases.add(mutation.of(PayloadFailure.INVALID_ENUM, NODES.textNode(unknown),
+                        unknown + " is not one of " + names));
+                break;
+            }
+            case "bits": {
+                Set<String> names = type.getBits() == null || type.getBits().isEmpty() ? Collections.emptySet()
+                        : type.getBits().get().stream().map(BitsType::getName).collect(Collectors.toSet());
+                String unknown = unused("no-such-bit", names);
+                cases.add(mutation.of(PayloadFailure.INVALID_BIT, NODES.textNode(unknown),
+                        unknown + " is not one of " + names));
+                break;
+            }
+            case "identityref": {
+                String unknown = member.module + ":no-such-identity";
+                cases.add(mutation.of(PayloadFailure.INVALID_IDENTITY, NODES.textNode(unknown),
+                        unknown + " is not derived from " + bound(type.getBase(), "its base")));
+                break;
+            }
+            default:
+                // unions may take the broken value as one of their other types, instance-identifiers have no
+                // constraint worth breaking
+                break;
+        }
+        return cases;
+    }
+
+    private void stringCases(List<Mutation> cases, String current, List<Range<Long>> lengths, TypeProperty type,
+                             TypeCase mutation) {
+        long min = lengths.get(0).lowerEndpoint();
+        long max = lengths.get(lengths.size() - 1).upperEndpoint();
+        List<String> patterns = type.getPattern() == null || type.getPattern().isEmpty()
+                ? Collections.emptyList() : type.getPattern().get();
+        if (min > 0) {
+            String shorter = current.length() >= min ? current.substring(0, (int) min - 1) : null;
+            if (shorter != null && matchesAll(patterns, shorter)) {
+                cases.add(mutation.of(PayloadFailure.LENGTH_BELOW, NODES.textNode(shorter),
+                        "length " + shorter.length() + ", min length " + min));
+            }
+        }
+        if (max < MAX_LENGTH_CASE) {
+            String longer = padded(current, (int) max + 1, patterns);
+            if (longer != null) {
+                cases.add(mutation.of(PayloadFailure.LENGTH_ABOVE, NODES.textNode(longer),
+                        "length " + longer.length() + ", max length " + max));
+            }
+        }
+        Long gap = gap(lengths, length -> length + 1);
+        if (gap != null && gap < MAX_LENGTH_CASE) {
+            String resized = current.length() >= gap ? current.substring(0, gap.intValue())
+                    : padded(current, gap.intValue(), patterns);
+            if (resized != null && matchesAll(patterns, resized)) {
+                cases.add(mutation.of(PayloadFailure.LENGTH_GAP, NODES.textNode(resized),
+                        "length " + resized.length() + " not in " + format(lengths)));
+            }
+        }
+        if (!patterns.isEmpty()) {
+            String mismatch = mismatch(current, lengths, patterns);
+            if (mismatch != null) {
+                cases.add(mutation.of(PayloadFailure.PATTERN_MISMATCH, NODES.textNode(mismatch),
+                        "\"" + mismatch + "\" does not match " + String.join(" and ", patterns)));
+            }
+        }
+    }
+
+    /**
+     * The value lengthened to length with a character that keeps the patterns matching.
+     */
+    private static String padded(String value, int length, List<String> patterns) {
+        Set<Character> candidates = new LinkedHashSet<>();
+        if (!value.isEmpty()) {
+            candidates.add(value.charAt(value.length() - 1));
+        }
+        for (char c : "a0xA-".toCharArray()) {
+            candidates.add(c);
+        }
+        for (char c : candidates) {
+            StringBuilder builder = new StringBuilder(value);
+            while (builder.length() < length) {
+                builder.append(c);
+            }
+            String longer = builder.toString();
+            if (longer.length() == length && matchesAll(patterns, longer)) {
+                return longer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A value of a valid length not matching at least one pattern.
+     */
+    private static String mismatch(String value, List<Range<Long>> lengths, List<String> patterns) {
+        List<String> candidates = new ArrayList<>();
+        for (String c : MISMATCH_CHARACTERS) {
+            candidates.add(value.isEmpty() ? c : c + value.substring(1));
+            candidates.add(value + c);
+        }
+        candidates.add("");
+        for (String candidate : candidates) {
+            if (contains(lengths, (long) candidate.length()) && !matchesAll(patterns, candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matchesAll(List<String> patterns, String value) {
+        for (String pattern : patterns) {
+            if (!PatternStrings.matches(pattern, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Allowed lengths of the definition, the span of the converted type without one.
+     */
+    private static List<Range<Long>> lengths(TypeProperty type, TypeDefinition<?> definition) {
+        return intervals(TypeRestrictions.lengths(definition), Long.parseLong(bound(type.getMin(), "0")),
+                Long.parseLong(bound(type.getMax(), String.valueOf(Long.MAX_VALUE))));
+    }
+
+    private static <T extends Comparable<? super T>> List<Range<T>> intervals(List<Range<T>> allowed, T min, T max) {
+        return allowed == null || allowed.isEmpty() ? Collections.singletonList(Range.closed(min, max)) : allowed;
+    }
+
+    /**
+     * The value after the end of the first interval the next one does not start at, null without a gap.
+     */
+    private static <T extends Comparable<? super T>> T gap(List<Range<T>> ranges, UnaryOperator<T> next) {
+        for (int i = 1; i < ranges.size(); i++) {
+            T value = next.apply(ranges.get(i - 1).upperEndpoint());
+            if (value.compareTo(ranges.get(i).lowerEndpoint()) < 0) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static <T extends Comparable<? super T>> boolean contains(List<Range<T>> ranges, T value) {
+        for (Range<T> range : ranges) {
+            if (range.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String format(List<? extends Range<?>> ranges) {
+        return ranges.stream().map(range -> range.lowerEndpoint() + ".." + range.upperEndpoint())
+                .collect(Collectors.joining(" | "));
+    }
+
+    private static String unused(String name, Set<String> names) {
+        String unused = name;
+        while (names.contains(unused)) {
+            unused += "-x";
+        }
+        return unused;
+    }
+
+    private static String integerBound(String name, boolean max) {
+        int bits = Integer.parseInt(name.substring(name.indexOf("int") + 3));
+        if (name.startsWith("u")) {
+            return max ? BigInteger.ONE.shiftLeft(bits).subtract(BigInteger.ONE).toString() : "0";
+        }
+        BigInteger half = BigInteger.ONE.shiftLeft(bits - 1);
+        return max ? half.subtract(BigInteger.ONE).toString() : half.negate().toString();
+    }
+
+    private static String bound(Optional<String> value, String otherwise) {
+        return value == null ? otherwise : value.orElse(otherwise);
+    }
+
+    private static JsonNode toNode(Object value) {
+        if (value instanceof Long) {
+            return NODES.numberNode((Long) value);
+        }
+        if (value instanceof Boolean) {
+            return NODES.booleanNode((Boolean) value);
+        }
+        if (value == ValueSpace.EMPTY) {
+            return NODES.arrayNode().addNull();
+        }
+        return NODES.textNode((String) value);
+    }
+
+    private void writeCase(JsonNode document, Mutation mutation, Path file) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+             JsonGenerator generator = MAPPER.getFactory().createGenerator(out)) {
+            if (mutation.top == null) {
+                write(generator, document, mutation);
+                return;
+            }
+            Set<String> included = included(mutation.top);
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = document.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                Member member = root.children.get(field.getKey());
+                if (included.contains(field.getKey()) || member == null
+                        || member.kind == Kind.LEAF || member.kind == Kind.LEAF_LIST) {
+                    if (document != mutation.container || !field.getKey().equals(mutation.field)) {
+                        generator.writeFieldName(field.getKey());
+                        write(generator, field.getValue(), mutation);
+                    }
+                }
+            }
+            if (document == mutation.container && mutation.value != null) {
+                generator.writeFieldName(mutation.field);
+                write(generator, mutation.value, mutation);
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The top-level node and those its leafrefs point into, directly or through other top-level nodes.
+     */
+    private Set<String> included(String top) {
+        Set<String> included = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(top);
+        while (!pending.isEmpty()) {
+            String next = pending.poll();
+            if (included.add(next)) {
+                pending.addAll(references.getOrDefault(next, Collections.emptySet()));
+            }
+        }
+        return included;
+    }
+
+    /**
+     * The base with the mutation applied, the base itself is not changed so all cases can share it.
+     */
+    private static void write(JsonGenerator generator, JsonNode node, Mutation mutation) throws IOException {
+        if (node.isObject()) {
+            boolean mutated = node == mutation.container;
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (mutated && field.getKey().equals(mutation.field)) {
+                    continue;
+                }
+                generator.writeFieldName(field.getKey());
+                write(generator, field.getValue(), mutation);
+            }
+            if (mutated && mutation.value != null) {
+                generator.writeFieldName(mutation.field);
+                write(generator, mutation.value, mutation);
+            }
+            generator.writeEndObject();
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (JsonNode element : node) {
+                write(generator, element, mutation);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeTree(node);
+        }
+    }
+}
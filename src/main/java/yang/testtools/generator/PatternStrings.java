@@ -0,0 +1,345 @@
+package yang.testtools.generator;
+
+import org.opendaylight.yangtools.yang.model.util.RegexUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Random strings matching the XSD regular expressions of yang patterns. Covers literals, ., character classes,
+ * \d \w \s \i \c \p{..} and their negations, groups, alternatives and all quantifiers. Class subtraction and
+ * block escapes are approximated, every result is checked against the compiled pattern.
+ */
+final class PatternStrings {
+    private static final int UNBOUNDED_EXTRA = 4; // repetitions beyond the minimum for * + {n,}
+    private static final String PRINTABLE = printable();
+    private static final String WORD = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String DIGITS = "0123456789";
+    private static final Map<String, Optional<Pattern>> PATTERNS = new ConcurrentHashMap<>();
+
+    private final String regex;
+    private final Random random;
+    private int position;
+
+    private PatternStrings(String regex, Random random) {
+        this.regex = regex;
+        this.random = random;
+    }
+
+    /**
+     * @return false for an expression Java cannot compile, nothing then matches it
+     */
+    static boolean matches(String regex, String value) {
+        Optional<Pattern> pattern = PATTERNS.computeIfAbsent(regex, expression -> {
+            try {
+                return Optional.of(Pattern.compile(RegexUtils.getJavaRegexFromXSD(expression)));
+            } catch (PatternSyntaxException e) {
+                return Optional.empty();
+            }
+        });
+        return pattern.isPresent() && pattern.get().matcher(value).matches();
+    }
+
+    /**
+     * A string of the expression, not checked against it.
+     *
+     * @return null when the expression uses syntax this does not know
+     */
+    static String generate(String regex, Random random) {
+        PatternStrings generator = new PatternStrings(regex, random);
+        StringBuilder builder = new StringBuilder();
+        try {
+            generator.alternatives(builder);
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            return null;
+        }
+        return generator.position == regex.length() ? builder.toString() : null;
+    }
+
+    private void alternatives(StringBuilder builder) {
+        List<Integer> starts = new ArrayList<>();
+        int start = position;
+        // find the alternatives of this level, then generate one of them
+        starts.add(position);
+        int depth = 0;
+        boolean inClass = false;
+        for (int i = position; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    break;
+                }
+                depth--;
+            } else if (c == '|' && depth == 0) {
+                starts.add(i + 1);
+            }
+        }
+        position = starts.get(random.nextInt(starts.size()));
+        branch(builder);
+        // skip the other alternatives up to the end of the group
+        position = start;
+        skipAlternatives();
+    }
+
+    private void skipAlternatives() {
+        int depth = 0;
+        boolean inClass = false;
+        while (position < regex.length()) {
+            char c = regex.charAt(position);
+            if (c == '\\') {
+                position++;
+            } else if (inClass) {
+                if (c == ']') {
+                    inClass = false;
+                }
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                if (depth == 0) {
+                    return;
+                }
+                depth--;
+            }
+            position++;
+        }
+    }
+
+    private void branch(StringBuilder builder) {
+        while (position < regex.length() && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+            int atomStart = position;
+            skipAtom();
+            int atomEnd = position;
+            int[] repeat = quantifier();
+            int count = repeat[0] + (repeat[1] > repeat[0] ? random.nextInt(repeat[1] - repeat[0] + 1) : 0);
+            int after = position;
+            for (int i = 0; i < count; i++) {
+                position = atomStart;
+                atom(builder);
+            }
+            if (position != atomEnd && count > 0) {
+                throw new IllegalArgumentException("atom");
+            }
+            position = after;
+        }
+    }
+
+    private void skipAtom() {
+        char c = regex.charAt(position);
+        if (c == '(') {
+            position++;
+            skipAlternatives();
+            expect(')');
+        } else if (c == '[') {
+            skipClass();
+        } else if (c == '\\') {
+            position += regex.charAt(position + 1) == 'p' || regex.charAt(position + 1) == 'P'
+                    ? regex.indexOf('}', position) + 1 - position : 2;
+        } else {
+            position++;
+        }
+    }
+
+    private void skipClass() {
+        int depth = 0;
+        while (true) {
+            char c = regex.charAt(position++);
+            if (c == '\\') {
+                position++;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return;
+            }
+        }
+    }
+
+    private int[] quantifier() {
+        if (position >= regex.length()) {
+            return new int[]{1, 1};
+        }
+        switch (regex.charAt(position)) {
+            case '?':
+                position++;
+                return new int[]{0, 1};
+            case '*':
+                position++;
+                return new int[]{0, UNBOUNDED_EXTRA};
+            case '+':
+                position++;
+                return new int[]{1, 1 + UNBOUNDED_EXTRA};
+            case '{':
+                int end = regex.indexOf('}', position);
+                String[] bounds = regex.substring(position + 1, end).split(",", -1);
+                position = end + 1;
+                int min = Integer.parseInt(bounds[0].trim());
+                if (bounds.length == 1) {
+                    return new int[]{min, min};
+                }
+                return new int[]{min, bounds[1].trim().isEmpty() ? min + UNBOUNDED_EXTRA : Integer.parseInt(bounds[1].trim())};
+            default:
+                return new int[]{1, 1};
+        }
+    }
+
+    private void atom(StringBuilder builder) {
+        char c = regex.charAt(position);
+        switch (c) {
+            case '(':
+                position++;
+                alternatives(builder);
+                expect(')');
+                return;
+            case '[':
+                builder.append(pick(characterClass()));
+                return;
+            case '.':
+                position++;
+                builder.append(pick(PRINTABLE));
+                return;
+            case '\\':
+                builder.append(pick(escape()));
+                return;
+            default:
+                position++;
+                builder.append(c);
+        }
+    }
+
+    /**
+     * Characters of a class, {@code [...]}, {@code [^...]} or with a subtraction {@code [...-[...]]}.
+     */
+    private String characterClass() {
+        expect('[');
+        boolean negated = regex.charAt(position) == '^';
+        if (negated) {
+            position++;
+        }
+        StringBuilder members = new StringBuilder();
+        String subtracted = "";
+        while (regex.charAt(position) != ']') {
+            if (regex.charAt(position) == '-' && regex.charAt(position + 1) == '[') {
+                position++;
+                subtracted = characterClass();
+                continue;
+            }
+            String from = classCharacter();
+            if (from.length() == 1 && regex.charAt(position) == '-' && regex.charAt(position + 1) != ']'
+                    && regex.charAt(position + 1) != '[') {
+                position++;
+                String to = classCharacter();
+                for (char m = from.charAt(0); m <= to.charAt(0); m++) {
+                    members.append(m);
+                }
+            } else {
+                members.append(from);
+            }
+        }
+        position++;
+        String result = negated ? without(PRINTABLE, members.toString()) : members.toString();
+        return without(result, subtracted);
+    }
+
+    private String classCharacter() {
+        if (regex.charAt(position) == '\\') {
+            return escape();
+        }
+        return String.valueOf(regex.charAt(position++));
+    }
+
+    private String escape() {
+        expect('\\');
+        char c = regex.charAt(position++);
+        switch (c) {
+            case 'd':
+                return DIGITS;
+            case 'D':
+                return without(PRINTABLE, DIGITS);
+            case 'w':
+                return WORD;
+            case 'W':
+                return without(PRINTABLE, WORD);
+            case 's':
+                return " ";
+            case 'S':
+                return without(PRINTABLE, " ");
+            case 'i':
+                return LETTERS + "_:";
+            case 'I':
+                return DIGITS + "-.";
+            case 'c':
+                return WORD + "-.:";
+            case 'C':
+                return " !\"#$%&'()*+,/;<=>?@[\\]^`{|}~";
+            case 'n':
+                return "\n";
+            case 'r':
+                return "\r";
+            case 't':
+                return "\t";
+            case 'p':
+            case 'P':
+                int end = regex.indexOf('}', position);
+                String property = regex.substring(position + 1, end);
+                position = end + 1;
+                String members = property.startsWith("N") ? DIGITS : property.startsWith("L") ? LETTERS
+                        : property.startsWith("Is") ? LETTERS : null;
+                if (members == null) {
+                    throw new IllegalArgumentException(property);
+                }
+                return c == 'p' ? members : without(PRINTABLE, members);
+            default:
+                return String.valueOf(c);
+        }
+    }
+
+    private void expect(char c) {
+        if (regex.charAt(position) != c) {
+            throw new IllegalArgumentException("expected " + c);
+        }
+        position++;
+    }
+
+    private char pick(String characters) {
+        if (characters.isEmpty()) {
+            throw new IllegalArgumentException("empty class");
+        }
+        return characters.charAt(random.nextInt(characters.length()));
+    }
+
+    private static String without(String characters, String removed) {
+        StringBuilder builder = new StringBuilder();
+        for (char c : characters.toCharArray()) {
+            if (removed.indexOf(c) < 0) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String printable() {
+        StringBuilder builder = new StringBuilder();
+        for (char c = ' '; c <= '~'; c++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package yang.testtools.generator;
+
+import lombok.Data;
+
+/**
+ * One file of a negative payload corpus, an entry of its index.json.
+ */
+@Data
+public class PayloadCase {
+    private String file;
+    private String label; // see PayloadFailure
+    private String path; // instance path of the broken node, as the validator reports it
+    private String detail;
+
+    public PayloadCase() {
+    }
+
+    public PayloadCase(String file, String label, String path, String detail) {
+        this.file = file;
+        this.label = label;
+        this.path = path;
+        this.detail = detail;
+    }
+}
@@ -0,0 +1,50 @@
+package yang.testtools.generator;
+
+/**
+ * The one constraint a payload of {@link NegativePayloadGenerator} breaks, its label is part of the file name.
+ */
+public enum PayloadFailure {
+    /**
+     * The payload all others are derived from, breaks nothing.
+     */
+    VALID("valid"),
+    RANGE_BELOW("range-below"),
+    RANGE_ABOVE("range-above"),
+    /**
+     * between two intervals, e.g. 7 for range "1..5 | 10..20"
+     */
+    RANGE_GAP("range-gap"),
+    LENGTH_BELOW("length-below"),
+    LENGTH_ABOVE("length-above"),
+    LENGTH_GAP("length-gap"),
+    PATTERN_MISMATCH("pattern-mismatch"),
+    FRACTION_DIGITS("fraction-digits"),
+    /**
+     * e.g. an int32 as a json string or an int64 as a json number
+     */
+    WRONG_JSON_TYPE("wrong-json-type"),
+    INVALID_ENUM("invalid-enum"),
+    INVALID_BIT("invalid-bit"),
+    INVALID_IDENTITY("invalid-identity"),
+    INVALID_BASE64("invalid-base64"),
+    MISSING_MANDATORY("missing-mandatory"),
+    MISSING_KEY("missing-key"),
+    DUPLICATE_KEY("duplicate-key"),
+    DUPLICATE_LEAF_LIST_VALUE("duplicate-leaf-list-value"),
+    DANGLING_LEAFREF("dangling-leafref"),
+    /**
+     * a config false node in a config payload
+     */
+    STATE_DATA("state-data"),
+    UNKNOWN_MEMBER("unknown-member");
+
+    private final String label;
+
+    PayloadFailure(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,635 @@
+package yang.testtools.generator;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.opendaylight.yangtools.yang.common.QName;
+import org.opendaylight.yangtools.yang.model.api.CaseSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.ChoiceSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.DataNodeContainer;
+import org.opendaylight.yangtools.yang.model.api.DataSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.ElementCountConstraint;
+import org.opendaylight.yangtools.yang.model.api.ElementCountConstraintAware;
+import org.opendaylight.yangtools.yang.model.api.ListSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.SchemaContext;
+import org.opendaylight.yangtools.yang.model.api.TypedDataSchemaNode;
+import yang.testtools.helper.TypeRestrictions;
+import yang.testtools.yangparser.MySchemaContextUtils;
+import yang.testtools.yangparser.schema.ContainerDto;
+import yang.testtools.yangparser.schema.DataTreeDto;
+import yang.testtools.yangparser.schema.LeafDto;
+import yang.testtools.yangparser.schema.ModuleDto;
+import yang.testtools.yangparser.schema.type.TypeProperty;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Writes valid RFC 7951 json instance data of converted modules, for load tests and as validator input. Values
+ * follow the types, ranges, lengths, patterns, enums, bits and identities of the leaves, every mandatory leaf and
+ * every leaf some leafref points to is present and list keys are unique, composite keys included. The document
+ * is streamed, lists of millions of entries take no more memory than a few.
+ * <p>
+ * List keys are enumerated, entry i of a list gets the i-th combination of distinct key values, so a leafref to a
+ * key picks an entry number and finds the key values it had. Other leaves some leafref points to get values that
+ * depend only on the entry number. Keys whose type cannot be enumerated, e.g. a pattern that no plain alphabet
+ * matches, are random and checked against the earlier entries of the list. A leafref to such a list can miss.
+ * <p>
+ * Conditions are not evaluated: nodes with a when are left out unless {@link PayloadOptions#isConditionalNodes},
+ * must, unique and the predicates of leafref paths other than through keys are not taken into account.
+ * A generator writes one payload at a time.
+ */
+public class PayloadGenerator {
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final int KEY_ATTEMPTS = 100;
+
+    private enum Kind {
+        LEAF, LEAF_LIST, CONTAINER, LIST, CHOICE,
+        /**
+         * anydata and anyxml, written as an empty object
+         */
+        ANY
+    }
+
+    private static final class Node {
+        final Node parent; // object the node is a member of, for nodes of a case the one holding the choice
+        final String module;
+        final String name; // "module:name"
+        final String xpath;
+        final Kind kind;
+        final boolean config;
+        final boolean mandatory;
+        final long hash;
+        final Node list; // innermost list entry the node is in, null when it is in none
+        final String top; // top-level node the node is in
+        boolean conditional; // has a when
+
+        final List<Node> members = new ArrayList<>(); // container and list
+        final List<List<Node>> cases = new ArrayList<>(); // choice
+        Node choice; // choice whose case the node is in
+        int caseIndex;
+        int preferredCase = -1; // a case holding a leafref target, written instead of a random one
+
+        ValueSpace values; // leaf and leaf-list
+        String leafref;
+        Node target;
+        boolean referenced; // some leafref points to it
+
+        // list and leaf-list
+        int minElements;
+        int maxElements = Integer.MAX_VALUE;
+        final List<Node> keys = new ArrayList<>();
+        int keyPosition = -1; // leaf, in the keys of its list
+        long[] radix; // number of values of each key, entry i takes the digits of i
+        boolean enumerated; // keys or leaf-list values enumerated, else random and checked
+        int size = -1; // -2 while being computed
+        long current = -1; // entry being written
+        Object[] entryKeys; // random keys of the entry being written
+
+        Node(Node parent, String module, String name, String xpath, Kind kind, boolean config, boolean mandatory,
+             Node list, String top) {
+            this.parent = parent;
+            this.module = module;
+            this.name = name;
+            this.xpath = xpath;
+            this.kind = kind;
+            this.config = config;
+            this.mandatory = mandatory;
+            this.hash = xpath == null ? 0 : xpath.hashCode();
+            this.list = list;
+            this.top = top;
+        }
+    }
+
+    private final PayloadOptions options;
+    private final Node root = new Node(null, null, null, null, Kind.CONTAINER, true, false, null, null);
+    private final SchemaContext schemaContext;
+    private final Map<String, DataSchemaNode> schemaNodes = new HashMap<>(); // leaves, leaf-lists and lists by xpath
+    private final Map<String, Node> leavesByXpath = new HashMap<>();
+    private final List<Node> leafrefs = new ArrayList<>();
+    private final Random pure = new Random();
+    private Random random;
+    private long values;
+
+    /**
+     * @param schemaContext the modules were converted from, it gives the keys of the lists after the first, the
+     *                      min/max-elements and the allowed ranges and lengths
+     * @param modules       converted with unlimited depth
+     */
+    public PayloadGenerator(SchemaContext schemaContext, Collection<ModuleDto> modules, PayloadOptions options) {
+        this.options = options;
+        this.schemaContext = schemaContext;
+        for (Module module : schemaContext.getModules()) {
+            for (DataSchemaNode child : module.getChildNodes()) {
+                indexSchema(schemaContext, child, null, schemaNodes);
+            }
+        }
+        for (ModuleDto module : modules) {
+            DataTreeDto dataTree = module.getDataTree();
+            if (dataTree != null && (options.getModules() == null || options.getModules().contains(module.getName()))) {
+                addChildren(root, module.getName(), module.getTypes(), dataTree.getLeaf(), dataTree.getContainer(),
+                        dataTree.getLeafList(), dataTree.getList(), root.members, null, 0);
+            }
+        }
+        for (Node leaf : leafrefs) {
+            leaf.target = leavesByXpath.get(leaf.leafref);
+            if (leaf.target != null) {
+                markReferenced(leaf.target);
+            }
+        }
+    }
+
+    public long write(Path payload) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(payload), 1 << 16)) {
+            return write(out);
+        }
+    }
+
+    /**
+     * @return number of leaf and leaf-list values written
+     */
+    public long write(OutputStream out) throws IOException {
+        random = new Random(options.getSeed());
+        values = 0;
+        try (JsonGenerator generator = FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writeObject(generator, root);
+        }
+        return values;
+    }
+
+    /**
+     * Adds the leaves, leaf-lists and lists at and under node by the xpath the converter gives them.
+     */
+    static void indexSchema(SchemaContext schemaContext, DataSchemaNode node, String parentXpath,
+                            Map<String, DataSchemaNode> schemaNodes) {
+        if (node instanceof ChoiceSchemaNode) {
+            for (CaseSchemaNode caseNode : ((ChoiceSchemaNode) node).getCases()) {
+                for (DataSchemaNode child : caseNode.getChildNodes()) {
+                    indexSchema(schemaContext, child, parentXpath, schemaNodes);
+                }
+            }
+            return;
+        }
+        String xpath = parentXpath == null ? MySchemaContextUtils.getXpathFromSchemaNode(schemaContext, node)
+                : MySchemaContextUtils.getXpathFromParent(schemaContext, parentXpath, node);
+        if (node instanceof ListSchemaNode || node instanceof TypedDataSchemaNode) {
+            schemaNodes.putIfAbsent(xpath, node);
+        }
+        if (node instanceof DataNodeContainer) {
+            for (DataSchemaNode child : ((DataNodeContainer) node).getChildNodes()) {
+                indexSchema(schemaContext, child, xpath, schemaNodes);
+            }
+        }
+    }
+
+    private void addChildren(Node parent, String module, Map<String, TypeProperty> types,
+                             Optional<Map<String, LeafDto>> leaves, Optional<Map<String, ContainerDto>> containers,
+                             Optional<Map<String, LeafDto>> leafLists, Optional<Map<String, ContainerDto>> lists,
+                             List<Node> into, Node choice, int caseIndex) {
+        List<Node> added = new ArrayList<>();
+        if (leaves != null && leaves.isPresent()) {
+            leaves.get().forEach((name, leaf) -> added.add(addLeaf(parent, module, name, leaf, false, types)));
+        }
+        if (leafLists != null && leafLists.isPresent()) {
+            leafLists.get().forEach((name, leaf) -> added.add(addLeaf(parent, module, name, leaf, true, types)));
+        }
+        if (containers != null && containers.isPresent()) {
+            containers.get().forEach((name, container) -> added.add(addContainer(parent, module, name, container, false, types)));
+        }
+        if (lists != null && lists.isPresent()) {
+            lists.get().forEach((name, container) -> added.add(addContainer(parent, module, name, container, true, types)));
+        }
+        for (Node node : added) {
+            node.choice = choice;
+            node.caseIndex = caseIndex;
+            into.add(node);
+        }
+    }
+
+    private Node addLeaf(Node parent, String module, String name, LeafDto leaf, boolean leafList,
+                         Map<String, TypeProperty> types) {
+        String qualifiedName = qualify(module, name);
+        String leafModule = moduleOf(qualifiedName);
+        TypeProperty type = leaf.getTypeProperty();
+        if (type == null && leaf.getTypeRef() != null && types != null) {
+            type = types.get(leaf.getTypeRef());
+        }
+        String typeName = type == null ? null : type.getName();
+        Node list = parent.kind == Kind.LIST ? parent : parent.list;
+        String top = parent == root ? qualifiedName : parent.top;
+
+        if ("choice".equals(typeName)) {
+            Node choice = new Node(parent, leafModule, qualifiedName, null, Kind.CHOICE, leaf.isConfig(), leaf.isMandatory(), list, top);
+            choice.conditional = leaf.getWhen() != null && leaf.getWhen().isPresent();
+            if (type.getCases() != null && type.getCases().isPresent()) {
+                for (DataTreeDto caseTree : type.getCases().get().values()) {
+                    List<Node> caseNodes = new ArrayList<>();
+                    addChildren(parent, leafModule, types, caseTree.getLeaf(), caseTree.getContainer(),
+                            caseTree.getLeafList(), caseTree.getList(), caseNodes, choice, choice.cases.size());
+                    choice.cases.add(caseNodes);
+                }
+            }
+            return choice;
+        }
+
+        boolean any = "anydata".equals(typeName) || "anyxml".equals(typeName);
+        Node node = new Node(parent, leafModule, qualifiedName, leaf.getXpath(),
+                any ? Kind.ANY : leafList ? Kind.LEAF_LIST : Kind.LEAF, leaf.isConfig(), leaf.isMandatory(), list, top);
+        node.conditional = leaf.getWhen() != null && leaf.getWhen().isPresent();
+        if (any) {
+            return node;
+        }
+        DataSchemaNode schemaNode = node.xpath == null ? null : schemaNodes.get(node.xpath);
+        node.values = ValueSpace.of(type, schemaNode == null ? null
+                : TypeRestrictions.declaredType(schemaContext, schemaNode), "/" + top);
+        if (type != null && type.getLeafref() != null && type.getLeafref().isPresent()) {
+            node.leafref = type.getLeafref().get();
+            leafrefs.add(node);
+        }
+        if (leafList) {
+            elementCount(node);
+        }
+        if (node.xpath != null) {
+            leavesByXpath.putIfAbsent(node.xpath, node);
+        }
+        return node;
+    }
+
+    private Node addContainer(Node parent, String module, String name, ContainerDto container, boolean list,
+                              Map<String, TypeProperty> types) {
+        String qualifiedName = qualify(module, name);
+        String containerModule = moduleOf(qualifiedName);
+        Node node = new Node(parent, containerModule, qualifiedName, container.getXpath(),
+                list ? Kind.LIST : Kind.CONTAINER, container.isConfig(), false,
+                parent.kind == Kind.LIST ? parent : parent.list, parent == root ? qualifiedName : parent.top);
+        node.conditional = container.getWhen() != null && container.getWhen().isPresent();
+        addChildren(node, containerModule, types, container.getLeaf(), container.getContainer(),
+                container.getLeafList(), container.getList(), node.members, null, 0);
+        if (!list) {
+            return node;
+        }
+        elementCount(node);
+        DataSchemaNode schemaNode = schemaNodes.get(node.xpath);
+        List<String> keyNames = new ArrayList<>();
+        if (schemaNode instanceof ListSchemaNode) {
+            for (QName key : ((ListSchemaNode) schemaNode).getKeyDefinition()) {
+                keyNames.add(qualify(containerModule, key.getLocalName()));
+            }
+        } else if (container.getKey() != null && container.getKey().isPresent()) {
+            keyNames.add(qualify(containerModule, container.getKey().get()));
+        }
+        for (String keyName : keyNames) {
+            for (Node member : node.members) {
+                if (member.kind == Kind.LEAF && member.name.equals(keyName)) {
+                    member.keyPosition = node.keys.size();
+                    node.keys.add(member);
+                }
+            }
+        }
+        // keys first, as they are usually written
+        node.members.removeAll(node.keys);
+        node.members.addAll(0, node.keys);
+        return node;
+    }
+
+    private void elementCount(Node node) {
+        DataSchemaNode schemaNode = schemaNodes.get(node.xpath);
+        if (schemaNode instanceof ElementCountConstraintAware) {
+            Optional<ElementCountConstraint> constraint = ((ElementCountConstraintAware) schemaNode).getElementCountConstraint();
+            if (constraint.isPresent()) {
+                if (constraint.get().getMinElements() != null) {
+                    node.minElements = constraint.get().getMinElements();
+                }
+                if (constraint.get().getMaxElements() != null) {
+                    node.maxElements = constraint.get().getMaxElements();
+                }
+            }
+        }
+    }
+
+    /**
+     * The target and the containers and cases around it are always written.
+     */
+    private static void markReferenced(Node target) {
+        target.referenced = true;
+        for (Node node = target; node != null; node = node.choice != null ? node.choice : node.parent) {
+            if (node.choice != null && node.choice.preferredCase < 0) {
+                node.choice.preferredCase = node.caseIndex;
+            }
+        }
+    }
+
+    private static String qualify(String module, String name) {
+        return name.indexOf(':') < 0 ? module + ":" + name : name;
+    }
+
+    private static String moduleOf(String qualifiedName) {
+        return qualifiedName.substring(0, qualifiedName.indexOf(':'));
+    }
+
+    /**
+     * Entries of a list or values of a leaf-list, computed once as leafrefs need the sizes of their target lists.
+     */
+    private int size(Node node) {
+        if (node.size >= 0) {
+            return node.size;
+        }
+        if (node.size == -2) {
+            // leafref keys pointing at each other's lists
+            return 0;
+        }
+        node.size = -2;
+        Integer override = options.getListSizes().get(node.xpath);
+        int requested = override != null ? override : node.kind == Kind.LEAF_LIST ? options.getLeafListSize()
+                : node.list != null ? options.getNestedListSize() : options.getListSize();
+        requested = Math.min(Math.max(requested, node.minElements), node.maxElements);
+        if (node.referenced) {
+            requested = Math.max(requested, 1);
+        }
+
+        List<Node> keys = node.kind == Kind.LEAF_LIST ? List.of(node) : node.keys;
+        node.radix = new long[keys.size()];
+        long capacity = 1;
+        node.enumerated = true;
+        for (int i = 0; i < keys.size(); i++) {
+            node.radix[i] = keyCapacity(keys.get(i));
+            node.enumerated &= node.radix[i] > 0;
+            capacity = node.radix[i] > 0 && capacity > Long.MAX_VALUE / node.radix[i] ? Long.MAX_VALUE
+                    : capacity * node.radix[i];
+        }
+        if (node.enumerated && !keys.isEmpty() && capacity < requested) {
+            System.out.println((node.kind == Kind.LIST ? "List " : "Leaf-list ") + node.xpath + " has " + capacity
+                    + " distinct keys, writing that many entries instead of " + requested);
+            requested = (int) capacity;
+        }
+        node.size = requested;
+        return requested;
+    }
+
+    /**
+     * Number of distinct values key gives, 0 when they are random.
+     */
+    private long keyCapacity(Node key) {
+        if (key.target == null) {
+            return key.values == null ? 0 : key.values.capacity();
+        }
+        Node target = key.target;
+        if (target.keyPosition == 0 && target.list != null) {
+            // the first key of entry j is digit 0 of j, different for each j below its radix
+            int targetSize = size(target.list);
+            return target.list.enumerated ? Math.min(targetSize, target.list.radix[0]) : 0;
+        }
+        if (target.kind == Kind.LEAF_LIST && target.list == null) {
+            int targetSize = size(target);
+            return target.enumerated ? targetSize : 0;
+        }
+        return 0;
+    }
+
+    private Random pure(Node node, long ordinal) {
+        long seed = options.getSeed() * 0x9E3779B97F4A7C15L + node.hash;
+        seed = (seed ^ ordinal ^ (seed >>> 31)) * 0xBF58476D1CE4E5B9L;
+        pure.setSeed(seed ^ (seed >>> 29));
+        return pure;
+    }
+
+    private static long digit(Node list, int position, long ordinal) {
+        for (int i = 0; i < position; i++) {
+            ordinal /= list.radix[i];
+        }
+        return ordinal % list.radix[position];
+    }
+
+    /**
+     * Value number ordinal of an enumerated key or leaf-list.
+     */
+    private Object keyValue(Node key, long ordinal) {
+        if (key.target == null) {
+            return key.values.key(ordinal);
+        }
+        if (key.target.kind == Kind.LEAF_LIST) {
+            return leafListValue(key.target, 0, ordinal);
+        }
+        return targetValue(key.target, ordinal);
+    }
+
+    /**
+     * Value of a leaf some leafref points to in entry ordinal of its list, the same each time it is asked for.
+     */
+    private Object targetValue(Node target, long ordinal) {
+        Node list = target.list;
+        if (target.keyPosition >= 0) {
+            if (list.enumerated) {
+                return keyValue(target, digit(list, target.keyPosition, ordinal));
+            }
+            if (list.current == ordinal && list.entryKeys != null) {
+                return list.entryKeys[target.keyPosition];
+            }
+        }
+        if (target.kind == Kind.LEAF_LIST) {
+            return leafListValue(target, ordinal, 0);
+        }
+        if (target.target != null) {
+            return leafrefValue(target);
+        }
+        return target.values == null ? null : target.values.random(pure(target, ordinal));
+    }
+
+    private Object leafrefValue(Node leaf) {
+        Node target = leaf.target;
+        Node list = target.list;
+        if (list == null) {
+            return targetValue(target, 0);
+        }
+        if (list.current >= 0) {
+            // the leafref is inside the entry holding the target
+            return targetValue(target, list.current);
+        }
+        int size = size(list);
+        if (size == 0) {
+            return leaf.values == null ? null : leaf.values.random(random);
+        }
+        return targetValue(target, random.nextInt(size));
+    }
+
+    private Object leafValue(Node leaf) {
+        long ordinal = leaf.list == null ? 0 : leaf.list.current;
+        if (leaf.keyPosition >= 0) {
+            return leaf.list.enumerated ? keyValue(leaf, digit(leaf.list, leaf.keyPosition, ordinal))
+                    : leaf.list.entryKeys[leaf.keyPosition];
+        }
+        if (leaf.target != null) {
+            return leafrefValue(leaf);
+        }
+        if (leaf.values == null) {
+            return null;
+        }
+        return leaf.values.random(leaf.referenced ? pure(leaf, ordinal) : random);
+    }
+
+    /**
+     * Value number index of a leaf-list in entry ordinal of the list it is in. Enumerated values start at an
+     * offset that depends on the entry.
+     */
+    private Object leafListValue(Node leafList, long ordinal, long index) {
+        size(leafList);
+        if (!leafList.enumerated) {
+            return index == 0 && leafList.target == null && leafList.values != null
+                    ? leafList.values.random(pure(leafList, ordinal)) : null;
+        }
+        long capacity = leafList.radix[0];
+        // kept small, the values of large types would be long strings and numbers
+        long start = (pure(leafList, ordinal).nextLong() >>> 1) % Math.min(capacity, 1000);
+        return keyValue(leafList, (start + index) % capacity);
+    }
+
+    private boolean writable(Node node) {
+        return (!options.isConfig() || node.config) && (!node.conditional || options.isConditionalNodes());
+    }
+
+    private void writeObject(JsonGenerator generator, Node node) throws IOException {
+        generator.writeStartObject();
+        for (Node member : node.members) {
+            writeMember(generator, node, member);
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeMember(JsonGenerator generator, Node object, Node member) throws IOException {
+        if (!writable(member)) {
+            return;
+        }
+        switch (member.kind) {
+            case CHOICE:
+                if (member.cases.isEmpty()) {
+                    return;
+                }
+                int selected = member.preferredCase >= 0 ? member.preferredCase : random.nextInt(member.cases.size());
+                for (Node caseMember : member.cases.get(selected)) {
+                    writeMember(generator, object, caseMember);
+                }
+                return;
+            case LEAF:
+                if (!member.mandatory && member.keyPosition < 0 && !member.referenced
+                        && random.nextDouble() >= options.getOptionalChance()) {
+                    return;
+                }
+                Object value = leafValue(member);
+                if (value != null) {
+                    generator.writeFieldName(memberName(object, member));
+                    ValueSpace.write(generator, value);
+                    values++;
+                }
+                return;
+            case LEAF_LIST:
+                if (member.minElements == 0 && !member.referenced && random.nextDouble() >= options.getOptionalChance()) {
+                    return;
+                }
+                writeLeafList(generator, object, member);
+                return;
+            case ANY:
+                if (member.mandatory || random.nextDouble() < options.getOptionalChance()) {
+                    generator.writeFieldName(memberName(object, member));
+                    generator.writeStartObject();
+                    generator.writeEndObject();
+                }
+                return;
+            case CONTAINER:
+                generator.writeFieldName(memberName(object, member));
+                writeObject(generator, member);
+                return;
+            default:
+                writeList(generator, object, member);
+        }
+    }
+
+    private void writeLeafList(JsonGenerator generator, Node object, Node leafList) throws IOException {
+        int size = size(leafList);
+        if (size == 0) {
+            return;
+        }
+        long ordinal = leafList.list == null ? 0 : leafList.list.current;
+        generator.writeFieldName(memberName(object, leafList));
+        generator.writeStartArray();
+        if (leafList.enumerated) {
+            for (long i = 0; i < size; i++) {
+                Object value = leafListValue(leafList, ordinal, i);
+                if (value != null) {
+                    ValueSpace.write(generator, value);
+                    values++;
+                }
+            }
+        } else {
+            Set<Object> seen = new HashSet<>();
+            for (long i = 0; i < size; i++) {
+                Object value = null;
+                for (int attempt = 0; attempt < KEY_ATTEMPTS && value == null; attempt++) {
+                    Object candidate = i == 0 && attempt == 0 ? leafListValue(leafList, ordinal, 0)
+                            : leafList.target != null ? leafrefValue(leafList)
+                            : leafList.values == null ? null : leafList.values.random(random);
+                    if (candidate != null && seen.add(candidate)) {
+                        value = candidate;
+                    }
+                }
+                if (value == null) {
+                    break;
+                }
+                ValueSpace.write(generator, value);
+                values++;
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeList(JsonGenerator generator, Node object, Node list) throws IOException {
+        int size = size(list);
+        if (size == 0) {
+            return;
+        }
+        generator.writeFieldName(memberName(object, list));
+        generator.writeStartArray();
+        Set<List<Object>> seen = list.enumerated || list.keys.isEmpty() ? null : new HashSet<>();
+        for (long i = 0; i < size; i++) {
+            list.current = i;
+            if (seen != null && !randomKeys(list, seen)) {
+                System.out.println("List " + list.xpath + " ran out of distinct keys after " + i + " entries");
+                break;
+            }
+            writeObject(generator, list);
+        }
+        list.current = -1;
+        list.entryKeys = null;
+        generator.writeEndArray();
+    }
+
+    /**
+     * Keys of the current entry, different from those of the earlier ones.
+     */
+    private boolean randomKeys(Node list, Set<List<Object>> seen) {
+        Object[] keys = new Object[list.keys.size()];
+        for (int attempt = 0; attempt < KEY_ATTEMPTS; attempt++) {
+            boolean complete = true;
+            for (int k = 0; k < keys.length && complete; k++) {
+                Node key = list.keys.get(k);
+                keys[k] = key.target != null ? leafrefValue(key)
+                        : key.values == null ? null : key.values.random(attempt == 0 ? pure(key, list.current) : random);
+                complete = keys[k] != null;
+            }
+            if (complete && seen.add(Arrays.asList(keys.clone()))) {
+                list.entryKeys = keys;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String memberName(Node object, Node member) {
+        return member.module.equals(object.module) ? member.name.substring(member.module.length() + 1) : member.name;
+    }
+}
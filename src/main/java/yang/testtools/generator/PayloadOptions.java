@@ -0,0 +1,24 @@
+package yang.testtools.generator;
+
+import lombok.Data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shape of a payload written by {@link PayloadGenerator}. List sizes are kept within min-elements and
+ * max-elements and the number of distinct keys the key types allow.
+ */
+@Data
+public class PayloadOptions {
+    private long seed = 1; // same seed, schema and options, same payload
+    private int listSize = 10; // entries of lists not inside another list
+    private int nestedListSize = 3; // entries of lists inside a list entry
+    private Map<String, Integer> listSizes = new HashMap<>(); // by list or leaf-list xpath as in the module json, overrides the sizes above
+    private int leafListSize = 3;
+    private boolean config = true; // only config data, as for a RESTCONF PUT, false adds state data
+    private boolean conditionalNodes = false; // write nodes with a when, it may be false for the values written
+    private double optionalChance = 0.5; // chance of each optional leaf to be written
+    private Set<String> modules; // modules whose top-level nodes are written, null for all
+}
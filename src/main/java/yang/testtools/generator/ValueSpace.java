@@ -0,0 +1,641 @@
+package yang.testtools.generator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.Range;
+import org.opendaylight.yangtools.yang.model.api.TypeDefinition;
+import org.opendaylight.yangtools.yang.model.api.type.UnionTypeDefinition;
+import yang.testtools.helper.TypeRestrictions;
+import yang.testtools.yangparser.schema.type.BitsType;
+import yang.testtools.yangparser.schema.type.EnumType;
+import yang.testtools.yangparser.schema.type.IdentityType;
+import yang.testtools.yangparser.schema.type.TypeProperty;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.*;
+
+/**
+ * Values of a {@link TypeProperty} in their RFC 7951 json form: a Long is written as a json number, a String as a
+ * json string, a Boolean as true/false and {@link #EMPTY} as [null].
+ * <p>
+ * {@link #key} enumerates distinct values, {@link #random} picks any value. Values are within the allowed ranges
+ * and lengths of the type definition, {@code range "1..5 | 10..20"} gives no 7. Without a definition they are within
+ * the span the converted schema has. Lengths count characters, generated strings are ASCII.
+ */
+abstract class ValueSpace {
+    static final Object EMPTY = new Object();
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final int PATTERN_ATTEMPTS = 50;
+    private static final String[] KEY_ALPHABETS = {
+            "abcdefghijklmnopqrstuvwxyz", "0123456789", "0123456789abcdefghijklmnopqrstuvwxyz",
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZ", "0123456789abcdef", "01"
+    };
+    private static final String RANDOM_CHARACTERS = "abcdefghijklmnopqrstuvwxyz0123456789";
+
+    /**
+     * Number of distinct values {@link #key} gives, Long.MAX_VALUE for as many as needed, 0 when it gives none.
+     */
+    abstract long capacity();
+
+    /**
+     * @param ordinal below {@link #capacity}
+     * @return a different value for every ordinal, null when this one does not fit the type after all
+     */
+    abstract Object key(long ordinal);
+
+    /**
+     * @return null when no valid value was found
+     */
+    abstract Object random(Random random);
+
+    static void write(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof Long) {
+            generator.writeNumber((Long) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value == EMPTY) {
+            generator.writeStartArray();
+            generator.writeNull();
+            generator.writeEndArray();
+        } else {
+            generator.writeString((String) value);
+        }
+    }
+
+    static ValueSpace of(TypeProperty type, String instancePath) {
+        return of(type, null, instancePath);
+    }
+
+    /**
+     * @param definition   type of the leaf the property was converted from, with leafrefs resolved, may be null
+     * @param instancePath value of an instance-identifier
+     * @return null for anydata, anyxml and types without values
+     */
+    static ValueSpace of(TypeProperty type, TypeDefinition<?> definition, String instancePath) {
+        String name = type == null ? "" : definition != null ? TypeRestrictions.builtinName(definition)
+                : type.getName() == null ? "" : type.getName();
+        switch (name) {
+            case "int8":
+            case "int16":
+            case "int32":
+            case "uint8":
+            case "uint16":
+            case "uint32":
+                return new Integers(name, type, definition, false);
+            case "int64":
+            case "uint64":
+                return new Integers(name, type, definition, true);
+            case "decimal64":
+                return new Decimals(type, definition);
+            case "string":
+                return new Strings(type, definition);
+            case "binary":
+                return new Binaries(type, definition);
+            case "boolean":
+                return new Enumerated(List.of(false, true));
+            case "empty":
+                return new Enumerated(List.of(EMPTY));
+            case "enumeration":
+                List<Object> names = new ArrayList<>();
+                for (EnumType option : present(type.getOptions())) {
+                    names.add(option.getName());
+                }
+                return names.isEmpty() ? null : new Enumerated(names);
+            case "identityref":
+                List<Object> identities = new ArrayList<>();
+                for (IdentityType identity : present(type.getIdentities())) {
+                    identities.add(identity.getIdentity());
+                }
+                return identities.isEmpty() ? null : new Enumerated(identities);
+            case "bits":
+                return new Bits(present(type.getBits()));
+            case "instance-identifier":
+                return new Enumerated(List.of(instancePath));
+            case "union":
+                List<ValueSpace> members = new ArrayList<>();
+                List<TypeProperty> memberTypes = present(type.getUnionTypes());
+                // converted in the order of the definition, leafref members are left to their converted span
+                List<? extends TypeDefinition<?>> memberDefinitions = definition instanceof UnionTypeDefinition
+                        ? ((UnionTypeDefinition) definition).getTypes() : null;
+                for (int i = 0; i < memberTypes.size(); i++) {
+                    ValueSpace space = of(memberTypes.get(i), memberDefinitions != null
+                            && memberDefinitions.size() == memberTypes.size() ? memberDefinitions.get(i) : null,
+                            instancePath);
+                    if (space != null) {
+                        members.add(space);
+                    }
+                }
+                return members.isEmpty() ? null : new Union(members);
+            default:
+                return null;
+        }
+    }
+
+    private static <T> List<T> present(Optional<List<T>> values) {
+        return values == null || values.isEmpty() ? Collections.emptyList() : values.get();
+    }
+
+    private static String bound(Optional<String> value) {
+        return value == null ? null : value.orElse(null);
+    }
+
+    /**
+     * Allowed lengths, lower and upper bound of each interval one after the other.
+     */
+    private static long[] lengths(TypeProperty type, TypeDefinition<?> definition) {
+        List<Range<Long>> ranges = TypeRestrictions.lengths(definition);
+        if (ranges == null || ranges.isEmpty()) {
+            return new long[]{Strings.length(bound(type.getMin()), 0), Strings.length(bound(type.getMax()), Long.MAX_VALUE)};
+        }
+        long[] lengths = new long[ranges.size() * 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            lengths[2 * i] = ranges.get(i).lowerEndpoint();
+            lengths[2 * i + 1] = ranges.get(i).upperEndpoint();
+        }
+        return lengths;
+    }
+
+    private static boolean inLengths(long[] lengths, long length) {
+        for (int i = 0; i < lengths.length; i += 2) {
+            if (length >= lengths[i] && length <= lengths[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Index of a random non-empty interval of lengths, -1 when all are empty.
+     */
+    private static int randomInterval(long[] lengths, Random random) {
+        int first = random.nextInt(lengths.length / 2);
+        for (int i = 0; i < lengths.length / 2; i++) {
+            int interval = (first + i) % (lengths.length / 2);
+            if (lengths[2 * interval] <= lengths[2 * interval + 1]) {
+                return interval;
+            }
+        }
+        return -1;
+    }
+
+    private static long saturatedPower(long base, long exponent) {
+        long result = 1;
+        for (long i = 0; i < exponent; i++) {
+            if (result > Long.MAX_VALUE / base) {
+                return Long.MAX_VALUE;
+            }
+            result *= base;
+        }
+        return result;
+    }
+
+    /**
+     * Digits of ordinal in base radix, most significant first, padded with zero digits to minWidth. Different
+     * ordinals give different digits: padded ones all have minWidth digits, longer ones no leading zero.
+     */
+    private static int[] digits(long ordinal, int radix, long minWidth) {
+        int width = 1;
+        for (long rest = ordinal / radix; rest > 0; rest /= radix) {
+            width++;
+        }
+        int[] digits = new int[(int) Math.max(width, minWidth)];
+        long rest = ordinal;
+        for (int i = digits.length - 1; i >= 0 && rest > 0; i--) {
+            digits[i] = (int) (rest % radix);
+            rest /= radix;
+        }
+        return digits;
+    }
+
+    /**
+     * Random long in [0, span), span positive.
+     */
+    private static long below(Random random, long span) {
+        return (random.nextLong() >>> 1) % span;
+    }
+
+    /**
+     * An ordinal counts the values of the intervals one after the other.
+     */
+    private static final class Integers extends ValueSpace {
+        private final boolean quoted; // int64 and uint64 are json strings
+        private final BigInteger[] mins; // of each interval
+        private final BigInteger[] spans; // values in each interval
+        private final BigInteger span; // values in all intervals
+        private final long[] longMins; // mins and spans as long when they fit, else null
+        private final long[] longSpans;
+
+        Integers(String name, TypeProperty type, TypeDefinition<?> definition, boolean quoted) {
+            this.quoted = quoted;
+            List<Range<BigInteger>> ranges = TypeRestrictions.ranges(definition, BigInteger::new);
+            if (ranges == null || ranges.isEmpty()) {
+                BigInteger lowest = name.startsWith("u") ? BigInteger.ZERO
+                        : BigInteger.ONE.shiftLeft(bits(name) - 1).negate();
+                BigInteger highest = name.startsWith("u") ? BigInteger.ONE.shiftLeft(bits(name)).subtract(BigInteger.ONE)
+                        : BigInteger.ONE.shiftLeft(bits(name) - 1).subtract(BigInteger.ONE);
+                ranges = Collections.singletonList(Range.closed(parse(bound(type.getMin()), lowest),
+                        parse(bound(type.getMax()), highest)));
+            }
+            this.mins = new BigInteger[ranges.size()];
+            this.spans = new BigInteger[ranges.size()];
+            BigInteger span = BigInteger.ZERO;
+            boolean fits = true;
+            for (int i = 0; i < ranges.size(); i++) {
+                mins[i] = ranges.get(i).lowerEndpoint();
+                spans[i] = ranges.get(i).upperEndpoint().subtract(mins[i]).add(BigInteger.ONE).max(BigInteger.ZERO);
+                span = span.add(spans[i]);
+                fits &= mins[i].bitLength() < 63;
+            }
+            this.span = span;
+            fits &= span.bitLength() < 63;
+            this.longMins = fits ? new long[mins.length] : null;
+            this.longSpans = fits ? new long[mins.length] : null;
+            for (int i = 0; fits && i < mins.length; i++) {
+                longMins[i] = mins[i].longValueExact();
+                longSpans[i] = spans[i].longValueExact();
+            }
+        }
+
+        private static int bits(String name) {
+            return Integer.parseInt(name.substring(name.indexOf("int") + 3));
+        }
+
+        private static BigInteger parse(String value, BigInteger otherwise) {
+            try {
+                return value == null ? otherwise : new BigInteger(value);
+            } catch (NumberFormatException e) {
+                return otherwise;
+            }
+        }
+
+        @Override
+        long capacity() {
+            return span.min(LONG_MAX).longValue();
+        }
+
+        @Override
+        Object key(long ordinal) {
+            if (longSpans != null) {
+                return encode(value(ordinal));
+            }
+            return encode(value(BigInteger.valueOf(ordinal)));
+        }
+
+        @Override
+        Object random(Random random) {
+            if (span.signum() == 0) {
+                return null;
+            }
+            if (longSpans != null) {
+                return encode(value(below(random, span.longValue())));
+            }
+            BigInteger offset;
+            do {
+                offset = new BigInteger(span.bitLength(), random);
+            } while (offset.compareTo(span) >= 0);
+            return encode(value(offset));
+        }
+
+        private long value(long offset) {
+            int i = 0;
+            while (i < longSpans.length - 1 && offset >= longSpans[i]) {
+                offset -= longSpans[i++];
+            }
+            return longMins[i] + offset;
+        }
+
+        private BigInteger value(BigInteger offset) {
+            int i = 0;
+            while (i < spans.length - 1 && offset.compareTo(spans[i]) >= 0) {
+                offset = offset.subtract(spans[i++]);
+            }
+            return mins[i].add(offset);
+        }
+
+        private Object encode(long value) {
+            return quoted ? Long.toString(value) : (Object) value;
+        }
+
+        private Object encode(BigInteger value) {
+            return quoted ? value.toString() : (Object) value.longValue();
+        }
+    }
+
+    /**
+     * Values are unscaled longs, written with the fraction digits of the type. An ordinal counts the values of the
+     * intervals one after the other.
+     */
+    private static final class Decimals extends ValueSpace {
+        private final int fractionDigits;
+        private final long[] mins; // of each interval
+        private final long[] spans; // values in each interval, Long.MAX_VALUE when larger
+        private final long span; // values in all intervals, Long.MAX_VALUE when larger
+
+        Decimals(TypeProperty type, TypeDefinition<?> definition) {
+            this.fractionDigits = type.getFractionDigits() == null ? 18 : type.getFractionDigits().orElse(18);
+            List<BigInteger[]> intervals = new ArrayList<>();
+            List<Range<BigDecimal>> ranges = TypeRestrictions.ranges(definition, BigDecimal::new);
+            if (ranges == null || ranges.isEmpty()) {
+                intervals.add(new BigInteger[]{unscaled(bound(type.getMin()), Long.MIN_VALUE, fractionDigits),
+                        unscaled(bound(type.getMax()), Long.MAX_VALUE, fractionDigits)});
+            } else {
+                for (Range<BigDecimal> range : ranges) {
+                    // endpoints with more digits than the type are rounded into the interval
+                    intervals.add(new BigInteger[]{
+                            range.lowerEndpoint().setScale(fractionDigits, RoundingMode.CEILING).unscaledValue(),
+                            range.upperEndpoint().setScale(fractionDigits, RoundingMode.FLOOR).unscaledValue()});
+                }
+            }
+            this.mins = new long[intervals.size()];
+            this.spans = new long[intervals.size()];
+            long span = 0;
+            for (int i = 0; i < intervals.size(); i++) {
+                BigInteger min = intervals.get(i)[0].max(BigInteger.valueOf(Long.MIN_VALUE));
+                mins[i] = min.longValue();
+                spans[i] = intervals.get(i)[1].subtract(min).add(BigInteger.ONE).max(BigInteger.ZERO).min(LONG_MAX)
+                        .longValue();
+                span = span > Long.MAX_VALUE - spans[i] ? Long.MAX_VALUE : span + spans[i];
+            }
+            this.span = span;
+        }
+
+        private static BigInteger unscaled(String value, long otherwise, int fractionDigits) {
+            if (value == null) {
+                return BigInteger.valueOf(otherwise);
+            }
+            try {
+                return new BigDecimal(value).setScale(fractionDigits, RoundingMode.UNNECESSARY).unscaledValue();
+            } catch (ArithmeticException | NumberFormatException e) {
+                return BigInteger.valueOf(otherwise);
+            }
+        }
+
+        @Override
+        long capacity() {
+            return span;
+        }
+
+        @Override
+        Object key(long ordinal) {
+            int i = 0;
+            while (i < spans.length - 1 && ordinal >= spans[i]) {
+                ordinal -= spans[i++];
+            }
+            return BigDecimal.valueOf(mins[i] + ordinal, fractionDigits).toPlainString();
+        }
+
+        @Override
+        Object random(Random random) {
+            return span == 0 ? null : key(below(random, span));
+        }
+    }
+
+    /**
+     * Keys have the lengths of the last interval, the one with the most strings.
+     */
+    private static final class Strings extends ValueSpace {
+        private final long[] lengths;
+        private final long minLength; // of keys
+        private final long maxLength;
+        private final List<String> patterns;
+        private final String keyAlphabet; // null when no alphabet fits the patterns
+        private final long capacity;
+
+        Strings(TypeProperty type, TypeDefinition<?> definition) {
+            this.lengths = lengths(type, definition);
+            this.minLength = lengths[lengths.length - 2];
+            this.maxLength = lengths[lengths.length - 1];
+            this.patterns = present(type.getPattern());
+            String keyAlphabet = null;
+            long capacity = 0;
+            for (String alphabet : KEY_ALPHABETS) {
+                long alphabetCapacity = saturatedPower(alphabet.length(), maxLength);
+                if (fits(alphabet, alphabetCapacity)) {
+                    keyAlphabet = alphabet;
+                    capacity = alphabetCapacity;
+                    break;
+                }
+            }
+            this.keyAlphabet = keyAlphabet;
+            this.capacity = minLength > maxLength ? 0 : capacity;
+        }
+
+        private static long length(String value, long otherwise) {
+            try {
+                return value == null ? otherwise : Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return otherwise;
+            }
+        }
+
+        /**
+         * An alphabet is used for keys when a sample of its strings matches.
+         */
+        private boolean fits(String alphabet, long alphabetCapacity) {
+            for (long ordinal : new long[]{0, 1, 9, 15, 25, 35, 36, 100, 1000, 123_456, alphabetCapacity - 1}) {
+                if (ordinal < alphabetCapacity && !valid(spell(alphabet, ordinal))) {
+                    return false;
+                }
+            }
+            return alphabetCapacity > 0;
+        }
+
+        private String spell(String alphabet, long ordinal) {
+            StringBuilder builder = new StringBuilder();
+            for (int digit : digits(ordinal, alphabet.length(), minLength)) {
+                builder.append(alphabet.charAt(digit));
+            }
+            return builder.toString();
+        }
+
+        private boolean valid(String value) {
+            if (!inLengths(lengths, value.length())) {
+                return false;
+            }
+            for (String pattern : patterns) {
+                if (!PatternStrings.matches(pattern, value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        long capacity() {
+            return capacity;
+        }
+
+        @Override
+        Object key(long ordinal) {
+            String value = spell(keyAlphabet, ordinal);
+            return patterns.isEmpty() || valid(value) ? value : null;
+        }
+
+        @Override
+        Object random(Random random) {
+            if (patterns.isEmpty()) {
+                int interval = randomInterval(lengths, random);
+                if (interval < 0) {
+                    return null;
+                }
+                long length = Math.max(lengths[2 * interval], 1) + random.nextInt(8);
+                StringBuilder builder = new StringBuilder();
+                for (long i = Math.min(length, lengths[2 * interval + 1]); i > 0; i--) {
+                    builder.append(RANDOM_CHARACTERS.charAt(random.nextInt(RANDOM_CHARACTERS.length())));
+                }
+                return builder.toString();
+            }
+            for (int i = 0; i < PATTERN_ATTEMPTS; i++) {
+                String value = PatternStrings.generate(patterns.get(i % patterns.size()), random);
+                if (value != null && valid(value)) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Keys have the lengths of the last interval, the one with the most values.
+     */
+    private static final class Binaries extends ValueSpace {
+        private final long[] lengths;
+        private final long minLength; // of keys
+        private final long maxLength;
+
+        Binaries(TypeProperty type, TypeDefinition<?> definition) {
+            this.lengths = lengths(type, definition);
+            this.minLength = lengths[lengths.length - 2];
+            this.maxLength = lengths[lengths.length - 1];
+        }
+
+        @Override
+        long capacity() {
+            return minLength > maxLength ? 0 : saturatedPower(256, maxLength);
+        }
+
+        @Override
+        Object key(long ordinal) {
+            int[] digits = digits(ordinal, 256, minLength);
+            byte[] bytes = new byte[digits.length];
+            for (int i = 0; i < digits.length; i++) {
+                bytes[i] = (byte) digits[i];
+            }
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+
+        @Override
+        Object random(Random random) {
+            int interval = randomInterval(lengths, random);
+            if (interval < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[(int) Math.min(lengths[2 * interval] + random.nextInt(16), lengths[2 * interval + 1])];
+            random.nextBytes(bytes);
+            return Base64.getEncoder().encodeToString(bytes);
+        }
+    }
+
+    /**
+     * A fixed list of values: booleans, enum names, identities.
+     */
+    private static final class Enumerated extends ValueSpace {
+        private final List<Object> values;
+
+        Enumerated(List<Object> values) {
+            this.values = values;
+        }
+
+        @Override
+        long capacity() {
+            return values.size();
+        }
+
+        @Override
+        Object key(long ordinal) {
+            return values.get((int) ordinal);
+        }
+
+        @Override
+        Object random(Random random) {
+            return values.get(random.nextInt(values.size()));
+        }
+    }
+
+    /**
+     * The bits of an ordinal are the bits set, in the order of the type.
+     */
+    private static final class Bits extends ValueSpace {
+        private final List<String> names = new ArrayList<>();
+
+        Bits(List<BitsType> bits) {
+            for (BitsType bit : bits) {
+                names.add(bit.getName());
+            }
+        }
+
+        @Override
+        long capacity() {
+            return names.size() >= 63 ? Long.MAX_VALUE : 1L << names.size();
+        }
+
+        @Override
+        Object key(long ordinal) {
+            StringJoiner value = new StringJoiner(" ");
+            for (int i = 0; i < names.size() && i < 63; i++) {
+                if ((ordinal & 1L << i) != 0) {
+                    value.add(names.get(i));
+                }
+            }
+            return value.toString();
+        }
+
+        @Override
+        Object random(Random random) {
+            StringJoiner value = new StringJoiner(" ");
+            for (String name : names) {
+                if (random.nextBoolean()) {
+                    value.add(name);
+                }
+            }
+            return value.toString();
+        }
+    }
+
+    /**
+     * Keys come from the member with the most values.
+     */
+    private static final class Union extends ValueSpace {
+        private final List<ValueSpace> members;
+        private final ValueSpace keyMember;
+
+        Union(List<ValueSpace> members) {
+            this.members = members;
+            this.keyMember = members.stream().max(Comparator.comparingLong(ValueSpace::capacity)).get();
+        }
+
+        @Override
+        long capacity() {
+            return keyMember.capacity();
+        }
+
+        @Override
+        Object key(long ordinal) {
+            return keyMember.key(ordinal);
+        }
+
+        @Override
+        Object random(Random random) {
+            int first = random.nextInt(members.size());
+            for (int i = 0; i < members.size(); i++) {
+                Object value = members.get((first + i) % members.size()).random(random);
+                if (value != null) {
+                    return value;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package yang.testtools.generator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes valid yang modules of a given shape, see {@link YangCorpusOptions}. The directory can be passed
+ * straight to {@code YangParserUtils.yangToJsonFile}.
+ * <p>
+ * gen-types holds the identities, the typedef chain and the union, gen-00..gen-NN hold the data trees.
+ * Every module augments containers of the previous one.
+ */
+public class YangCorpusGenerator {
+    private static final String TYPES_MODULE = "gen-types";
+    private static final String TYPES_PREFIX = "gt";
+    private static final String[] UNION_MEMBERS = {
+            "uint8", "boolean", "string { length \"1..32\"; }", "enumeration { enum red; enum green; enum blue; }",
+            "decimal64 { fraction-digits 2; }", "int64"
+    };
+
+    private final YangCorpusOptions options;
+    private final Random random;
+    private final List<Integer> identityDepths = new ArrayList<>();
+    private int schemaNodes;
+
+    // state of the module being written
+    private String prefix;
+    private int nodeId;
+    private int groupingSize;
+    private List<String> containerPaths;
+    private List<String> keyPaths;
+
+    private YangCorpusGenerator(YangCorpusOptions options) {
+        this.options = options;
+        this.random = new Random(options.getSeed());
+    }
+
+    /**
+     * @return number of schema nodes of the data trees, groupings counted once per uses
+     */
+    public static int generate(YangCorpusOptions options, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        YangCorpusGenerator generator = new YangCorpusGenerator(options);
+        Files.writeString(directory.resolve(TYPES_MODULE + ".yang"), generator.typesModule());
+        List<String> previousContainers = new ArrayList<>();
+        for (int m = 0; m < options.getModuleCount(); m++) {
+            String module = generator.dataModule(m, previousContainers);
+            Files.writeString(directory.resolve(moduleName(m) + ".yang"), module);
+            previousContainers = generator.containerPaths;
+        }
+        return generator.schemaNodes;
+    }
+
+    private static String moduleName(int m) {
+        return String.format("gen-%02d", m);
+    }
+
+    private static String modulePrefix(int m) {
+        return String.format("g%02d", m);
+    }
+
+    private String typesModule() {
+        StringBuilder yang = new StringBuilder();
+        header(yang, TYPES_MODULE, TYPES_PREFIX, "urn:gen:types", "");
+
+        for (int i = 0; i < options.getIdentityCount(); i++) {
+            List<Integer> bases = new ArrayList<>();
+            for (int j = 0; j < i; j++) {
+                if (identityDepths.get(j) < options.getIdentityDepth()) {
+                    bases.add(j);
+                }
+            }
+            if (bases.isEmpty()) {
+                identityDepths.add(0);
+                yang.append("  identity id-").append(i).append(";\n");
+            } else {
+                int base = bases.get(random.nextInt(bases.size()));
+                identityDepths.add(identityDepths.get(base) + 1);
+                yang.append("  identity id-").append(i).append(" { base id-").append(base).append("; }\n");
+            }
+        }
+        yang.append('\n');
+
+        for (int i = 0; i < options.getTypedefChainLength(); i++) {
+            // every link narrows the range of the previous one
+            String base = i == 0 ? "uint32" : "chain-" + (i - 1);
+            yang.append("  typedef chain-").append(i).append(" { type ").append(base)
+                    .append(" { range \"0..").append(1000000 - i * 1000).append("\"; } }\n");
+        }
+
+        if (options.getUnionWidth() > 0) {
+            yang.append("  typedef multi {\n    type union {\n");
+            for (String member : unionMembers()) {
+                yang.append("      type ").append(member).append(typeEnd(member)).append('\n');
+            }
+            yang.append("    }\n  }\n");
+        }
+        yang.append("}\n");
+        return yang.toString();
+    }
+
+    private List<String> unionMembers() {
+        List<String> members = new ArrayList<>();
+        if (options.getTypedefChainLength() > 0) {
+            members.add("chain-" + (options.getTypedefChainLength() - 1));
+        }
+        if (options.getIdentityCount() > 0) {
+            members.add("identityref { base id-0; }");
+        }
+        members.addAll(Arrays.asList(UNION_MEMBERS));
+        // distinct members beyond the fixed ones
+        for (int i = members.size(); i < options.getUnionWidth(); i++) {
+            members.add("string { length \"" + i + "\"; }");
+        }
+        return members.subList(0, options.getUnionWidth());
+    }
+
+    private String dataModule(int m, List<String> previousContainers) {
+        prefix = modulePrefix(m);
+        nodeId = 0;
+        containerPaths = new ArrayList<>();
+        keyPaths = new ArrayList<>();
+
+        StringBuilder yang = new StringBuilder();
+        String imports = "  import " + TYPES_MODULE + " { prefix " + TYPES_PREFIX + "; }\n";
+        if (m > 0) {
+            imports += "  import " + moduleName(m - 1) + " { prefix " + modulePrefix(m - 1) + "; }\n";
+        }
+        header(yang, moduleName(m), prefix, "urn:gen:" + m, imports);
+
+        groupingSize = 0;
+        for (int g = 0; g < options.getGroupingCount(); g++) {
+            yang.append("  grouping group-").append(g).append(" {\n");
+            int before = schemaNodes;
+            leaf(yang, "    ", "g" + g + "-a");
+            leaf(yang, "    ", "g" + g + "-b");
+            yang.append("    container g").append(g).append("-c {\n");
+            schemaNodes++;
+            leaf(yang, "      ", "g" + g + "-d");
+            yang.append("    }\n  }\n");
+            // counted where used, every grouping has the same size
+            groupingSize = schemaNodes - before;
+            schemaNodes = before;
+        }
+        if (options.getGroupingCount() > 0) {
+            yang.append('\n');
+        }
+
+        String top = "/" + prefix + ":top";
+        yang.append("  container top {\n");
+        schemaNodes++;
+        containerPaths.add(top);
+        containerBody(yang, "    ", top, 0);
+        for (int i = 0; i < options.getLeafrefCount() && !keyPaths.isEmpty(); i++) {
+            yang.append("    leaf ref-").append(i).append(" { type leafref { path \"")
+                    .append(keyPaths.get(random.nextInt(keyPaths.size()))).append("\"; } }\n");
+            schemaNodes++;
+        }
+        yang.append("  }\n");
+
+        for (int i = 0; i < options.getAugmentsPerModule() && !previousContainers.isEmpty(); i++) {
+            yang.append("\n  augment \"").append(previousContainers.get(random.nextInt(previousContainers.size())))
+                    .append("\" {\n    container aug-").append(m).append('-').append(i).append(" {\n");
+            schemaNodes++;
+            leaf(yang, "      ", "aug-leaf-" + m + "-" + i);
+            yang.append("    }\n  }\n");
+        }
+        yang.append("}\n");
+        return yang.toString();
+    }
+
+    private void containerBody(StringBuilder yang, String indent, String path, int level) {
+        for (int i = 0; i < options.getLeavesPerContainer(); i++) {
+            leaf(yang, indent, "leaf-" + nextId());
+        }
+        for (int i = 0; i < options.getUsesPerContainer() && i < options.getGroupingCount(); i++) {
+            yang.append(indent).append("uses group-").append((level + i) % options.getGroupingCount()).append(";\n");
+            schemaNodes += groupingSize;
+        }
+        for (int i = 0; i < options.getListsPerContainer(); i++) {
+            list(yang, indent, path);
+        }
+        if (random.nextDouble() < options.getChoiceDensity()) {
+            choice(yang, indent);
+        }
+        if (level >= options.getDepth()) {
+            return;
+        }
+        for (int i = 0; i < options.getFanOut(); i++) {
+            String name = "c-" + nextId();
+            String childPath = path + "/" + prefix + ":" + name;
+            yang.append(indent).append("container ").append(name).append(" {\n");
+            schemaNodes++;
+            containerPaths.add(childPath);
+            containerBody(yang, indent + "  ", childPath, level + 1);
+            yang.append(indent).append("}\n");
+        }
+    }
+
+    private void list(StringBuilder yang, String indent, String path) {
+        int id = nextId();
+        String name = "list-" + id;
+        StringBuilder key = new StringBuilder();
+        for (int k = 0; k < options.getKeyArity(); k++) {
+            key.append(k > 0 ? " " : "").append("key-").append(k);
+        }
+        yang.append(indent).append("list ").append(name).append(" {\n");
+        schemaNodes++;
+        if (options.getKeyArity() > 0) {
+            yang.append(indent).append("  key \"").append(key).append("\";\n");
+            keyPaths.add(path + "/" + prefix + ":" + name + "/" + prefix + ":key-0");
+        }
+        for (int k = 0; k < options.getKeyArity(); k++) {
+            yang.append(indent).append("  leaf key-").append(k).append(" { type ")
+                    .append(k % 2 == 0 ? "string;" : "uint32;").append(" }\n");
+            schemaNodes++;
+        }
+        leaf(yang, indent + "  ", "value-" + id);
+        yang.append(indent).append("}\n");
+    }
+
+    private void choice(StringBuilder yang, String indent) {
+        int id = nextId();
+        yang.append(indent).append("choice choice-").append(id).append(" {\n");
+        schemaNodes++;
+        for (int c = 0; c < options.getCasesPerChoice(); c++) {
+            yang.append(indent).append("  case case-").append(id).append('-').append(c).append(" {\n");
+            schemaNodes++;
+            leaf(yang, indent + "    ", "case-leaf-" + id + "-" + c);
+            yang.append(indent).append("  }\n");
+        }
+        yang.append(indent).append("}\n");
+    }
+
+    private void leaf(StringBuilder yang, String indent, String name) {
+        String type = leafType();
+        yang.append(indent).append("leaf ").append(name).append(" { type ").append(type).append(typeEnd(type))
+                .append(" }\n");
+        schemaNodes++;
+    }
+
+    private String leafType() {
+        switch (random.nextInt(8)) {
+            case 0:
+                return "uint32";
+            case 1:
+                return "boolean";
+            case 2:
+                return options.getTypedefChainLength() > 0
+                        ? TYPES_PREFIX + ":chain-" + (options.getTypedefChainLength() - 1) : "uint16";
+            case 3:
+                return options.getUnionWidth() > 0 ? TYPES_PREFIX + ":multi" : "int8";
+            case 4:
+                return options.getIdentityCount() > 0
+                        ? "identityref { base " + TYPES_PREFIX + ":id-" + random.nextInt(options.getIdentityCount()) + "; }"
+                        : "int16";
+            case 5:
+                return "enumeration { enum on; enum off; }";
+            case 6:
+                return "int8 { range \"-10..10\"; }";
+            default:
+                return "string";
+        }
+    }
+
+    private static String typeEnd(String type) {
+        return type.endsWith("}") ? "" : ";";
+    }
+
+    private int nextId() {
+        return nodeId++;
+    }
+
+    private static void header(StringBuilder yang, String name, String prefix, String namespace, String imports) {
+        yang.append("module ").append(name).append(" {\n")
+                .append("  yang-version 1.1;\n")
+                .append("  namespace \"").append(namespace).append("\";\n")
+                .append("  prefix ").append(prefix).append(";\n\n");
+        if (!imports.isEmpty()) {
+            yang.append(imports).append('\n');
+        }
+        yang.append("  revision 2021-01-01;\n\n");
+    }
+}
@@ -0,0 +1,27 @@
+package yang.testtools.generator;
+
+import lombok.Data;
+
+/**
+ * Shape of a generated corpus. The defaults give about 1000 schema nodes per module.
+ */
+@Data
+public class YangCorpusOptions {
+    private long seed = 1; // same seed and options, same files
+    private int moduleCount = 10;
+    private int depth = 3; // container levels below the top container of a module
+    private int fanOut = 3; // child containers of each container above the last level
+    private int leavesPerContainer = 4;
+    private int listsPerContainer = 1;
+    private int keyArity = 1; // key leaves of each list
+    private double choiceDensity = 0.3; // chance of a container to have a choice
+    private int casesPerChoice = 3;
+    private int groupingCount = 3; // groupings of each module
+    private int usesPerContainer = 1;
+    private int augmentsPerModule = 2; // each module augments containers of the previous one
+    private int identityCount = 20; // identities of the shared types module
+    private int identityDepth = 3; // longest base chain
+    private int typedefChainLength = 4; // typedefs each derived from the previous one
+    private int unionWidth = 4; // member types of the shared union typedef
+    private int leafrefCount = 5; // leafrefs to list keys of each module
+}
@@ -0,0 +1,142 @@
+package yang.testtools.helper;
+
+import org.opendaylight.yangtools.yang.common.QName;
+import org.opendaylight.yangtools.yang.common.QNameModule;
+import org.opendaylight.yangtools.yang.common.Revision;
+import org.opendaylight.yangtools.yang.model.api.FeatureDefinition;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.rfc7950.ir.IRArgument;
+import org.opendaylight.yangtools.yang.parser.rfc7950.ir.IRStatement;
+import org.opendaylight.yangtools.yang.parser.rfc7950.repo.YangModelDependencyInfo;
+import org.opendaylight.yangtools.yang.parser.rfc7950.repo.YangStatementStreamSource;
+import org.opendaylight.yangtools.yang.parser.spi.meta.ReactorException;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+
+import java.net.URI;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Schema contexts of one set of sources, one per supported-feature set. The sources are parsed once and
+ * profiles resolving to the same features get the same context.
+ * <p>
+ * A feature is given as "feature" (in every module), "module:feature" or "module:*" (every feature of the module).
+ */
+public class FeatureProfiles {
+    private final List<YangStatementStreamSource> sources;
+    private final Map<Set<QName>, EffectiveSchemaContext> schemaContexts = new HashMap<>();
+    private EffectiveSchemaContext fullSchemaContext;
+    private Map<String, List<QName>> declaredFeatures; // module name to its features and its submodules'
+
+    public FeatureProfiles(List<YangStatementStreamSource> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * @param features null for every feature
+     */
+    public synchronized EffectiveSchemaContext getSchemaContext(Set<String> features) throws ReactorException {
+        if (features == null) {
+            return getFullSchemaContext();
+        }
+        Set<QName> supportedFeatures = resolveFeatures(features);
+        EffectiveSchemaContext schemaContext = schemaContexts.get(supportedFeatures);
+        if (schemaContext == null) {
+            schemaContext = YangUtils.buildSchemaContext(sources, supportedFeatures);
+            schemaContexts.put(supportedFeatures, schemaContext);
+        }
+        return schemaContext;
+    }
+
+    /**
+     * Feature names to QNames, through the feature statements of the sources. Sources not loaded by
+     * {@link YangUtils#loadSource} are resolved through the modules of the build with every feature.
+     */
+    public synchronized Set<QName> resolveFeatures(Set<String> features) throws ReactorException {
+        if (declaredFeatures == null) {
+            declaredFeatures = declaredFeatures();
+        }
+        Set<QName> supportedFeatures = new HashSet<>();
+        Set<String> unmatched = new TreeSet<>(features);
+        for (Map.Entry<String, List<QName>> module : declaredFeatures.entrySet()) {
+            for (QName feature : module.getValue()) {
+                String name = feature.getLocalName();
+                for (String wanted : new String[]{name, module.getKey() + ":" + name, module.getKey() + ":*"}) {
+                    if (features.contains(wanted)) {
+                        supportedFeatures.add(feature);
+                        unmatched.remove(wanted);
+                    }
+                }
+            }
+        }
+        for (String feature : unmatched) {
+            System.out.println("Unknown feature " + feature);
+        }
+        return supportedFeatures;
+    }
+
+    private Map<String, List<QName>> declaredFeatures() throws ReactorException {
+        Map<String, List<QName>> features = new HashMap<>();
+        if (sources.stream().anyMatch(source -> YangUtils.getRootStatement(source) == null)) {
+            for (Module module : getFullSchemaContext().getModules()) {
+                features.computeIfAbsent(module.getName(), name -> new ArrayList<>()).addAll(module.getFeatures()
+                        .stream().map(FeatureDefinition::getQName).collect(Collectors.toList()));
+            }
+            return features;
+        }
+        // submodule features are in the namespace of the module they belong to
+        Map<String, List<QNameModule>> modules = new HashMap<>();
+        for (YangStatementStreamSource source : sources) {
+            IRStatement root = YangUtils.getRootStatement(source);
+            if (isKeyword(root, "module")) {
+                String revision = YangModelDependencyInfo.getLatestRevision(root, source.getIdentifier());
+                modules.computeIfAbsent(argument(root), name -> new ArrayList<>()).add(QNameModule.create(
+                        URI.create(argument(child(root, "namespace"))), Revision.ofNullable(revision)));
+            }
+        }
+        for (YangStatementStreamSource source : sources) {
+            IRStatement root = YangUtils.getRootStatement(source);
+            String module = isKeyword(root, "module") ? argument(root) : argument(child(root, "belongs-to"));
+            for (IRStatement statement : root.statements()) {
+                if (!isKeyword(statement, "feature")) {
+                    continue;
+                }
+                List<QName> moduleFeatures = features.computeIfAbsent(module, name -> new ArrayList<>());
+                for (QNameModule namespace : modules.getOrDefault(module, Collections.emptyList())) {
+                    moduleFeatures.add(QName.create(namespace, argument(statement)));
+                }
+            }
+        }
+        return features;
+    }
+
+    private static boolean isKeyword(IRStatement statement, String keyword) {
+        return statement.keyword().prefix() == null && statement.keyword().identifier().equals(keyword);
+    }
+
+    private static IRStatement child(IRStatement statement, String keyword) {
+        for (IRStatement child : statement.statements()) {
+            if (isKeyword(child, keyword)) {
+                return child;
+            }
+        }
+        throw new IllegalArgumentException("No " + keyword + " in " + statement.keyword().identifier() + " "
+                + argument(statement));
+    }
+
+    private static String argument(IRStatement statement) {
+        IRArgument argument = statement.argument();
+        if (argument instanceof IRArgument.Single) {
+            return ((IRArgument.Single) argument).string();
+        }
+        return ((IRArgument.Concatenation) argument).parts().stream().map(IRArgument.Single::string)
+                .collect(Collectors.joining());
+    }
+
+    private EffectiveSchemaContext getFullSchemaContext() throws ReactorException {
+        if (fullSchemaContext == null) {
+            fullSchemaContext = YangUtils.buildSchemaContext(sources);
+        }
+        return fullSchemaContext;
+    }
+}
@@ -0,0 +1,71 @@
+package yang.testtools.helper;
+
+import com.google.common.collect.ImmutableMap;
+import org.opendaylight.yangtools.yang.common.QName;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.SchemaContext;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Module lookups of one schema context, built once so the conversion does not query the context for every node.
+ * Namespace and name resolve to the same module as {@code schemaContext.findModules(...).iterator().next()}.
+ */
+public class SchemaIndex {
+    private static final Map<SchemaContext, SchemaIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<URI, Module> namespaceModules;
+    private final Map<String, Module> nameModules;
+    private final Map<String, String> modulePrefixes;
+    private final Map<QName, String> qualifiedNames = new ConcurrentHashMap<>();
+
+    private SchemaIndex(SchemaContext schemaContext) {
+        Map<URI, Module> namespaces = new HashMap<>();
+        Map<String, Module> names = new HashMap<>();
+        Map<String, String> prefixes = new HashMap<>();
+        for (Module module : schemaContext.getModules()) {
+            namespaces.computeIfAbsent(module.getNamespace(), ns -> schemaContext.findModules(ns).iterator().next());
+            names.computeIfAbsent(module.getName(), name -> schemaContext.findModules(name).iterator().next());
+        }
+        for (Module module : names.values()) {
+            prefixes.put(module.getName(), module.getPrefix());
+        }
+        this.namespaceModules = ImmutableMap.copyOf(namespaces);
+        this.nameModules = ImmutableMap.copyOf(names);
+        this.modulePrefixes = ImmutableMap.copyOf(prefixes);
+    }
+
+    public static SchemaIndex of(SchemaContext schemaContext) {
+        return INDEXES.computeIfAbsent(schemaContext, SchemaIndex::new);
+    }
+
+    public Module findModule(URI namespace) {
+        Module module = namespaceModules.get(namespace);
+        if (module == null) {
+            throw new NoSuchElementException("No module with namespace " + namespace);
+        }
+        return module;
+    }
+
+    public Module findModule(String moduleName) {
+        Module module = nameModules.get(moduleName);
+        if (module == null) {
+            throw new NoSuchElementException("No module named " + moduleName);
+        }
+        return module;
+    }
+
+    public String getPrefix(String moduleName) {
+        return modulePrefixes.get(moduleName);
+    }
+
+    /**
+     * @return "module-name:local-name", the same String instance for every call with an equal QName
+     */
+    public String getQualifiedName(QName qName) {
+        return qualifiedNames.computeIfAbsent(qName,
+                name -> findModule(name.getNamespace()).getName() + ":" + name.getLocalName());
+    }
+}
@@ -0,0 +1,108 @@
+package yang.testtools.helper;
+
+import com.google.common.collect.Range;
+import org.opendaylight.yangtools.yang.model.api.DataSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.SchemaContext;
+import org.opendaylight.yangtools.yang.model.api.TypeDefinition;
+import org.opendaylight.yangtools.yang.model.api.TypedDataSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.type.LeafrefTypeDefinition;
+import org.opendaylight.yangtools.yang.model.api.type.LengthRestrictedTypeDefinition;
+import org.opendaylight.yangtools.yang.model.api.type.RangeConstraint;
+import org.opendaylight.yangtools.yang.model.api.type.RangeRestrictedTypeDefinition;
+import yang.testtools.yangparser.MySchemaContextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Restrictions of a type definition the converted {@code TypeProperty} does not keep: it has the span of the ranges
+ * and lengths, {@code range "1..5 | 10..20"} has a gap.
+ */
+public final class TypeRestrictions {
+    private static final int MAX_LEAFREFS = 16;
+
+    private TypeRestrictions() {
+    }
+
+    /**
+     * Type of a leaf or leaf-list, leafrefs followed to the type of their target with its restrictions, not to the
+     * built-in type as {@link MySchemaContextUtils#getBaseTypeForLeafRef} does.
+     *
+     * @return null when the node has no type or a leafref does not resolve
+     */
+    public static TypeDefinition<?> declaredType(SchemaContext schemaContext, DataSchemaNode node) {
+        for (int leafrefs = 0; node instanceof TypedDataSchemaNode && leafrefs < MAX_LEAFREFS; leafrefs++) {
+            TypeDefinition<?> type = ((TypedDataSchemaNode) node).getType();
+            if (!(type instanceof LeafrefTypeDefinition)) {
+                return type;
+            }
+            try {
+                node = MySchemaContextUtils.getSchemaNodeForLeafRef((LeafrefTypeDefinition) type, schemaContext, node);
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+        // a cycle of leafrefs has no type
+        return null;
+    }
+
+    /**
+     * The converted name of a type restricting a typedef is the typedef's, this is the built-in one.
+     */
+    public static String builtinName(TypeDefinition<?> definition) {
+        TypeDefinition<?> builtin = definition;
+        while (builtin.getBaseType() != null) {
+            builtin = builtin.getBaseType();
+        }
+        return builtin.getQName().getLocalName();
+    }
+
+    /**
+     * Allowed ranges of the most derived type restricting them, a derived range being within its base.
+     *
+     * @param parse of the endpoints as written in yang
+     * @return closed ranges in ascending order, null without a definition or range restriction
+     */
+    public static <T extends Comparable<? super T>> List<Range<T>> ranges(TypeDefinition<?> definition,
+                                                                         Function<String, T> parse) {
+        for (TypeDefinition<?> type = definition; type != null; type = type.getBaseType()) {
+            if (type instanceof RangeRestrictedTypeDefinition) {
+                Optional<? extends RangeConstraint<?>> constraint =
+                        ((RangeRestrictedTypeDefinition<?, ?>) type).getRangeConstraint();
+                if (constraint.isPresent()) {
+                    return convert(constraint.get().getAllowedRanges().asRanges(), parse);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Allowed lengths of the most derived type restricting them.
+     *
+     * @return closed ranges in ascending order, null without a definition or length restriction
+     */
+    public static List<Range<Long>> lengths(TypeDefinition<?> definition) {
+        for (TypeDefinition<?> type = definition; type != null; type = type.getBaseType()) {
+            if (type instanceof LengthRestrictedTypeDefinition
+                    && ((LengthRestrictedTypeDefinition<?>) type).getLengthConstraint().isPresent()) {
+                return convert(((LengthRestrictedTypeDefinition<?>) type).getLengthConstraint().get()
+                        .getAllowedRanges().asRanges(), Long::valueOf);
+            }
+        }
+        return null;
+    }
+
+    private static <T extends Comparable<? super T>> List<Range<T>> convert(Set<? extends Range<?>> ranges,
+                                                                         Function<String, T> parse) {
+        List<Range<T>> converted = new ArrayList<>();
+        for (Range<?> range : ranges) {
+            converted.add(Range.closed(parse.apply(range.lowerEndpoint().toString()),
+                    parse.apply(range.upperEndpoint().toString())));
+        }
+        return converted;
+    }
+}
@@ -1,56 +1,203 @@
 package yang.testtools.helper;
 
+import org.opendaylight.yangtools.yang.common.QName;
 import org.opendaylight.yangtools.yang.common.YangConstants;
 import org.opendaylight.yangtools.yang.model.api.Module;
 import org.opendaylight.yangtools.yang.model.parser.api.YangSyntaxErrorException;
 import org.opendaylight.yangtools.yang.model.repo.api.StatementParserMode;
 import org.opendaylight.yangtools.yang.model.repo.api.YangTextSchemaSource;
+import org.opendaylight.yangtools.yang.parser.rfc7950.ir.IRStatement;
 import org.opendaylight.yangtools.yang.parser.rfc7950.reactor.RFC7950Reactors;
+import org.opendaylight.yangtools.yang.parser.rfc7950.repo.TextToIRTransformer;
 import org.opendaylight.yangtools.yang.parser.rfc7950.repo.YangStatementStreamSource;
 import org.opendaylight.yangtools.yang.parser.spi.meta.ReactorException;
 import org.opendaylight.yangtools.yang.parser.stmt.reactor.CrossSourceStatementReactor;
 import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.metrics.PhaseEvent;
+import yang.testtools.metrics.SourceParseEvent;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 public class YangUtils {
     public static EffectiveSchemaContext schemaContext;
+    public static SchemaIndex schemaIndex;
+    // parse time of each file of the last loadSources, in file order
+    public static Map<String, Long> sourceParseMillis = Collections.emptyMap();
+    // root statement of each source loaded by loadSource, the source holds the same statement
+    private static final Map<YangStatementStreamSource, IRStatement> sourceRoots =
+            Collections.synchronizedMap(new WeakHashMap<>());
 
     public static EffectiveSchemaContext getSchemaContext(String... paths) throws ReactorException, YangSyntaxErrorException, IOException, URISyntaxException, ClassNotFoundException {
 
-        List<File> files = new ArrayList<>();
-        for (String path : paths) {
-            File[] folderFiles = getYangFiles(path);
-            if (folderFiles == null) {
-                System.out.println("If use window, the path is must under System Disk.");
+        return getSchemaContext(getYangFiles(paths));
+    }
+
+    public static EffectiveSchemaContext getSchemaContext(List<File> files) throws ReactorException, YangSyntaxErrorException, IOException {
+        return buildSchemaContext(loadSources(files));
+    }
+
+    /**
+     * @param parallelism number of files parsed concurrently
+     */
+    public static EffectiveSchemaContext getSchemaContext(List<File> files, int parallelism) throws ReactorException, YangSyntaxErrorException, IOException {
+        return buildSchemaContext(loadSources(files, parallelism));
+    }
+
+    public static YangStatementStreamSource loadSource(File file) throws YangSyntaxErrorException, IOException {
+        SourceParseEvent event = new SourceParseEvent();
+        event.begin();
+        YangTextSchemaSource text = YangTextSchemaSource.forFile(file);
+        IRStatement root = TextToIRTransformer.transformText(text).getRootStatement();
+        YangStatementStreamSource source = YangStatementStreamSource.create(text.getIdentifier(), root,
+                text.getSymbolicName().orElse(null));
+        sourceRoots.put(source, root);
+        event.file = file.getPath();
+        event.commit();
+        return source;
+    }
+
+    /**
+     * Statements of the source as parsed, to read declarations without building a schema context.
+     *
+     * @return null for a source not loaded by {@link #loadSource}
+     */
+    public static IRStatement getRootStatement(YangStatementStreamSource source) {
+        return sourceRoots.get(source);
+    }
+
+    public static List<YangStatementStreamSource> loadSources(List<File> files) throws YangSyntaxErrorException, IOException {
+        return loadSources(files, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Parses the files on at most parallelism threads, the sources keep the order of the files.
+     * Every failing file is reported, the first failure is thrown with the others suppressed.
+     * The parse time of each file is kept in {@link #sourceParseMillis}.
+     */
+    public static List<YangStatementStreamSource> loadSources(List<File> files, int parallelism) throws YangSyntaxErrorException, IOException {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        long start = System.currentTimeMillis();
+        Map<String, Long> parseMillis = new ConcurrentHashMap<>();
+        int threads = Math.max(1, Math.min(parallelism, files.size()));
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<YangStatementStreamSource> sources = new ArrayList<>(files.size());
+        Exception failure = null;
+        try {
+            List<Future<YangStatementStreamSource>> futures = new ArrayList<>(files.size());
+            for (File file : files) {
+                futures.add(pool.submit(() -> {
+                    long fileStart = System.nanoTime();
+                    try {
+                        return loadSource(file);
+                    } finally {
+                        parseMillis.put(file.getPath(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - fileStart));
+                    }
+                }));
             }
-            files.addAll(Arrays.asList(folderFiles));
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    sources.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Error) {
+                        throw (Error) e.getCause();
+                    }
+                    System.out.println("Failed to parse " + files.get(i) + ": " + e.getCause().getMessage());
+                    if (failure == null) {
+                        failure = (Exception) e.getCause();
+                    } else {
+                        failure.addSuppressed(e.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while parsing yang files");
+        } finally {
+            pool.shutdownNow();
         }
 
-        Collection<YangStatementStreamSource> sources = new ArrayList<>(files.size());
+        Map<String, Long> orderedMillis = new LinkedHashMap<>();
         for (File file : files) {
-            sources.add(YangStatementStreamSource.create(YangTextSchemaSource.forFile(file)));
+            orderedMillis.put(file.getPath(), parseMillis.get(file.getPath()));
         }
+        sourceParseMillis = orderedMillis;
+        event.phase = "parse";
+        event.items = files.size();
+        event.commit();
+        System.out.println("Parsed " + files.size() + " yang files in " + (System.currentTimeMillis() - start)
+                + " ms on " + threads + " thread(s), slowest: " + orderedMillis.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed()).limit(3)
+                .map(entry -> new File(entry.getKey()).getName() + " " + entry.getValue() + " ms")
+                .collect(Collectors.joining(", ")));
+
+        if (failure instanceof YangSyntaxErrorException) {
+            throw (YangSyntaxErrorException) failure;
+        } else if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw (RuntimeException) failure;
+        }
+        return sources;
+    }
+
+    /**
+     * The sources are only read, the same source instances can be used for several builds.
+     */
+    public static EffectiveSchemaContext buildSchemaContext(Collection<YangStatementStreamSource> sources) throws ReactorException {
+        return buildSchemaContext(sources, null);
+    }
+
+    /**
+     * @param supportedFeatures statements under an if-feature of any other feature are left out, null supports all
+     */
+    public static EffectiveSchemaContext buildSchemaContext(Collection<YangStatementStreamSource> sources, Set<QName> supportedFeatures) throws ReactorException {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
         final CrossSourceStatementReactor.BuildAction reactor =
                 RFC7950Reactors.defaultReactor().newBuild(StatementParserMode.DEFAULT_MODE)
                         .addSources(sources);
+        if (supportedFeatures != null) {
+            reactor.setSupportedFeatures(supportedFeatures);
+        }
         EffectiveSchemaContext schemaContext = reactor.buildEffective();
-
+        YangUtils.schemaContext = schemaContext;
+        YangUtils.schemaIndex = SchemaIndex.of(schemaContext);
+        event.phase = "reactor";
+        event.items = sources.size();
+        event.commit();
 
         return schemaContext;
     }
 
+    public static List<File> getYangFiles(String... paths) throws IOException {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            File[] folderFiles = getYangFiles(path);
+            if (folderFiles == null) {
+                System.out.println("If use window, the path is must under System Disk.");
+            }
+            files.addAll(Arrays.asList(folderFiles));
+        }
+        event.phase = "discovery";
+        event.items = files.size();
+        event.commit();
+        return files;
+    }
+
     private static File[] getYangFiles(String path) throws IOException {
         FileFilter YANG_FILE_FILTER =
                 file -> file.getName().endsWith(YangConstants.RFC6020_YANG_FILE_EXTENSION) && file.isFile();
@@ -59,10 +206,10 @@ public class YangUtils {
     }
 
     public static String getNamespace(String moduleName) {
-        return schemaContext.findModules(moduleName).iterator().next().getNamespace().toString();
+        return schemaIndex.findModule(moduleName).getNamespace().toString();
     }
 
     public static Module findModule(String moduleName) {
-        return schemaContext.findModules(moduleName).iterator().next();
+        return schemaIndex.findModule(moduleName);
     }
 }
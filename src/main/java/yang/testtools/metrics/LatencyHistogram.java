@@ -0,0 +1,131 @@
+package yang.testtools.metrics;
+
+import lombok.Data;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of latencies in nanoseconds. Buckets are log-linear: each power of two is split in 32, so a
+ * percentile is within about 3% of the recorded value, from 1 ns to Long.MAX_VALUE in under 2000 buckets.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (62 - SUB_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    @Data
+    public static class Summary {
+        private long count;
+        private long meanMicros;
+        private long p50Micros;
+        private long p90Micros;
+        private long p99Micros;
+        private long maxMicros;
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, 0 when nothing was recorded.
+     *
+     * @param percentile 0 to 100
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public Summary summary() {
+        Summary summary = new Summary();
+        summary.setCount(getCount());
+        summary.setMeanMicros(TimeUnit.NANOSECONDS.toMicros((long) getMean()));
+        summary.setP50Micros(TimeUnit.NANOSECONDS.toMicros(percentile(50)));
+        summary.setP90Micros(TimeUnit.NANOSECONDS.toMicros(percentile(90)));
+        summary.setP99Micros(TimeUnit.NANOSECONDS.toMicros(percentile(99)));
+        summary.setMaxMicros(TimeUnit.NANOSECONDS.toMicros(getMax()));
+        return summary;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.2fms p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms", getCount(),
+                getMean() / 1e6, percentile(50) / 1e6, percentile(90) / 1e6, percentile(99) / 1e6, getMax() / 1e6);
+    }
+
+    /**
+     * Values below 64 have a bucket each, above the top 6 bits of the value pick the bucket.
+     */
+    static int index(long value) {
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        if (bits <= SUB_BITS + 1) {
+            return (int) value;
+        }
+        int shift = bits - SUB_BITS - 1;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long top = index - (long) shift * SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
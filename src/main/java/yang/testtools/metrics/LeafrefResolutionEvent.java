@@ -0,0 +1,15 @@
+package yang.testtools.metrics;
+
+import jdk.jfr.*;
+
+@Name("yang.testtools.LeafrefResolution")
+@Label("Yang Leafref Resolution")
+@Category("Yang Tools")
+@StackTrace(false)
+public class LeafrefResolutionEvent extends Event {
+    @Label("Module")
+    public String module;
+
+    @Label("Path")
+    public String path;
+}
@@ -0,0 +1,25 @@
+package yang.testtools.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * Conversion, serialization or writing of one module. A streamed module has a single "stream" event.
+ */
+@Name("yang.testtools.Module")
+@Label("Yang Module")
+@Category("Yang Tools")
+@StackTrace(false)
+public class ModuleEvent extends Event {
+    @Label("Module")
+    public String module;
+
+    @Label("Step")
+    public String step;
+
+    @Label("Nodes")
+    public int nodes;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
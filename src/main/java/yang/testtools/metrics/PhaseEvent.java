@@ -0,0 +1,19 @@
+package yang.testtools.metrics;
+
+import jdk.jfr.*;
+
+/**
+ * One phase of a run: file discovery, source parsing, reactor build, conversion, ...
+ */
+@Name("yang.testtools.Phase")
+@Label("Yang Phase")
+@Category("Yang Tools")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+    @Label("Phase")
+    public String phase;
+
+    @Label("Items")
+    @Description("Files or modules handled by the phase")
+    public int items;
+}
@@ -0,0 +1,35 @@
+package yang.testtools.metrics;
+
+import lombok.Data;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durations of a run, written as json when {@code YangParserOptions#reportFile} is set.
+ */
+@Data
+public class RunReport {
+    private long totalMillis;
+    private int files;
+    private Map<String, Long> phaseMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+    private List<ModuleReport> modules = Collections.synchronizedList(new ArrayList<>());
+
+    @Data
+    public static class ModuleReport {
+        private String name;
+        private int nodes;
+        private long bytes;
+        private long convertMillis;
+        private long serializeMillis; // 0 when streamed, part of convertMillis
+        private long writeMillis; // 0 when streamed, part of convertMillis
+    }
+
+    public void addPhase(String phase, long startNanos) {
+        phaseMillis.merge(phase, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), Long::sum);
+    }
+
+    public void addModule(ModuleReport module) {
+        modules.add(module);
+    }
+}
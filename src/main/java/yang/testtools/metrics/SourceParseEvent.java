@@ -0,0 +1,12 @@
+package yang.testtools.metrics;
+
+import jdk.jfr.*;
+
+@Name("yang.testtools.SourceParse")
+@Label("Yang Source Parse")
+@Category("Yang Tools")
+@StackTrace(false)
+public class SourceParseEvent extends Event {
+    @Label("File")
+    public String file;
+}
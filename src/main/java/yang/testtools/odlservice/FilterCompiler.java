@@ -0,0 +1,303 @@
+package yang.testtools.odlservice;
+
+import yang.testtools.helper.YangUtils;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Compiles a batch of paths into one NETCONF subtree filter (RFC 6241 6.2.5). Shared prefixes are merged, so
+ * {@code interfaces/interface[name='eth0']/mtu} and {@code interfaces/interface[name='eth0']/type} give one
+ * {@code interface} element holding the key as a content match node and both leaves as selection nodes.
+ * <p>
+ * Path steps are {@code name} or {@code module:name}, the module switches to its namespace for the step and
+ * below. Key values come as predicates {@code [key='value']}, several joined by {@code and} or one after the other,
+ * or as {@code {key}} steps after the list filled from the keys given with the path. A path ending at a node
+ * selects all of it and wins over longer paths through it.
+ * <p>
+ * The filter is written with an {@link XMLStreamWriter}, no DOM is built.
+ */
+public class FilterCompiler {
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final class Node {
+        final String namespace;
+        final String name;
+        final Map<String, String> keys; // key leaf name to value, content match nodes
+        final Map<String, Node> children = new LinkedHashMap<>();
+        boolean selected; // a path ends here, the whole subtree is selected
+
+        Node(String namespace, String name, Map<String, String> keys) {
+            this.namespace = namespace;
+            this.name = name;
+            this.keys = keys;
+        }
+    }
+
+    private final String namespace;
+    private final Function<String, String> namespaces; // module name to namespace
+    private final Node root = new Node(null, null, null);
+    private int paths;
+
+    /**
+     * @param namespace of the top-level steps without a module prefix
+     */
+    public FilterCompiler(String namespace) {
+        this(namespace, YangUtils::getNamespace);
+    }
+
+    public FilterCompiler(String namespace, Function<String, String> namespaces) {
+        this.namespace = namespace;
+        this.namespaces = namespaces;
+    }
+
+    public static String compile(String namespace, Collection<String> paths) {
+        FilterCompiler compiler = new FilterCompiler(namespace);
+        for (String path : paths) {
+            compiler.add(path);
+        }
+        return compiler.compile();
+    }
+
+    public FilterCompiler add(String path) {
+        return add(path, null);
+    }
+
+    /**
+     * @param keys values of the {@code {key}} placeholders in path, may be null
+     */
+    public FilterCompiler add(String path, Map<String, String> keys) {
+        List<String> steps = steps(path);
+        Node node = root;
+        String stepNamespace = namespace;
+        for (int i = 0; i < steps.size(); i++) {
+            String step = steps.get(i);
+            int predicate = step.indexOf('[');
+            String qualifiedName = (predicate < 0 ? step : step.substring(0, predicate)).trim();
+            if (qualifiedName.indexOf('{') >= 0 || qualifiedName.indexOf('}') >= 0) {
+                qualifiedName = qualifiedName.replace("{", "").replace("}", "");
+            }
+            Map<String, String> stepKeys = predicate < 0 ? new LinkedHashMap<>() : predicates(step.substring(predicate));
+            // "interface/{name}" is the entry with the given name, without a value it selects the name leaf
+            while (i + 1 < steps.size() && keys != null && placeholder(steps.get(i + 1)) != null
+                    && keys.get(placeholder(steps.get(i + 1))) != null) {
+                String key = placeholder(steps.get(++i));
+                stepKeys.put(key, keys.get(key));
+            }
+            int colon = qualifiedName.indexOf(':');
+            String name = qualifiedName;
+            if (colon >= 0) {
+                stepNamespace = namespaces.apply(qualifiedName.substring(0, colon));
+                name = qualifiedName.substring(colon + 1);
+            }
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Empty step in " + path);
+            }
+            checkName(name, path);
+            for (String key : stepKeys.keySet()) {
+                checkName(key, path);
+            }
+            String id = stepNamespace + " " + name + " " + stepKeys;
+            Node child = node.children.get(id);
+            if (child == null) {
+                child = new Node(stepNamespace, name, stepKeys);
+                node.children.put(id, child);
+            }
+            node = child;
+        }
+        if (node == root) {
+            throw new IllegalArgumentException("No steps in " + path);
+        }
+        node.selected = true;
+        paths++;
+        return this;
+    }
+
+    /**
+     * Number of paths added.
+     */
+    public int size() {
+        return paths;
+    }
+
+    public String compile() {
+        StringWriter writer = new StringWriter();
+        compile(writer);
+        return writer.toString();
+    }
+
+    public void compile(Writer out) {
+        try {
+            XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out);
+            for (Node node : root.children.values()) {
+                write(writer, node, null);
+            }
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Error writing filter", e);
+        }
+    }
+
+    /**
+     * Names are written as element names, one that is not an XML NCName would give a malformed filter.
+     */
+    private static void checkName(String name, String path) {
+        for (int i = 0; i < name.length(); ) {
+            int c = name.codePointAt(i);
+            if (!(i == 0 ? isNameStart(c) : isNameStart(c) || isNameChar(c))) {
+                throw new IllegalArgumentException("Not an XML name: " + name + " in " + path);
+            }
+            i += Character.charCount(c);
+        }
+    }
+
+    /**
+     * NameStartChar of XML 1.0 without the colon.
+     */
+    private static boolean isNameStart(int c) {
+        return c >= 'A' && c <= 'Z' || c == '_' || c >= 'a' && c <= 'z' || c >= 0xC0 && c <= 0xD6
+                || c >= 0xD8 && c <= 0xF6 || c >= 0xF8 && c <= 0x2FF || c >= 0x370 && c <= 0x37D
+                || c >= 0x37F && c <= 0x1FFF || c >= 0x200C && c <= 0x200D || c >= 0x2070 && c <= 0x218F
+                || c >= 0x2C00 && c <= 0x2FEF || c >= 0x3001 && c <= 0xD7FF || c >= 0xF900 && c <= 0xFDCF
+                || c >= 0xFDF0 && c <= 0xFFFD || c >= 0x10000 && c <= 0xEFFFF;
+    }
+
+    private static boolean isNameChar(int c) {
+        return c == '-' || c == '.' || c >= '0' && c <= '9' || c == 0xB7 || c >= 0x300 && c <= 0x36F
+                || c >= 0x203F && c <= 0x2040;
+    }
+
+    /**
+     * "name" of "{name}", null for other steps.
+     */
+    private static String placeholder(String step) {
+        return step.startsWith("{") && step.endsWith("}") ? step.substring(1, step.length() - 1) : null;
+    }
+
+    private static void write(XMLStreamWriter writer, Node node, String parentNamespace) throws XMLStreamException {
+        boolean namespaceChanged = !Objects.equals(node.namespace, parentNamespace) && node.namespace != null;
+        if (node.keys.isEmpty() && (node.selected || node.children.isEmpty())) {
+            writer.writeEmptyElement(node.name);
+            if (namespaceChanged) {
+                writer.writeDefaultNamespace(node.namespace);
+            }
+            return;
+        }
+        writer.writeStartElement(node.name);
+        if (namespaceChanged) {
+            writer.writeDefaultNamespace(node.namespace);
+        }
+        for (Map.Entry<String, String> key : node.keys.entrySet()) {
+            writer.writeStartElement(key.getKey());
+            writer.writeCharacters(key.getValue());
+            writer.writeEndElement();
+        }
+        if (!node.selected) {
+            for (Node child : node.children.values()) {
+                write(writer, child, node.namespace);
+            }
+        }
+        writer.writeEndElement();
+    }
+
+    /**
+     * Steps of path split on the slashes outside predicates and quotes.
+     */
+    private static List<String> steps(String path) {
+        List<String> steps = new ArrayList<>();
+        StringBuilder step = new StringBuilder();
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                depth++;
+            } else if (c == ']') {
+                depth--;
+            } else if ((c == '/' || c == '\\') && depth == 0) {
+                if (step.length() > 0) {
+                    steps.add(step.toString());
+                    step.setLength(0);
+                }
+                continue;
+            }
+            step.append(c);
+        }
+        if (step.length() > 0) {
+            steps.add(step.toString());
+        }
+        return steps;
+    }
+
+    /**
+     * Key values of {@code [a='1'][b="2"]} or {@code [a='1' and b='2']}.
+     */
+    private static Map<String, String> predicates(String predicates) {
+        Map<String, String> keys = new LinkedHashMap<>();
+        int i = 0;
+        while (i < predicates.length()) {
+            char c = predicates.charAt(i);
+            if (c == '[' || c == ']' || Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (predicates.startsWith("and", i) && i + 3 < predicates.length()
+                    && Character.isWhitespace(predicates.charAt(i + 3))) {
+                i += 3;
+                continue;
+            }
+            int equals = predicates.indexOf('=', i);
+            if (equals < 0) {
+                throw new IllegalArgumentException("Not a key predicate: " + predicates);
+            }
+            String key = predicates.substring(i, equals).trim();
+            key = key.substring(key.indexOf(':') + 1);
+            int start = equals + 1;
+            while (start < predicates.length() && Character.isWhitespace(predicates.charAt(start))) {
+                start++;
+            }
+            if (start >= predicates.length()) {
+                throw new IllegalArgumentException("Not a key predicate: " + predicates);
+            }
+            char quote = predicates.charAt(start);
+            int end;
+            String value;
+            if (quote == '\'' || quote == '"') {
+                end = predicates.indexOf(quote, start + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated value in " + predicates);
+                }
+                value = predicates.substring(start + 1, end);
+                end++;
+            } else {
+                end = start;
+                while (end < predicates.length() && predicates.charAt(end) != ']'
+                        && !Character.isWhitespace(predicates.charAt(end))) {
+                    end++;
+                }
+                value = predicates.substring(start, end);
+            }
+            keys.put(key, value);
+            i = end;
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,21 @@
+package yang.testtools.odlservice;
+
+import lombok.Data;
+
+/**
+ * Where {@link YangJsonToNBI} sends its requests and how many it keeps in flight.
+ */
+@Data
+public class NBIOptions {
+    private String protocol = "http://";
+    private String host = "60.251.156.216";
+    private int port = 48181;
+    private String nodeName = "testt"; // netconf node mounted on the controller
+    private String topologyPrefix = "/network-topology:network-topology/topology/topology-netconf/node/";
+    private String username; // basic authentication when set
+    private String password;
+    private int maxConcurrentRequests = 64; // requests in flight, more are queued until one completes
+    private boolean http2 = true; // h2c upgrade on http, falls back to http/1.1 when the server does not take it
+    private long connectTimeoutMillis = 10_000;
+    private long requestTimeoutMillis = 60_000;
+}
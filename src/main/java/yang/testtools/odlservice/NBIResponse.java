@@ -0,0 +1,17 @@
+package yang.testtools.odlservice;
+
+import lombok.Data;
+
+/**
+ * Result of one RESTCONF request.
+ */
+@Data
+public class NBIResponse {
+    private int status;
+    private String body; // empty for 204
+    private long latencyNanos; // from sending the request to the whole body read, queueing excluded
+
+    public boolean isSuccess() {
+        return status >= 200 && status < 300;
+    }
+}
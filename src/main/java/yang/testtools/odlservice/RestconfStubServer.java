@@ -0,0 +1,195 @@
+package yang.testtools.odlservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process RESTCONF server on localhost standing in for the controller, to run {@link YangJsonToNBI} offline.
+ * <ul>
+ * <li>/restconf/config/...: GET, PUT, POST and DELETE on an in-memory datastore keyed by path</li>
+ * <li>/restconf/operations/.../ietf-netconf:get: the filter of the input echoed as output</li>
+ * <li>/restconf/operations/...: any other rpc, the input echoed as output</li>
+ * </ul>
+ * A delay may be set to make requests overlap, the most requests seen in flight at once is kept.
+ */
+public class RestconfStubServer {
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, JsonNode> datastore = new ConcurrentHashMap<>();
+    private final int threads;
+    private final long delayMillis;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAccumulator maxInFlight = new LongAccumulator(Math::max, 0);
+    private final LongAdder requests = new LongAdder();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param threads     handling requests, the most that can be in flight
+     * @param delayMillis added to every request
+     */
+    public RestconfStubServer(int threads, long delayMillis) {
+        this.threads = threads;
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * @param port 0 for any free port, see {@link #getPort()}
+     */
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/restconf/config/", this::handleConfig);
+        server.createContext("/restconf/operations/", this::handleOperation);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("RESTCONF stub listening on http://" + server.getAddress().getHostString() + ":" + getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Options of a {@link YangJsonToNBI} talking to this server.
+     */
+    public NBIOptions clientOptions() {
+        NBIOptions options = new NBIOptions();
+        options.setHost(server.getAddress().getHostString());
+        options.setPort(getPort());
+        return options;
+    }
+
+    public Map<String, JsonNode> getDatastore() {
+        return datastore;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private void handleConfig(HttpExchange exchange) throws IOException {
+        begin();
+        try {
+            String path = exchange.getRequestURI().getRawPath().substring("/restconf/config/".length());
+            // read to its end for every method, HttpServer closes a connection with an unread request body while the
+            // client may already be sending the next request on it
+            JsonNode content = read(exchange);
+            JsonNode stored = datastore.get(path);
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    send(exchange, stored == null ? 404 : 200, stored == null ? error("No data at " + path)
+                            : mapper.writeValueAsBytes(stored));
+                    break;
+                case "PUT":
+                    send(exchange, datastore.put(path, content) == null ? 201 : 200, new byte[0]);
+                    break;
+                case "POST":
+                    send(exchange, datastore.putIfAbsent(path, content) == null ? 204 : 409,
+                            new byte[0]);
+                    break;
+                case "DELETE":
+                    send(exchange, datastore.remove(path) == null ? 404 : 200, new byte[0]);
+                    break;
+                default:
+                    send(exchange, 405, error("Use GET, PUT, POST or DELETE"));
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            send(exchange, 500, error(String.valueOf(e.getMessage())));
+        } finally {
+            end();
+        }
+    }
+
+    private void handleOperation(HttpExchange exchange) throws IOException {
+        begin();
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                send(exchange, 405, error("Use POST"));
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            JsonNode body = read(exchange);
+            JsonNode input = body.size() == 1 ? body.elements().next() : body;
+            ObjectNode output = mapper.createObjectNode();
+            if (path.endsWith("/ietf-netconf:get")) {
+                output.putObject("output").put("data", input.path("ietf-netconf:filter").asText());
+            } else {
+                output.set("output", input);
+            }
+            send(exchange, 200, mapper.writeValueAsBytes(output));
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            send(exchange, 500, error(String.valueOf(e.getMessage())));
+        } finally {
+            end();
+        }
+    }
+
+    private void begin() {
+        requests.increment();
+        maxInFlight.accumulate(inFlight.incrementAndGet());
+        if (delayMillis > 0) {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void end() {
+        inFlight.decrementAndGet();
+    }
+
+    private JsonNode read(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readAllBytes();
+            return bytes.length == 0 ? mapper.createObjectNode() : mapper.readTree(bytes);
+        }
+    }
+
+    private byte[] error(String message) throws IOException {
+        return mapper.writeValueAsBytes(mapper.createObjectNode().put("error", message));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=" + StandardCharsets.UTF_8.name());
+        if (body.length == 0) {
+            // no body, the response stream is closed already
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
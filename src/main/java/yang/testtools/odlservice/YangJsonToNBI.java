@@ -4,61 +4,263 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import yang.testtools.helper.YangUtils;
+import yang.testtools.metrics.LatencyHistogram;
 
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * RESTCONF client for a netconf node mounted on an OpenDaylight controller. All requests are asynchronous and share
+ * one {@link HttpClient}, so connections are kept alive and reused, and requests are multiplexed on one connection
+ * when the controller takes HTTP/2.
+ * <p>
+ * Callers may issue any number of requests without waiting for responses, at most
+ * {@link NBIOptions#getMaxConcurrentRequests()} are in flight and the others wait in a queue, no thread blocks.
+ * Latencies are recorded per {@link Operation}.
+ */
 public class YangJsonToNBI {
-    private String protocol = "http://";
-    private String host = "60.251.156.216";
-    private int port = 48181;
-    private String baseUrl;
-    private String nodeName = "testt";
-    private String topologyPrefix = "/network-topology:network-topology/topology/topology-netconf/node/";
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public enum Operation {
+        POST_CONFIG, PUT_CONFIG, GET_CONFIG, DELETE_CONFIG, EXEC_RPC
+    }
+
+    private final NBIOptions options;
+    private final String baseUrl;
+    private final String authorization;
+    private final HttpClient client;
+    private final Semaphore permits;
+    private final Queue<Runnable> queued = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger drainRequests = new AtomicInteger(); // drain() calls not yet handled by the drainer
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
 
     public YangJsonToNBI() {
-        this.baseUrl = this.protocol + this.host + ":" + this.port + "/restconf/";
+        this(new NBIOptions());
     }
 
-    public void postConfig(String moduleName, NBIParamDto paramDto) {
-        String ns = YangUtils.getNamespace(moduleName);
-        String path = paramDto.getPath();
-        if (paramDto.getKeys() != null && !paramDto.getKeys().isEmpty()) {
-            for (String name : paramDto.getKeys().keySet()) {
-                path = path.replace("{" + name + "}", paramDto.getKeys().get(name));
-            }
+    public YangJsonToNBI(NBIOptions options) {
+        this.options = options;
+        this.baseUrl = options.getProtocol() + options.getHost() + ":" + options.getPort() + "/restconf/";
+        this.authorization = options.getUsername() == null ? null : "Basic " + Base64.getEncoder().encodeToString(
+                (options.getUsername() + ":" + options.getPassword()).getBytes(StandardCharsets.UTF_8));
+        this.client = HttpClient.newBuilder()
+                .version(options.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(options.getConnectTimeoutMillis()))
+                .build();
+        this.permits = new Semaphore(options.getMaxConcurrentRequests());
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LatencyHistogram());
         }
-        String postConfigUrl = this.baseUrl + "config" + topologyPrefix + nodeName +
-                "/yang-ext:mount/" + moduleName + ":" + path;
-        System.out.println("POST: " + postConfigUrl);
-        System.out.println("request body: " + paramDto.getContent());
     }
 
-    public void putConfig(String moduleName, NBIParamDto paramDto) {
-        String ns = YangUtils.getNamespace(moduleName);
+    /**
+     * Creates the data in the content under the path, keys in the path as {@code {name}} are filled from the keys.
+     */
+    public CompletableFuture<NBIResponse> postConfig(String moduleName, NBIParamDto paramDto) {
+        return send(Operation.POST_CONFIG, () -> request(configUrl(moduleName, paramDto.getPath(), paramDto.getKeys()))
+                .POST(body(paramDto.getContent())));
     }
 
-    public void deleteConfig(String moduleName, String path) {
-        String ns = YangUtils.getNamespace(moduleName);
+    /**
+     * Creates or replaces the data at the path with the content.
+     */
+    public CompletableFuture<NBIResponse> putConfig(String moduleName, NBIParamDto paramDto) {
+        return send(Operation.PUT_CONFIG, () -> request(configUrl(moduleName, paramDto.getPath(), paramDto.getKeys()))
+                .PUT(body(paramDto.getContent())));
     }
 
-    public void getConfig(String moduleName, String path) {
-        String getConfigUrl = this.baseUrl + "operations" + topologyPrefix + nodeName + "/yang-ext:mount/ietf-netconf:get";
-        ObjectNode body = new ObjectMapper().createObjectNode();
-        ObjectNode input = new ObjectMapper().createObjectNode();
+    public CompletableFuture<NBIResponse> deleteConfig(String moduleName, String path) {
+        return send(Operation.DELETE_CONFIG, () -> request(configUrl(moduleName, path, null)).DELETE());
+    }
 
-        String ns = YangUtils.getNamespace(moduleName);
-        String filterXml = FilterParser.xmlParser(ns, path);
-        input.put("ietf-netconf:filter", filterXml);
-        input.put("ietf-netconf:ietf-netconf-with-defaults:with-defaults", "report-all");
-        body.set("ietf-netconf:input", input);
+    public CompletableFuture<NBIResponse> getConfig(String moduleName, String path) {
+        return getConfig(moduleName, Collections.singletonList(path));
+    }
 
-        System.out.println("POST: " + getConfigUrl);
-        System.out.println("request body: " + body.toString());
+    /**
+     * Gets all paths with one request, their filters are merged into one.
+     */
+    public CompletableFuture<NBIResponse> getConfig(String moduleName, Collection<String> paths) {
+        FilterCompiler filter;
+        try {
+            filter = new FilterCompiler(YangUtils.getNamespace(moduleName));
+            for (String path : paths) {
+                filter.add(path);
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return getConfig(filter);
     }
 
-    public void execRpc(String moduleName, String rpc, JsonNode input) {
-        String ns = YangUtils.getNamespace(moduleName);
+    /**
+     * ietf-netconf:get with the filter, defaults reported.
+     */
+    public CompletableFuture<NBIResponse> getConfig(FilterCompiler filter) {
+        String getConfigUrl = this.baseUrl + "operations" + options.getTopologyPrefix() + options.getNodeName()
+                + "/yang-ext:mount/ietf-netconf:get";
+        return send(Operation.GET_CONFIG, () -> {
+            ObjectNode body = MAPPER.createObjectNode();
+            ObjectNode input = MAPPER.createObjectNode();
+            input.put("ietf-netconf:filter", filter.compile());
+            input.put("ietf-netconf:ietf-netconf-with-defaults:with-defaults", "report-all");
+            body.set("ietf-netconf:input", input);
+            return request(getConfigUrl).POST(body(body));
+        });
+    }
+
+    /**
+     * Invokes the rpc of the module, input may be null.
+     */
+    public CompletableFuture<NBIResponse> execRpc(String moduleName, String rpc, JsonNode input) {
+        String rpcUrl = this.baseUrl + "operations" + options.getTopologyPrefix() + options.getNodeName()
+                + "/yang-ext:mount/" + moduleName + ":" + rpc;
+        return send(Operation.EXEC_RPC, () -> {
+            ObjectNode body = MAPPER.createObjectNode();
+            body.set(moduleName + ":input", input == null ? MAPPER.createObjectNode() : input);
+            return request(rpcUrl).POST(body(body));
+        });
     }
 
     public void subscriptionNotification(String moduleName, String notification) {
         String ns = YangUtils.getNamespace(moduleName);
     }
+
+    public LatencyHistogram getLatency(Operation operation) {
+        return latencies.get(operation);
+    }
+
+    public Map<Operation, LatencyHistogram.Summary> getLatencySummary() {
+        Map<Operation, LatencyHistogram.Summary> summary = new EnumMap<>(Operation.class);
+        latencies.forEach((operation, histogram) -> summary.put(operation, histogram.summary()));
+        return summary;
+    }
+
+    /**
+     * Requests waiting for one in flight to complete.
+     */
+    public int getQueued() {
+        return queued.size();
+    }
+
+    public int getInFlight() {
+        return options.getMaxConcurrentRequests() - permits.availablePermits();
+    }
+
+    private String configUrl(String moduleName, String path, Map<String, String> keys) {
+        if (keys != null && !keys.isEmpty()) {
+            for (Map.Entry<String, String> key : keys.entrySet()) {
+                // key values may hold slashes, "ge-0/0/1"
+                path = path.replace("{" + key.getKey() + "}",
+                        URLEncoder.encode(key.getValue(), StandardCharsets.UTF_8).replace("+", "%20"));
+            }
+        }
+        int open = path.indexOf('{');
+        if (open >= 0) {
+            throw new IllegalArgumentException("No value for key " + path.substring(open, path.indexOf('}', open) + 1)
+                    + " in " + path);
+        }
+        return this.baseUrl + "config" + options.getTopologyPrefix() + options.getNodeName()
+                + "/yang-ext:mount/" + moduleName + ":" + path;
+    }
+
+    private HttpRequest.Builder request(String url) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(options.getRequestTimeoutMillis()))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+        if (authorization != null) {
+            builder.header("Authorization", authorization);
+        }
+        return builder;
+    }
+
+    private static HttpRequest.BodyPublisher body(JsonNode content) {
+        return content == null ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(content.toString(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Queues the request, it is sent as soon as fewer than the maximum are in flight. A request that cannot be
+     * built, e.g. with a key left out of the path, completes the future exceptionally.
+     */
+    private CompletableFuture<NBIResponse> send(Operation operation, Supplier<HttpRequest.Builder> request) {
+        HttpRequest built;
+        try {
+            built = request.get().build();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<NBIResponse> result = new CompletableFuture<>();
+        queued.add(() -> dispatch(operation, built, result));
+        drain();
+        return result;
+    }
+
+    /**
+     * Sends queued requests while permits are left. Called after queueing and after each completion, so a request
+     * queued while all permits are taken is sent by the completion that frees one. Only one thread drains at a
+     * time, a call meanwhile, also one from a completion on the draining thread, makes it loop once more instead.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int requests = 1;
+        do {
+            while (!queued.isEmpty() && permits.tryAcquire()) {
+                Runnable next = queued.poll();
+                if (next == null) {
+                    permits.release();
+                } else {
+                    next.run();
+                }
+            }
+            requests = drainRequests.addAndGet(-requests);
+        } while (requests != 0);
+    }
+
+    private void dispatch(Operation operation, HttpRequest request, CompletableFuture<NBIResponse> result) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> response;
+        try {
+            response = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            // the draining loop goes on with the permit
+            permits.release();
+            result.completeExceptionally(e);
+            return;
+        }
+        response.whenComplete((httpResponse, error) -> {
+            long latency = System.nanoTime() - start;
+            permits.release();
+            drain();
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            latencies.get(operation).record(latency);
+            NBIResponse nbiResponse = new NBIResponse();
+            nbiResponse.setStatus(httpResponse.statusCode());
+            nbiResponse.setBody(httpResponse.body());
+            nbiResponse.setLatencyNanos(latency);
+            result.complete(nbiResponse);
+        });
+    }
 }
@@ -0,0 +1,187 @@
+package yang.testtools.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.parser.api.YangSyntaxErrorException;
+import org.opendaylight.yangtools.yang.parser.spi.meta.ReactorException;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.helper.FeatureProfiles;
+import yang.testtools.helper.SchemaIndex;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.yangparser.YangParserOptions;
+import yang.testtools.yangparser.YangToJson;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the json of the modules over http on localhost, the schema context stays built between requests.
+ * <ul>
+ * <li>GET /modules: names of the modules</li>
+ * <li>GET /modules/{name}: the {@code ModuleDto} json of a module, converted on first request</li>
+ * <li>POST /reload: parses the input directories again, the old context serves until the new one is built</li>
+ * <li>GET /stats: module cache statistics</li>
+ * </ul>
+ * Converted modules are kept in an LRU cache of bounded size. Concurrent requests for a module that is not cached
+ * wait for one conversion.
+ */
+public class SchemaServer {
+    private final String[] paths;
+    private final YangParserOptions options;
+    private final int cacheSize;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private HttpServer server;
+    private ExecutorService executor;
+    private volatile Snapshot snapshot;
+
+    /**
+     * A context, its converter and the modules converted from it, replaced as a whole on reload.
+     */
+    private static class Snapshot {
+        private final EffectiveSchemaContext schemaContext;
+        private final YangToJson yangToJson;
+        private final Cache<String, byte[]> modules;
+
+        private Snapshot(EffectiveSchemaContext schemaContext, YangParserOptions options, int cacheSize) {
+            this.schemaContext = schemaContext;
+            this.yangToJson = new YangToJson(options);
+            // one segment, eviction in strict LRU order
+            this.modules = CacheBuilder.newBuilder().concurrencyLevel(1).maximumSize(cacheSize).recordStats().build();
+        }
+    }
+
+    public SchemaServer(YangParserOptions options, int cacheSize, String... paths) {
+        this.paths = paths;
+        this.options = options;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Builds the context and starts listening on the loopback address.
+     *
+     * @param port 0 for any free port, see {@link #getPort()}
+     */
+    public void start(int port) throws ReactorException, YangSyntaxErrorException, IOException {
+        snapshot = load();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/modules", this::handleModules);
+        server.createContext("/reload", this::handleReload);
+        server.createContext("/stats", this::handleStats);
+        executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()));
+        server.setExecutor(executor);
+        server.start();
+        System.out.println("Schema server listening on http://" + server.getAddress().getHostString() + ":" + getPort());
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private Snapshot load() throws ReactorException, YangSyntaxErrorException, IOException {
+        long start = System.currentTimeMillis();
+        FeatureProfiles featureProfiles = new FeatureProfiles(YangUtils.loadSources(YangUtils.getYangFiles(paths)));
+        Snapshot loaded = new Snapshot(featureProfiles.getSchemaContext(options.getFeatures()), options, cacheSize);
+        System.out.println("Loaded " + loaded.schemaContext.getModules().size() + " modules in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return loaded;
+    }
+
+    private void handleModules(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, error("Use GET"));
+            return;
+        }
+        Snapshot current = snapshot;
+        String name = exchange.getRequestURI().getPath().substring("/modules".length()).replaceAll("^/+|/+$", "");
+        if (name.isEmpty()) {
+            send(exchange, 200, mapper.writeValueAsBytes(current.schemaContext.getModules().stream()
+                    .map(Module::getName).sorted().toArray()));
+            return;
+        }
+
+        Module module;
+        try {
+            module = SchemaIndex.of(current.schemaContext).findModule(name);
+        } catch (NoSuchElementException e) {
+            send(exchange, 404, error(e.getMessage()));
+            return;
+        }
+        try {
+            // the cache runs one conversion per missing key, other requests for it wait for the result
+            send(exchange, 200, current.modules.get(name, () -> current.yangToJson.convertToJson(current.schemaContext, module)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            // the converter throws unchecked exceptions, the cache wraps them in UncheckedExecutionException
+            e.printStackTrace();
+            send(exchange, 500, error(String.valueOf(e.getCause())));
+        }
+    }
+
+    private void handleReload(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            send(exchange, 405, error("Use POST"));
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Snapshot reloaded;
+        try {
+            synchronized (this) {
+                reloaded = load();
+                snapshot = reloaded;
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            send(exchange, 500, error("Reload failed, still serving the previous context: " + e.getMessage()));
+            return;
+        }
+        ObjectNode body = mapper.createObjectNode();
+        body.put("modules", reloaded.schemaContext.getModules().size());
+        body.put("millis", System.currentTimeMillis() - start);
+        send(exchange, 200, mapper.writeValueAsBytes(body));
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        Snapshot current = snapshot;
+        CacheStats stats = current.modules.stats();
+        ObjectNode body = mapper.createObjectNode();
+        body.put("modules", current.schemaContext.getModules().size());
+        body.put("cached", current.modules.size());
+        body.put("cacheSize", cacheSize);
+        body.put("hits", stats.hitCount());
+        body.put("misses", stats.missCount());
+        body.put("conversions", stats.loadCount());
+        body.put("evictions", stats.evictionCount());
+        body.put("averageLoadMillis", stats.averageLoadPenalty() / 1_000_000);
+        send(exchange, 200, mapper.writeValueAsBytes(body));
+    }
+
+    private byte[] error(String message) throws IOException {
+        return mapper.writeValueAsBytes(mapper.createObjectNode().put("error", message));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=" + StandardCharsets.UTF_8.name());
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package yang.testtools.validator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opendaylight.yangtools.yang.common.QName;
+import org.opendaylight.yangtools.yang.model.api.AugmentationSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.AugmentationTarget;
+import org.opendaylight.yangtools.yang.model.api.CaseSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.ChoiceSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.DataNodeContainer;
+import org.opendaylight.yangtools.yang.model.api.DataSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.IdentitySchemaNode;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.ModuleImport;
+import org.opendaylight.yangtools.yang.model.api.ModuleLike;
+import org.opendaylight.yangtools.yang.model.api.MustConstraintAware;
+import org.opendaylight.yangtools.yang.model.api.MustDefinition;
+import org.opendaylight.yangtools.yang.model.api.SchemaContext;
+import org.opendaylight.yangtools.yang.model.api.WhenConditionAware;
+import yang.testtools.helper.SchemaIndex;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Checks the must and when statements of a schema context against RFC 7951 json instance data. Every expression
+ * is compiled once when the evaluator is built, the same text in the same module only once for all the nodes
+ * using it, e.g. through a grouping. The conditions only read the instance data, so one walk of the instance
+ * tree evaluates all of them, each node with the conditions of its schema node.
+ * <p>
+ * A must is checked on every instance of its node, the when of a node on every instance present. The when of a
+ * choice, a case or an augment is checked on the parent when any node of it is present. The when of a uses is
+ * not checked, nor the must/when of rpcs and notifications. Expressions that do not compile, e.g. using deref(),
+ * are reported once and skipped.
+ */
+public class ConstraintEvaluator {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SchemaIndex schemaIndex;
+    private final ConstraintNode root = new ConstraintNode(null);
+    private final Map<String, Map<String, String>> modulePrefixes = new HashMap<>();
+    private final Map<String, String> globalPrefixes = new HashMap<>();
+    private final Map<List<String>, Optional<XPathExpr>> expressions = new HashMap<>();
+    private final Map<String, Set<String>> identityBases = new HashMap<>();
+    private int conditionCount;
+    private int maxErrors = 100;
+
+    private static final class ConstraintNode {
+        final String module;
+        final Map<String, ConstraintNode> children = new HashMap<>();
+        final List<Condition> conditions = new ArrayList<>();
+        final List<GroupCondition> groups = new ArrayList<>();
+
+        ConstraintNode(String module) {
+            this.module = module;
+        }
+
+        boolean isEmpty() {
+            return children.isEmpty() && conditions.isEmpty() && groups.isEmpty();
+        }
+    }
+
+    private static final class Condition {
+        final XPathExpr expression;
+        final String message;
+
+        Condition(XPathExpr expression, String message) {
+            this.expression = expression;
+            this.message = message;
+        }
+    }
+
+    /**
+     * when of a choice, case or augment, its context is the parent of the nodes it applies to.
+     */
+    private static final class GroupCondition {
+        final Condition condition;
+        final Set<String> members; // json member names of the nodes
+
+        GroupCondition(Condition condition, Set<String> members) {
+            this.condition = condition;
+            this.members = members;
+        }
+    }
+
+    public ConstraintEvaluator(SchemaContext schemaContext) {
+        this.schemaIndex = SchemaIndex.of(schemaContext);
+        for (Module module : schemaContext.getModules()) {
+            globalPrefixes.putIfAbsent(module.getPrefix(), module.getName());
+        }
+        for (Module module : schemaContext.getModules()) {
+            for (IdentitySchemaNode identity : module.getIdentities()) {
+                bases(identity);
+            }
+            for (DataSchemaNode child : module.getChildNodes()) {
+                addChild(root, child, new ArrayList<>());
+            }
+        }
+    }
+
+    /**
+     * Evaluation stops after this many errors, 100 by default.
+     */
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Number of must and when compiled, the ones that did not compile not included.
+     */
+    public int getConditionCount() {
+        return conditionCount;
+    }
+
+    public List<ValidationError> evaluate(Path payload) throws IOException {
+        return evaluate(MAPPER.readTree(payload.toFile()));
+    }
+
+    /**
+     * @param document the top-level object, its members qualified with their module
+     * @return empty when all conditions hold
+     */
+    public List<ValidationError> evaluate(JsonNode document) {
+        List<ValidationError> errors = new ArrayList<>();
+        walk(DataNode.root(document), root, errors);
+        return errors;
+    }
+
+    private void walk(DataNode node, ConstraintNode schema, List<ValidationError> errors) {
+        for (DataNode child : node.children()) {
+            ConstraintNode childSchema = schema.children.get(child.member);
+            if (childSchema == null) {
+                continue;
+            }
+            for (Condition condition : childSchema.conditions) {
+                check(condition, child, errors);
+            }
+            if (!childSchema.children.isEmpty() || !childSchema.groups.isEmpty()) {
+                walk(child, childSchema, errors);
+            }
+            if (errors.size() >= maxErrors) {
+                return;
+            }
+        }
+        for (GroupCondition group : schema.groups) {
+            for (DataNode child : node.children()) {
+                if (group.members.contains(child.member)) {
+                    check(group.condition, node, errors);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void check(Condition condition, DataNode node, List<ValidationError> errors) {
+        if (errors.size() >= maxErrors) {
+            return;
+        }
+        try {
+            Object result = condition.expression.evaluate(new XPathExpr.Context(node, identityBases, node, 1, 1));
+            if (!XPathExpr.toBoolean(result)) {
+                errors.add(new ValidationError(node.path(), condition.message));
+            }
+        } catch (RuntimeException e) {
+            errors.add(new ValidationError(node.path(), "cannot evaluate: " + e.getMessage()));
+        }
+    }
+
+    // ---- compiling the schema
+
+    /**
+     * @param members gets the json member names of the node, of all case nodes for a choice
+     */
+    private void addChild(ConstraintNode parent, DataSchemaNode node, List<String> members) {
+        String module = moduleOf(node.getQName());
+        if (node instanceof ChoiceSchemaNode) {
+            List<String> choiceMembers = new ArrayList<>();
+            for (CaseSchemaNode caseNode : ((ChoiceSchemaNode) node).getCases()) {
+                List<String> caseMembers = new ArrayList<>();
+                for (DataSchemaNode child : caseNode.getChildNodes()) {
+                    addChild(parent, child, caseMembers);
+                }
+                addGroup(parent, caseNode, "case " + caseNode.getQName().getLocalName(), caseMembers);
+                choiceMembers.addAll(caseMembers);
+            }
+            addGroup(parent, node, "choice " + node.getQName().getLocalName(), choiceMembers);
+            members.addAll(choiceMembers);
+            return;
+        }
+
+        String name = schemaIndex.getQualifiedName(node.getQName());
+        members.add(name);
+        ConstraintNode child = new ConstraintNode(module);
+        if (node.getWhenCondition().isPresent()) {
+            String when = node.getWhenCondition().get().toString();
+            compile(module, when, name).ifPresent(expression -> child.conditions.add(new Condition(expression,
+                    "when \"" + oneLine(when) + "\" is false, the node must not be present")));
+        }
+        if (node instanceof MustConstraintAware) {
+            for (MustDefinition must : ((MustConstraintAware) node).getMustConstraints()) {
+                String text = must.getXpath().toString();
+                compile(module, text, name).ifPresent(expression -> child.conditions.add(new Condition(expression,
+                        must.getErrorMessage().orElse("must \"" + oneLine(text) + "\" is false"))));
+            }
+        }
+        if (node instanceof DataNodeContainer) {
+            for (DataSchemaNode grandChild : ((DataNodeContainer) node).getChildNodes()) {
+                addChild(child, grandChild, new ArrayList<>());
+            }
+        }
+        if (node instanceof AugmentationTarget) {
+            for (AugmentationSchemaNode augmentation : ((AugmentationTarget) node).getAvailableAugmentations()) {
+                List<String> augmentMembers = new ArrayList<>();
+                for (DataSchemaNode augmenting : augmentation.getChildNodes()) {
+                    memberNames(augmenting, augmentMembers);
+                }
+                addGroup(child, augmentation, "augment of " + name, augmentMembers);
+            }
+        }
+        if (!child.isEmpty()) {
+            parent.children.put(name, child);
+            if (module.equals(parent.module)) {
+                parent.children.put(node.getQName().getLocalName(), child);
+            }
+        }
+    }
+
+    private void addGroup(ConstraintNode parent, WhenConditionAware statement, String description,
+                          List<String> members) {
+        if (statement.getWhenCondition().isEmpty() || members.isEmpty()) {
+            return;
+        }
+        String when = statement.getWhenCondition().get().toString();
+        String module = members.get(0).substring(0, members.get(0).indexOf(':'));
+        Optional<XPathExpr> expression = compile(module, when, description);
+        if (expression.isEmpty()) {
+            return;
+        }
+        Set<String> memberNames = new HashSet<>(members);
+        for (String member : members) {
+            if (member.startsWith(parent.module + ":")) {
+                memberNames.add(member.substring(parent.module.length() + 1));
+            }
+        }
+        parent.groups.add(new GroupCondition(new Condition(expression.get(),
+                "when \"" + oneLine(when) + "\" of " + description + " is false, its nodes must not be present"), memberNames));
+    }
+
+    private void memberNames(DataSchemaNode node, List<String> members) {
+        if (node instanceof ChoiceSchemaNode) {
+            for (CaseSchemaNode caseNode : ((ChoiceSchemaNode) node).getCases()) {
+                for (DataSchemaNode child : caseNode.getChildNodes()) {
+                    memberNames(child, members);
+                }
+            }
+        } else {
+            members.add(schemaIndex.getQualifiedName(node.getQName()));
+        }
+    }
+
+    private Optional<XPathExpr> compile(String module, String text, String owner) {
+        Optional<XPathExpr> expression = expressions.get(Arrays.asList(module, text));
+        if (expression == null) {
+            try {
+                expression = Optional.of(XPathParser.compile(text, module, prefixes(module)));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Skipping condition of " + owner + ": " + e.getMessage());
+                expression = Optional.empty();
+            }
+            expressions.put(Arrays.asList(module, text), expression);
+        }
+        if (expression.isPresent()) {
+            conditionCount++;
+        }
+        return expression;
+    }
+
+    /**
+     * Prefixes of the module and its imports, prefixes of other modules where they do not clash, for expressions
+     * coming from groupings of another module.
+     */
+    private Map<String, String> prefixes(String moduleName) {
+        return modulePrefixes.computeIfAbsent(moduleName, name -> {
+            Map<String, String> prefixes = new HashMap<>(globalPrefixes);
+            Module module = schemaIndex.findModule(name);
+            List<ModuleLike> parts = new ArrayList<>(module.getSubmodules());
+            parts.add(module);
+            for (ModuleLike part : parts) {
+                for (ModuleImport moduleImport : part.getImports()) {
+                    prefixes.put(moduleImport.getPrefix(), moduleImport.getModuleName());
+                }
+            }
+            prefixes.put(module.getPrefix(), module.getName());
+            return prefixes;
+        });
+    }
+
+    private static String oneLine(String expression) {
+        return expression.trim().replaceAll("\\s+", " ");
+    }
+
+    private String moduleOf(QName qName) {
+        return schemaIndex.findModule(qName.getNamespace()).getName();
+    }
+
+    private Set<String> bases(IdentitySchemaNode identity) {
+        String name = schemaIndex.getQualifiedName(identity.getQName());
+        Set<String> bases = identityBases.get(name);
+        if (bases == null) {
+            bases = new HashSet<>();
+            for (IdentitySchemaNode base : identity.getBaseIdentities()) {
+                bases.add(schemaIndex.getQualifiedName(base.getQName()));
+                bases.addAll(bases(base));
+            }
+            identityBases.put(name, bases);
+        }
+        return bases;
+    }
+}
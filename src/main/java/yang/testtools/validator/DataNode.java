@@ -0,0 +1,163 @@
+package yang.testtools.validator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A node of an RFC 7951 json instance tree as XPath sees it: a leaf, a container, one list entry or one leaf-list
+ * value. Children are made on first use and kept, so every instance node has exactly one DataNode for the whole
+ * evaluation, node sets can be compared by identity.
+ */
+final class DataNode {
+    final DataNode parent;
+    final String member; // json member name, null for the root
+    final String module; // null for the root
+    final String name;
+    final int index; // position in the json array, -1 when the node is not in one
+    final JsonNode value;
+    private List<DataNode> children;
+
+    private DataNode(DataNode parent, String member, String module, String name, int index, JsonNode value) {
+        this.parent = parent;
+        this.member = member;
+        this.module = module;
+        this.name = name;
+        this.index = index;
+        this.value = value;
+    }
+
+    static DataNode root(JsonNode document) {
+        return new DataNode(null, null, null, null, -1, document);
+    }
+
+    List<DataNode> children() {
+        if (children != null) {
+            return children;
+        }
+        if (!value.isObject()) {
+            children = Collections.emptyList();
+            return children;
+        }
+        children = new ArrayList<>(value.size());
+        Iterator<Map.Entry<String, JsonNode>> fields = value.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String member = field.getKey();
+            int colon = member.indexOf(':');
+            String childModule = colon < 0 ? module : member.substring(0, colon);
+            String childName = colon < 0 ? member : member.substring(colon + 1);
+            JsonNode childValue = field.getValue();
+            if (childValue.isArray() && !isEmptyValue(childValue)) {
+                for (int i = 0; i < childValue.size(); i++) {
+                    children.add(new DataNode(this, member, childModule, childName, i, childValue.get(i)));
+                }
+            } else {
+                children.add(new DataNode(this, member, childModule, childName, -1, childValue));
+            }
+        }
+        return children;
+    }
+
+    /**
+     * {@code [null]}, a leaf of type empty.
+     */
+    private static boolean isEmptyValue(JsonNode value) {
+        return value.size() == 1 && value.get(0).isNull();
+    }
+
+    /**
+     * XPath string-value: the text of a leaf, the concatenated leaves below anything else.
+     */
+    String stringValue() {
+        if (value.isValueNode()) {
+            return value.isNull() ? "" : value.asText();
+        }
+        if (value.isArray()) {
+            // type empty
+            return "";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (DataNode child : children()) {
+            builder.append(child.stringValue());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * XPath number() of the string-value, without the string for json numbers.
+     */
+    double numberValue() {
+        return value.isNumber() ? value.doubleValue() : XPathExpr.toNumber(stringValue());
+    }
+
+    /**
+     * Document order of two nodes of the same tree, a node before its descendants.
+     */
+    static int compareOrder(DataNode a, DataNode b) {
+        if (a == b) {
+            return 0;
+        }
+        DataNode x = a;
+        DataNode y = b;
+        int depthA = a.depth();
+        int depthB = b.depth();
+        for (; depthA > depthB; depthA--) {
+            x = x.parent;
+        }
+        for (; depthB > depthA; depthB--) {
+            y = y.parent;
+        }
+        if (x == y) {
+            return x == a ? -1 : 1;
+        }
+        while (x.parent != y.parent) {
+            x = x.parent;
+            y = y.parent;
+        }
+        for (DataNode sibling : x.parent.children()) {
+            if (sibling == x) {
+                return -1;
+            }
+            if (sibling == y) {
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    private int depth() {
+        int depth = 0;
+        for (DataNode node = parent; node != null; node = node.parent) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Json member names from the root, list entries with their [index].
+     */
+    String path() {
+        if (parent == null) {
+            return "/";
+        }
+        StringBuilder builder = new StringBuilder();
+        appendPath(builder);
+        return builder.toString();
+    }
+
+    private void appendPath(StringBuilder builder) {
+        if (parent == null) {
+            return;
+        }
+        parent.appendPath(builder);
+        builder.append('/').append(member);
+        if (index >= 0) {
+            builder.append('[').append(index).append(']');
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package yang.testtools.validator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A data node compiled for {@link InstanceValidator}. Children are found by their json member name, the nodes of
+ * choice cases are children of the parent of the choice, as they are in instance data.
+ */
+final class InstanceNode {
+    enum Kind {
+        LEAF, LEAF_LIST, CONTAINER, LIST,
+        /**
+         * anydata and anyxml, their content is not checked
+         */
+        ANY
+    }
+
+    static final class Choice {
+        final String name;
+        final boolean mandatory;
+        final int index; // in the choices of the node holding its cases
+        final Case outer; // case the choice is in, null when the choice is not in a case
+
+        Choice(String name, boolean mandatory, int index, Case outer) {
+            this.name = name;
+            this.mandatory = mandatory;
+            this.index = index;
+            this.outer = outer;
+        }
+    }
+
+    static final class Case {
+        final Choice choice;
+        final int index;
+        final String name;
+
+        Case(Choice choice, int index, String name) {
+            this.choice = choice;
+            this.index = index;
+            this.name = name;
+        }
+    }
+
+    final String module;
+    final String name; // "module:name"
+    final Kind kind;
+    final boolean config;
+    final LeafChecker checker; // leaf and leaf-list only
+    final Case inCase; // innermost case the node is in, null when it is in none
+    int index; // in the members of the parent
+
+    // by member name: local for the nodes of the same module, qualified for the others (RFC 7951 section 4)
+    final Map<String, InstanceNode> children = new HashMap<>();
+    final List<InstanceNode> members = new ArrayList<>();
+    final List<InstanceNode> mandatoryLeaves = new ArrayList<>();
+    final List<Choice> choices = new ArrayList<>();
+    final List<InstanceNode> keys = new ArrayList<>(); // list only
+
+    InstanceNode(String module, String name, Kind kind, boolean config, LeafChecker checker, Case inCase) {
+        this.module = module;
+        this.name = name;
+        this.kind = kind;
+        this.config = config;
+        this.checker = checker;
+        this.inCase = inCase;
+    }
+
+    void addChild(InstanceNode child, boolean mandatory) {
+        child.index = members.size();
+        members.add(child);
+        children.putIfAbsent(child.module.equals(module) ? child.name.substring(module.length() + 1) : child.name,
+                child);
+        if (mandatory) {
+            mandatoryLeaves.add(child);
+        }
+    }
+}
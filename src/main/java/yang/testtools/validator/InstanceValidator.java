@@ -0,0 +1,447 @@
+package yang.testtools.validator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.opendaylight.yangtools.yang.common.QName;
+import org.opendaylight.yangtools.yang.model.api.CaseSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.ChoiceSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.DataNodeContainer;
+import org.opendaylight.yangtools.yang.model.api.DataSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.ListSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.MandatoryAware;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.SchemaContext;
+import org.opendaylight.yangtools.yang.model.api.TypeDefinition;
+import org.opendaylight.yangtools.yang.model.api.TypedDataSchemaNode;
+import yang.testtools.validator.InstanceNode.Case;
+import yang.testtools.validator.InstanceNode.Choice;
+import yang.testtools.helper.TypeRestrictions;
+import yang.testtools.validator.InstanceNode.Kind;
+import yang.testtools.yangparser.MySchemaContextUtils;
+import yang.testtools.yangparser.schema.ContainerDto;
+import yang.testtools.yangparser.schema.DataTreeDto;
+import yang.testtools.yangparser.schema.LeafDto;
+import yang.testtools.yangparser.schema.ModuleDto;
+import yang.testtools.yangparser.schema.type.TypeProperty;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Checks instance data in the RFC 7951 json encoding against converted modules: types, ranges, lengths, patterns,
+ * fraction digits, enums, bits, identities, mandatory leaves and choices, list keys and, for config payloads, that
+ * no state data is present. The schema is compiled once, payloads are streamed, so the memory used does not grow
+ * with the number of list entries. A validator can check several payloads concurrently.
+ * <p>
+ * must and when are left to {@link ConstraintEvaluator}. Not checked: unique, min/max-elements, leafref targets and
+ * duplicate list keys. The converter marks leafref leaves mandatory, without the schema context they are not
+ * required.
+ * <p>
+ * The converted schema only has the first key of a list and the span of ranges and lengths, given the schema
+ * context the modules were converted from all keys and the allowed ranges are checked.
+ */
+public class InstanceValidator {
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    public enum Content {
+        /**
+         * A config payload, e.g. the body of a RESTCONF PUT, state data is an error.
+         */
+        CONFIG,
+        /**
+         * Config and state data, e.g. the reply of a RESTCONF GET.
+         */
+        ALL
+    }
+
+    private final InstanceNode root = new InstanceNode(null, null, Kind.CONTAINER, true, null, null);
+    private final LeafCheckers checkers = new LeafCheckers();
+    private final Map<String, DataSchemaNode> schemaNodes = new HashMap<>(); // leaves and lists by xpath
+    private final SchemaContext schemaContext;
+    private int maxErrors = 100;
+
+    /**
+     * @param modules converted with unlimited depth, every module the payloads may have data of
+     */
+    public InstanceValidator(Collection<ModuleDto> modules) {
+        this(null, modules);
+    }
+
+    /**
+     * @param schemaContext the modules were converted from, it gives the keys of the lists after the first and
+     *                      the allowed ranges and lengths, may be null
+     * @param modules       converted with unlimited depth, every module the payloads may have data of
+     */
+    public InstanceValidator(SchemaContext schemaContext, Collection<ModuleDto> modules) {
+        this.schemaContext = schemaContext;
+        if (schemaContext != null) {
+            for (Module module : schemaContext.getModules()) {
+                for (DataSchemaNode child : module.getChildNodes()) {
+                    indexSchema(child, null);
+                }
+            }
+        }
+        for (ModuleDto module : modules) {
+            DataTreeDto dataTree = module.getDataTree();
+            if (dataTree != null) {
+                addChildren(root, module.getName(), module.getTypes(), dataTree.getLeaf(), dataTree.getContainer(),
+                        dataTree.getLeafList(), dataTree.getList(), null);
+            }
+        }
+    }
+
+    /**
+     * Validation stops after this many errors, 100 by default.
+     */
+    public void setMaxErrors(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public List<ValidationError> validate(Path payload, Content content) throws IOException {
+        try (InputStream in = Files.newInputStream(payload)) {
+            return validate(in, content);
+        }
+    }
+
+    /**
+     * @return empty when the payload is valid
+     */
+    public List<ValidationError> validate(InputStream payload, Content content) throws IOException {
+        try (JsonParser parser = FACTORY.createParser(payload)) {
+            return new Run(parser, content).validate();
+        }
+    }
+
+    private void indexSchema(DataSchemaNode node, String parentXpath) {
+        if (node instanceof ChoiceSchemaNode) {
+            for (CaseSchemaNode caseNode : ((ChoiceSchemaNode) node).getCases()) {
+                for (DataSchemaNode child : caseNode.getChildNodes()) {
+                    indexSchema(child, parentXpath);
+                }
+            }
+            return;
+        }
+        String xpath = parentXpath == null ? MySchemaContextUtils.getXpathFromSchemaNode(schemaContext, node)
+                : MySchemaContextUtils.getXpathFromParent(schemaContext, parentXpath, node);
+        if (node instanceof TypedDataSchemaNode || node instanceof ListSchemaNode) {
+            schemaNodes.putIfAbsent(xpath, node);
+        }
+        if (node instanceof DataNodeContainer) {
+            for (DataSchemaNode child : ((DataNodeContainer) node).getChildNodes()) {
+                indexSchema(child, xpath);
+            }
+        }
+    }
+
+    /**
+     * Type of the leaf, see {@link TypeRestrictions#declaredType}. Null when the schema is not known.
+     */
+    private TypeDefinition<?> typeDefinition(DataSchemaNode schemaNode) {
+        return schemaNode == null ? null : TypeRestrictions.declaredType(schemaContext, schemaNode);
+    }
+
+    private void addChildren(InstanceNode parent, String module, Map<String, TypeProperty> types,
+                             Optional<Map<String, LeafDto>> leaves, Optional<Map<String, ContainerDto>> containers,
+                             Optional<Map<String, LeafDto>> leafLists, Optional<Map<String, ContainerDto>> lists,
+                             Case inCase) {
+        if (leaves != null && leaves.isPresent()) {
+            leaves.get().forEach((name, leaf) -> addLeaf(parent, module, name, leaf, false, types, inCase));
+        }
+        if (leafLists != null && leafLists.isPresent()) {
+            leafLists.get().forEach((name, leaf) -> addLeaf(parent, module, name, leaf, true, types, inCase));
+        }
+        if (containers != null && containers.isPresent()) {
+            containers.get().forEach((name, container) -> addContainer(parent, module, name, container, false, types, inCase));
+        }
+        if (lists != null && lists.isPresent()) {
+            lists.get().forEach((name, container) -> addContainer(parent, module, name, container, true, types, inCase));
+        }
+    }
+
+    private void addLeaf(InstanceNode parent, String module, String name, LeafDto leaf, boolean leafList,
+                         Map<String, TypeProperty> types, Case inCase) {
+        String qualifiedName = qualify(module, name);
+        String leafModule = moduleOf(qualifiedName);
+        TypeProperty type = leaf.getTypeProperty();
+        if (type == null && leaf.getTypeRef() != null && types != null) {
+            type = types.get(leaf.getTypeRef());
+        }
+        String typeName = type == null ? null : type.getName();
+
+        if ("choice".equals(typeName)) {
+            Choice choice = new Choice(name, leaf.isMandatory(), parent.choices.size(), inCase);
+            parent.choices.add(choice);
+            if (type.getCases() != null && type.getCases().isPresent()) {
+                int index = 0;
+                for (Map.Entry<String, DataTreeDto> caseEntry : type.getCases().get().entrySet()) {
+                    DataTreeDto caseTree = caseEntry.getValue();
+                    addChildren(parent, leafModule, types, caseTree.getLeaf(), caseTree.getContainer(),
+                            caseTree.getLeafList(), caseTree.getList(), new Case(choice, index++, caseEntry.getKey()));
+                }
+            }
+            return;
+        }
+
+        boolean any = "anydata".equals(typeName) || "anyxml".equals(typeName);
+        boolean leafref = type != null && type.getLeafref() != null && type.getLeafref().isPresent();
+        DataSchemaNode schemaNode = leaf.getXpath() == null ? null : schemaNodes.get(leaf.getXpath());
+        // the converted leafref leaves are all mandatory, the schema node has what was declared
+        boolean mandatory = schemaNode instanceof MandatoryAware ? ((MandatoryAware) schemaNode).isMandatory()
+                : leaf.isMandatory() && !leafref;
+        InstanceNode node = new InstanceNode(leafModule, qualifiedName,
+                any ? Kind.ANY : leafList ? Kind.LEAF_LIST : Kind.LEAF, leaf.isConfig(),
+                any ? null : checkers.compile(type, typeDefinition(schemaNode)), inCase);
+        parent.addChild(node, parent != root && !leafList && mandatory);
+    }
+
+    private void addContainer(InstanceNode parent, String module, String name, ContainerDto container, boolean list,
+                              Map<String, TypeProperty> types, Case inCase) {
+        String qualifiedName = qualify(module, name);
+        String containerModule = moduleOf(qualifiedName);
+        InstanceNode node = new InstanceNode(containerModule, qualifiedName, list ? Kind.LIST : Kind.CONTAINER,
+                container.isConfig(), null, inCase);
+        parent.addChild(node, false);
+        addChildren(node, containerModule, types, container.getLeaf(), container.getContainer(),
+                container.getLeafList(), container.getList(), null);
+        if (!list) {
+            return;
+        }
+        DataSchemaNode schemaNode = container.getXpath() == null ? null : schemaNodes.get(container.getXpath());
+        // keys are in the module of the list, their member names are local
+        List<String> keyNames = new ArrayList<>();
+        if (schemaNode instanceof ListSchemaNode) {
+            for (QName key : ((ListSchemaNode) schemaNode).getKeyDefinition()) {
+                keyNames.add(key.getLocalName());
+            }
+        } else if (container.getKey() != null && container.getKey().isPresent()) {
+            String key = container.getKey().get();
+            keyNames.add(key.substring(key.indexOf(':') + 1));
+        }
+        for (String keyName : keyNames) {
+            InstanceNode key = node.children.get(keyName);
+            if (key != null) {
+                node.keys.add(key);
+            }
+        }
+    }
+
+    private static String qualify(String module, String name) {
+        return name.indexOf(':') < 0 ? module + ":" + name : name;
+    }
+
+    private static String moduleOf(String qualifiedName) {
+        return qualifiedName.substring(0, qualifiedName.indexOf(':'));
+    }
+
+    /**
+     * State of one validation. Holds one frame per object level, reused by all objects of the level.
+     */
+    private class Run {
+        private final JsonParser parser;
+        private final Content content;
+        private final List<ValidationError> errors = new ArrayList<>();
+        private final List<String> path = new ArrayList<>();
+        private final List<Frame> frames = new ArrayList<>();
+        private int depth;
+
+        Run(JsonParser parser, Content content) {
+            this.parser = parser;
+            this.content = content;
+        }
+
+        List<ValidationError> validate() throws IOException {
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_OBJECT) {
+                error(token == null ? "empty document" : "expected an object, got " + parser.getText());
+                return errors;
+            }
+            readObject(root);
+            if (!stopped() && parser.nextToken() != null) {
+                error("content after the end of the document");
+            }
+            return errors;
+        }
+
+        private void readObject(InstanceNode node) throws IOException {
+            Frame frame = enter(node);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String member = parser.getCurrentName();
+                parser.nextToken();
+                path.add(member);
+                InstanceNode child = node.children.get(member);
+                if (child == null) {
+                    error(node == root && member.indexOf(':') < 0 ? "top-level member must be qualified with its module"
+                            : "unknown member");
+                    parser.skipChildren();
+                } else if (content == Content.CONFIG && !child.config) {
+                    error("state data in a config payload");
+                    parser.skipChildren();
+                } else if (frame.seen.get(child.index)) {
+                    error("duplicate member");
+                    parser.skipChildren();
+                } else {
+                    frame.seen.set(child.index);
+                    selectCases(child, frame);
+                    readValue(child);
+                }
+                path.remove(path.size() - 1);
+                if (stopped()) {
+                    return;
+                }
+            }
+            if (node != root) {
+                checkObject(node, frame);
+            }
+            depth--;
+        }
+
+        private void selectCases(InstanceNode child, Frame frame) {
+            for (Case selected = child.inCase; selected != null; selected = selected.choice.outer) {
+                int current = frame.cases[selected.choice.index];
+                if (current < 0) {
+                    frame.cases[selected.choice.index] = selected.index;
+                } else if (current != selected.index) {
+                    error("case " + selected.name + " of choice " + selected.choice.name
+                            + " together with another case of it");
+                    return;
+                }
+            }
+        }
+
+        private void checkObject(InstanceNode node, Frame frame) {
+            for (Choice choice : node.choices) {
+                if (choice.mandatory && frame.cases[choice.index] < 0 && isSelected(choice.outer, frame)) {
+                    error("missing mandatory choice " + choice.name);
+                }
+            }
+            for (InstanceNode leaf : node.mandatoryLeaves) {
+                if (!frame.seen.get(leaf.index) && isSelected(leaf.inCase, frame)
+                        && (leaf.config || content == Content.ALL)) {
+                    error("missing mandatory leaf " + leaf.name);
+                }
+            }
+            for (InstanceNode key : node.keys) {
+                if (!frame.seen.get(key.index)) {
+                    error("missing key " + key.name);
+                }
+            }
+        }
+
+        private boolean isSelected(Case inCase, Frame frame) {
+            return inCase == null || frame.cases[inCase.choice.index] == inCase.index;
+        }
+
+        private void readValue(InstanceNode node) throws IOException {
+            JsonToken token = parser.currentToken();
+            switch (node.kind) {
+                case CONTAINER:
+                    if (token != JsonToken.START_OBJECT) {
+                        error("container must be an object");
+                        parser.skipChildren();
+                    } else {
+                        readObject(node);
+                    }
+                    break;
+                case LIST:
+                case LEAF_LIST:
+                    if (token != JsonToken.START_ARRAY) {
+                        error(node.kind == Kind.LIST ? "list must be an array" : "leaf-list must be an array");
+                        parser.skipChildren();
+                        break;
+                    }
+                    int index = 0;
+                    path.add(null);
+                    while (parser.nextToken() != JsonToken.END_ARRAY && !stopped()) {
+                        path.set(path.size() - 1, "[" + index++ + "]");
+                        if (node.kind == Kind.LEAF_LIST) {
+                            checkValue(node);
+                        } else if (parser.currentToken() != JsonToken.START_OBJECT) {
+                            error("list entry must be an object");
+                            parser.skipChildren();
+                        } else {
+                            readObject(node);
+                        }
+                    }
+                    path.remove(path.size() - 1);
+                    break;
+                case LEAF:
+                    checkValue(node);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        private void checkValue(InstanceNode node) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.START_ARRAY && node.checker.allowsEmpty()) {
+                readEmpty();
+            } else if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                error("expected a single value");
+                parser.skipChildren();
+            } else {
+                String message = node.checker.check(token, parser.getText(), node.module);
+                if (message != null) {
+                    error(message);
+                }
+            }
+        }
+
+        /**
+         * Type empty is {@code [null]}.
+         */
+        private void readEmpty() throws IOException {
+            int values = 0;
+            boolean nulls = true;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                nulls &= token == JsonToken.VALUE_NULL;
+                values++;
+                parser.skipChildren();
+            }
+            if (values != 1 || !nulls) {
+                error("type empty must be [null]");
+            }
+        }
+
+        private Frame enter(InstanceNode node) {
+            if (depth == frames.size()) {
+                frames.add(new Frame());
+            }
+            Frame frame = frames.get(depth++);
+            frame.seen.clear();
+            if (frame.cases.length < node.choices.size()) {
+                frame.cases = new int[node.choices.size()];
+            }
+            Arrays.fill(frame.cases, -1);
+            return frame;
+        }
+
+        private void error(String message) {
+            if (stopped()) {
+                return;
+            }
+            StringBuilder builder = new StringBuilder();
+            for (String segment : path) {
+                if (!segment.startsWith("[")) {
+                    builder.append('/');
+                }
+                builder.append(segment);
+            }
+            errors.add(new ValidationError(builder.length() == 0 ? "/" : builder.toString(), message));
+        }
+
+        private boolean stopped() {
+            return errors.size() >= maxErrors;
+        }
+    }
+
+    private static final class Frame {
+        final BitSet seen = new BitSet();
+        int[] cases = new int[0];
+    }
+}
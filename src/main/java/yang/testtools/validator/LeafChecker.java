@@ -0,0 +1,23 @@
+package yang.testtools.validator;
+
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Checks one value of a leaf or leaf-list against its type, see {@link LeafCheckers}.
+ */
+interface LeafChecker {
+    /**
+     * @param token  a scalar token, the value as the parser read it
+     * @param text   text of the token, as written for numbers
+     * @param module module of the leaf, unqualified identities belong to it
+     * @return why the value is not valid, null when it is
+     */
+    String check(JsonToken token, String text, String module);
+
+    /**
+     * Whether {@code [null]}, the encoding of type empty, is a valid value.
+     */
+    default boolean allowsEmpty() {
+        return false;
+    }
+}
@@ -0,0 +1,406 @@
+package yang.testtools.validator;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.common.collect.Range;
+import org.opendaylight.yangtools.yang.model.api.TypeDefinition;
+import org.opendaylight.yangtools.yang.model.api.type.UnionTypeDefinition;
+import org.opendaylight.yangtools.yang.model.util.RegexUtils;
+import yang.testtools.helper.TypeRestrictions;
+import yang.testtools.yangparser.schema.type.BitsType;
+import yang.testtools.yangparser.schema.type.EnumType;
+import yang.testtools.yangparser.schema.type.IdentityType;
+import yang.testtools.yangparser.schema.type.TypeProperty;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the {@link TypeProperty} of a leaf into a {@link LeafChecker} for its RFC 7951 encoding, once per equal
+ * type property. Patterns are compiled once per regular expression and shared by all validators.
+ * <p>
+ * The converted type only has the span of its ranges and lengths, with the {@link TypeDefinition} of the leaf
+ * values in the gaps of {@code range "1..5 | 10..20"} are errors too.
+ */
+final class LeafCheckers {
+    private static final Map<String, Optional<Pattern>> PATTERNS = new ConcurrentHashMap<>();
+    private static final Pattern DECIMAL = Pattern.compile("[-+]?[0-9]+(\\.[0-9]+)?");
+    private static final BigInteger UINT64_MAX = new BigInteger("18446744073709551615");
+    private static final LeafChecker ANY = (token, text, module) -> null;
+    private static final LeafChecker BOOLEAN = (token, text, module) ->
+            token == JsonToken.VALUE_TRUE || token == JsonToken.VALUE_FALSE ? null : "expected true or false, got " + text;
+    private static final LeafChecker INSTANCE_IDENTIFIER = (token, text, module) ->
+            token == JsonToken.VALUE_STRING && text.startsWith("/") ? null : quote(text) + " is not an instance-identifier";
+    private static final LeafChecker EMPTY = new LeafChecker() {
+        @Override
+        public String check(JsonToken token, String text, String module) {
+            return "type empty must be [null], got " + text;
+        }
+
+        @Override
+        public boolean allowsEmpty() {
+            return true;
+        }
+    };
+
+    // keyed by the type property, or by it and the type definition
+    private final Map<Object, LeafChecker> checkers = new HashMap<>();
+
+    LeafChecker compile(TypeProperty type) {
+        return compile(type, null);
+    }
+
+    /**
+     * @param definition type of the leaf the property was converted from, with leafrefs resolved, may be null
+     */
+    LeafChecker compile(TypeProperty type, TypeDefinition<?> definition) {
+        if (type == null) {
+            return ANY;
+        }
+        Object key = definition == null ? type : Arrays.asList(type, definition);
+        LeafChecker checker = checkers.get(key);
+        if (checker == null) {
+            checker = create(type, definition);
+            checkers.put(key, checker);
+        }
+        return checker;
+    }
+
+    private LeafChecker create(TypeProperty type, TypeDefinition<?> definition) {
+        String name = definition != null ? TypeRestrictions.builtinName(definition) : type.getName() == null ? "" : type.getName();
+        switch (name) {
+            case "int8":
+                return integer(name, Byte.MIN_VALUE, Byte.MAX_VALUE, type, definition);
+            case "int16":
+                return integer(name, Short.MIN_VALUE, Short.MAX_VALUE, type, definition);
+            case "int32":
+                return integer(name, Integer.MIN_VALUE, Integer.MAX_VALUE, type, definition);
+            case "int64":
+                return integer(name, Long.MIN_VALUE, Long.MAX_VALUE, type, definition);
+            case "uint8":
+                return integer(name, 0, 255, type, definition);
+            case "uint16":
+                return integer(name, 0, 65535, type, definition);
+            case "uint32":
+                return integer(name, 0, 4294967295L, type, definition);
+            case "uint64":
+                return uint64(type, definition);
+            case "decimal64":
+                return decimal64(type, definition);
+            case "string":
+                return string(type, definition);
+            case "binary":
+                return binary(type, definition);
+            case "boolean":
+                return BOOLEAN;
+            case "empty":
+                return EMPTY;
+            case "enumeration":
+                return enumeration(type);
+            case "bits":
+                return bits(type);
+            case "identityref":
+                return identityref(type);
+            case "instance-identifier":
+                return INSTANCE_IDENTIFIER;
+            case "union":
+                return union(type, definition);
+            default:
+                // anydata, anyxml and types this version does not know
+                return ANY;
+        }
+    }
+
+    /**
+     * int64 is a json string, the smaller ones json numbers.
+     */
+    private static LeafChecker integer(String name, long lowest, long highest, TypeProperty type,
+                                       TypeDefinition<?> definition) {
+        boolean quoted = name.equals("int64");
+        long[] ranges = bounds(TypeRestrictions.ranges(definition, Long::valueOf),
+                Range.closed(bound(type.getMin(), lowest), bound(type.getMax(), highest)));
+        return (token, text, module) -> {
+            if (quoted ? token != JsonToken.VALUE_STRING : token != JsonToken.VALUE_NUMBER_INT) {
+                return quoted ? name + " must be a json string, got " + text : quote(text) + " is not a valid " + name;
+            }
+            long value;
+            try {
+                value = Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                return quote(text) + " is not a valid " + name;
+            }
+            return contains(ranges, value) ? null : text + " is out of range " + format(ranges);
+        };
+    }
+
+    private static LeafChecker uint64(TypeProperty type, TypeDefinition<?> definition) {
+        List<Range<BigInteger>> ranges = TypeRestrictions.ranges(definition, BigInteger::new);
+        if (ranges == null) {
+            ranges = Collections.singletonList(Range.closed(bound(type.getMin(), BigInteger.ZERO, BigInteger::new),
+                    bound(type.getMax(), UINT64_MAX, BigInteger::new)));
+        }
+        List<Range<BigInteger>> allowed = ranges;
+        return (token, text, module) -> {
+            if (token != JsonToken.VALUE_STRING) {
+                return "uint64 must be a json string, got " + text;
+            }
+            BigInteger value;
+            try {
+                value = new BigInteger(text);
+            } catch (NumberFormatException e) {
+                return quote(text) + " is not a valid uint64";
+            }
+            return contains(allowed, value) ? null : text + " is out of range " + format(allowed);
+        };
+    }
+
+    private static LeafChecker decimal64(TypeProperty type, TypeDefinition<?> definition) {
+        int fractionDigits = type.getFractionDigits() == null ? 18 : type.getFractionDigits().orElse(18);
+        List<Range<BigDecimal>> ranges = TypeRestrictions.ranges(definition, BigDecimal::new);
+        if (ranges == null) {
+            BigDecimal min = bound(type.getMin(), null, BigDecimal::new);
+            BigDecimal max = bound(type.getMax(), null, BigDecimal::new);
+            ranges = Collections.singletonList(min == null && max == null ? Range.all()
+                    : min == null ? Range.atMost(max) : max == null ? Range.atLeast(min) : Range.closed(min, max));
+        }
+        List<Range<BigDecimal>> allowed = ranges;
+        return (token, text, module) -> {
+            if (token != JsonToken.VALUE_STRING) {
+                return "decimal64 must be a json string, got " + text;
+            }
+            if (!DECIMAL.matcher(text).matches()) {
+                return quote(text) + " is not a valid decimal64";
+            }
+            BigDecimal value = new BigDecimal(text);
+            if (value.scale() > fractionDigits) {
+                return text + " has more than " + fractionDigits + " fraction digits";
+            }
+            return contains(allowed, value) ? null : text + " is out of range " + format(allowed);
+        };
+    }
+
+    private static LeafChecker string(TypeProperty type, TypeDefinition<?> definition) {
+        long[] lengths = lengths(type, definition);
+        List<Pattern> patterns = new ArrayList<>();
+        if (type.getPattern() != null && type.getPattern().isPresent()) {
+            for (String regex : type.getPattern().get()) {
+                pattern(regex).ifPresent(patterns::add);
+            }
+        }
+        boolean checkLength = lengths.length > 2 || lengths[0] > 0 || lengths[1] < Long.MAX_VALUE;
+        return (token, text, module) -> {
+            if (token != JsonToken.VALUE_STRING) {
+                return "expected a string, got " + text;
+            }
+            if (checkLength) {
+                int length = text.codePointCount(0, text.length());
+                if (!contains(lengths, length)) {
+                    return "length " + length + " of " + quote(text) + " is out of " + format(lengths);
+                }
+            }
+            for (Pattern pattern : patterns) {
+                if (!pattern.matcher(text).matches()) {
+                    return quote(text) + " does not match pattern " + pattern.pattern();
+                }
+            }
+            return null;
+        };
+    }
+
+    private static LeafChecker binary(TypeProperty type, TypeDefinition<?> definition) {
+        long[] lengths = lengths(type, definition);
+        return (token, text, module) -> {
+            if (token != JsonToken.VALUE_STRING) {
+                return "expected a base64 string, got " + text;
+            }
+            int length;
+            try {
+                length = Base64.getDecoder().decode(text).length;
+            } catch (IllegalArgumentException e) {
+                return quote(text) + " is not valid base64";
+            }
+            return contains(lengths, length) ? null : "length " + length + " bytes is out of " + format(lengths);
+        };
+    }
+
+    private static LeafChecker enumeration(TypeProperty type) {
+        Set<String> names = type.getOptions() == null || type.getOptions().isEmpty() ? Collections.emptySet()
+                : type.getOptions().get().stream().map(EnumType::getName).collect(Collectors.toSet());
+        return (token, text, module) -> token == JsonToken.VALUE_STRING && names.contains(text) ? null
+                : quote(text) + " is not one of " + names;
+    }
+
+    private static LeafChecker bits(TypeProperty type) {
+        Set<String> names = type.getBits() == null || type.getBits().isEmpty() ? Collections.emptySet()
+                : type.getBits().get().stream().map(BitsType::getName).collect(Collectors.toSet());
+        return (token, text, module) -> {
+            if (token != JsonToken.VALUE_STRING) {
+                return "expected a string of bits, got " + text;
+            }
+            String trimmed = text.trim();
+            if (trimmed.isEmpty()) {
+                return null;
+            }
+            Set<String> seen = new HashSet<>();
+            for (String bit : trimmed.split("\\s+")) {
+                if (!names.contains(bit)) {
+                    return "bit " + bit + " is not one of " + names;
+                }
+                if (!seen.add(bit)) {
+                    return "bit " + bit + " is set twice";
+                }
+            }
+            return null;
+        };
+    }
+
+    /**
+     * Identities are "module:identity", the module may be left out when it is the one of the leaf.
+     */
+    private static LeafChecker identityref(TypeProperty type) {
+        Set<String> identities = type.getIdentities() == null || type.getIdentities().isEmpty() ? Collections.emptySet()
+                : type.getIdentities().get().stream().map(IdentityType::getIdentity).collect(Collectors.toSet());
+        String base = type.getBase() == null ? null : type.getBase().orElse(null);
+        return (token, text, module) -> {
+            if (token != JsonToken.VALUE_STRING) {
+                return "expected an identity, got " + text;
+            }
+            String identity = text.indexOf(':') < 0 ? module + ":" + text : text;
+            return identities.contains(identity) ? null : quote(text) + " is not derived from identity " + base;
+        };
+    }
+
+    private LeafChecker union(TypeProperty type, TypeDefinition<?> definition) {
+        List<LeafChecker> members = new ArrayList<>();
+        if (type.getUnionTypes() != null && type.getUnionTypes().isPresent()) {
+            List<TypeProperty> memberTypes = type.getUnionTypes().get();
+            // converted in the order of the definition, leafref members are left to their converted span
+            List<? extends TypeDefinition<?>> memberDefinitions = definition instanceof UnionTypeDefinition
+                    ? ((UnionTypeDefinition) definition).getTypes() : null;
+            for (int i = 0; i < memberTypes.size(); i++) {
+                members.add(compile(memberTypes.get(i), memberDefinitions != null
+                        && memberDefinitions.size() == memberTypes.size() ? memberDefinitions.get(i) : null));
+            }
+        }
+        if (members.isEmpty()) {
+            return ANY;
+        }
+        boolean allowsEmpty = members.stream().anyMatch(LeafChecker::allowsEmpty);
+        return new LeafChecker() {
+            @Override
+            public String check(JsonToken token, String text, String module) {
+                for (LeafChecker member : members) {
+                    if (member.check(token, text, module) == null) {
+                        return null;
+                    }
+                }
+                return text + " is not valid for any type of the union";
+            }
+
+            @Override
+            public boolean allowsEmpty() {
+                return allowsEmpty;
+            }
+        };
+    }
+
+    /**
+     * @return empty when the expression is not supported, the value is then not checked against it
+     */
+    static Optional<Pattern> pattern(String regex) {
+        return PATTERNS.computeIfAbsent(regex, expression -> {
+            try {
+                return Optional.of(Pattern.compile(RegexUtils.getJavaRegexFromXSD(expression)));
+            } catch (PatternSyntaxException e) {
+                System.out.println("Unsupported pattern: " + expression);
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Allowed lengths as bounds, the span of the type property without a restricting definition.
+     */
+    private static long[] lengths(TypeProperty type, TypeDefinition<?> definition) {
+        return bounds(TypeRestrictions.lengths(definition),
+                Range.closed(bound(type.getMin(), 0), bound(type.getMax(), Long.MAX_VALUE)));
+    }
+
+    /**
+     * Lower and upper bound of each range one after the other, the span when there are no ranges.
+     */
+    private static long[] bounds(List<Range<Long>> ranges, Range<Long> span) {
+        if (ranges == null || ranges.isEmpty()) {
+            ranges = Collections.singletonList(span);
+        }
+        long[] bounds = new long[ranges.size() * 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            bounds[2 * i] = ranges.get(i).lowerEndpoint();
+            bounds[2 * i + 1] = ranges.get(i).upperEndpoint();
+        }
+        return bounds;
+    }
+
+    private static boolean contains(long[] bounds, long value) {
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (value >= bounds[i] && value <= bounds[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T extends Comparable<? super T>> boolean contains(List<Range<T>> ranges, T value) {
+        for (Range<T> range : ranges) {
+            if (range.contains(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * As in the yang statement, "1..5 | 10..20".
+     */
+    private static String format(long[] bounds) {
+        StringJoiner joiner = new StringJoiner(" | ");
+        for (int i = 0; i < bounds.length; i += 2) {
+            joiner.add(bounds[i] + ".." + bounds[i + 1]);
+        }
+        return joiner.toString();
+    }
+
+    private static <T extends Comparable<? super T>> String format(List<Range<T>> ranges) {
+        StringJoiner joiner = new StringJoiner(" | ");
+        for (Range<T> range : ranges) {
+            joiner.add((range.hasLowerBound() ? range.lowerEndpoint().toString() : "min") + ".."
+                    + (range.hasUpperBound() ? range.upperEndpoint().toString() : "max"));
+        }
+        return joiner.toString();
+    }
+
+    private static long bound(Optional<String> value, long otherwise) {
+        Long bound = bound(value, null, Long::valueOf);
+        return bound == null ? otherwise : bound;
+    }
+
+    private static <T> T bound(Optional<String> value, T otherwise, Function<String, T> parse) {
+        if (value == null || value.isEmpty()) {
+            return otherwise;
+        }
+        try {
+            return parse.apply(value.get());
+        } catch (NumberFormatException e) {
+            return otherwise;
+        }
+    }
+
+    private static String quote(String text) {
+        return "\"" + text + "\"";
+    }
+}
@@ -0,0 +1,14 @@
+package yang.testtools.validator;
+
+import lombok.Data;
+
+@Data
+public class ValidationError {
+    public ValidationError(String path, String message) {
+        this.path = path;
+        this.message = message;
+    }
+
+    private String path; // json member names from the document root, list entries as [index]
+    private String message;
+}
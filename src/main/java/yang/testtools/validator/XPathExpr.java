@@ -0,0 +1,487 @@
+package yang.testtools.validator;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * A compiled XPath 1.0 expression, or a part of one, as {@link XPathParser} builds it. Evaluates to a Boolean, a
+ * Double, a String or a node set, a List of {@link DataNode} in document order without duplicates.
+ */
+abstract class XPathExpr {
+    /**
+     * Context of one evaluation: the node, its position in the node set being filtered, and what stays the same for
+     * the whole expression.
+     */
+    static final class Context {
+        final DataNode current;
+        final Map<String, Set<String>> identityBases; // "module:identity" to all identities it is derived from
+        final DataNode node;
+        final int position;
+        final int size;
+
+        Context(DataNode current, Map<String, Set<String>> identityBases, DataNode node, int position, int size) {
+            this.current = current;
+            this.identityBases = identityBases;
+            this.node = node;
+            this.position = position;
+            this.size = size;
+        }
+
+        Context with(DataNode node, int position, int size) {
+            return new Context(current, identityBases, node, position, size);
+        }
+    }
+
+    abstract Object evaluate(Context context);
+
+    enum Op {OR, AND, EQ, NE, LT, LE, GT, GE, PLUS, MINUS, MULTIPLY, DIV, MOD}
+
+    enum Axis {
+        CHILD, PARENT, SELF, ANCESTOR, ANCESTOR_OR_SELF, DESCENDANT, DESCENDANT_OR_SELF, FOLLOWING_SIBLING,
+        PRECEDING_SIBLING, ATTRIBUTE
+    }
+
+    static final class Literal extends XPathExpr {
+        final String value;
+
+        Literal(String value) {
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate(Context context) {
+            return value;
+        }
+    }
+
+    static final class Number extends XPathExpr {
+        private final Double value;
+
+        Number(double value) {
+            this.value = value;
+        }
+
+        @Override
+        Object evaluate(Context context) {
+            return value;
+        }
+    }
+
+    static final class Binary extends XPathExpr {
+        private final Op op;
+        private final XPathExpr left;
+        private final XPathExpr right;
+
+        Binary(Op op, XPathExpr left, XPathExpr right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate(Context context) {
+            switch (op) {
+                case OR:
+                    return toBoolean(left.evaluate(context)) || toBoolean(right.evaluate(context));
+                case AND:
+                    return toBoolean(left.evaluate(context)) && toBoolean(right.evaluate(context));
+                case EQ:
+                case NE:
+                case LT:
+                case LE:
+                case GT:
+                case GE:
+                    return compare(op, left.evaluate(context), right.evaluate(context));
+                default:
+                    double x = toNumber(left.evaluate(context));
+                    double y = toNumber(right.evaluate(context));
+                    switch (op) {
+                        case PLUS:
+                            return x + y;
+                        case MINUS:
+                            return x - y;
+                        case MULTIPLY:
+                            return x * y;
+                        case DIV:
+                            return x / y;
+                        default:
+                            return x % y;
+                    }
+            }
+        }
+    }
+
+    static final class Negate extends XPathExpr {
+        private final XPathExpr operand;
+
+        Negate(XPathExpr operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        Object evaluate(Context context) {
+            return -toNumber(operand.evaluate(context));
+        }
+    }
+
+    static final class Union extends XPathExpr {
+        private final XPathExpr left;
+        private final XPathExpr right;
+
+        Union(XPathExpr left, XPathExpr right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate(Context context) {
+            List<DataNode> result = new ArrayList<>(toNodes(left.evaluate(context)));
+            Set<DataNode> seen = identitySet(result);
+            for (DataNode node : toNodes(right.evaluate(context))) {
+                if (seen.add(node)) {
+                    result.add(node);
+                }
+            }
+            result.sort(DataNode::compareOrder);
+            return result;
+        }
+    }
+
+    /**
+     * A primary expression with predicates, e.g. {@code current()} or {@code (a | b)[1]}.
+     */
+    static final class Filter extends XPathExpr {
+        private final XPathExpr primary;
+        private final List<XPathExpr> predicates;
+
+        Filter(XPathExpr primary, List<XPathExpr> predicates) {
+            this.primary = primary;
+            this.predicates = predicates;
+        }
+
+        @Override
+        Object evaluate(Context context) {
+            Object value = primary.evaluate(context);
+            return predicates.isEmpty() ? value : filter(toNodes(value), predicates, context);
+        }
+    }
+
+    static final class LocationPath extends XPathExpr {
+        private final boolean absolute;
+        private final XPathExpr start; // filter expression the path continues, null for a location path
+        private final List<Step> steps;
+
+        LocationPath(boolean absolute, XPathExpr start, List<Step> steps) {
+            this.absolute = absolute;
+            this.start = start;
+            this.steps = steps;
+        }
+
+        @Override
+        Object evaluate(Context context) {
+            List<DataNode> nodes;
+            if (absolute) {
+                DataNode root = context.node;
+                while (root.parent != null) {
+                    root = root.parent;
+                }
+                nodes = Collections.singletonList(root);
+            } else if (start != null) {
+                nodes = toNodes(start.evaluate(context));
+            } else {
+                nodes = Collections.singletonList(context.node);
+            }
+            for (Step step : steps) {
+                if (nodes.size() == 1) {
+                    nodes = step.apply(nodes.get(0), context);
+                    continue;
+                }
+                List<DataNode> next = new ArrayList<>();
+                Set<DataNode> seen = identitySet(Collections.emptyList());
+                for (DataNode node : nodes) {
+                    for (DataNode found : step.apply(node, context)) {
+                        if (seen.add(found)) {
+                            next.add(found);
+                        }
+                    }
+                }
+                // the nodes found from different nodes can interleave
+                next.sort(DataNode::compareOrder);
+                nodes = next;
+            }
+            return nodes;
+        }
+    }
+
+    static final class Step {
+        private final Axis axis;
+        private final String module; // null matches any module
+        private final String name; // null matches any name
+        private final boolean anyNode; // node()
+        private final List<XPathExpr> predicates;
+
+        Step(Axis axis, String module, String name, boolean anyNode, List<XPathExpr> predicates) {
+            this.axis = axis;
+            this.module = module;
+            this.name = name;
+            this.anyNode = anyNode;
+            this.predicates = predicates;
+        }
+
+        List<DataNode> apply(DataNode node, Context context) {
+            List<DataNode> result = new ArrayList<>();
+            switch (axis) {
+                case CHILD:
+                    addMatching(node.children(), result);
+                    break;
+                case PARENT:
+                    if (node.parent != null && matches(node.parent)) {
+                        result.add(node.parent);
+                    }
+                    break;
+                case SELF:
+                    if (matches(node)) {
+                        result.add(node);
+                    }
+                    break;
+                case ANCESTOR_OR_SELF:
+                case ANCESTOR:
+                    for (DataNode ancestor = axis == Axis.ANCESTOR ? node.parent : node; ancestor != null;
+                         ancestor = ancestor.parent) {
+                        if (matches(ancestor)) {
+                            result.add(ancestor);
+                        }
+                    }
+                    break;
+                case DESCENDANT_OR_SELF:
+                    if (matches(node)) {
+                        result.add(node);
+                    }
+                    addDescendants(node, result);
+                    break;
+                case DESCENDANT:
+                    addDescendants(node, result);
+                    break;
+                case FOLLOWING_SIBLING:
+                case PRECEDING_SIBLING:
+                    if (node.parent != null) {
+                        List<DataNode> siblings = node.parent.children();
+                        int self = indexOf(siblings, node);
+                        if (axis == Axis.FOLLOWING_SIBLING) {
+                            addMatching(siblings.subList(self + 1, siblings.size()), result);
+                        } else {
+                            for (int i = self - 1; i >= 0; i--) {
+                                if (matches(siblings.get(i))) {
+                                    result.add(siblings.get(i));
+                                }
+                            }
+                        }
+                    }
+                    break;
+                default:
+                    // json instance data has no attributes
+                    break;
+            }
+            if (!predicates.isEmpty()) {
+                result = filter(result, predicates, context);
+            }
+            if (axis == Axis.ANCESTOR || axis == Axis.ANCESTOR_OR_SELF || axis == Axis.PRECEDING_SIBLING) {
+                // reverse axes are filtered in proximity order, the node set is in document order
+                Collections.reverse(result);
+            }
+            return result;
+        }
+
+        private boolean matches(DataNode node) {
+            if (anyNode) {
+                return true;
+            }
+            return node.name != null && (name == null || name.equals(node.name))
+                    && (module == null || module.equals(node.module));
+        }
+
+        private void addMatching(List<DataNode> nodes, List<DataNode> result) {
+            for (DataNode node : nodes) {
+                if (matches(node)) {
+                    result.add(node);
+                }
+            }
+        }
+
+        private void addDescendants(DataNode node, List<DataNode> result) {
+            for (DataNode child : node.children()) {
+                if (matches(child)) {
+                    result.add(child);
+                }
+                addDescendants(child, result);
+            }
+        }
+
+        private static int indexOf(List<DataNode> nodes, DataNode node) {
+            for (int i = 0; i < nodes.size(); i++) {
+                if (nodes.get(i) == node) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    static List<DataNode> filter(List<DataNode> nodes, List<XPathExpr> predicates, Context context) {
+        for (XPathExpr predicate : predicates) {
+            List<DataNode> kept = new ArrayList<>();
+            for (int i = 0; i < nodes.size(); i++) {
+                Object result = predicate.evaluate(context.with(nodes.get(i), i + 1, nodes.size()));
+                if (result instanceof Double ? (Double) result == i + 1 : toBoolean(result)) {
+                    kept.add(nodes.get(i));
+                }
+            }
+            nodes = kept;
+        }
+        return nodes;
+    }
+
+    static Set<DataNode> identitySet(Collection<DataNode> nodes) {
+        Set<DataNode> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(nodes);
+        return set;
+    }
+
+    static boolean compare(Op op, Object a, Object b) {
+        if (a instanceof List && b instanceof List) {
+            for (DataNode x : toNodes(a)) {
+                String value = x.stringValue();
+                for (DataNode y : toNodes(b)) {
+                    if (compareAtoms(op, value, y.stringValue())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        if (a instanceof List || b instanceof List) {
+            boolean left = a instanceof List;
+            Object other = left ? b : a;
+            if (other instanceof Boolean) {
+                return left ? compareAtoms(op, toBoolean(a), other) : compareAtoms(op, other, toBoolean(b));
+            }
+            for (DataNode node : toNodes(left ? a : b)) {
+                Object atom = other instanceof Double ? (Object) node.numberValue() : node.stringValue();
+                if (left ? compareAtoms(op, atom, other) : compareAtoms(op, other, atom)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return compareAtoms(op, a, b);
+    }
+
+    private static boolean compareAtoms(Op op, Object a, Object b) {
+        if (op == Op.EQ || op == Op.NE) {
+            boolean equal;
+            if (a instanceof Boolean || b instanceof Boolean) {
+                equal = toBoolean(a) == toBoolean(b);
+            } else if (a instanceof Double || b instanceof Double) {
+                equal = toNumber(a) == toNumber(b);
+            } else {
+                equal = toStr(a).equals(toStr(b));
+            }
+            return op == Op.EQ ? equal : !equal;
+        }
+        double x = toNumber(a);
+        double y = toNumber(b);
+        switch (op) {
+            case LT:
+                return x < y;
+            case LE:
+                return x <= y;
+            case GT:
+                return x > y;
+            default:
+                return x >= y;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<DataNode> toNodes(Object value) {
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("not a node set: " + toStr(value));
+        }
+        return (List<DataNode>) value;
+    }
+
+    static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Double) {
+            double number = (Double) value;
+            return number != 0 && !Double.isNaN(number);
+        }
+        if (value instanceof String) {
+            return !((String) value).isEmpty();
+        }
+        return !toNodes(value).isEmpty();
+    }
+
+    static double toNumber(Object value) {
+        if (value instanceof Double) {
+            return (Double) value;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1 : 0;
+        }
+        if (value instanceof List && !((List<?>) value).isEmpty()) {
+            return toNodes(value).get(0).numberValue();
+        }
+        return toNumber(toStr(value));
+    }
+
+    /**
+     * XPath number syntax only, optionally signed digits with an optional fraction, NaN for anything else.
+     */
+    static double toNumber(String text) {
+        String trimmed = text.trim();
+        int start = trimmed.startsWith("-") ? 1 : 0;
+        boolean digits = false;
+        boolean dot = false;
+        for (int i = start; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits = true;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                return Double.NaN;
+            }
+        }
+        return digits ? Double.parseDouble(trimmed) : Double.NaN;
+    }
+
+    static String toStr(Object value) {
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof Double) {
+            return format((Double) value);
+        }
+        List<DataNode> nodes = toNodes(value);
+        return nodes.isEmpty() ? "" : nodes.get(0).stringValue();
+    }
+
+    private static String format(double number) {
+        if (Double.isNaN(number)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(number)) {
+            return number > 0 ? "Infinity" : "-Infinity";
+        }
+        if (number == Math.rint(number) && Math.abs(number) < 1e18) {
+            return Long.toString((long) number);
+        }
+        return BigDecimal.valueOf(number).stripTrailingZeros().toPlainString();
+    }
+}
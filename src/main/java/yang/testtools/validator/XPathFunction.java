@@ -0,0 +1,209 @@
+package yang.testtools.validator;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A call of one of the XPath 1.0 core functions or of the YANG 1.1 functions RFC 7950 adds, except deref and
+ * enum-value, which need the schema.
+ */
+final class XPathFunction extends XPathExpr {
+    private static final Map<String, int[]> ARITY = new HashMap<>();
+
+    static {
+        arity(0, 0, "last", "position", "true", "false", "current");
+        arity(1, 1, "count", "not", "boolean", "sum", "floor", "ceiling", "round");
+        arity(0, 1, "number", "string", "string-length", "normalize-space", "local-name", "name");
+        arity(2, Integer.MAX_VALUE, "concat");
+        arity(2, 2, "contains", "starts-with", "substring-before", "substring-after", "derived-from",
+                "derived-from-or-self", "re-match", "bit-is-set");
+        arity(2, 3, "substring");
+        arity(3, 3, "translate");
+    }
+
+    private final String name;
+    private final List<XPathExpr> arguments;
+    private final String module; // module of the expression, the one of unprefixed identities
+    private final Map<String, String> prefixes; // prefix to module name, for the identities of derived-from
+    private final Pattern pattern; // re-match with a literal pattern, compiled once
+
+    XPathFunction(String name, List<XPathExpr> arguments, String module, Map<String, String> prefixes) {
+        int[] arity = ARITY.get(name);
+        if (arity == null) {
+            throw new IllegalArgumentException("unsupported function " + name + "()");
+        }
+        if (arguments.size() < arity[0] || arguments.size() > arity[1]) {
+            throw new IllegalArgumentException("wrong number of arguments for " + name + "()");
+        }
+        this.name = name;
+        this.arguments = arguments;
+        this.module = module;
+        this.prefixes = prefixes;
+        this.pattern = name.equals("re-match") && arguments.get(1) instanceof Literal
+                ? LeafCheckers.pattern(((Literal) arguments.get(1)).value).orElse(null) : null;
+    }
+
+    private static void arity(int min, int max, String... names) {
+        for (String name : names) {
+            ARITY.put(name, new int[]{min, max});
+        }
+    }
+
+    @Override
+    Object evaluate(Context context) {
+        switch (name) {
+            case "last":
+                return (double) context.size;
+            case "position":
+                return (double) context.position;
+            case "true":
+                return true;
+            case "false":
+                return false;
+            case "current":
+                return Collections.singletonList(context.current);
+            case "count":
+                return (double) toNodes(argument(0, context)).size();
+            case "not":
+                return !toBoolean(argument(0, context));
+            case "boolean":
+                return toBoolean(argument(0, context));
+            case "sum":
+                double sum = 0;
+                for (DataNode node : toNodes(argument(0, context))) {
+                    sum += node.numberValue();
+                }
+                return sum;
+            case "floor":
+                return Math.floor(toNumber(argument(0, context)));
+            case "ceiling":
+                return Math.ceil(toNumber(argument(0, context)));
+            case "round":
+                return Math.floor(toNumber(argument(0, context)) + 0.5);
+            case "number":
+                return toNumber(contextOrArgument(context));
+            case "string":
+                return toStr(contextOrArgument(context));
+            case "string-length":
+                String text = toStr(contextOrArgument(context));
+                return (double) text.codePointCount(0, text.length());
+            case "normalize-space":
+                return toStr(contextOrArgument(context)).trim().replaceAll("\\s+", " ");
+            case "local-name":
+            case "name":
+                List<DataNode> nodes = arguments.isEmpty() ? Collections.singletonList(context.node)
+                        : toNodes(argument(0, context));
+                if (nodes.isEmpty() || nodes.get(0).name == null) {
+                    return "";
+                }
+                return name.equals("name") ? nodes.get(0).module + ":" + nodes.get(0).name : nodes.get(0).name;
+            case "concat":
+                StringBuilder builder = new StringBuilder();
+                for (int i = 0; i < arguments.size(); i++) {
+                    builder.append(toStr(argument(i, context)));
+                }
+                return builder.toString();
+            case "contains":
+                return string(0, context).contains(string(1, context));
+            case "starts-with":
+                return string(0, context).startsWith(string(1, context));
+            case "substring-before": {
+                String value = string(0, context);
+                int index = value.indexOf(string(1, context));
+                return index < 0 ? "" : value.substring(0, index);
+            }
+            case "substring-after": {
+                String value = string(0, context);
+                String part = string(1, context);
+                int index = value.indexOf(part);
+                return index < 0 ? "" : value.substring(index + part.length());
+            }
+            case "substring":
+                return substring(context);
+            case "translate":
+                return translate(string(0, context), string(1, context), string(2, context));
+            case "derived-from":
+            case "derived-from-or-self":
+                return derivedFrom(context);
+            case "re-match":
+                Pattern regex = pattern != null ? pattern : LeafCheckers.pattern(string(1, context)).orElse(null);
+                return regex != null && regex.matcher(string(0, context)).matches();
+            default:
+                // bit-is-set
+                String bit = string(1, context);
+                for (DataNode node : toNodes(argument(0, context))) {
+                    if (Arrays.asList(node.stringValue().trim().split("\\s+")).contains(bit)) {
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    private Object argument(int index, Context context) {
+        return arguments.get(index).evaluate(context);
+    }
+
+    private String string(int index, Context context) {
+        return toStr(argument(index, context));
+    }
+
+    private Object contextOrArgument(Context context) {
+        return arguments.isEmpty() ? Collections.singletonList(context.node) : argument(0, context);
+    }
+
+    /**
+     * Characters are counted from 1, start and length are rounded as XPath rounds.
+     */
+    private String substring(Context context) {
+        String value = string(0, context);
+        double start = Math.floor(toNumber(argument(1, context)) + 0.5);
+        double end = arguments.size() > 2 ? start + Math.floor(toNumber(argument(2, context)) + 0.5)
+                : Double.POSITIVE_INFINITY;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            if (i + 1 >= start && i + 1 < end) {
+                builder.append(value.charAt(i));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String translate(String value, String from, String to) {
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            int index = from.indexOf(value.charAt(i));
+            if (index < 0) {
+                builder.append(value.charAt(i));
+            } else if (index < to.length()) {
+                builder.append(to.charAt(index));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Identities of instance data are "module:identity" or, in the module of the leaf, unqualified. The identity
+     * argument has the prefixes of the module of the expression.
+     */
+    private boolean derivedFrom(Context context) {
+        String identity = string(1, context);
+        int colon = identity.indexOf(':');
+        String target = colon < 0 ? module + ":" + identity
+                : prefixes.getOrDefault(identity.substring(0, colon), identity.substring(0, colon))
+                + identity.substring(colon);
+        boolean orSelf = name.equals("derived-from-or-self");
+        for (DataNode node : toNodes(argument(0, context))) {
+            String value = node.stringValue();
+            String qualified = value.indexOf(':') < 0 ? node.module + ":" + value : value;
+            if (orSelf && qualified.equals(target)) {
+                return true;
+            }
+            Set<String> bases = context.identityBases.get(qualified);
+            if (bases != null && bases.contains(target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,560 @@
+package yang.testtools.validator;
+
+import yang.testtools.validator.XPathExpr.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the text of a must or when into an {@link XPathExpr}, resolving name tests to modules with the prefixes
+ * of the module defining the expression. Unprefixed names belong to that module, as RFC 7950 has it.
+ */
+final class XPathParser {
+    private enum Type {
+        LPAREN, RPAREN, LBRACKET, RBRACKET, DOT, DOTDOT, AT, COMMA, AXIS, SLASH, DSLASH, PIPE, PLUS, MINUS, EQ, NE,
+        LT, LE, GT, GE, MULTIPLY, OPERATOR, NAME_TEST, NODE_TYPE, FUNCTION, LITERAL, NUMBER, END
+    }
+
+    private static final class Token {
+        final Type type;
+        final String text;
+
+        Token(Type type, String text) {
+            this.type = type;
+            this.text = text;
+        }
+    }
+
+    private final String expression;
+    private final String module;
+    private final Map<String, String> prefixes;
+    private final List<Token> tokens = new ArrayList<>();
+    private int position;
+
+    private XPathParser(String expression, String module, Map<String, String> prefixes) {
+        this.expression = expression;
+        this.module = module;
+        this.prefixes = prefixes;
+    }
+
+    /**
+     * @param module   name of the module defining the expression
+     * @param prefixes prefix to module name, the module's own and its imports
+     * @throws IllegalArgumentException when the expression is not valid or uses what is not supported
+     */
+    static XPathExpr compile(String expression, String module, Map<String, String> prefixes) {
+        XPathParser parser = new XPathParser(expression, module, prefixes);
+        parser.tokenize();
+        XPathExpr result = parser.orExpr();
+        if (parser.peek().type != Type.END) {
+            throw parser.error("unexpected " + parser.peek().text);
+        }
+        return result;
+    }
+
+    // ---- grammar of XPath 1.0, one method per precedence level
+
+    private XPathExpr orExpr() {
+        XPathExpr left = andExpr();
+        while (isOperator("or")) {
+            position++;
+            left = new Binary(Op.OR, left, andExpr());
+        }
+        return left;
+    }
+
+    private XPathExpr andExpr() {
+        XPathExpr left = equalityExpr();
+        while (isOperator("and")) {
+            position++;
+            left = new Binary(Op.AND, left, equalityExpr());
+        }
+        return left;
+    }
+
+    private XPathExpr equalityExpr() {
+        XPathExpr left = relationalExpr();
+        while (peek().type == Type.EQ || peek().type == Type.NE) {
+            Op op = next().type == Type.EQ ? Op.EQ : Op.NE;
+            XPathExpr right = relationalExpr();
+            left = new Binary(op, identityLiteral(left), identityLiteral(right));
+        }
+        return left;
+    }
+
+    private XPathExpr relationalExpr() {
+        XPathExpr left = additiveExpr();
+        while (true) {
+            Op op;
+            switch (peek().type) {
+                case LT:
+                    op = Op.LT;
+                    break;
+                case LE:
+                    op = Op.LE;
+                    break;
+                case GT:
+                    op = Op.GT;
+                    break;
+                case GE:
+                    op = Op.GE;
+                    break;
+                default:
+                    return left;
+            }
+            position++;
+            left = new Binary(op, left, additiveExpr());
+        }
+    }
+
+    private XPathExpr additiveExpr() {
+        XPathExpr left = multiplicativeExpr();
+        while (peek().type == Type.PLUS || peek().type == Type.MINUS) {
+            Op op = next().type == Type.PLUS ? Op.PLUS : Op.MINUS;
+            left = new Binary(op, left, multiplicativeExpr());
+        }
+        return left;
+    }
+
+    private XPathExpr multiplicativeExpr() {
+        XPathExpr left = unaryExpr();
+        while (true) {
+            Op op;
+            if (peek().type == Type.MULTIPLY) {
+                op = Op.MULTIPLY;
+            } else if (isOperator("div")) {
+                op = Op.DIV;
+            } else if (isOperator("mod")) {
+                op = Op.MOD;
+            } else {
+                return left;
+            }
+            position++;
+            left = new Binary(op, left, unaryExpr());
+        }
+    }
+
+    private XPathExpr unaryExpr() {
+        if (peek().type == Type.MINUS) {
+            position++;
+            return new Negate(unaryExpr());
+        }
+        XPathExpr left = pathExpr();
+        while (peek().type == Type.PIPE) {
+            position++;
+            left = new Union(left, pathExpr());
+        }
+        return left;
+    }
+
+    private XPathExpr pathExpr() {
+        Type type = peek().type;
+        if (type != Type.LPAREN && type != Type.LITERAL && type != Type.NUMBER && type != Type.FUNCTION) {
+            return locationPath();
+        }
+        XPathExpr primary = primaryExpr();
+        List<XPathExpr> predicates = predicates();
+        XPathExpr filter = predicates.isEmpty() ? primary : new Filter(primary, predicates);
+        if (peek().type != Type.SLASH && peek().type != Type.DSLASH) {
+            return filter;
+        }
+        List<Step> steps = new ArrayList<>();
+        relativePath(steps);
+        return new LocationPath(false, filter, steps);
+    }
+
+    private XPathExpr primaryExpr() {
+        Token token = next();
+        switch (token.type) {
+            case LPAREN:
+                XPathExpr inner = orExpr();
+                expect(Type.RPAREN);
+                return inner;
+            case LITERAL:
+                return new Literal(token.text);
+            case NUMBER:
+                return new XPathExpr.Number(Double.parseDouble(token.text));
+            default:
+                expect(Type.LPAREN);
+                List<XPathExpr> arguments = new ArrayList<>();
+                if (peek().type != Type.RPAREN) {
+                    arguments.add(orExpr());
+                    while (peek().type == Type.COMMA) {
+                        position++;
+                        arguments.add(orExpr());
+                    }
+                }
+                expect(Type.RPAREN);
+                return new XPathFunction(token.text, arguments, module, prefixes);
+        }
+    }
+
+    private XPathExpr locationPath() {
+        List<Step> steps = new ArrayList<>();
+        if (peek().type == Type.SLASH) {
+            position++;
+            if (startsStep()) {
+                steps.add(step());
+                relativePath(steps);
+            }
+            return new LocationPath(true, null, steps);
+        }
+        if (peek().type == Type.DSLASH) {
+            relativePath(steps);
+            return new LocationPath(true, null, steps);
+        }
+        steps.add(step());
+        relativePath(steps);
+        return new LocationPath(false, null, steps);
+    }
+
+    /**
+     * Steps following a / or //, as long as there are any.
+     */
+    private void relativePath(List<Step> steps) {
+        while (peek().type == Type.SLASH || peek().type == Type.DSLASH) {
+            if (next().type == Type.DSLASH) {
+                steps.add(new Step(Axis.DESCENDANT_OR_SELF, null, null, true, Collections.emptyList()));
+            }
+            steps.add(step());
+        }
+    }
+
+    private boolean startsStep() {
+        switch (peek().type) {
+            case DOT:
+            case DOTDOT:
+            case AT:
+            case AXIS:
+            case NAME_TEST:
+            case NODE_TYPE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private Step step() {
+        Token token = next();
+        if (token.type == Type.DOT) {
+            return new Step(Axis.SELF, null, null, true, Collections.emptyList());
+        }
+        if (token.type == Type.DOTDOT) {
+            return new Step(Axis.PARENT, null, null, true, Collections.emptyList());
+        }
+        Axis axis = Axis.CHILD;
+        if (token.type == Type.AT) {
+            axis = Axis.ATTRIBUTE;
+            token = next();
+        } else if (token.type == Type.AXIS) {
+            axis = axis(token.text);
+            token = next();
+        }
+        if (token.type == Type.NODE_TYPE) {
+            expect(Type.LPAREN);
+            expect(Type.RPAREN);
+            // text(), comment(), processing-instruction() match nothing in json
+            return token.text.equals("node") ? new Step(axis, null, null, true, predicates())
+                    : new Step(Axis.ATTRIBUTE, null, null, false, predicates());
+        }
+        if (token.type != Type.NAME_TEST) {
+            throw error("expected a step, got " + token.text);
+        }
+        String testModule = null;
+        String testName = token.text;
+        int colon = testName.indexOf(':');
+        if (colon >= 0) {
+            testModule = resolvePrefix(testName.substring(0, colon));
+            testName = testName.substring(colon + 1);
+        } else if (!testName.equals("*")) {
+            testModule = module;
+        }
+        return new Step(axis, testModule, testName.equals("*") ? null : testName, false, predicates());
+    }
+
+    private List<XPathExpr> predicates() {
+        List<XPathExpr> predicates = new ArrayList<>();
+        while (peek().type == Type.LBRACKET) {
+            position++;
+            predicates.add(orExpr());
+            expect(Type.RBRACKET);
+        }
+        return predicates.isEmpty() ? Collections.emptyList() : predicates;
+    }
+
+    private Axis axis(String name) {
+        switch (name) {
+            case "child":
+                return Axis.CHILD;
+            case "parent":
+                return Axis.PARENT;
+            case "self":
+                return Axis.SELF;
+            case "ancestor":
+                return Axis.ANCESTOR;
+            case "ancestor-or-self":
+                return Axis.ANCESTOR_OR_SELF;
+            case "descendant":
+                return Axis.DESCENDANT;
+            case "descendant-or-self":
+                return Axis.DESCENDANT_OR_SELF;
+            case "following-sibling":
+                return Axis.FOLLOWING_SIBLING;
+            case "preceding-sibling":
+                return Axis.PRECEDING_SIBLING;
+            case "attribute":
+                return Axis.ATTRIBUTE;
+            default:
+                throw error("unsupported axis " + name);
+        }
+    }
+
+    private String resolvePrefix(String prefix) {
+        String resolved = prefixes.get(prefix);
+        if (resolved == null) {
+            throw error("unknown prefix " + prefix);
+        }
+        return resolved;
+    }
+
+    /**
+     * Json instance data has identities as "module:identity", a literal compared with a node in the
+     * "prefix:identity" form gets the module name in place of the prefix.
+     */
+    private XPathExpr identityLiteral(XPathExpr operand) {
+        if (!(operand instanceof Literal)) {
+            return operand;
+        }
+        String value = ((Literal) operand).value;
+        int colon = value.indexOf(':');
+        if (colon <= 0 || !isName(value.substring(0, colon)) || !isName(value.substring(colon + 1))) {
+            return operand;
+        }
+        String resolved = prefixes.get(value.substring(0, colon));
+        return resolved == null ? operand : new Literal(resolved + value.substring(colon));
+    }
+
+    // ---- tokens
+
+    private Token peek() {
+        return tokens.get(position);
+    }
+
+    private Token next() {
+        Token token = tokens.get(position);
+        if (token.type != Type.END) {
+            position++;
+        }
+        return token;
+    }
+
+    private void expect(Type type) {
+        Token token = next();
+        if (token.type != type) {
+            throw error("expected " + type + ", got " + (token.type == Type.END ? "the end" : token.text));
+        }
+    }
+
+    private boolean isOperator(String name) {
+        return peek().type == Type.OPERATOR && peek().text.equals(name);
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " in \"" + expression + "\"");
+    }
+
+    private void tokenize() {
+        int i = 0;
+        int length = expression.length();
+        while (i < length) {
+            char c = expression.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            switch (c) {
+                case '(':
+                    add(Type.LPAREN, "(");
+                    i++;
+                    continue;
+                case ')':
+                    add(Type.RPAREN, ")");
+                    i++;
+                    continue;
+                case '[':
+                    add(Type.LBRACKET, "[");
+                    i++;
+                    continue;
+                case ']':
+                    add(Type.RBRACKET, "]");
+                    i++;
+                    continue;
+                case '@':
+                    add(Type.AT, "@");
+                    i++;
+                    continue;
+                case ',':
+                    add(Type.COMMA, ",");
+                    i++;
+                    continue;
+                case '|':
+                    add(Type.PIPE, "|");
+                    i++;
+                    continue;
+                case '+':
+                    add(Type.PLUS, "+");
+                    i++;
+                    continue;
+                case '-':
+                    add(Type.MINUS, "-");
+                    i++;
+                    continue;
+                case '=':
+                    add(Type.EQ, "=");
+                    i++;
+                    continue;
+                case '/':
+                    boolean descendant = i + 1 < length && expression.charAt(i + 1) == '/';
+                    add(descendant ? Type.DSLASH : Type.SLASH, descendant ? "//" : "/");
+                    i += descendant ? 2 : 1;
+                    continue;
+                case '!':
+                    if (i + 1 < length && expression.charAt(i + 1) == '=') {
+                        add(Type.NE, "!=");
+                        i += 2;
+                        continue;
+                    }
+                    throw error("unexpected !");
+                case '<':
+                case '>':
+                    boolean orEqual = i + 1 < length && expression.charAt(i + 1) == '=';
+                    add(c == '<' ? (orEqual ? Type.LE : Type.LT) : (orEqual ? Type.GE : Type.GT),
+                            expression.substring(i, i + (orEqual ? 2 : 1)));
+                    i += orEqual ? 2 : 1;
+                    continue;
+                case '"':
+                case '\'':
+                    int end = expression.indexOf(c, i + 1);
+                    if (end < 0) {
+                        throw error("unterminated literal");
+                    }
+                    add(Type.LITERAL, expression.substring(i + 1, end));
+                    i = end + 1;
+                    continue;
+                case '*':
+                    add(operatorExpected() ? Type.MULTIPLY : Type.NAME_TEST, "*");
+                    i++;
+                    continue;
+                default:
+                    break;
+            }
+            if (c == '.' && (i + 1 >= length || !Character.isDigit(expression.charAt(i + 1)))) {
+                boolean parent = i + 1 < length && expression.charAt(i + 1) == '.';
+                add(parent ? Type.DOTDOT : Type.DOT, parent ? ".." : ".");
+                i += parent ? 2 : 1;
+                continue;
+            }
+            if (Character.isDigit(c) || c == '.') {
+                while (i < length && (Character.isDigit(expression.charAt(i)) || expression.charAt(i) == '.')) {
+                    i++;
+                }
+                add(Type.NUMBER, expression.substring(start, i));
+                continue;
+            }
+            if (!isNameStart(c)) {
+                throw error("unexpected " + c);
+            }
+            i = nameEnd(i);
+            if (i < length && expression.charAt(i) == ':' && !(i + 1 < length && expression.charAt(i + 1) == ':')) {
+                // prefix:name or prefix:*
+                if (i + 1 < length && expression.charAt(i + 1) == '*') {
+                    i += 2;
+                } else if (i + 1 < length && isNameStart(expression.charAt(i + 1))) {
+                    i = nameEnd(i + 1);
+                }
+            }
+            String name = expression.substring(start, i);
+            if (operatorExpected()) {
+                if (!name.equals("and") && !name.equals("or") && !name.equals("div") && !name.equals("mod")) {
+                    throw error("expected an operator, got " + name);
+                }
+                add(Type.OPERATOR, name);
+                continue;
+            }
+            int after = skipWhitespace(i);
+            if (after + 1 < length && expression.startsWith("::", after)) {
+                add(Type.AXIS, name);
+                i = after + 2;
+            } else if (after < length && expression.charAt(after) == '(') {
+                boolean nodeType = name.equals("node") || name.equals("text") || name.equals("comment")
+                        || name.equals("processing-instruction");
+                add(nodeType ? Type.NODE_TYPE : Type.FUNCTION, name);
+            } else {
+                add(Type.NAME_TEST, name);
+            }
+        }
+        add(Type.END, "");
+    }
+
+    /**
+     * XPath 1.0 lexical rule: after a token that ends an operand, * multiplies and a name is an operator.
+     */
+    private boolean operatorExpected() {
+        if (tokens.isEmpty()) {
+            return false;
+        }
+        switch (tokens.get(tokens.size() - 1).type) {
+            case RPAREN:
+            case RBRACKET:
+            case DOT:
+            case DOTDOT:
+            case NAME_TEST:
+            case LITERAL:
+            case NUMBER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void add(Type type, String text) {
+        tokens.add(new Token(type, text));
+    }
+
+    private int nameEnd(int i) {
+        while (i < expression.length() && isNamePart(expression.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private int skipWhitespace(int i) {
+        while (i < expression.length() && Character.isWhitespace(expression.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isNameStart(char c) {
+        return Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isNamePart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == '.';
+    }
+
+    private static boolean isName(String text) {
+        if (text.isEmpty() || !isNameStart(text.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < text.length(); i++) {
+            if (!isNamePart(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
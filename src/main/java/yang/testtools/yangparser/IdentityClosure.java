@@ -0,0 +1,75 @@
+package yang.testtools.yangparser;
+
+import org.opendaylight.yangtools.yang.common.QName;
+import org.opendaylight.yangtools.yang.model.api.IdentitySchemaNode;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.SchemaContext;
+import yang.testtools.helper.SchemaIndex;
+import yang.testtools.yangparser.schema.type.IdentityType;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transitive derived identities of one schema context. Each identity is walked once, every identityref
+ * leaf with the same base gets the same immutable list. Holds the identities only, not the context, so the
+ * context can be collected while it is cached.
+ */
+public class IdentityClosure {
+    private static final Map<SchemaContext, IdentityClosure> CLOSURES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final SchemaIndex schemaIndex;
+    private final Map<QName, List<IdentitySchemaNode>> derived = new HashMap<>(); // base to directly derived
+    private final Map<IdentitySchemaNode, List<IdentityType>> closures = new ConcurrentHashMap<>();
+    private final Map<IdentitySchemaNode, IdentityType> identityTypes = new ConcurrentHashMap<>();
+
+    private IdentityClosure(SchemaContext schemaContext) {
+        this.schemaIndex = SchemaIndex.of(schemaContext);
+        for (Module module : schemaContext.getModules()) {
+            for (IdentitySchemaNode identity : module.getIdentities()) {
+                for (IdentitySchemaNode base : identity.getBaseIdentities()) {
+                    derived.computeIfAbsent(base.getQName(), qName -> new ArrayList<>()).add(identity);
+                }
+            }
+        }
+    }
+
+    public static IdentityClosure of(SchemaContext schemaContext) {
+        return CLOSURES.computeIfAbsent(schemaContext, IdentityClosure::new);
+    }
+
+    /**
+     * @return every identity derived from the given one, depth first, the given identity itself excluded
+     */
+    public List<IdentityType> getDerivedIdentities(IdentitySchemaNode identity) {
+        List<IdentityType> closure = closures.get(identity);
+        if (closure != null) {
+            return closure;
+        }
+
+        // sorted, the context returns them in no particular order and the output should not change between runs
+        List<IdentitySchemaNode> derivedIdentities = new ArrayList<>(
+                derived.getOrDefault(identity.getQName(), Collections.emptyList()));
+        derivedIdentities.sort(Comparator.comparing(id -> schemaIndex.getQualifiedName(id.getQName())));
+
+        List<IdentityType> options = new ArrayList<>();
+        for (IdentitySchemaNode derivedIdentity : derivedIdentities) {
+            options.add(getIdentityType(derivedIdentity));
+            options.addAll(getDerivedIdentities(derivedIdentity));
+        }
+        // not computeIfAbsent, the walk above fills the map recursively
+        closure = closures.putIfAbsent(identity, Collections.unmodifiableList(options));
+        return closure != null ? closure : closures.get(identity);
+    }
+
+    private IdentityType getIdentityType(IdentitySchemaNode identity) {
+        return identityTypes.computeIfAbsent(identity, id -> {
+            IdentityType identityType = new IdentityType();
+            if (id.getDescription().isPresent()) {
+                identityType.setDescription(id.getDescription());
+            }
+            identityType.setIdentity(schemaIndex.getQualifiedName(id.getQName()));
+            return identityType;
+        });
+    }
+}
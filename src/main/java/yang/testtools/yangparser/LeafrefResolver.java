@@ -0,0 +1,95 @@
+package yang.testtools.yangparser;
+
+import org.opendaylight.yangtools.yang.model.api.*;
+import org.opendaylight.yangtools.yang.model.api.type.LeafrefTypeDefinition;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leafref targets of one schema context, each path resolved once. An absolute path resolves the same for every leaf
+ * whose prefixes come from the same module, a relative one for every leaf at the same schema path, e.g. a grouping
+ * used once but copied into several lists of an augment.
+ * <p>
+ * Not cached globally, a {@link YangToJson} keeps the one of the last context it converted.
+ */
+public class LeafrefResolver {
+    private final SchemaContext schemaContext;
+    private final Map<List<Object>, Resolution> absolutePaths = new ConcurrentHashMap<>();
+    private final Map<List<Object>, Resolution> relativePaths = new ConcurrentHashMap<>();
+
+    public static class Resolution {
+        private final DataSchemaNode target;
+        private final TypeDefinition<?> baseType;
+        private final String targetXpath;
+
+        private Resolution(DataSchemaNode target, TypeDefinition<?> baseType, String targetXpath) {
+            this.target = target;
+            this.baseType = baseType;
+            this.targetXpath = targetXpath;
+        }
+
+        /**
+         * @return null when the path does not resolve
+         */
+        public DataSchemaNode getTarget() {
+            return target;
+        }
+
+        /**
+         * Type of the target, followed through leafrefs to leafrefs.
+         */
+        public TypeDefinition<?> getBaseType() {
+            return baseType;
+        }
+
+        public String getTargetXpath() {
+            return targetXpath;
+        }
+    }
+
+    public LeafrefResolver(SchemaContext schemaContext) {
+        this.schemaContext = schemaContext;
+    }
+
+    boolean isFor(SchemaContext schemaContext) {
+        return this.schemaContext == schemaContext;
+    }
+
+    /**
+     * Same target and base type as {@link MySchemaContextUtils#getSchemaNodeForLeafRef} and
+     * {@link MySchemaContextUtils#getBaseTypeForLeafRef}, can be called concurrently.
+     *
+     * @param schema the leaf or leaf-list of the type
+     */
+    public Resolution resolve(LeafrefTypeDefinition type, SchemaNode schema) {
+        String path = type.getPathStatement().getOriginalString();
+        Map<List<Object>, Resolution> resolutions;
+        List<Object> key;
+        if (type.getPathStatement().isAbsolute()) {
+            resolutions = absolutePaths;
+            key = Arrays.asList(MySchemaContextUtils.findModuleOfAbsoluteLeafRef(schemaContext, schema), path);
+        } else {
+            resolutions = relativePaths;
+            key = Arrays.asList(schema.getPath(), path);
+        }
+        Resolution resolution = resolutions.get(key);
+        if (resolution == null) {
+            // not computeIfAbsent, the base type of a leafref to a leafref resolves recursively
+            resolution = compute(type, schema);
+            resolutions.putIfAbsent(key, resolution);
+        }
+        return resolution;
+    }
+
+    private Resolution compute(LeafrefTypeDefinition type, SchemaNode schema) {
+        DataSchemaNode target = MySchemaContextUtils.getSchemaNodeForLeafRef(type, schemaContext, schema);
+        if (target == null) {
+            return new Resolution(null, null, null);
+        }
+        TypeDefinition<?> targetType = MySchemaContextUtils.typeDefinition(target);
+        TypeDefinition<?> baseType = targetType instanceof LeafrefTypeDefinition
+                ? resolve((LeafrefTypeDefinition) targetType, target).getBaseType() : targetType;
+        return new Resolution(target, baseType, MySchemaContextUtils.getXpathFromSchemaNode(schemaContext, target));
+    }
+}
@@ -0,0 +1,111 @@
+package yang.testtools.yangparser;
+
+import org.opendaylight.yangtools.yang.model.api.*;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.type.IdentityrefTypeDefinition;
+import org.opendaylight.yangtools.yang.model.api.type.UnionTypeDefinition;
+import yang.testtools.helper.SchemaIndex;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Modules to write when only some target modules are wanted, see {@link YangParserOptions#getTargetModules()}.
+ * Besides the targets, the selection holds every module whose names show up in their json:
+ * modules augmenting a selected module and modules deriving identities from the identityref bases of a selected module.
+ */
+public class ModuleSelection {
+    private final SchemaContext schemaContext;
+    private final SchemaIndex schemaIndex;
+    private final Set<String> selected = new HashSet<>();
+    private final Deque<Module> queue = new ArrayDeque<>();
+    private final Set<IdentitySchemaNode> visitedIdentities = new HashSet<>();
+
+    private ModuleSelection(SchemaContext schemaContext) {
+        this.schemaContext = schemaContext;
+        this.schemaIndex = SchemaIndex.of(schemaContext);
+    }
+
+    /**
+     * @return the selected modules in the order of {@code schemaContext.getModules()}
+     */
+    public static List<Module> select(SchemaContext schemaContext, Set<String> targetModules) {
+        ModuleSelection selection = new ModuleSelection(schemaContext);
+        for (String moduleName : targetModules) {
+            try {
+                selection.add(selection.schemaIndex.findModule(moduleName));
+            } catch (NoSuchElementException e) {
+                System.out.println("Unknown module " + moduleName);
+            }
+        }
+        selection.close();
+        return schemaContext.getModules().stream()
+                .filter(module -> selection.selected.contains(module.getName()))
+                .collect(Collectors.toList());
+    }
+
+    private void add(Module module) {
+        if (selected.add(module.getName())) {
+            queue.add(module);
+        }
+    }
+
+    private void close() {
+        Map<String, List<Module>> augmenters = new HashMap<>();
+        for (Module module : schemaContext.getModules()) {
+            for (AugmentationSchemaNode augmentation : module.getAugmentations()) {
+                String target = schemaIndex.findModule(augmentation.getTargetPath().firstNodeIdentifier().getNamespace()).getName();
+                augmenters.computeIfAbsent(target, name -> new ArrayList<>()).add(module);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            Module module = queue.poll();
+            augmenters.getOrDefault(module.getName(), Collections.emptyList()).forEach(this::add);
+            addIdentityModules(module.getChildNodes());
+            for (RpcDefinition rpc : module.getRpcs()) {
+                addIdentityModules(rpc.getInput().getChildNodes());
+                addIdentityModules(rpc.getOutput().getChildNodes());
+            }
+            for (NotificationDefinition notification : module.getNotifications()) {
+                addIdentityModules(notification.getChildNodes());
+            }
+        }
+    }
+
+    private void addIdentityModules(Collection<? extends DataSchemaNode> nodes) {
+        for (DataSchemaNode node : nodes) {
+            if (node instanceof DataNodeContainer) {
+                addIdentityModules(((DataNodeContainer) node).getChildNodes());
+            } else if (node instanceof ChoiceSchemaNode) {
+                for (CaseSchemaNode caseNode : ((ChoiceSchemaNode) node).getCases()) {
+                    addIdentityModules(caseNode.getChildNodes());
+                }
+            } else if (node instanceof TypedDataSchemaNode) {
+                addIdentityModules(((TypedDataSchemaNode) node).getType());
+            }
+        }
+    }
+
+    private void addIdentityModules(TypeDefinition<?> type) {
+        if (type instanceof IdentityrefTypeDefinition) {
+            for (IdentitySchemaNode base : ((IdentityrefTypeDefinition) type).getIdentities()) {
+                addDerivedIdentityModules(base);
+            }
+        } else if (type instanceof UnionTypeDefinition) {
+            for (TypeDefinition<?> memberType : ((UnionTypeDefinition) type).getTypes()) {
+                addIdentityModules(memberType);
+            }
+        }
+    }
+
+    private void addDerivedIdentityModules(IdentitySchemaNode identity) {
+        if (!visitedIdentities.add(identity)) {
+            return;
+        }
+        for (IdentitySchemaNode derivedIdentity : schemaContext.getDerivedIdentities(identity)) {
+            add(schemaIndex.findModule(derivedIdentity.getQName().getNamespace()));
+            addDerivedIdentityModules(derivedIdentity);
+        }
+    }
+}
@@ -18,6 +18,7 @@ import org.opendaylight.yangtools.yang.model.api.type.InstanceIdentifierTypeDefi
 import org.opendaylight.yangtools.yang.model.api.type.LeafrefTypeDefinition;
 import org.opendaylight.yangtools.yang.xpath.api.YangLocationPath;
 import org.opendaylight.yangtools.yang.xpath.api.YangXPathAxis;
+import yang.testtools.helper.SchemaIndex;
 
 import java.net.URI;
 import java.util.*;
@@ -38,21 +39,17 @@ public class MySchemaContextUtils {
             return null;
         }
         String path = "";
-        Module module = schemaContext.findModules(schemaNode.getQName().getNamespace()).iterator().next();
+        SchemaIndex schemaIndex = SchemaIndex.of(schemaContext);
+        Module module = schemaIndex.findModule(schemaNode.getQName().getNamespace());
         if (schemaNode.isAugmenting()) {
             URI augmentingNS = schemaNode.getPath().getPathFromRoot().stream().findFirst().get().getNamespace();
-            module = schemaContext.findModules(augmentingNS).iterator().next();
+            module = schemaIndex.findModule(augmentingNS);
         }
         List<QName> pathName = new ArrayList<>();
         for (QName qName : schemaNode.getPath().getPathFromRoot()) {
             String lastPath = path;
             pathName.add(qName);
-            if (!qName.getNamespace().equals(module.getQNameModule().getNamespace())) {
-                Module otherModule = schemaContext.findModules(qName.getNamespace()).iterator().next();
-                path += "/" + otherModule.getName() + ":" + qName.getLocalName();
-            } else {
-                path += "/" + module.getName() + ":" + qName.getLocalName();
-            }
+            path += "/" + schemaIndex.getQualifiedName(qName);
 
             try {
                 Optional<DataSchemaNode> dataSchemaNodeOptional = module.findDataTreeChild(pathName);
@@ -75,6 +72,25 @@ public class MySchemaContextUtils {
         return path;
     }
 
+    /**
+     * Same format as {@link #getXpathFromSchemaNode}, built from the already known xpath of the parent
+     * instead of walking the whole path from the root. Choice and case add nothing to the xpath.
+     */
+    public static String getXpathFromParent(final SchemaContext schemaContext, final String parentXpath, final DataSchemaNode schemaNode) {
+        if (schemaNode instanceof ChoiceSchemaNode) {
+            return null;
+        }
+        StringBuilder path = new StringBuilder(parentXpath)
+                .append('/').append(SchemaIndex.of(schemaContext).getQualifiedName(schemaNode.getQName()));
+        if (schemaNode instanceof ListSchemaNode) {
+            ListSchemaNode listSchemaNode = (ListSchemaNode) schemaNode;
+            if (listSchemaNode.getKeyDefinition().size() > 0) {
+                path.append('[').append(listSchemaNode.getKeyDefinition().get(0).getLocalName()).append(']');
+            }
+        }
+        return path.toString();
+    }
+
     @Nullable
     public static SchemaNode resolveRelativeXPath(final SchemaContext context, final Module module, final String pathStr, final SchemaNode actualSchemaNode) {
         Preconditions.checkState(actualSchemaNode.getPath() != null, "Schema Path reference for Leafref cannot be NULL");
@@ -82,26 +98,7 @@ public class MySchemaContextUtils {
     }
 
     public static TypeDefinition<?> getBaseTypeForLeafRef(final LeafrefTypeDefinition typeDefinition, final SchemaContext schemaContext, final SchemaNode schema) {
-        PathExpression pathStatement = typeDefinition.getPathStatement();
-        String pathStr = stripConditionsFromXPathString(pathStatement);
-        DataSchemaNode dataSchemaNode;
-        if (pathStatement.isAbsolute()) {
-            SchemaNode baseSchema;
-            Optional basePotential;
-            for (baseSchema = schema; baseSchema instanceof DerivableSchemaNode; baseSchema = (SchemaNode) basePotential.get()) {
-                basePotential = ((DerivableSchemaNode) baseSchema).getOriginal();
-                if (!basePotential.isPresent()) {
-                    break;
-                }
-            }
-
-            Module parentModule = findParentModuleOfReferencingType(schemaContext, baseSchema);
-            dataSchemaNode = (DataSchemaNode) findTargetNode(schemaContext, xpathToQNamePath(schemaContext, parentModule, pathStr));
-        } else {
-            Module parentModule = findParentModule(schemaContext, schema);
-            dataSchemaNode = (DataSchemaNode) resolveRelativeXPath(schemaContext, parentModule, pathStr, schema);
-        }
-
+        DataSchemaNode dataSchemaNode = getSchemaNodeForLeafRef(typeDefinition, schemaContext, schema);
         if (dataSchemaNode == null) {
             return null;
         } else {
@@ -115,16 +112,7 @@ public class MySchemaContextUtils {
         String pathStr = stripConditionsFromXPathString(pathStatement);
         DataSchemaNode dataSchemaNode;
         if (pathStatement.isAbsolute()) {
-            SchemaNode baseSchema;
-            Optional basePotential;
-            for (baseSchema = schema; baseSchema instanceof DerivableSchemaNode; baseSchema = (SchemaNode) basePotential.get()) {
-                basePotential = ((DerivableSchemaNode) baseSchema).getOriginal();
-                if (!basePotential.isPresent()) {
-                    break;
-                }
-            }
-
-            Module parentModule = findParentModuleOfReferencingType(schemaContext, baseSchema);
+            Module parentModule = findModuleOfAbsoluteLeafRef(schemaContext, schema);
             dataSchemaNode = (DataSchemaNode) findTargetNode(schemaContext, xpathToQNamePath(schemaContext, parentModule, pathStr));
         } else {
             Module parentModule = findParentModule(schemaContext, schema);
@@ -133,6 +121,22 @@ public class MySchemaContextUtils {
         return dataSchemaNode;
     }
 
+    /**
+     * Module resolving the prefixes of an absolute leafref path, the one of the typedef or of the original node
+     * the leaf was copied from by uses/augment.
+     */
+    static Module findModuleOfAbsoluteLeafRef(final SchemaContext schemaContext, final SchemaNode schema) {
+        SchemaNode baseSchema;
+        Optional basePotential;
+        for (baseSchema = schema; baseSchema instanceof DerivableSchemaNode; baseSchema = (SchemaNode) basePotential.get()) {
+            basePotential = ((DerivableSchemaNode) baseSchema).getOriginal();
+            if (!basePotential.isPresent()) {
+                break;
+            }
+        }
+        return findParentModuleOfReferencingType(schemaContext, baseSchema);
+    }
+
     /**
      * @deprecated
      */
@@ -587,7 +591,7 @@ public class MySchemaContextUtils {
         return STRIP_PATTERN.matcher(pathStatement.getOriginalString()).replaceAll("");
     }
 
-    private static TypeDefinition<?> typeDefinition(final DataSchemaNode node) {
+    static TypeDefinition<?> typeDefinition(final DataSchemaNode node) {
         Preconditions.checkArgument(node instanceof TypedDataSchemaNode, "Unhandled parameter type %s", node);
         TypeDefinition<?> current = ((TypedDataSchemaNode) node).getType();
 
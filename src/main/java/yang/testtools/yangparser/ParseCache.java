@@ -0,0 +1,201 @@
+package yang.testtools.yangparser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Outputs of previous runs kept under ./parser_cache, keyed by a hash of every input file, its content and the
+ * options that change the output. A hit restores parser_result without building the schema context.
+ */
+public class ParseCache {
+    // bump when the json produced for the same input changes
+    private static final int FORMAT_VERSION = 4;
+    private static final int MAX_ENTRIES = 8;
+    private static final Path CACHE_DIR = Paths.get("./parser_cache");
+    private static final Path CURRENT_FILE = CACHE_DIR.resolve("current");
+    private static final Path LAST_MANIFEST_FILE = CACHE_DIR.resolve("last.manifest");
+    private static final String MANIFEST_FILE = "manifest";
+
+    private final Map<String, String> fileHashes;
+    private final String key;
+    private final Path resultDir;
+
+    private ParseCache(Map<String, String> fileHashes, String key, Path resultDir) {
+        this.fileHashes = fileHashes;
+        this.key = key;
+        this.resultDir = resultDir;
+    }
+
+    public static ParseCache of(YangParserOptions options, List<File> files) throws IOException {
+        Map<String, String> fileHashes = new TreeMap<>();
+        for (File file : files) {
+            fileHashes.put(file.toPath().toAbsolutePath().normalize().toString(), sha256(Files.readAllBytes(file.toPath())));
+        }
+        StringBuilder keySource = new StringBuilder()
+                .append(FORMAT_VERSION).append('\n')
+                .append(options.outputFingerprint()).append('\n');
+        fileHashes.forEach((path, hash) -> keySource.append(path).append('\0').append(hash).append('\n'));
+        return new ParseCache(fileHashes, sha256(keySource.toString().getBytes(StandardCharsets.UTF_8)),
+                Paths.get(options.getOutputDirectory()));
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return true when the output directory now holds the output for this input
+     */
+    public boolean restore() throws IOException {
+        if (Files.isDirectory(resultDir) && Files.exists(CURRENT_FILE)
+                && currentMarker().equals(Files.readString(CURRENT_FILE))) {
+            return true;
+        }
+        Path entry = CACHE_DIR.resolve(key);
+        if (!Files.isDirectory(entry)) {
+            // the output directory is about to be rewritten
+            Files.deleteIfExists(CURRENT_FILE);
+            return false;
+        }
+        YangParserUtils.deleteDirectory(resultDir.toFile());
+        copyDirectory(entry, resultDir, MANIFEST_FILE);
+        Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+        Files.writeString(CURRENT_FILE, currentMarker());
+        return true;
+    }
+
+    /**
+     * Forgets which output the output directory holds, called whenever it is rewritten without the cache.
+     */
+    static void invalidate() {
+        try {
+            Files.deleteIfExists(CURRENT_FILE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints which files differ from the input of the previous run.
+     */
+    public void reportChanges() throws IOException {
+        if (!Files.exists(LAST_MANIFEST_FILE)) {
+            System.out.println("Parse cache: no previous run.");
+            return;
+        }
+        Map<String, String> lastHashes = readManifest(LAST_MANIFEST_FILE);
+        for (Map.Entry<String, String> file : fileHashes.entrySet()) {
+            String lastHash = lastHashes.get(file.getKey());
+            if (lastHash == null) {
+                System.out.println("Parse cache: added " + file.getKey());
+            } else if (!lastHash.equals(file.getValue())) {
+                System.out.println("Parse cache: changed " + file.getKey());
+            }
+        }
+        for (String lastFile : lastHashes.keySet()) {
+            if (!fileHashes.containsKey(lastFile)) {
+                System.out.println("Parse cache: removed " + lastFile);
+            }
+        }
+    }
+
+    /**
+     * Keeps the content of the output directory as the entry of this input.
+     */
+    public void store() throws IOException {
+        Files.createDirectories(CACHE_DIR);
+        Path entry = CACHE_DIR.resolve(key);
+        Path tmp = Files.createTempDirectory(CACHE_DIR, key + ".tmp");
+        copyDirectory(resultDir, tmp, null);
+        writeManifest(tmp.resolve(MANIFEST_FILE));
+        YangParserUtils.deleteDirectory(entry.toFile());
+        Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+
+        writeManifest(LAST_MANIFEST_FILE);
+        Files.writeString(CURRENT_FILE, currentMarker());
+        evictOldEntries();
+    }
+
+    /**
+     * Content of the current file, the key of the output that the output directory holds.
+     */
+    private String currentMarker() {
+        return key + "\n" + resultDir.toAbsolutePath().normalize() + "\n";
+    }
+
+    private void evictOldEntries() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> stream = Files.list(CACHE_DIR)) {
+            entries = stream.filter(Files::isDirectory)
+                    .sorted(Comparator.comparing(this::lastModified).reversed())
+                    .collect(Collectors.toList());
+        }
+        for (int i = MAX_ENTRIES; i < entries.size(); i++) {
+            YangParserUtils.deleteDirectory(entries.get(i).toFile());
+        }
+    }
+
+    private FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private void writeManifest(Path manifest) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        fileHashes.forEach((path, hash) -> lines.append(hash).append("  ").append(path).append('\n'));
+        Files.writeString(manifest, lines.toString());
+    }
+
+    private static Map<String, String> readManifest(Path manifest) throws IOException {
+        Map<String, String> hashes = new HashMap<>();
+        for (String line : Files.readAllLines(manifest)) {
+            int separator = line.indexOf("  ");
+            if (separator > 0) {
+                hashes.put(line.substring(separator + 2), line.substring(0, separator));
+            }
+        }
+        return hashes;
+    }
+
+    private static void copyDirectory(Path source, Path target, String skipFileName) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(source)) {
+            paths = stream.collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            if (skipFileName != null && path.getFileName().toString().equals(skipFileName)) {
+                continue;
+            }
+            Path destination = target.resolve(source.relativize(path).toString());
+            if (Files.isDirectory(path)) {
+                Files.createDirectories(destination);
+            } else {
+                Files.copy(path, destination, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    static String sha256(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package yang.testtools.yangparser;
+
+import com.google.common.collect.ImmutableMap;
+import org.opendaylight.yangtools.yang.model.api.*;
+import org.opendaylight.yangtools.yang.model.api.Module;
+
+import java.util.*;
+
+/**
+ * Data tree nodes of one schema context by the xpath written into the json, built once per context.
+ * Choices have no xpath of their own, the nodes of their cases are indexed under the parent of the choice.
+ */
+public class XpathIndex {
+    private static final Map<SchemaContext, XpathIndex> INDEXES = Collections.synchronizedMap(new WeakHashMap<>());
+
+    private final Map<String, Entry> entries;
+    // same entries without the key predicates, first node wins
+    private final Map<String, Entry> unkeyedEntries;
+
+    public static class Entry {
+        private final DataSchemaNode node;
+        private final String parentXpath;
+        private final Module module;
+
+        private Entry(DataSchemaNode node, String parentXpath, Module module) {
+            this.node = node;
+            this.parentXpath = parentXpath;
+            this.module = module;
+        }
+
+        public DataSchemaNode getNode() {
+            return node;
+        }
+
+        public String getParentXpath() {
+            return parentXpath;
+        }
+
+        /**
+         * Module whose data tree holds the node, the target module for augmented nodes.
+         */
+        public Module getModule() {
+            return module;
+        }
+    }
+
+    private XpathIndex(SchemaContext schemaContext) {
+        Map<String, Entry> entries = new HashMap<>();
+        for (Module module : schemaContext.getModules()) {
+            index(schemaContext, module, module.getChildNodes(), "", entries);
+        }
+        Map<String, Entry> unkeyedEntries = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            unkeyedEntries.putIfAbsent(stripKeys(entry.getKey()), entry.getValue());
+        }
+        this.entries = ImmutableMap.copyOf(entries);
+        this.unkeyedEntries = ImmutableMap.copyOf(unkeyedEntries);
+    }
+
+    public static XpathIndex of(SchemaContext schemaContext) {
+        return INDEXES.computeIfAbsent(schemaContext, XpathIndex::new);
+    }
+
+    private static void index(SchemaContext schemaContext, Module module, Collection<? extends DataSchemaNode> nodes,
+                              String parentXpath, Map<String, Entry> entries) {
+        for (DataSchemaNode node : nodes) {
+            if (node instanceof ChoiceSchemaNode) {
+                for (CaseSchemaNode caseNode : ((ChoiceSchemaNode) node).getCases()) {
+                    index(schemaContext, module, caseNode.getChildNodes(), parentXpath, entries);
+                }
+                continue;
+            }
+            String xpath = MySchemaContextUtils.getXpathFromParent(schemaContext, parentXpath, node);
+            entries.put(xpath, new Entry(node, parentXpath, module));
+            if (node instanceof DataNodeContainer) {
+                index(schemaContext, module, ((DataNodeContainer) node).getChildNodes(), xpath, entries);
+            }
+        }
+    }
+
+    /**
+     * @param xpath as written into the json, e.g. {@code /dev:routing/dev:route[prefix]}. A segment without a module
+     *              prefix takes the one of the segment before it and the key predicates can be left out.
+     * @return null when no data node has that xpath
+     */
+    public Entry find(String xpath) {
+        String normalized = normalize(xpath);
+        Entry entry = entries.get(normalized);
+        return entry != null ? entry : unkeyedEntries.get(stripKeys(normalized));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String normalize(String xpath) {
+        StringBuilder normalized = new StringBuilder();
+        String prefix = null;
+        for (String segment : xpath.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            int colon = segment.indexOf(':');
+            int predicate = segment.indexOf('[');
+            if (colon > 0 && (predicate < 0 || colon < predicate)) {
+                prefix = segment.substring(0, colon);
+            } else if (prefix != null) {
+                segment = prefix + ":" + segment;
+            }
+            normalized.append('/').append(segment);
+        }
+        return normalized.toString();
+    }
+
+    private static String stripKeys(String xpath) {
+        return xpath.replaceAll("\\[[^\\]]*\\]", "");
+    }
+}
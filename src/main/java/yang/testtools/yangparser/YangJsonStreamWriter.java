@@ -0,0 +1,230 @@
+package yang.testtools.yangparser;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.*;
+import yang.testtools.yangparser.schema.BaseNodeDto;
+import yang.testtools.yangparser.schema.ContainerDto;
+import yang.testtools.yangparser.schema.LeafDto;
+import yang.testtools.yangparser.schema.ModuleDto;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Writes a module into a {@link JsonGenerator} while walking the schema, only the node being written
+ * exists as a dto. The output is the same as serializing the {@link ModuleDto} of the module.
+ */
+class YangJsonStreamWriter {
+    private final YangToJson converter;
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+
+    YangJsonStreamWriter(YangToJson converter, ObjectMapper mapper, JsonGenerator generator) {
+        this.converter = converter;
+        this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = generator;
+    }
+
+    void writeModule(Module module) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", module.getName());
+        generator.writeStringField("namespace", module.getNamespace().toString());
+        if (module.getRevision().isPresent()) {
+            generator.writeStringField("revision", module.getRevision().get().toString());
+        }
+        if (module.getDescription().isPresent()) {
+            generator.writeStringField("description", module.getDescription().get());
+        }
+
+        if (converter.hasDataChildren(module.getChildNodes())) {
+            generator.writeFieldName("dataTree");
+            writeDataTree(module.getChildNodes(), "");
+        }
+
+        if (!module.getRpcs().isEmpty()) {
+            generator.writeObjectFieldStart("rpc");
+            for (Map.Entry<String, ? extends RpcDefinition> entry : byLocalName(module.getRpcs()).entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                writeRpc(entry.getValue());
+            }
+            generator.writeEndObject();
+        }
+
+        if (!module.getNotifications().isEmpty()) {
+            generator.writeObjectFieldStart("notification");
+            for (Map.Entry<String, ? extends NotificationDefinition> entry : byLocalName(module.getNotifications()).entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                writeContainer(entry.getValue(), null, true, entry.getValue().getDescription());
+            }
+            generator.writeEndObject();
+        }
+
+        if (!converter.getTypes().isEmpty()) {
+            generator.writeFieldName("types");
+            writer.writeValue(generator, converter.getTypes());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeRpc(RpcDefinition rpc) throws IOException {
+        generator.writeStartObject();
+        if (rpc.getDescription().isPresent()) {
+            writeOptional("description", rpc.getDescription());
+        }
+        if (rpc.getInput().getDescription().isPresent() || converter.hasDataChildren(rpc.getInput().getChildNodes())) {
+            generator.writeFieldName("input");
+            writeContainer(rpc.getInput(), null, true, null);
+        }
+        if (rpc.getOutput().getDescription().isPresent() || converter.hasDataChildren(rpc.getOutput().getChildNodes())) {
+            generator.writeFieldName("output");
+            writeContainer(rpc.getOutput(), null, true, null);
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeDataTree(Collection<? extends DataSchemaNode> childNodes, String parentXpath) throws IOException {
+        generator.writeStartObject();
+        writeChildren(childNodes, parentXpath);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Children grouped the same way as {@link YangToJson}, the HashMaps keep the same iteration order.
+     *
+     * @param parentXpath xpath of the parent node, null when it is not part of the data tree
+     */
+    private void writeChildren(Collection<? extends DataSchemaNode> childNodes, String parentXpath) throws IOException {
+        Map<String, DataSchemaNode> leaves = new HashMap<>();
+        Map<String, DataSchemaNode> containers = new HashMap<>();
+        Map<String, DataSchemaNode> leafList = new HashMap<>();
+        Map<String, DataSchemaNode> containerList = new HashMap<>();
+        for (DataSchemaNode node : childNodes) {
+            String nodeName = converter.getNodeName(node);
+            if (node instanceof DataNodeContainer) {
+                if (node instanceof ListSchemaNode) {
+                    containerList.put(nodeName, node);
+                } else {
+                    containers.put(nodeName, node);
+                }
+            } else if (converter.isLeafLikeNode(node)) {
+                if (node instanceof LeafListSchemaNode) {
+                    leafList.put(nodeName, node);
+                } else {
+                    leaves.put(nodeName, node);
+                }
+            }
+        }
+        writeLeaves("leaf", leaves, parentXpath);
+        writeContainers("container", containers, parentXpath);
+        writeLeaves("leafList", leafList, parentXpath);
+        writeContainers("list", containerList, parentXpath);
+    }
+
+    private void writeLeaves(String fieldName, Map<String, DataSchemaNode> leaves, String parentXpath) throws IOException {
+        if (leaves.isEmpty()) {
+            return;
+        }
+        generator.writeObjectFieldStart(fieldName);
+        for (Map.Entry<String, DataSchemaNode> entry : leaves.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            if (entry.getValue() instanceof ChoiceSchemaNode) {
+                writeChoice((ChoiceSchemaNode) entry.getValue(), parentXpath);
+            } else {
+                writer.writeValue(generator, converter.getDataNode(entry.getValue(), parentXpath, true));
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeContainers(String fieldName, Map<String, DataSchemaNode> containers, String parentXpath) throws IOException {
+        if (containers.isEmpty()) {
+            return;
+        }
+        generator.writeObjectFieldStart(fieldName);
+        for (Map.Entry<String, DataSchemaNode> entry : containers.entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            writeContainer((DataNodeContainer) entry.getValue(), parentXpath, false, null);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * @param operation   rpc input/output or notification, config and xpath are not written
+     * @param description overrides the description of the header when not null
+     */
+    private void writeContainer(DataNodeContainer node, String parentXpath, boolean operation, Optional<String> description) throws IOException {
+        ContainerDto header = converter.getContainerHeader(node, parentXpath);
+        if (description != null && description.isPresent()) {
+            header.setDescription(description);
+        }
+        generator.writeStartObject();
+        writeBaseFields(header, operation);
+        writeOptional("key", header.getKey());
+        writeChildren(node.getChildNodes(), converter.getChildParentXpath(parentXpath, header));
+        generator.writeEndObject();
+    }
+
+    private void writeChoice(ChoiceSchemaNode choiceNode, String parentXpath) throws IOException {
+        LeafDto leafDto = converter.getDataNode(choiceNode, parentXpath, false);
+        generator.writeStartObject();
+        writeBaseFields(leafDto, false);
+        generator.writeStringField("type", leafDto.getType());
+        generator.writeBooleanField("mandatory", leafDto.isMandatory());
+        writeOptional("defaultValue", leafDto.getDefaultValue());
+
+        generator.writeObjectFieldStart("typeProperty");
+        generator.writeStringField("name", "choice");
+        generator.writeObjectFieldStart("cases");
+        for (Map.Entry<String, ? extends CaseSchemaNode> entry : byLocalName(choiceNode.getCases()).entrySet()) {
+            generator.writeFieldName(entry.getKey());
+            writeDataTree(entry.getValue().getChildNodes(), parentXpath);
+        }
+        generator.writeEndObject();
+        if (choiceNode.getDefaultCase().isPresent()) {
+            generator.writeStringField("defaultCase", choiceNode.getDefaultCase().get().getQName().getLocalName());
+        }
+        generator.writeEndObject();
+
+        generator.writeEndObject();
+    }
+
+    private void writeBaseFields(BaseNodeDto dto, boolean operation) throws IOException {
+        writeOptional("when", dto.getWhen());
+        writeOptional("must", dto.getMust());
+        writeOptional("ifFeature", dto.getIfFeature());
+        if (!operation) {
+            generator.writeBooleanField("config", dto.isConfig());
+        }
+        if (dto.getStatus() != null) {
+            generator.writeFieldName("status");
+            writer.writeValue(generator, dto.getStatus());
+        }
+        if (!operation && dto.getXpath() != null) {
+            generator.writeStringField("xpath", dto.getXpath());
+        }
+        writeOptional("description", dto.getDescription());
+    }
+
+    private void writeOptional(String fieldName, Optional<?> value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        generator.writeFieldName(fieldName);
+        writer.writeValue(generator, value);
+    }
+
+    private static <T extends SchemaNode> Map<String, T> byLocalName(Collection<? extends T> nodes) {
+        Map<String, T> byName = new HashMap<>();
+        for (T node : nodes) {
+            byName.put(node.getQName().getLocalName(), node);
+        }
+        return byName;
+    }
+}
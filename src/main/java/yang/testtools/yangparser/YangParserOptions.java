@@ -0,0 +1,41 @@
+package yang.testtools.yangparser;
+
+import lombok.Data;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+@Data
+public class YangParserOptions {
+    private int parallelism = 1; // modules converted concurrently, 1 means sequential
+    private boolean streaming = false; // write json while traversing instead of building the whole ModuleDto first
+    private boolean typeTable = false; // each distinct type written once in the module "types", leaves refer to it by "typeRef"
+    private boolean binary = false; // <module>.ysb with an xpath index instead of <module>.json, see SchemaBinaryWriter
+    private boolean cache = false; // reuse the output of a previous run with the same input, see ParseCache
+    private Set<String> features; // supported features, "feature", "module:feature" or "module:*", null supports all
+    private String outputDirectory = "./parser_result";
+    private Set<String> targetModules; // only these modules and the ones their json refers to are written, null writes all
+    private String reportFile; // durations, node counts and bytes of the run are written here as json, null writes none
+
+    /**
+     * Options that change the content of parser_result, part of the ParseCache key.
+     */
+    public String outputFingerprint() {
+        return "typeTable=" + typeTable + ",binary=" + binary + ",features=" + (features == null ? "*" : new TreeSet<>(features))
+                + ",targetModules=" + (targetModules == null ? "*" : new TreeSet<>(targetModules));
+    }
+
+    public YangParserOptions copy() {
+        YangParserOptions copy = new YangParserOptions();
+        copy.setParallelism(parallelism);
+        copy.setStreaming(streaming);
+        copy.setTypeTable(typeTable);
+        copy.setBinary(binary);
+        copy.setCache(cache);
+        copy.setFeatures(features);
+        copy.setOutputDirectory(outputDirectory);
+        copy.setTargetModules(targetModules);
+        copy.setReportFile(reportFile);
+        return copy;
+    }
+}
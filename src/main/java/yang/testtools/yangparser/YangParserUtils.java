@@ -1,40 +1,225 @@
 package yang.testtools.yangparser;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.opendaylight.yangtools.yang.model.api.Module;
 import org.opendaylight.yangtools.yang.model.parser.api.YangSyntaxErrorException;
+import org.opendaylight.yangtools.yang.parser.rfc7950.repo.YangStatementStreamSource;
 import org.opendaylight.yangtools.yang.parser.spi.meta.ReactorException;
 import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.generator.PayloadGenerator;
+import yang.testtools.generator.NegativePayloadGenerator;
+import yang.testtools.generator.PayloadCase;
+import yang.testtools.generator.PayloadOptions;
+import yang.testtools.helper.FeatureProfiles;
 import yang.testtools.helper.YangUtils;
+import yang.testtools.metrics.RunReport;
+import yang.testtools.validator.ConstraintEvaluator;
+import yang.testtools.validator.InstanceValidator;
+import yang.testtools.validator.ValidationError;
+import yang.testtools.yangparser.schema.BaseNodeDto;
+import yang.testtools.yangparser.schema.ModuleDto;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class YangParserUtils {
     public static void yangToJsonFile(String... paths) throws ReactorException, YangSyntaxErrorException, IOException, URISyntaxException, ClassNotFoundException {
-        clear();
-        initDirectory();
+        yangToJsonFile(1, paths);
+    }
+
+    /**
+     * @param parallelism number of modules converted concurrently, 1 means sequential
+     */
+    public static void yangToJsonFile(int parallelism, String... paths) throws ReactorException, YangSyntaxErrorException, IOException, URISyntaxException, ClassNotFoundException {
+        YangParserOptions options = new YangParserOptions();
+        options.setParallelism(parallelism);
+        yangToJsonFile(options, paths);
+    }
+
+    public static void yangToJsonFile(YangParserOptions options, String... paths) throws ReactorException, YangSyntaxErrorException, IOException, URISyntaxException, ClassNotFoundException {
+        long runStart = System.nanoTime();
+        RunReport report = options.getReportFile() == null ? null : new RunReport();
+        long start = System.nanoTime();
+        List<File> files = YangUtils.getYangFiles(paths);
+        addPhase(report, "discovery", start);
+
+        ParseCache cache = null;
+        if (options.isCache()) {
+            start = System.nanoTime();
+            cache = ParseCache.of(options, files);
+            boolean restored = cache.restore();
+            addPhase(report, "cache", start);
+            if (restored) {
+                System.out.println("Parse cache hit: " + cache.getKey());
+                writeReport(report, options, files, runStart);
+                return;
+            }
+            cache.reportChanges();
+        }
+
+        clear(options.getOutputDirectory());
+        initDirectory(options.getOutputDirectory());
 
-        EffectiveSchemaContext schemaContext = YangUtils.getSchemaContext(paths);
-        YangToJson yangToJson = new YangToJson();
+        start = System.nanoTime();
+        List<YangStatementStreamSource> sources = YangUtils.loadSources(files);
+        addPhase(report, "parse", start);
+        start = System.nanoTime();
+        EffectiveSchemaContext schemaContext = options.getFeatures() == null ? YangUtils.buildSchemaContext(sources)
+                : new FeatureProfiles(sources).getSchemaContext(options.getFeatures());
+        addPhase(report, "reactor", start);
+
+        start = System.nanoTime();
+        YangToJson yangToJson = new YangToJson(options);
+        yangToJson.setReport(report);
         yangToJson.convertToDto(schemaContext);
+        addPhase(report, "convert", start);
+
+        if (cache != null) {
+            start = System.nanoTime();
+            cache.store();
+            addPhase(report, "cache", start);
+        }
+        writeReport(report, options, files, runStart);
+    }
+
+    private static void addPhase(RunReport report, String phase, long startNanos) {
+        if (report != null) {
+            report.addPhase(phase, startNanos);
+        }
+    }
+
+    private static void writeReport(RunReport report, YangParserOptions options, List<File> files, long runStartNanos) {
+        if (report == null) {
+            return;
+        }
+        report.setTotalMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStartNanos));
+        report.setFiles(files.size());
+        report.getModules().sort(Comparator.comparing(RunReport.ModuleReport::getName));
+        try {
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(new File(options.getReportFile()), report);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes one output per device profile into outputDirectory/profile-name, each with the features of the profile.
+     * The files are parsed once and profiles with the same features share the schema context. The parse cache is not used.
+     *
+     * @param profiles supported features by profile name, see {@link YangParserOptions#getFeatures()}
+     */
+    public static void yangToJsonFile(Map<String, Set<String>> profiles, YangParserOptions options, String... paths) throws ReactorException, YangSyntaxErrorException, IOException {
+        FeatureProfiles featureProfiles = new FeatureProfiles(YangUtils.loadSources(YangUtils.getYangFiles(paths)));
+        clear(options.getOutputDirectory());
+        Files.createDirectories(Paths.get(options.getOutputDirectory()));
+        for (Map.Entry<String, Set<String>> profile : profiles.entrySet()) {
+            YangParserOptions profileOptions = options.copy();
+            profileOptions.setFeatures(profile.getValue());
+            profileOptions.setOutputDirectory(Paths.get(options.getOutputDirectory(), profile.getKey()).toString());
+            initDirectory(profileOptions.getOutputDirectory());
+
+            long start = System.currentTimeMillis();
+            new YangToJson(profileOptions).convertToDto(featureProfiles.getSchemaContext(profile.getValue()));
+            System.out.println("Profile " + profile.getKey() + " written in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    /**
+     * Json of the data tree node at the xpath, see {@link YangToJson#convertSubtree}.
+     *
+     * @return null when there is no node at the xpath
+     */
+    public static String subtreeToJson(YangParserOptions options, String xpath, int maxDepth, String... paths) throws ReactorException, YangSyntaxErrorException, IOException {
+        EffectiveSchemaContext schemaContext = getSchemaContext(options, paths);
+        YangToJson yangToJson = new YangToJson(options);
+        BaseNodeDto node = yangToJson.convertSubtree(schemaContext, xpath, maxDepth);
+        return node == null ? null : yangToJson.getMapper().writerWithDefaultPrettyPrinter().writeValueAsString(node);
+    }
+
+    /**
+     * Checks an RFC 7951 json payload against all modules found in paths.
+     *
+     * @return empty when the payload is valid
+     */
+    public static List<ValidationError> validatePayload(YangParserOptions options, Path payload,
+                                                        InstanceValidator.Content content, String... paths) throws ReactorException, YangSyntaxErrorException, IOException {
+        EffectiveSchemaContext schemaContext = getSchemaContext(options, paths);
+        return new InstanceValidator(schemaContext, convertModules(options, schemaContext)).validate(payload, content);
+    }
+
+    /**
+     * Checks the must and when of all modules found in paths against an RFC 7951 json payload.
+     *
+     * @return empty when all conditions hold
+     */
+    public static List<ValidationError> checkConstraints(YangParserOptions options, Path payload, String... paths) throws ReactorException, YangSyntaxErrorException, IOException {
+        return new ConstraintEvaluator(getSchemaContext(options, paths)).evaluate(payload);
+    }
+
+    /**
+     * Writes an RFC 7951 json payload of all modules found in paths, see {@link PayloadGenerator}.
+     *
+     * @return number of leaf and leaf-list values written
+     */
+    public static long generatePayload(YangParserOptions options, PayloadOptions payloadOptions, Path payload,
+                                       String... paths) throws ReactorException, YangSyntaxErrorException, IOException {
+        EffectiveSchemaContext schemaContext = getSchemaContext(options, paths);
+        return new PayloadGenerator(schemaContext, convertModules(options, schemaContext), payloadOptions).write(payload);
+    }
+
+    /**
+     * Writes a valid payload and payloads that each break one constraint of the modules under paths into directory,
+     * with index.json listing the expected failure of each file.
+     */
+    public static List<PayloadCase> generateNegativePayloads(YangParserOptions options, PayloadOptions payloadOptions,
+                                                             Path directory, String... paths) throws ReactorException, YangSyntaxErrorException, IOException {
+        EffectiveSchemaContext schemaContext = getSchemaContext(options, paths);
+        List<ModuleDto> modules = convertModules(options, schemaContext);
+        return new NegativePayloadGenerator(modules, payloadOptions).write(schemaContext, modules, directory,
+                options.getParallelism());
+    }
+
+    private static List<ModuleDto> convertModules(YangParserOptions options, EffectiveSchemaContext schemaContext) {
+        YangToJson yangToJson = new YangToJson(options);
+        List<ModuleDto> modules = new ArrayList<>();
+        for (Module module : schemaContext.getModules()) {
+            modules.add(yangToJson.convertToDto(schemaContext, module));
+        }
+        return modules;
+    }
+
+    private static EffectiveSchemaContext getSchemaContext(YangParserOptions options, String... paths) throws ReactorException, YangSyntaxErrorException, IOException {
+        List<File> files = YangUtils.getYangFiles(paths);
+        return options.getFeatures() == null ? YangUtils.getSchemaContext(files)
+                : new FeatureProfiles(YangUtils.loadSources(files)).getSchemaContext(options.getFeatures());
     }
 
-    private static void clear() {
-        deleteDirectory(Paths.get("./parser_result").toFile());
+    static void clear(String outputDirectory) {
+        // a cache hit must not take the output written next for its own
+        ParseCache.invalidate();
+        deleteDirectory(Paths.get(outputDirectory).toFile());
     }
 
-    private static void initDirectory() {
+    static void initDirectory(String outputDirectory) {
         try {
-            Files.createDirectory(Paths.get("./parser_result"));
-            Files.createDirectory(Paths.get("./parser_result/empty"));
+            Files.createDirectory(Paths.get(outputDirectory));
+            Files.createDirectory(Paths.get(outputDirectory, "empty"));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private static boolean deleteDirectory(File directoryToBeDeleted) {
+    static boolean deleteDirectory(File directoryToBeDeleted) {
         File[] allContents = directoryToBeDeleted.listFiles();
         if (allContents != null) {
             for (File file : allContents) {
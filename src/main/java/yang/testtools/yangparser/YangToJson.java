@@ -1,9 +1,12 @@
 package yang.testtools.yangparser;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Range;
 import org.opendaylight.yangtools.yang.common.QName;
 import org.opendaylight.yangtools.yang.model.api.Module;
@@ -14,59 +17,335 @@ import org.opendaylight.yangtools.yang.model.api.stmt.IfFeatureAwareDeclaredStat
 import org.opendaylight.yangtools.yang.model.api.stmt.IfFeatureStatement;
 import org.opendaylight.yangtools.yang.model.api.type.*;
 import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.binary.SchemaBinaryWriter;
+import yang.testtools.helper.SchemaIndex;
+import yang.testtools.metrics.LeafrefResolutionEvent;
+import yang.testtools.metrics.ModuleEvent;
+import yang.testtools.metrics.PhaseEvent;
+import yang.testtools.metrics.RunReport;
 import yang.testtools.yangparser.schema.*;
+import yang.testtools.yangparser.schema.compact.CompactModule;
 import yang.testtools.yangparser.schema.type.BitsType;
 import yang.testtools.yangparser.schema.type.EnumType;
-import yang.testtools.yangparser.schema.type.IdentityType;
 import yang.testtools.yangparser.schema.type.TypeProperty;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
 import static java.nio.file.StandardOpenOption.WRITE;
 
 public class YangToJson {
     public EffectiveSchemaContext schemaContext;
+    private SchemaIndex schemaIndex;
+    private LeafrefResolver leafrefResolver;
     private Module module;
     private ObjectMapper mapper;
+    private YangParserOptions options;
+    // identity keyed, shared by the per-module converters
+    private Cache<TypeDefinition<?>, TypeProperty> typeCache;
+    // of the last context converted, shared by the per-module converters
+    private AtomicReference<LeafrefResolver> leafrefResolvers;
+    // type table of the current module, see YangParserOptions#typeTable
+    private Map<TypeProperty, String> typeIds;
+    private Map<TypeProperty, String> typeInstanceIds;
+    private Map<String, TypeProperty> types;
+    // container levels converted below the subtree root, see convertSubtree
+    private int maxDepth = Integer.MAX_VALUE;
+    private int depth;
+    // data nodes converted for the current module
+    private int nodeCount;
+    // shared with the per-module converters, null when no report is wanted
+    private RunReport report;
 
     public YangToJson() {
+        this(new YangParserOptions());
+    }
+
+    /**
+     * @param parallelism number of modules converted concurrently, 1 means sequential
+     */
+    public YangToJson(int parallelism) {
+        this(new YangParserOptions());
+        this.options.setParallelism(parallelism);
+    }
+
+    public YangToJson(YangParserOptions options) {
+        this.options = options;
+        this.typeCache = CacheBuilder.newBuilder().weakKeys().build();
+        this.leafrefResolvers = new AtomicReference<>();
         mapper = new ObjectMapper();
         mapper.registerModule(new Jdk8Module());
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
     }
 
+    /**
+     * Per-module converter, shares only the thread-safe parts of the parent.
+     */
+    private YangToJson(YangToJson parent) {
+        this.mapper = parent.mapper;
+        this.options = parent.options;
+        this.typeCache = parent.typeCache;
+        this.leafrefResolvers = parent.leafrefResolvers;
+        this.report = parent.report;
+    }
+
+    public ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    /**
+     * Collects per-module node counts, bytes and durations of the following conversions.
+     */
+    public void setReport(RunReport report) {
+        this.report = report;
+    }
+
     public void convertToDto(EffectiveSchemaContext schemaContext) {
-        for (Module module : schemaContext.getModules()) {
-            ModuleDto moduleDto = convertToDto(schemaContext, module);
+        if (options.getTargetModules() != null) {
+            convertToDto(schemaContext, ModuleSelection.select(schemaContext, options.getTargetModules()));
+            return;
+        }
+        convertToDto(schemaContext, schemaContext.getModules());
+    }
+
+    /**
+     * Converts and writes only the given modules of the context.
+     */
+    public void convertToDto(EffectiveSchemaContext schemaContext, Collection<? extends Module> modules) {
+        PhaseEvent event = new PhaseEvent();
+        event.begin();
+        if (options.getParallelism() <= 1) {
+            for (Module module : modules) {
+                convertAndWrite(schemaContext, module);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
             try {
-                String json = mapper.writeValueAsString(moduleDto);
-                try {
-                    Path destination;
-                    if (moduleDto.isEmpty()) {
-                        destination = Paths.get("./parser_result/empty/" + module.getName() + ".json");
-                    } else {
-                        destination = Paths.get("./parser_result/" + module.getName() + ".json");
-                    }
-                    Files.writeString(destination, json, StandardCharsets.UTF_8, WRITE, CREATE);
-                } catch (IOException e) {
-                    e.printStackTrace();
+                List<ForkJoinTask<?>> tasks = new ArrayList<>();
+                for (Module module : modules) {
+                    tasks.add(pool.submit(() -> new YangToJson(this).convertAndWrite(schemaContext, module)));
                 }
-            } catch (JsonProcessingException e) {
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+        event.phase = "convert";
+        event.items = modules.size();
+        event.commit();
+    }
+
+    /**
+     * Json of one module without writing it, can be called concurrently.
+     */
+    public byte[] convertToJson(EffectiveSchemaContext schemaContext, Module module) throws JsonProcessingException {
+        return mapper.writeValueAsBytes(new YangToJson(this).convertToDto(schemaContext, module));
+    }
+
+    /**
+     * Module in the compact model, for holding many converted modules in memory. Can be called concurrently.
+     * Serialized with {@link #getMapper()} it gives the same json as {@link #convertToJson}.
+     */
+    public CompactModule convertToCompact(EffectiveSchemaContext schemaContext, Module module) {
+        return CompactModule.of(new YangToJson(this).convertToDto(schemaContext, module));
+    }
+
+    /**
+     * Dto of the data tree node at the xpath, without converting the rest of its module. Can be called concurrently.
+     * With {@link YangParserOptions#isTypeTable()} the leaves refer to types that are not part of the result.
+     *
+     * @param xpath    see {@link XpathIndex#find(String)}
+     * @param maxDepth container/list levels converted below the node, negative for all
+     * @return a {@link ContainerDto} or {@link LeafDto}, null when there is no node at the xpath
+     */
+    public BaseNodeDto convertSubtree(EffectiveSchemaContext schemaContext, String xpath, int maxDepth) {
+        XpathIndex.Entry entry = XpathIndex.of(schemaContext).find(xpath);
+        if (entry == null) {
+            return null;
+        }
+        YangToJson converter = new YangToJson(this);
+        converter.startModule(schemaContext, entry.getModule());
+        converter.maxDepth = maxDepth < 0 ? Integer.MAX_VALUE : maxDepth;
+        if (entry.getNode() instanceof DataNodeContainer) {
+            return converter.getContainer((DataNodeContainer) entry.getNode(), entry.getParentXpath());
+        }
+        return converter.getDataNode(entry.getNode(), entry.getParentXpath(), true);
+    }
+
+    private void convertAndWrite(EffectiveSchemaContext schemaContext, Module module) {
+        if (options.isStreaming() && !options.isBinary()) {
+            streamAndWrite(schemaContext, module);
+            return;
+        }
+        long start = System.nanoTime();
+        ModuleEvent event = moduleEvent(module, "convert");
+        ModuleDto moduleDto = convertToDto(schemaContext, module);
+        event.nodes = nodeCount;
+        event.commit();
+        long converted = System.nanoTime();
+        if (options.isBinary()) {
+            writeBinary(module, moduleDto, start, converted);
+            return;
+        }
+        try {
+            event = moduleEvent(module, "serialize");
+            byte[] json = mapper.writeValueAsBytes(moduleDto);
+            event.bytes = json.length;
+            event.commit();
+            long serialized = System.nanoTime();
+            try {
+                event = moduleEvent(module, "write");
+                Path destination = getDestination(module, moduleDto.isEmpty());
+                Files.write(destination, json, WRITE, CREATE, TRUNCATE_EXISTING);
+                event.bytes = json.length;
+                event.commit();
+            } catch (IOException e) {
+                // not reported, the report only lists the modules written
                 e.printStackTrace();
+                return;
             }
+            if (report != null) {
+                long written = System.nanoTime();
+                RunReport.ModuleReport moduleReport = moduleReport(module, json.length);
+                moduleReport.setConvertMillis(TimeUnit.NANOSECONDS.toMillis(converted - start));
+                moduleReport.setSerializeMillis(TimeUnit.NANOSECONDS.toMillis(serialized - converted));
+                moduleReport.setWriteMillis(TimeUnit.NANOSECONDS.toMillis(written - serialized));
+                report.addModule(moduleReport);
+            }
+        } catch (JsonProcessingException e) {
+            e.printStackTrace();
         }
     }
 
-    public ModuleDto convertToDto(EffectiveSchemaContext schemaContext, Module module) {
+    /**
+     * Serialization and writing are one step for the binary format, reported as write.
+     */
+    private void writeBinary(Module module, ModuleDto moduleDto, long start, long converted) {
+        ModuleEvent event = moduleEvent(module, "write");
+        try {
+            long bytes = SchemaBinaryWriter.write(mapper, moduleDto, getDestination(module, moduleDto.isEmpty()));
+            event.bytes = bytes;
+            event.commit();
+            if (report != null) {
+                RunReport.ModuleReport moduleReport = moduleReport(module, bytes);
+                moduleReport.setConvertMillis(TimeUnit.NANOSECONDS.toMillis(converted - start));
+                moduleReport.setWriteMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - converted));
+                report.addModule(moduleReport);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void streamAndWrite(EffectiveSchemaContext schemaContext, Module module) {
+        long start = System.nanoTime();
+        ModuleEvent event = moduleEvent(module, "stream");
+        startModule(schemaContext, module);
+
+        Path destination = getDestination(module, isEmptyModule(module));
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(destination, WRITE, CREATE, TRUNCATE_EXISTING), 1 << 16);
+             JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            new YangJsonStreamWriter(this, mapper, generator).writeModule(module);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (!event.shouldCommit() && report == null) {
+            return;
+        }
+        long bytes = destination.toFile().length();
+        event.nodes = nodeCount;
+        event.bytes = bytes;
+        event.commit();
+        if (report != null) {
+            RunReport.ModuleReport moduleReport = moduleReport(module, bytes);
+            moduleReport.setConvertMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            report.addModule(moduleReport);
+        }
+    }
+
+    private static ModuleEvent moduleEvent(Module module, String step) {
+        ModuleEvent event = new ModuleEvent();
+        if (event.isEnabled()) {
+            event.module = module.getName();
+            event.step = step;
+        }
+        event.begin();
+        return event;
+    }
+
+    private RunReport.ModuleReport moduleReport(Module module, long bytes) {
+        RunReport.ModuleReport moduleReport = new RunReport.ModuleReport();
+        moduleReport.setName(module.getName());
+        moduleReport.setNodes(nodeCount);
+        moduleReport.setBytes(bytes);
+        return moduleReport;
+    }
+
+    private Path getDestination(Module module, boolean empty) {
+        String fileName = module.getName() + (options.isBinary() ? ".ysb" : ".json");
+        if (empty) {
+            return Paths.get(options.getOutputDirectory(), "empty", fileName);
+        }
+        return Paths.get(options.getOutputDirectory(), fileName);
+    }
+
+    /**
+     * Removes the written json of a module, wherever {@link #getDestination} put it.
+     */
+    void deleteOutput(String moduleName) throws IOException {
+        Files.deleteIfExists(Paths.get(options.getOutputDirectory(), "empty", moduleName + ".json"));
+        Files.deleteIfExists(Paths.get(options.getOutputDirectory(), moduleName + ".json"));
+        Files.deleteIfExists(Paths.get(options.getOutputDirectory(), "empty", moduleName + ".ysb"));
+        Files.deleteIfExists(Paths.get(options.getOutputDirectory(), moduleName + ".ysb"));
+    }
+
+    /**
+     * Same result as {@link ModuleDto#isEmpty()} of the converted module, without converting it.
+     */
+    boolean isEmptyModule(Module module) {
+        return module.getRpcs().isEmpty()
+                && module.getNotifications().isEmpty()
+                && !hasDataChildren(module.getChildNodes());
+    }
+
+    boolean hasDataChildren(Collection<? extends DataSchemaNode> childNodes) {
+        for (DataSchemaNode node : childNodes) {
+            if (node instanceof DataNodeContainer || isLeafLikeNode(node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startModule(EffectiveSchemaContext schemaContext, Module module) {
         this.schemaContext = schemaContext;
+        this.schemaIndex = SchemaIndex.of(schemaContext);
+        this.leafrefResolver = leafrefResolvers.updateAndGet(
+                resolver -> resolver != null && resolver.isFor(schemaContext) ? resolver : new LeafrefResolver(schemaContext));
         this.module = module;
+        this.typeIds = new HashMap<>();
+        this.typeInstanceIds = new IdentityHashMap<>();
+        this.types = new TreeMap<>();
+        this.nodeCount = 0;
+    }
+
+    public ModuleDto convertToDto(EffectiveSchemaContext schemaContext, Module module) {
+        startModule(schemaContext, module);
 
         ModuleDto moduleDto = new ModuleDto();
         moduleDto.setName(module.getName());
@@ -78,7 +357,7 @@ public class YangToJson {
             moduleDto.setRevision(module.getRevision().get().toString());
         }
 
-        DataTreeDto dataTreeDto = getDataTree(module.getChildNodes());
+        DataTreeDto dataTreeDto = getDataTree(module.getChildNodes(), "");
         if (!dataTreeDto.isEmpty()) {
             moduleDto.setDataTree(dataTreeDto);
         }
@@ -92,13 +371,46 @@ public class YangToJson {
         if (!notificationTree.isEmpty()) {
             moduleDto.setNotification(notificationTree);
         }
+
+        if (!types.isEmpty()) {
+            moduleDto.setTypes(types);
+        }
         return moduleDto;
     }
 
+    /**
+     * Types referenced by {@link LeafDto#getTypeRef()} so far in the current module, sorted by id.
+     */
+    Map<String, TypeProperty> getTypes() {
+        return types;
+    }
+
+    /**
+     * Id in the module type table, derived from the content so it does not depend on traversal order.
+     */
+    private String getTypeId(TypeProperty type) {
+        String id = typeInstanceIds.get(type);
+        if (id != null) {
+            return id;
+        }
+        id = typeIds.get(type);
+        if (id == null) {
+            String baseId = type.getName() + "-" + String.format("%08x", type.hashCode());
+            id = baseId;
+            for (int i = 2; types.containsKey(id); i++) {
+                id = baseId + "-" + i;
+            }
+            typeIds.put(type, id);
+            types.put(id, type);
+        }
+        typeInstanceIds.put(type, id);
+        return id;
+    }
+
     private Map<String, ContainerDto> getNotificationTree(Collection<? extends NotificationDefinition> notifications) {
         Map<String, ContainerDto> notificationTree = new HashMap<>();
         for (NotificationDefinition notification : notifications) {
-            ContainerDto containerDto = getContainer(notification);
+            ContainerDto containerDto = getContainer(notification, null);
             if (notification.getDescription().isPresent()) {
                 containerDto.setDescription(notification.getDescription());
             }
@@ -115,8 +427,8 @@ public class YangToJson {
                 rpcDto.setDescription(rpc.getDescription());
             }
 
-            ContainerDto input = getContainer(rpc.getInput());
-            ContainerDto output = getContainer(rpc.getOutput());
+            ContainerDto input = getContainer(rpc.getInput(), null);
+            ContainerDto output = getContainer(rpc.getOutput(), null);
             if (rpc.getInput().getDescription().isPresent()) {
                 input.setDescription(rpc.getInput().getDescription());
             }
@@ -136,29 +448,27 @@ public class YangToJson {
     }
 
 
-    private DataTreeDto getDataTree(Collection<? extends DataSchemaNode> childNodes) {
+    /**
+     * @param parentXpath xpath of the parent node, null when it is not part of the data tree
+     */
+    private DataTreeDto getDataTree(Collection<? extends DataSchemaNode> childNodes, String parentXpath) {
         DataTreeDto dataTreeDto = new DataTreeDto();
         Map<String, LeafDto> leaves = new HashMap<>();
         Map<String, ContainerDto> containers = new HashMap<>();
         Map<String, LeafDto> leafList = new HashMap<>();
         Map<String, ContainerDto> containerList = new HashMap<>();
         for (DataSchemaNode node : childNodes) {
-            String nodeName = node.getQName().getLocalName();
-            if (node.isAugmenting()) {
-                String moduleName = schemaContext.findModules(node.getQName().getNamespace())
-                        .iterator().next().getName();
-                nodeName = moduleName + ":" + nodeName;
-            }
+            String nodeName = getNodeName(node);
 
             if (node instanceof DataNodeContainer) {
-                ContainerDto tmpContainer = getContainer((DataNodeContainer) node);
+                ContainerDto tmpContainer = getContainer((DataNodeContainer) node, parentXpath);
                 if (tmpContainer.isArray()) {
                     containerList.put(nodeName, tmpContainer);
                 } else {
                     containers.put(nodeName, tmpContainer);
                 }
             } else if (isLeafLikeNode(node)) {
-                LeafDto tmpLeaf = getDataNode(node);
+                LeafDto tmpLeaf = getDataNode(node, parentXpath, true);
                 if (tmpLeaf.isArray()) {
                     leafList.put(nodeName, tmpLeaf);
                 } else {
@@ -182,8 +492,43 @@ public class YangToJson {
         return dataTreeDto;
     }
 
-    private ContainerDto getContainer(DataNodeContainer dataNodeContainer) {
+    String getNodeName(DataSchemaNode node) {
+        if (node.isAugmenting()) {
+            return schemaIndex.getQualifiedName(node.getQName());
+        }
+        return node.getQName().getLocalName();
+    }
+
+    private ContainerDto getContainer(DataNodeContainer dataNodeContainer, String parentXpath) {
+        ContainerDto containerDto = getContainerHeader(dataNodeContainer, parentXpath);
+        if (depth >= maxDepth) {
+            return containerDto;
+        }
 
+        depth++;
+        DataTreeDto dataTreeDto = getDataTree(dataNodeContainer.getChildNodes(), getChildParentXpath(parentXpath, containerDto));
+        depth--;
+
+        if (dataTreeDto.getLeaf() != null && dataTreeDto.getLeaf().isPresent()) {
+            containerDto.setLeaf(dataTreeDto.getLeaf());
+        }
+        if (dataTreeDto.getContainer() != null && dataTreeDto.getContainer().isPresent()) {
+            containerDto.setContainer(dataTreeDto.getContainer());
+        }
+        if (dataTreeDto.getLeafList() != null && dataTreeDto.getLeafList().isPresent()) {
+            containerDto.setLeafList(dataTreeDto.getLeafList());
+        }
+        if (dataTreeDto.getList() != null && dataTreeDto.getList().isPresent()) {
+            containerDto.setList(dataTreeDto.getList());
+        }
+        return containerDto;
+    }
+
+    /**
+     * Container without any child nodes.
+     */
+    ContainerDto getContainerHeader(DataNodeContainer dataNodeContainer, String parentXpath) {
+        nodeCount++;
         ContainerDto containerDto = new ContainerDto();
         if (dataNodeContainer instanceof DataSchemaNode) {
             DataSchemaNode childNode = (DataSchemaNode) dataNodeContainer;
@@ -195,7 +540,7 @@ public class YangToJson {
             }
 
             if (childNode.getWhenCondition().isPresent()) {
-                String when = childNode.getWhenCondition().get().toString().replaceAll("[\r\n\\s]", "");
+                String when = collapseWhitespace(childNode.getWhenCondition().get().toString());
                 containerDto.setWhen(Optional.of(when));
             }
 
@@ -215,27 +560,26 @@ public class YangToJson {
                     containerDto.setKey(Optional.of(listSchemaNode.getKeyDefinition().get(0).getLocalName()));
                 }
             }
-            containerDto.setXpath(MySchemaContextUtils.getXpathFromSchemaNode(schemaContext, childNode));
+            containerDto.setXpath(getXpath(parentXpath, childNode));
         }
+        return containerDto;
+    }
 
-        DataTreeDto dataTreeDto = getDataTree(dataNodeContainer.getChildNodes());
-
-        if (dataTreeDto.getLeaf() != null && dataTreeDto.getLeaf().isPresent()) {
-            containerDto.setLeaf(dataTreeDto.getLeaf());
-        }
-        if (dataTreeDto.getContainer() != null && dataTreeDto.getContainer().isPresent()) {
-            containerDto.setContainer(dataTreeDto.getContainer());
-        }
-        if (dataTreeDto.getLeafList() != null && dataTreeDto.getLeafList().isPresent()) {
-            containerDto.setLeafList(dataTreeDto.getLeafList());
-        }
-        if (dataTreeDto.getList() != null && dataTreeDto.getList().isPresent()) {
-            containerDto.setList(dataTreeDto.getList());
+    /**
+     * Xpath built from the parent one, falls back to resolving it from the schema path outside the data tree.
+     */
+    private String getXpath(String parentXpath, DataSchemaNode node) {
+        if (parentXpath == null) {
+            return MySchemaContextUtils.getXpathFromSchemaNode(schemaContext, node);
         }
-        return containerDto;
+        return MySchemaContextUtils.getXpathFromParent(schemaContext, parentXpath, node);
+    }
+
+    String getChildParentXpath(String parentXpath, ContainerDto containerDto) {
+        return parentXpath == null ? null : containerDto.getXpath();
     }
 
-    private boolean isLeafLikeNode(DataSchemaNode node) {
+    boolean isLeafLikeNode(DataSchemaNode node) {
         return node instanceof LeafSchemaNode
                 || node instanceof LeafListSchemaNode
                 || node instanceof AnydataSchemaNode
@@ -243,11 +587,15 @@ public class YangToJson {
                 || node instanceof ChoiceSchemaNode;
     }
 
-    private LeafDto getDataNode(DataSchemaNode childNode) {
+    /**
+     * @param withCases false leaves the cases of a choice out, the streaming writer emits them itself
+     */
+    LeafDto getDataNode(DataSchemaNode childNode, String parentXpath, boolean withCases) {
+        nodeCount++;
         LeafDto leafDto = new LeafDto();
         leafDto.setStatus(childNode.getStatus());
         leafDto.setConfig(childNode.isConfiguration());
-        leafDto.setXpath(MySchemaContextUtils.getXpathFromSchemaNode(schemaContext, childNode));
+        leafDto.setXpath(getXpath(parentXpath, childNode));
 
         if (childNode.getDescription().isPresent()) {
             leafDto.setDescription(childNode.getDescription());
@@ -262,7 +610,11 @@ public class YangToJson {
             TypedDataSchemaNode typedData = (TypedDataSchemaNode) childNode;
             TypeProperty type = getTypeInfo(childNode, typedData.getType());
             leafDto.setType(type.getName());
-            leafDto.setTypeProperty(type);
+            if (options.isTypeTable()) {
+                leafDto.setTypeRef(getTypeId(type));
+            } else {
+                leafDto.setTypeProperty(type);
+            }
             if (type.getLeafref() != null && type.getLeafref().isPresent()) {
                 leafDto.setMandatory(true);
             }
@@ -274,7 +626,7 @@ public class YangToJson {
         }
 
         if (childNode.getWhenCondition().isPresent()) {
-            String when = childNode.getWhenCondition().get().toString().replaceAll("[\r\n\\s]", "");
+            String when = collapseWhitespace(childNode.getWhenCondition().get().toString());
             leafDto.setWhen(Optional.of(when));
         }
 
@@ -296,7 +648,9 @@ public class YangToJson {
             leafDto.setTypeProperty(new TypeProperty("anyxml"));
 
         } else if (childNode instanceof ChoiceSchemaNode) {
-            TypeProperty type = getChoiceTypeInfo((ChoiceSchemaNode) childNode);
+            TypeProperty type = withCases
+                    ? getChoiceTypeInfo((ChoiceSchemaNode) childNode, parentXpath)
+                    : new TypeProperty("choice");
             leafDto.setType(type.getName());
             leafDto.setTypeProperty(type);
 
@@ -327,6 +681,33 @@ public class YangToJson {
         return ifFeatures;
     }
 
+    /**
+     * Runs of whitespace as one space, except inside string literals, which are kept as written.
+     */
+    static String collapseWhitespace(String xpath) {
+        StringBuilder builder = new StringBuilder(xpath.length());
+        char quote = 0;
+        boolean space = false;
+        for (int i = 0; i < xpath.length(); i++) {
+            char c = xpath.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space && builder.length() > 0) {
+                builder.append(' ');
+            }
+            space = false;
+            if (quote == 0 && (c == '\'' || c == '"')) {
+                quote = c;
+            } else if (c == quote) {
+                quote = 0;
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
     private List<String> getMustConditions(DataSchemaNode childNode) {
         List<String> mustList = new ArrayList<>();
         if (childNode instanceof MustConstraintAware) {
@@ -340,7 +721,7 @@ public class YangToJson {
         return mustList;
     }
 
-    private TypeProperty getChoiceTypeInfo(ChoiceSchemaNode choiceNode) {
+    private TypeProperty getChoiceTypeInfo(ChoiceSchemaNode choiceNode, String parentXpath) {
         TypeProperty typeProperty = new TypeProperty();
         typeProperty.setName("choice");
         if (choiceNode.getDefaultCase().isPresent()) {
@@ -349,14 +730,56 @@ public class YangToJson {
 
         Map<String, DataTreeDto> cases = new HashMap<>();
         for (CaseSchemaNode caseNode : choiceNode.getCases()) {
-            cases.put(caseNode.getQName().getLocalName(), getDataTree(caseNode.getChildNodes()));
+            cases.put(caseNode.getQName().getLocalName(), getDataTree(caseNode.getChildNodes(), parentXpath));
         }
 
         typeProperty.setCases(Optional.of(cases));
         return typeProperty;
     }
 
+    /**
+     * Cached per type definition unless a leafref is involved, those depend on the node using them.
+     * The returned TypeProperty may be shared and must not be modified.
+     */
     private TypeProperty getTypeInfo(DataSchemaNode dataSchemaNode, TypeDefinition<? extends TypeDefinition<?>> nodeType) {
+        if (containsLeafref(nodeType)) {
+            return computeTypeInfo(dataSchemaNode, nodeType);
+        }
+        TypeProperty typeProperty = typeCache.getIfPresent(nodeType);
+        if (typeProperty == null) {
+            typeProperty = computeTypeInfo(dataSchemaNode, nodeType);
+            typeCache.put(nodeType, typeProperty);
+        }
+        return typeProperty;
+    }
+
+    private boolean containsLeafref(TypeDefinition<?> nodeType) {
+        if (nodeType instanceof LeafrefTypeDefinition) {
+            return true;
+        }
+        if (nodeType instanceof UnionTypeDefinition) {
+            for (TypeDefinition<?> type : ((UnionTypeDefinition) nodeType).getTypes()) {
+                if (containsLeafref(type)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A type restricting a string or binary without a length statement, by a pattern, still has a length
+     * constraint: the implicit 0..max of the built-in type.
+     */
+    private static boolean isDeclaredLength(LengthRestrictedTypeDefinition<?> type) {
+        if (!type.getLengthConstraint().isPresent()) {
+            return false;
+        }
+        Set<Range<Integer>> ranges = type.getLengthConstraint().get().getAllowedRanges().asRanges();
+        return !ranges.equals(Collections.singleton(Range.closed(0, Integer.MAX_VALUE)));
+    }
+
+    private TypeProperty computeTypeInfo(DataSchemaNode dataSchemaNode, TypeDefinition<? extends TypeDefinition<?>> nodeType) {
         TypeProperty typeProperty = new TypeProperty();
 
         String typeName = null;
@@ -394,7 +817,7 @@ public class YangToJson {
 
                 if (nodeType instanceof LengthRestrictedTypeDefinition) {
                     LengthRestrictedTypeDefinition lengthType = (LengthRestrictedTypeDefinition) tmpType;
-                    if (lengthType.getLengthConstraint().isPresent()) {
+                    if (isDeclaredLength(lengthType)) {
                         LengthConstraint lengthConstraint = (LengthConstraint) lengthType.getLengthConstraint().get();
                         Range range = lengthConstraint.getAllowedRanges().span();
                         if (baseLength == null
@@ -433,8 +856,8 @@ public class YangToJson {
         }
 
         if (nodeType instanceof LengthRestrictedTypeDefinition) {
-            LengthRestrictedTypeDefinition lengthType = (LengthRestrictedTypeDefinition) tmpType;
-            if (lengthType.getLengthConstraint().isPresent()) {
+            LengthRestrictedTypeDefinition lengthType = (LengthRestrictedTypeDefinition) nodeType;
+            if (isDeclaredLength(lengthType)) {
                 LengthConstraint lengthConstraint = (LengthConstraint) lengthType.getLengthConstraint().get();
                 Range range = lengthConstraint.getAllowedRanges().span();
                 if (baseLength == null
@@ -464,18 +887,23 @@ public class YangToJson {
         } else if (nodeType instanceof IdentityrefTypeDefinition) {
             IdentityrefTypeDefinition identityrefType = (IdentityrefTypeDefinition) nodeType;
             IdentitySchemaNode baseIdentity = identityrefType.getIdentities().iterator().next();
-            typeProperty.setIdentities(Optional.of(getDerivedIdentities(baseIdentity)));
+            typeProperty.setIdentities(Optional.of(IdentityClosure.of(schemaContext).getDerivedIdentities(baseIdentity)));
             typeProperty.setBase(Optional.of(baseIdentity.getQName().getLocalName()));
 
         } else if (nodeType instanceof LeafrefTypeDefinition) {
             LeafrefTypeDefinition leafrefType = (LeafrefTypeDefinition) nodeType;
-            TypeDefinition refType = MySchemaContextUtils.getBaseTypeForLeafRef(leafrefType, schemaContext, dataSchemaNode);
-            typeProperty = getTypeInfo(dataSchemaNode, refType);
+            LeafrefResolutionEvent event = new LeafrefResolutionEvent();
+            event.begin();
+            LeafrefResolver.Resolution resolution = leafrefResolver.resolve(leafrefType, dataSchemaNode);
+            if (event.shouldCommit()) {
+                event.module = module.getName();
+                event.path = leafrefType.getPathStatement().getOriginalString();
+                event.commit();
+            }
+            typeProperty = computeTypeInfo(dataSchemaNode, resolution.getBaseType());
 
             typeProperty.setRequireInstance(Optional.of(leafrefType.requireInstance()));
-            DataSchemaNode leafrefNode = MySchemaContextUtils.getSchemaNodeForLeafRef(leafrefType, schemaContext, dataSchemaNode);
-            String leafrefXpath = MySchemaContextUtils.getXpathFromSchemaNode(schemaContext, leafrefNode);
-            typeProperty.setLeafref(Optional.of(leafrefXpath));
+            typeProperty.setLeafref(Optional.of(resolution.getTargetXpath()));
             typeProperty.setLeafrefOrigin(Optional.of(leafrefType.getPathStatement().getOriginalString()));
         } else if (nodeType instanceof DecimalTypeDefinition) {
             DecimalTypeDefinition decimalType = (DecimalTypeDefinition) nodeType;
@@ -523,23 +951,4 @@ public class YangToJson {
         }
         return typeProperty;
     }
-
-    private List<IdentityType> getDerivedIdentities(IdentitySchemaNode identity) {
-        List<IdentityType> options = new ArrayList<>();
-        for (IdentitySchemaNode derivedIdentity : schemaContext.getDerivedIdentities(identity)) {
-            Module module = schemaContext.findModules(derivedIdentity.getQName().getNamespace()).iterator().next();
-
-            IdentityType identityType = new IdentityType();
-            if (derivedIdentity.getDescription().isPresent()) {
-                identityType.setDescription(derivedIdentity.getDescription());
-            }
-            identityType.setIdentity(module.getName() + ":" + derivedIdentity.getQName().getLocalName());
-            options.add(identityType);
-
-            if (schemaContext.getDerivedIdentities(derivedIdentity).size() > 0) {
-                options.addAll(getDerivedIdentities(derivedIdentity));
-            }
-        }
-        return options;
-    }
 }
@@ -0,0 +1,251 @@
+package yang.testtools.yangparser;
+
+import org.opendaylight.yangtools.yang.common.QName;
+import org.opendaylight.yangtools.yang.common.YangConstants;
+import org.opendaylight.yangtools.yang.model.api.*;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.rfc7950.repo.YangStatementStreamSource;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.helper.FeatureProfiles;
+import yang.testtools.helper.SchemaIndex;
+import yang.testtools.helper.YangUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps parser_result up to date with the yang files of the input directories. Saves arriving within the debounce
+ * window are rebuilt together, only the changed files are parsed again and only the modules reachable from them
+ * through import/include/augment/identity base are written again.
+ */
+public class YangWatcher {
+    private final List<Path> directories;
+    private final long debounceMillis;
+    private final YangParserOptions options;
+    private final YangToJson yangToJson;
+    // parsed sources of the last successful build, by file
+    private final Map<Path, YangStatementStreamSource> sources = new HashMap<>();
+    private final Map<Path, String> sourceHashes = new HashMap<>();
+    private final Map<Path, String> sourceModules = new HashMap<>();
+    // files changed since the last successful build
+    private final Set<Path> pending = new HashSet<>();
+    private EffectiveSchemaContext schemaContext;
+
+    public YangWatcher(YangParserOptions options, long debounceMillis, String... paths) {
+        this.directories = Arrays.stream(paths).map(path -> Paths.get(path).toAbsolutePath().normalize())
+                .collect(Collectors.toList());
+        this.debounceMillis = debounceMillis;
+        this.options = options;
+        this.yangToJson = new YangToJson(options);
+    }
+
+    /**
+     * Writes every module once, then blocks and rebuilds on each batch of changes.
+     */
+    public void watch() throws IOException, InterruptedException {
+        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> keys = new HashMap<>();
+            for (Path directory : directories) {
+                keys.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), directory);
+            }
+
+            YangParserUtils.clear(options.getOutputDirectory());
+            YangParserUtils.initDirectory(options.getOutputDirectory());
+            pending.addAll(listYangFiles());
+            rebuild(true);
+
+            while (!keys.isEmpty()) {
+                WatchKey key = watchService.take();
+                // keep draining until nothing arrived for a whole window, an editor save is often several events
+                while (key != null) {
+                    collect(key, keys);
+                    key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+                }
+                if (!pending.isEmpty()) {
+                    rebuild(false);
+                }
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Map<WatchKey, Path> keys) throws IOException {
+        Path directory = keys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // events were lost, compare everything
+                pending.addAll(listYangFiles());
+                pending.addAll(sources.keySet());
+            } else {
+                Path file = directory.resolve((Path) event.context());
+                if (file.getFileName().toString().endsWith(YangConstants.RFC6020_YANG_FILE_EXTENSION)) {
+                    pending.add(file);
+                }
+            }
+        }
+        if (!key.reset()) {
+            System.out.println("No longer watching " + keys.remove(key));
+        }
+    }
+
+    private void rebuild(boolean all) {
+        long start = System.currentTimeMillis();
+        Map<Path, YangStatementStreamSource> newSources = new HashMap<>(sources);
+        Map<Path, String> newHashes = new HashMap<>(sourceHashes);
+        Map<Path, String> newModules = new HashMap<>(sourceModules);
+        Set<String> changedModules = new HashSet<>();
+        for (Path file : pending) {
+            if (!Files.isRegularFile(file)) {
+                if (newSources.remove(file) != null) {
+                    newHashes.remove(file);
+                    changedModules.add(newModules.remove(file));
+                }
+                continue;
+            }
+            try {
+                String hash = ParseCache.sha256(Files.readAllBytes(file));
+                if (hash.equals(newHashes.get(file))) {
+                    continue;
+                }
+                YangStatementStreamSource source = YangUtils.loadSource(file.toFile());
+                String moduleName = source.getIdentifier().getName();
+                String oldModuleName = newModules.put(file, moduleName);
+                if (oldModuleName != null) {
+                    changedModules.add(oldModuleName);
+                }
+                changedModules.add(moduleName);
+                newSources.put(file, source);
+                newHashes.put(file, hash);
+            } catch (Exception e) {
+                System.out.println("Failed to parse " + file + ", keeping the previous output: " + e.getMessage());
+                return;
+            }
+        }
+        if (!all && changedModules.isEmpty()) {
+            pending.clear();
+            return;
+        }
+
+        EffectiveSchemaContext newContext;
+        try {
+            newContext = options.getFeatures() == null ? YangUtils.buildSchemaContext(newSources.values())
+                    : new FeatureProfiles(new ArrayList<>(newSources.values())).getSchemaContext(options.getFeatures());
+        } catch (Exception e) {
+            System.out.println("Failed to build schema context, keeping the previous output: " + e.getMessage());
+            return;
+        }
+
+        Collection<? extends Module> modules = all ? newContext.getModules()
+                : getAffectedModules(newContext, changedModules);
+        if (options.getTargetModules() != null) {
+            Set<String> selected = ModuleSelection.select(newContext, options.getTargetModules()).stream()
+                    .map(Module::getName).collect(Collectors.toSet());
+            modules = modules.stream().filter(module -> selected.contains(module.getName())).collect(Collectors.toList());
+        }
+        ParseCache.invalidate();
+        try {
+            if (schemaContext != null) {
+                Set<String> newModuleNames = newContext.getModules().stream().map(Module::getName)
+                        .collect(Collectors.toSet());
+                for (Module module : schemaContext.getModules()) {
+                    if (!newModuleNames.contains(module.getName())) {
+                        yangToJson.deleteOutput(module.getName());
+                    }
+                }
+            }
+            // a module can move between parser_result and parser_result/empty
+            for (Module module : modules) {
+                yangToJson.deleteOutput(module.getName());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        yangToJson.convertToDto(newContext, modules);
+
+        schemaContext = newContext;
+        sources.clear();
+        sources.putAll(newSources);
+        sourceHashes.clear();
+        sourceHashes.putAll(newHashes);
+        sourceModules.clear();
+        sourceModules.putAll(newModules);
+        pending.clear();
+        System.out.println("Wrote " + modules.size() + " module(s) in " + (System.currentTimeMillis() - start) + " ms: "
+                + modules.stream().map(Module::getName).sorted().collect(Collectors.joining(", ")));
+    }
+
+    /**
+     * Modules of the new context whose json can differ because one of the changed modules/submodules changed.
+     * Edges of the previous context count as well, a removed import or augment still changes the output.
+     */
+    private List<Module> getAffectedModules(EffectiveSchemaContext newContext, Set<String> changedModules) {
+        Map<String, Set<String>> dependents = new HashMap<>();
+        addDependents(newContext, dependents);
+        if (schemaContext != null) {
+            addDependents(schemaContext, dependents);
+        }
+
+        Set<String> affected = new HashSet<>(changedModules);
+        Deque<String> queue = new ArrayDeque<>(changedModules);
+        while (!queue.isEmpty()) {
+            for (String dependent : dependents.getOrDefault(queue.poll(), Collections.emptySet())) {
+                if (affected.add(dependent)) {
+                    queue.add(dependent);
+                }
+            }
+        }
+        return newContext.getModules().stream().filter(module -> affected.contains(module.getName()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds "a change of key changes the output of value" edges of one context.
+     */
+    private static void addDependents(SchemaContext context, Map<String, Set<String>> dependents) {
+        SchemaIndex schemaIndex = SchemaIndex.of(context);
+        for (Module module : context.getModules()) {
+            String name = module.getName();
+            addImportDependents(module, name, dependents);
+            for (Submodule submodule : module.getSubmodules()) {
+                addDependent(dependents, submodule.getName(), name);
+                addImportDependents(submodule, name, dependents);
+            }
+            // augmented nodes are written into the target module
+            for (AugmentationSchemaNode augmentation : module.getAugmentations()) {
+                QName target = augmentation.getTargetPath().firstNodeIdentifier();
+                addDependent(dependents, name, schemaIndex.findModule(target.getNamespace()).getName());
+            }
+            // derived identities are listed by the identityref leaves of the base
+            for (IdentitySchemaNode identity : module.getIdentities()) {
+                for (IdentitySchemaNode base : identity.getBaseIdentities()) {
+                    addDependent(dependents, name, schemaIndex.findModule(base.getQName().getNamespace()).getName());
+                }
+            }
+        }
+    }
+
+    private static void addImportDependents(ModuleLike module, String name, Map<String, Set<String>> dependents) {
+        for (ModuleImport moduleImport : module.getImports()) {
+            addDependent(dependents, moduleImport.getModuleName(), name);
+        }
+    }
+
+    private static void addDependent(Map<String, Set<String>> dependents, String dependency, String dependent) {
+        if (!dependency.equals(dependent)) {
+            dependents.computeIfAbsent(dependency, name -> new HashSet<>()).add(dependent);
+        }
+    }
+
+    private List<Path> listYangFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (File file : YangUtils.getYangFiles(directories.stream().map(Path::toString).toArray(String[]::new))) {
+            files.add(file.toPath().toAbsolutePath().normalize());
+        }
+        return files;
+    }
+}
@@ -14,4 +14,5 @@ public class LeafDto extends BaseNodeDto {
     private Optional<String> defaultValue;
 
     private TypeProperty typeProperty;
+    private String typeRef; // key of ModuleDto#types, replaces typeProperty
 }
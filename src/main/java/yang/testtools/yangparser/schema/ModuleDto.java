@@ -2,6 +2,7 @@ package yang.testtools.yangparser.schema;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import lombok.Data;
+import yang.testtools.yangparser.schema.type.TypeProperty;
 
 import java.util.Map;
 import java.util.Optional;
@@ -17,6 +18,7 @@ public class ModuleDto {
     private Map<String, RpcDto> rpc;
     @JsonIgnoreProperties({"config", "xpath"})
     private Map<String, ContainerDto> notification;
+    private Map<String, TypeProperty> types; // only with YangParserOptions#typeTable
 
     public boolean isEmpty() {
         return dataTree == null && rpc == null && notification == null;
@@ -0,0 +1,258 @@
+package yang.testtools.yangparser.schema.compact;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import yang.testtools.yangparser.schema.*;
+import yang.testtools.yangparser.schema.compact.CompactNode.Extras;
+import yang.testtools.yangparser.schema.compact.CompactNode.Kind;
+import yang.testtools.yangparser.schema.type.TypeProperty;
+
+import java.util.*;
+
+/**
+ * {@link ModuleDto} in less heap, for holding many converted modules: no Optional or HashMap per node, one child
+ * array per node, flags in a byte, xpaths stored relative to the parent, and names, xpath segments and type
+ * properties interned across modules. Serializes to the same json as the ModuleDto it was built from.
+ */
+@JsonSerialize(using = CompactModuleSerializer.class)
+public final class CompactModule {
+    private static final Interner<String> STRINGS = Interners.newWeakInterner();
+    private static final Interner<TypeProperty> TYPES = Interners.newWeakInterner();
+    private static final TypeProperty PLAIN_CHOICE = new TypeProperty("choice");
+
+    private final String name;
+    private final String namespace;
+    private final String revision;
+    private final String description;
+    private final CompactNode dataTree;
+    private final CompactNode[] rpcs;
+    private final CompactNode[] notifications;
+    private final Map<String, TypeProperty> types;
+
+    private CompactModule(ModuleDto moduleDto) {
+        this.name = moduleDto.getName();
+        this.namespace = intern(moduleDto.getNamespace());
+        this.revision = intern(moduleDto.getRevision());
+        this.description = orNull(moduleDto.getDescription());
+        this.dataTree = moduleDto.getDataTree() == null ? null
+                : dataTree(moduleDto.getDataTree(), Kind.DATA_TREE, null, null);
+
+        if (moduleDto.getRpc() == null) {
+            this.rpcs = null;
+        } else {
+            List<CompactNode> rpcs = new ArrayList<>();
+            for (Map.Entry<String, RpcDto> rpc : moduleDto.getRpc().entrySet()) {
+                CompactNode rpcNode = new CompactNode(intern(rpc.getKey()), Kind.RPC, true, false, null, null, null,
+                        orNull(rpc.getValue().getDescription()), null, null, Extras.NONE);
+                List<CompactNode> children = new ArrayList<>(2);
+                if (rpc.getValue().getInput() != null) {
+                    children.add(container("input", Kind.INPUT, rpc.getValue().getInput(), null));
+                }
+                if (rpc.getValue().getOutput() != null) {
+                    children.add(container("output", Kind.OUTPUT, rpc.getValue().getOutput(), null));
+                }
+                rpcNode.children = toArray(children);
+                rpcs.add(rpcNode);
+            }
+            this.rpcs = toArray(rpcs);
+        }
+
+        if (moduleDto.getNotification() == null) {
+            this.notifications = null;
+        } else {
+            List<CompactNode> notifications = new ArrayList<>();
+            for (Map.Entry<String, ContainerDto> notification : moduleDto.getNotification().entrySet()) {
+                notifications.add(container(notification.getKey(), Kind.NOTIFICATION, notification.getValue(), null));
+            }
+            this.notifications = toArray(notifications);
+        }
+
+        if (moduleDto.getTypes() == null) {
+            this.types = null;
+        } else {
+            Map<String, TypeProperty> types = new TreeMap<>();
+            moduleDto.getTypes().forEach((id, type) -> types.put(id, TYPES.intern(type)));
+            this.types = Collections.unmodifiableMap(types);
+        }
+    }
+
+    /**
+     * The dto is not needed afterwards, its type properties end up shared with other modules and must not be
+     * modified any more.
+     */
+    public static CompactModule of(ModuleDto moduleDto) {
+        return new CompactModule(moduleDto);
+    }
+
+    static String intern(String value) {
+        return value == null ? null : STRINGS.intern(value);
+    }
+
+    private static <T> T orNull(Optional<T> value) {
+        return value == null ? null : value.orElse(null);
+    }
+
+    private static String[] strings(Optional<List<String>> values) {
+        if (values == null || values.isEmpty() || values.get().isEmpty()) {
+            return CompactNode.NO_STRINGS;
+        }
+        return values.get().stream().map(CompactModule::intern).toArray(String[]::new);
+    }
+
+    private static CompactNode[] toArray(List<CompactNode> nodes) {
+        return nodes.isEmpty() ? CompactNode.NO_CHILDREN : nodes.toArray(CompactNode.NO_CHILDREN);
+    }
+
+    /**
+     * Data tree of the module or of a choice case, the xpaths of its children extend the one of {@code xpathParent}.
+     */
+    private static CompactNode dataTree(DataTreeDto dataTreeDto, Kind kind, String name, CompactNode xpathParent) {
+        CompactNode node = new CompactNode(intern(name), kind, true, false, null, null, null,
+                orNull(dataTreeDto.getDescription()), null, null, Extras.NONE);
+        node.children = children(dataTreeDto.getLeaf(), dataTreeDto.getContainer(), dataTreeDto.getLeafList(),
+                dataTreeDto.getList(), xpathParent);
+        return node;
+    }
+
+    private static CompactNode container(String name, Kind kind, ContainerDto containerDto, CompactNode parent) {
+        Extras extras = new Extras(orNull(containerDto.getWhen()), strings(containerDto.getMust()),
+                strings(containerDto.getIfFeature()), intern(orNull(containerDto.getKey())), null, null, null);
+        CompactNode node = new CompactNode(intern(name), kind, containerDto.isConfig(), false,
+                containerDto.getStatus(), parent, containerDto.getXpath(), orNull(containerDto.getDescription()),
+                null, null, extras);
+        node.children = children(containerDto.getLeaf(), containerDto.getContainer(), containerDto.getLeafList(),
+                containerDto.getList(), node);
+        return node;
+    }
+
+    private static CompactNode leaf(String name, Kind kind, LeafDto leafDto, CompactNode parent) {
+        TypeProperty typeProperty = leafDto.getTypeProperty();
+        boolean choice = typeProperty != null && isPlainChoice(typeProperty);
+        Extras extras = new Extras(orNull(leafDto.getWhen()), strings(leafDto.getMust()),
+                strings(leafDto.getIfFeature()), null, orNull(leafDto.getDefaultValue()), intern(leafDto.getTypeRef()),
+                choice ? orNull(typeProperty.getDefaultCase()) : null);
+        CompactNode node = new CompactNode(intern(name), choice ? Kind.CHOICE : kind, leafDto.isConfig(),
+                leafDto.isMandatory(), leafDto.getStatus(), parent, leafDto.getXpath(), orNull(leafDto.getDescription()),
+                intern(leafDto.getType()), choice || typeProperty == null ? null : TYPES.intern(typeProperty), extras);
+        if (choice) {
+            List<CompactNode> cases = new ArrayList<>();
+            for (Map.Entry<String, DataTreeDto> caseEntry : typeProperty.getCases().get().entrySet()) {
+                // the nodes of a case extend the xpath of the parent of the choice
+                cases.add(dataTree(caseEntry.getValue(), Kind.CASE, caseEntry.getKey(), parent));
+            }
+            node.children = toArray(cases);
+        }
+        return node;
+    }
+
+    /**
+     * A choice with only its cases and default case, written by the serializer itself. Other choices keep
+     * their type property.
+     */
+    private static boolean isPlainChoice(TypeProperty typeProperty) {
+        if (!"choice".equals(typeProperty.getName()) || typeProperty.getCases() == null
+                || typeProperty.getCases().isEmpty()) {
+            return false;
+        }
+        return copyWithoutCases(typeProperty).equals(PLAIN_CHOICE)
+                && (typeProperty.getDefaultCase() == null || typeProperty.getDefaultCase().isPresent());
+    }
+
+    private static TypeProperty copyWithoutCases(TypeProperty typeProperty) {
+        TypeProperty copy = new TypeProperty(typeProperty.getName());
+        copy.setDescription(typeProperty.getDescription());
+        copy.setUnits(typeProperty.getUnits());
+        copy.setDefaultValue(typeProperty.getDefaultValue());
+        copy.setBits(typeProperty.getBits());
+        copy.setLeafref(typeProperty.getLeafref());
+        copy.setLeafrefOrigin(typeProperty.getLeafrefOrigin());
+        copy.setRequireInstance(typeProperty.getRequireInstance());
+        copy.setMin(typeProperty.getMin());
+        copy.setMax(typeProperty.getMax());
+        copy.setFractionDigits(typeProperty.getFractionDigits());
+        copy.setPattern(typeProperty.getPattern());
+        copy.setOptions(typeProperty.getOptions());
+        copy.setIdentities(typeProperty.getIdentities());
+        copy.setBase(typeProperty.getBase());
+        copy.setUnionTypes(typeProperty.getUnionTypes());
+        return copy;
+    }
+
+    private static CompactNode[] children(Optional<Map<String, LeafDto>> leaves,
+                                          Optional<Map<String, ContainerDto>> containers,
+                                          Optional<Map<String, LeafDto>> leafLists,
+                                          Optional<Map<String, ContainerDto>> lists, CompactNode parent) {
+        List<CompactNode> children = new ArrayList<>();
+        if (leaves != null && leaves.isPresent()) {
+            leaves.get().forEach((name, leaf) -> children.add(leaf(name, Kind.LEAF, leaf, parent)));
+        }
+        if (containers != null && containers.isPresent()) {
+            containers.get().forEach((name, container) -> children.add(container(name, Kind.CONTAINER, container, parent)));
+        }
+        if (leafLists != null && leafLists.isPresent()) {
+            leafLists.get().forEach((name, leaf) -> children.add(leaf(name, Kind.LEAF_LIST, leaf, parent)));
+        }
+        if (lists != null && lists.isPresent()) {
+            lists.get().forEach((name, container) -> children.add(container(name, Kind.LIST, container, parent)));
+        }
+        return toArray(children);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getRevision() {
+        return revision;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return null when the module has no data nodes
+     */
+    public CompactNode getDataTree() {
+        return dataTree;
+    }
+
+    /**
+     * Rpcs with their input/output as children, null when the module has none.
+     */
+    public List<CompactNode> getRpcs() {
+        return rpcs == null ? null : Collections.unmodifiableList(Arrays.asList(rpcs));
+    }
+
+    public List<CompactNode> getNotifications() {
+        return notifications == null ? null : Collections.unmodifiableList(Arrays.asList(notifications));
+    }
+
+    /**
+     * Only with YangParserOptions#typeTable, null otherwise.
+     */
+    public Map<String, TypeProperty> getTypes() {
+        return types;
+    }
+
+    /**
+     * Nodes of the data tree, rpcs and notifications, cases included.
+     */
+    public int nodeCount() {
+        int count = dataTree == null ? 0 : count(dataTree.children);
+        return count + (rpcs == null ? 0 : count(rpcs)) + (notifications == null ? 0 : count(notifications));
+    }
+
+    private static int count(CompactNode[] nodes) {
+        int count = nodes.length;
+        for (CompactNode node : nodes) {
+            count += count(node.children);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,172 @@
+package yang.testtools.yangparser.schema.compact;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import yang.testtools.yangparser.schema.compact.CompactNode.Extras;
+import yang.testtools.yangparser.schema.compact.CompactNode.Kind;
+
+import java.io.IOException;
+
+/**
+ * Writes a {@link CompactModule} field by field in the order and with the inclusion rules of the dtos, so the json
+ * matches the one of the {@code ModuleDto}. Type properties and statuses go through the serializers of the mapper.
+ */
+public class CompactModuleSerializer extends StdSerializer<CompactModule> {
+    private static final Kind[] CHILD_MAP_KINDS = {Kind.LEAF, Kind.CONTAINER, Kind.LEAF_LIST, Kind.LIST};
+    private static final String[] CHILD_MAP_NAMES = {"leaf", "container", "leafList", "list"};
+
+    public CompactModuleSerializer() {
+        super(CompactModule.class);
+    }
+
+    @Override
+    public void serialize(CompactModule module, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        writeString(gen, "name", module.getName());
+        writeString(gen, "namespace", module.getNamespace());
+        writeString(gen, "revision", module.getRevision());
+        writeString(gen, "description", module.getDescription());
+        if (module.getDataTree() != null) {
+            gen.writeFieldName("dataTree");
+            writeDataTree(module.getDataTree(), gen, provider);
+        }
+        if (module.getRpcs() != null) {
+            gen.writeObjectFieldStart("rpc");
+            for (CompactNode rpc : module.getRpcs()) {
+                gen.writeObjectFieldStart(rpc.getName());
+                writeString(gen, "description", rpc.getDescription());
+                for (CompactNode child : rpc.children) {
+                    gen.writeFieldName(child.getName());
+                    writeContainer(child, gen, provider);
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndObject();
+        }
+        if (module.getNotifications() != null) {
+            gen.writeObjectFieldStart("notification");
+            for (CompactNode notification : module.getNotifications()) {
+                gen.writeFieldName(notification.getName());
+                writeContainer(notification, gen, provider);
+            }
+            gen.writeEndObject();
+        }
+        if (module.getTypes() != null) {
+            provider.defaultSerializeField("types", module.getTypes(), gen);
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * A DataTreeDto, of the module or of a choice case.
+     */
+    private void writeDataTree(CompactNode node, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        writeString(gen, "description", node.getDescription());
+        writeChildren(node, gen, provider);
+        gen.writeEndObject();
+    }
+
+    private void writeContainer(CompactNode node, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        // rpc input/output and notifications are written without config and xpath
+        boolean dataNode = node.getKind() == Kind.CONTAINER || node.getKind() == Kind.LIST;
+        gen.writeStartObject();
+        writeHeader(node, gen, provider, dataNode);
+        writeString(gen, "key", node.getKey());
+        writeChildren(node, gen, provider);
+        gen.writeEndObject();
+    }
+
+    private void writeLeaf(CompactNode node, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        writeHeader(node, gen, provider, true);
+        writeString(gen, "type", node.getType());
+        gen.writeBooleanField("mandatory", node.isMandatory());
+        writeString(gen, "defaultValue", node.getDefaultValue());
+        if (node.isChoice()) {
+            gen.writeObjectFieldStart("typeProperty");
+            gen.writeStringField("name", "choice");
+            gen.writeObjectFieldStart("cases");
+            for (CompactNode caseNode : node.children) {
+                gen.writeFieldName(caseNode.getName());
+                writeDataTree(caseNode, gen, provider);
+            }
+            gen.writeEndObject();
+            writeString(gen, "defaultCase", node.getDefaultCase());
+            gen.writeEndObject();
+        } else if (node.getTypeProperty() != null) {
+            provider.defaultSerializeField("typeProperty", node.getTypeProperty(), gen);
+        }
+        writeString(gen, "typeRef", node.getTypeRef());
+        gen.writeEndObject();
+    }
+
+    /**
+     * Fields of BaseNodeDto.
+     */
+    private void writeHeader(CompactNode node, JsonGenerator gen, SerializerProvider provider, boolean dataNode)
+            throws IOException {
+        Extras extras = node.getExtras();
+        writeString(gen, "when", extras.when);
+        writeStrings(gen, "must", extras.must);
+        writeStrings(gen, "ifFeature", extras.ifFeature);
+        if (dataNode) {
+            gen.writeBooleanField("config", node.isConfig());
+        }
+        if (node.getStatus() != null) {
+            provider.defaultSerializeField("status", node.getStatus(), gen);
+        }
+        if (dataNode) {
+            writeString(gen, "xpath", node.getXpath());
+        }
+        writeString(gen, "description", node.getDescription());
+    }
+
+    private void writeChildren(CompactNode node, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        // children are grouped by map, see CompactNode
+        int start = 0;
+        for (int map = 0; map < CHILD_MAP_KINDS.length; map++) {
+            int end = start;
+            while (end < node.children.length && inMap(node.children[end], map)) {
+                end++;
+            }
+            if (end == start) {
+                continue;
+            }
+            gen.writeObjectFieldStart(CHILD_MAP_NAMES[map]);
+            for (int i = start; i < end; i++) {
+                CompactNode child = node.children[i];
+                gen.writeFieldName(child.getName());
+                if (map == 1 || map == 3) {
+                    writeContainer(child, gen, provider);
+                } else {
+                    writeLeaf(child, gen, provider);
+                }
+            }
+            gen.writeEndObject();
+            start = end;
+        }
+    }
+
+    private static boolean inMap(CompactNode child, int map) {
+        return child.getKind() == CHILD_MAP_KINDS[map] || map == 0 && child.getKind() == Kind.CHOICE;
+    }
+
+    private static void writeString(JsonGenerator gen, String field, String value) throws IOException {
+        if (value != null) {
+            gen.writeStringField(field, value);
+        }
+    }
+
+    private static void writeStrings(JsonGenerator gen, String field, String[] values) throws IOException {
+        if (values.length == 0) {
+            return;
+        }
+        gen.writeArrayFieldStart(field);
+        for (String value : values) {
+            gen.writeString(value);
+        }
+        gen.writeEndArray();
+    }
+}
@@ -0,0 +1,194 @@
+package yang.testtools.yangparser.schema.compact;
+
+import org.opendaylight.yangtools.yang.model.api.Status;
+import yang.testtools.yangparser.schema.type.TypeProperty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One node of a {@link CompactModule}: a leaf, container, list, choice case, rpc, ... in place of the
+ * {@code LeafDto}/{@code ContainerDto}/{@code DataTreeDto}/{@code RpcDto} holding it.
+ * Immutable, the children of all four child maps are in one array, ordered by map and then as the map iterated.
+ */
+public final class CompactNode {
+    static final CompactNode[] NO_CHILDREN = new CompactNode[0];
+    static final String[] NO_STRINGS = new String[0];
+
+    private static final int CONFIG = 1;
+    private static final int MANDATORY = 1 << 1;
+    private static final int XPATH_RELATIVE = 1 << 2;
+    private static final int STATUS_SHIFT = 3;
+    private static final Status[] STATUSES = Status.values();
+
+    public enum Kind {
+        DATA_TREE, LEAF, CONTAINER, LEAF_LIST, LIST, CASE, RPC, INPUT, OUTPUT, NOTIFICATION,
+        /**
+         * A choice in the leaf map, its cases are its children.
+         */
+        CHOICE
+    }
+
+    /**
+     * Attributes most nodes do not have, shared by all nodes without any.
+     */
+    static final class Extras {
+        static final Extras NONE = new Extras(null, NO_STRINGS, NO_STRINGS, null, null, null, null);
+
+        final String when;
+        final String[] must;
+        final String[] ifFeature;
+        final String key; // list only
+        final String defaultValue; // leaf only
+        final String typeRef; // leaf only, see YangParserOptions#typeTable
+        final String defaultCase; // choice only
+
+        Extras(String when, String[] must, String[] ifFeature, String key, String defaultValue, String typeRef,
+               String defaultCase) {
+            this.when = when;
+            this.must = must;
+            this.ifFeature = ifFeature;
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.typeRef = typeRef;
+            this.defaultCase = defaultCase;
+        }
+
+        boolean isNone() {
+            return when == null && must.length == 0 && ifFeature.length == 0 && key == null && defaultValue == null
+                    && typeRef == null && defaultCase == null;
+        }
+    }
+
+    private final String name;
+    private final Kind kind;
+    private final byte flags;
+    // nearest ancestor whose xpath this one extends, the xpath is stored relative to it
+    private final CompactNode parent;
+    private final String xpath;
+    private final String description;
+    private final String type;
+    // null for a choice, its cases are the children
+    private final TypeProperty typeProperty;
+    private final Extras extras;
+    CompactNode[] children = NO_CHILDREN;
+
+    CompactNode(String name, Kind kind, boolean config, boolean mandatory, Status status, CompactNode parent,
+                String xpath, String description, String type, TypeProperty typeProperty, Extras extras) {
+        this.name = name;
+        this.kind = kind;
+        String parentXpath = parent == null ? null : parent.getXpath();
+        boolean relative = parentXpath != null && xpath != null && xpath.length() > parentXpath.length()
+                && xpath.startsWith(parentXpath) && xpath.charAt(parentXpath.length()) == '/';
+        this.flags = (byte) ((config ? CONFIG : 0) | (mandatory ? MANDATORY : 0) | (relative ? XPATH_RELATIVE : 0)
+                | (status == null ? 0 : status.ordinal() + 1) << STATUS_SHIFT);
+        this.parent = relative ? parent : null;
+        this.xpath = relative ? CompactModule.intern(xpath.substring(parentXpath.length() + 1)) : xpath;
+        this.description = description;
+        this.type = type;
+        this.typeProperty = typeProperty;
+        this.extras = extras.isNone() ? Extras.NONE : extras;
+    }
+
+    /**
+     * Key of the node in the map of its parent.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public boolean isConfig() {
+        return (flags & CONFIG) != 0;
+    }
+
+    public boolean isMandatory() {
+        return (flags & MANDATORY) != 0;
+    }
+
+    public Status getStatus() {
+        int status = flags >> STATUS_SHIFT & 3;
+        return status == 0 ? null : STATUSES[status - 1];
+    }
+
+    /**
+     * Built on each call for most nodes, only the part below the parent is stored.
+     */
+    public String getXpath() {
+        if ((flags & XPATH_RELATIVE) == 0) {
+            return xpath;
+        }
+        return parent.getXpath() + "/" + xpath;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Shared between nodes and modules, must not be modified. Null for a choice.
+     */
+    public TypeProperty getTypeProperty() {
+        return typeProperty;
+    }
+
+    public boolean isChoice() {
+        return kind == Kind.CHOICE;
+    }
+
+    public String getWhen() {
+        return extras.when;
+    }
+
+    public List<String> getMust() {
+        return Collections.unmodifiableList(Arrays.asList(extras.must));
+    }
+
+    public List<String> getIfFeature() {
+        return Collections.unmodifiableList(Arrays.asList(extras.ifFeature));
+    }
+
+    public String getKey() {
+        return extras.key;
+    }
+
+    public String getDefaultValue() {
+        return extras.defaultValue;
+    }
+
+    public String getTypeRef() {
+        return extras.typeRef;
+    }
+
+    public String getDefaultCase() {
+        return extras.defaultCase;
+    }
+
+    public List<CompactNode> getChildren() {
+        return Collections.unmodifiableList(Arrays.asList(children));
+    }
+
+    /**
+     * @return null when there is no child of that name
+     */
+    public CompactNode getChild(String name) {
+        for (CompactNode child : children) {
+            if (child.name.equals(name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    Extras getExtras() {
+        return extras;
+    }
+}
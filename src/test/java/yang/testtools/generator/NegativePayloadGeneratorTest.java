@@ -0,0 +1,132 @@
+package yang.testtools.generator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.validator.InstanceValidator;
+import yang.testtools.yangparser.YangToJson;
+import yang.testtools.yangparser.schema.ModuleDto;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NegativePayloadGeneratorTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String MODULE = String.join("\n",
+            "module neg {",
+            "  namespace urn:neg;",
+            "  prefix n;",
+            "  typedef level { type uint8 { range \"0..5\"; } }",
+            "  typedef name-t { type string { length \"2..4\"; } }",
+            "  container top {",
+            "    leaf narrowed { type level { range \"1..2\"; } mandatory true; }",
+            "    leaf name { type name-t; mandatory true; }",
+            "    leaf gapped { type int32 { range \"1..5 | 10..20\"; } mandatory true; }",
+            "    leaf code { type string { length \"1..2 | 6..8\"; pattern \"[a-z]*\"; } mandatory true; }",
+            "    list item {",
+            "      key id;",
+            "      leaf id { type uint16 { range \"68..9216\"; } }",
+            "    }",
+            "    leaf parent { type leafref { path \"../item/id\"; } }",
+            "  }",
+            "}");
+
+    @TempDir
+    static Path directory;
+    private static EffectiveSchemaContext schemaContext;
+    private static List<ModuleDto> modules;
+    private static List<PayloadCase> cases;
+
+    @BeforeAll
+    static void generate() throws Exception {
+        Path yang = Files.createDirectory(directory.resolve("yang"));
+        Files.writeString(yang.resolve("neg.yang"), MODULE);
+        schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(yang.toString()));
+        modules = new ArrayList<>();
+        for (Module module : schemaContext.getModules()) {
+            modules.add(new YangToJson().convertToDto(schemaContext, module));
+        }
+        PayloadOptions options = new PayloadOptions();
+        options.setListSize(5);
+        cases = new NegativePayloadGenerator(modules, options).write(schemaContext, modules,
+                directory.resolve("corpus"), 1);
+    }
+
+    /**
+     * Detail of each case of the leaf by label.
+     */
+    private static Map<String, String> casesOf(String leaf) {
+        return cases.stream().filter(payloadCase -> payloadCase.getPath().endsWith("/" + leaf))
+                .collect(Collectors.toMap(PayloadCase::getLabel, PayloadCase::getDetail, (a, b) -> a, TreeMap::new));
+    }
+
+    @Test
+    void breaksTheRangeOfARestrictedTypedef() {
+        Map<String, String> narrowed = casesOf("narrowed");
+        assertEquals("0 below min 1", narrowed.get("range-below"));
+        assertEquals("3 above max 2", narrowed.get("range-above"));
+        assertEquals("uint8 as a json string", narrowed.get("wrong-json-type"));
+    }
+
+    @Test
+    void breaksTheLengthOfATypedef() {
+        Map<String, String> name = casesOf("name");
+        assertEquals("length 1, min length 2", name.get("length-below"));
+        assertEquals("length 5, max length 4", name.get("length-above"));
+    }
+
+    @Test
+    void breaksTheGapsBetweenIntervals() {
+        assertEquals("6 is not in 1..5 | 10..20", casesOf("gapped").get("range-gap"));
+        assertEquals("length 3 not in 1..2 | 6..8", casesOf("code").get("length-gap"));
+    }
+
+    @Test
+    void danglingLeafrefStaysInTheTargetRange() throws Exception {
+        PayloadCase dangling = cases.stream().filter(payloadCase -> payloadCase.getLabel().equals("dangling-leafref"))
+                .findFirst().orElse(null);
+        assertNotNull(dangling, cases.toString());
+        JsonNode top = MAPPER.readTree(directory.resolve("corpus").resolve(dangling.getFile()).toFile())
+                .path("neg:top");
+        Set<Long> ids = new HashSet<>();
+        top.path("item").forEach(item -> ids.add(item.path("id").asLong()));
+        long parent = top.path("parent").asLong();
+        assertTrue(parent >= 68 && parent <= 9216, dangling.getDetail());
+        assertFalse(ids.contains(parent), dangling.getDetail());
+    }
+
+    @Test
+    void typeCasesFailValidation() throws Exception {
+        InstanceValidator validator = new InstanceValidator(schemaContext, modules);
+        assertEquals(List.of(), validator.validate(directory.resolve("corpus").resolve(cases.get(0).getFile()),
+                InstanceValidator.Content.CONFIG));
+        Set<String> labels = Set.of("range-below", "range-above", "range-gap", "length-below", "length-above",
+                "length-gap", "pattern-mismatch", "wrong-json-type");
+        int checked = 0;
+        for (PayloadCase payloadCase : cases) {
+            if (labels.contains(payloadCase.getLabel())) {
+                assertFalse(validator.validate(directory.resolve("corpus").resolve(payloadCase.getFile()),
+                        InstanceValidator.Content.CONFIG).isEmpty(), payloadCase.toString());
+                checked++;
+            }
+        }
+        assertTrue(checked >= 12, "only " + checked + " type cases");
+    }
+}
@@ -0,0 +1,86 @@
+package yang.testtools.generator;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.validator.InstanceValidator;
+import yang.testtools.yangparser.YangToJson;
+import yang.testtools.yangparser.schema.ModuleDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PayloadGeneratorTest {
+    private static final String MODULE = String.join("\n",
+            "module gaps {",
+            "  namespace urn:gaps;",
+            "  prefix g;",
+            "  typedef level { type int32 { range \"-5..5 | 10..20\"; } }",
+            "  container top {",
+            "    list entry {",
+            "      key id;",
+            "      leaf id { type uint8 { range \"1..3 | 10..12 | 100\"; } }",
+            "      leaf level { type level; mandatory true; }",
+            "      leaf narrowed { type level { range \"0..2 | 15\"; } mandatory true; }",
+            "      leaf ratio { type decimal64 { fraction-digits 2; range \"0..1 | 2.5..3\"; } mandatory true; }",
+            "      leaf code { type string { length \"1..3 | 8\"; } mandatory true; }",
+            "      leaf blob { type binary { length \"1 | 4\"; } mandatory true; }",
+            "    }",
+            "  }",
+            "}");
+
+    @TempDir
+    static Path directory;
+    private static EffectiveSchemaContext schemaContext;
+    private static List<ModuleDto> modules;
+
+    @BeforeAll
+    static void compile() throws Exception {
+        Files.writeString(directory.resolve("gaps.yang"), MODULE);
+        schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(directory.toString()));
+        modules = new ArrayList<>();
+        for (Module module : schemaContext.getModules()) {
+            modules.add(new YangToJson().convertToDto(schemaContext, module));
+        }
+    }
+
+    @Test
+    void valuesAreWithinTheAllowedIntervals() throws Exception {
+        InstanceValidator validator = new InstanceValidator(schemaContext, modules);
+        for (long seed = 1; seed <= 20; seed++) {
+            PayloadOptions options = new PayloadOptions();
+            options.setSeed(seed);
+            options.setListSize(20);
+            ByteArrayOutputStream payload = new ByteArrayOutputStream();
+            new PayloadGenerator(schemaContext, modules, options).write(payload);
+            assertEquals(List.of(), validator.validate(new ByteArrayInputStream(payload.toByteArray()),
+                    InstanceValidator.Content.CONFIG), "seed " + seed + ": " + payload);
+        }
+    }
+
+    @Test
+    void keysEnumerateEveryInterval() throws Exception {
+        PayloadOptions options = new PayloadOptions();
+        options.setListSize(20);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        new PayloadGenerator(schemaContext, modules, options).write(payload);
+        Set<Integer> ids = new TreeSet<>();
+        for (JsonNode entry : new ObjectMapper().readTree(payload.toByteArray()).path("gaps:top").path("entry")) {
+            ids.add(entry.path("id").asInt());
+        }
+        assertEquals(Set.of(1, 2, 3, 10, 11, 12, 100), ids);
+    }
+}
@@ -0,0 +1,91 @@
+package yang.testtools.helper;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opendaylight.yangtools.yang.common.QName;
+import org.opendaylight.yangtools.yang.model.api.ContainerSchemaNode;
+import org.opendaylight.yangtools.yang.model.api.FeatureDefinition;
+import org.opendaylight.yangtools.yang.parser.rfc7950.repo.YangStatementStreamSource;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeatureProfilesTest {
+    @TempDir
+    static Path directory;
+    private static List<YangStatementStreamSource> sources;
+    private static Set<QName> allFeatures;
+
+    @BeforeAll
+    static void parse() throws Exception {
+        Files.writeString(directory.resolve("base.yang"), String.join("\n",
+                "module base {",
+                "  namespace urn:base;",
+                "  prefix b;",
+                "  include base-sub;",
+                "  revision 2020-01-01;",
+                "  feature a;",
+                "  feature b;",
+                "  container top {",
+                "    leaf with-a { if-feature a; type string; }",
+                "    leaf with-b { if-feature b; type string; }",
+                "  }",
+                "}"));
+        Files.writeString(directory.resolve("base-sub.yang"), String.join("\n",
+                "submodule base-sub {",
+                "  belongs-to base { prefix b; }",
+                "  feature c;",
+                "}"));
+        Files.writeString(directory.resolve("other.yang"), String.join("\n",
+                "module other {",
+                "  namespace \"urn:\" + \"other\";",
+                "  prefix o;",
+                "  feature a;",
+                "}"));
+        sources = YangUtils.loadSources(YangUtils.getYangFiles(directory.toString()));
+        allFeatures = YangUtils.buildSchemaContext(sources).getModules().stream()
+                .flatMap(module -> module.getFeatures().stream()).map(FeatureDefinition::getQName)
+                .collect(Collectors.toSet());
+        assertEquals(4, allFeatures.size());
+    }
+
+    private static Set<String> names(Set<QName> features) {
+        return features.stream().map(QName::toString).collect(Collectors.toSet());
+    }
+
+    @Test
+    void resolvesWithoutBuildingAContext() throws Exception {
+        YangUtils.schemaContext = null;
+        Set<QName> features = new FeatureProfiles(sources).resolveFeatures(new HashSet<>(List.of("base:*", "other:a")));
+        assertNull(YangUtils.schemaContext);
+        assertEquals(allFeatures, features);
+    }
+
+    @Test
+    void matchesFeatureNamesInEveryModule() throws Exception {
+        Set<QName> features = new FeatureProfiles(sources).resolveFeatures(Set.of("a", "c", "missing"));
+        assertEquals(Set.of("(urn:base?revision=2020-01-01)a", "(urn:base?revision=2020-01-01)c", "(urn:other)a"),
+                names(features));
+        assertTrue(allFeatures.containsAll(features));
+    }
+
+    @Test
+    void buildsTheProfile() throws Exception {
+        EffectiveSchemaContext schemaContext = new FeatureProfiles(sources).getSchemaContext(Set.of("base:a"));
+        ContainerSchemaNode top = (ContainerSchemaNode) schemaContext.getChildNodes().iterator().next();
+        Set<String> leaves = top.getChildNodes().stream().map(node -> node.getQName().getLocalName())
+                .collect(Collectors.toSet());
+        assertEquals(Collections.singleton("with-a"), leaves);
+    }
+}
@@ -0,0 +1,53 @@
+package yang.testtools.odlservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterCompilerTest {
+    private static FilterCompiler compiler() {
+        return new FilterCompiler("urn:if", module -> "urn:" + module);
+    }
+
+    @Test
+    void mergesSharedPrefixes() {
+        String filter = compiler()
+                .add("interfaces/interface[name='eth0']/mtu")
+                .add("interfaces/interface[name='eth0']/type")
+                .compile();
+        assertEquals("<interfaces xmlns=\"urn:if\"><interface><name>eth0</name><mtu/><type/></interface>"
+                + "</interfaces>", filter);
+    }
+
+    @Test
+    void fillsKeyPlaceholders() {
+        String filter = compiler().add("interfaces/interface/{name}/ext:speed", Map.of("name", "ge-0/0/1")).compile();
+        assertEquals("<interfaces xmlns=\"urn:if\"><interface><name>ge-0/0/1</name><speed xmlns=\"urn:ext\"/>"
+                + "</interface></interfaces>", filter);
+    }
+
+    @Test
+    void acceptsXmlNames() {
+        compiler().add("_a.b-c/\u00e9l\u00e9ment/x1\u00b7y").compile();
+    }
+
+    @Test
+    void rejectsStepsThatAreNotXmlNames() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> compiler().add("a&b/<c>"));
+        assertTrue(e.getMessage().startsWith("Not an XML name: a&b"), e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> compiler().add("interfaces/<c>"));
+        assertThrows(IllegalArgumentException.class, () -> compiler().add("interfaces/1st"));
+        assertThrows(IllegalArgumentException.class, () -> compiler().add("interfaces/a b"));
+    }
+
+    @Test
+    void rejectsKeysThatAreNotXmlNames() {
+        assertThrows(IllegalArgumentException.class, () -> compiler().add("interfaces/interface[na<me='eth0']"));
+        assertThrows(IllegalArgumentException.class,
+                () -> compiler().add("interfaces/interface/{a&b}", Map.of("a&b", "eth0")));
+    }
+}
@@ -0,0 +1,172 @@
+package yang.testtools.odlservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class YangJsonToNBITest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private RestconfStubServer stub;
+
+    @AfterEach
+    void stopStub() {
+        if (stub != null) {
+            stub.stop();
+        }
+    }
+
+    private YangJsonToNBI start(int threads, long delayMillis, int maxConcurrentRequests) throws Exception {
+        stub = new RestconfStubServer(threads, delayMillis);
+        stub.start(0);
+        NBIOptions options = stub.clientOptions();
+        options.setMaxConcurrentRequests(maxConcurrentRequests);
+        return new YangJsonToNBI(options);
+    }
+
+    private static NBIParamDto param(String path, String content) throws Exception {
+        NBIParamDto param = new NBIParamDto();
+        param.setPath(path);
+        param.setContent(MAPPER.readTree(content));
+        return param;
+    }
+
+    private static NBIResponse get(CompletableFuture<NBIResponse> response) throws Exception {
+        return response.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void configRoundTrips() throws Exception {
+        YangJsonToNBI nbi = start(4, 0, 8);
+        String path = "interfaces/interface/eth0";
+
+        assertEquals(204, get(nbi.postConfig("if", param(path, "{\"mtu\":1500}"))).getStatus());
+        assertEquals(409, get(nbi.postConfig("if", param(path, "{\"mtu\":1500}"))).getStatus());
+        assertEquals(1, stub.getDatastore().size());
+        JsonNode stored = stub.getDatastore().values().iterator().next();
+        assertEquals(1500, stored.path("mtu").asInt());
+
+        assertEquals(200, get(nbi.putConfig("if", param(path, "{\"mtu\":9000}"))).getStatus());
+        assertEquals(9000, stub.getDatastore().values().iterator().next().path("mtu").asInt());
+
+        assertEquals(200, get(nbi.deleteConfig("if", path)).getStatus());
+        assertEquals(404, get(nbi.deleteConfig("if", path)).getStatus());
+        assertTrue(stub.getDatastore().isEmpty());
+    }
+
+    @Test
+    void keysAreFilledIntoThePath() throws Exception {
+        YangJsonToNBI nbi = start(2, 0, 8);
+        NBIParamDto param = param("interfaces/interface/{name}", "{\"mtu\":1500}");
+        param.setKeys(Map.of("name", "ge-0/0/1"));
+        assertEquals(201, get(nbi.putConfig("if", param)).getStatus());
+        assertTrue(stub.getDatastore().keySet().iterator().next().endsWith("if:interfaces/interface/ge-0%2F0%2F1"),
+                stub.getDatastore().keySet().toString());
+    }
+
+    @Test
+    void aMissingKeyFailsTheFutureOnly() throws Exception {
+        YangJsonToNBI nbi = start(2, 0, 8);
+        NBIParamDto param = param("interfaces/interface/{name}/unit/{unit}", "{}");
+        param.setKeys(Map.of("name", "eth0"));
+        CompletableFuture<NBIResponse> response = nbi.putConfig("if", param);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> get(response));
+        assertTrue(e.getCause() instanceof IllegalArgumentException, e.toString());
+        assertEquals("No value for key {unit} in interfaces/interface/eth0/unit/{unit}", e.getCause().getMessage());
+        assertTrue(nbi.deleteConfig("if", "interfaces/interface/{name}").isCompletedExceptionally());
+        assertEquals(0, stub.getRequests());
+        assertEquals(0, nbi.getInFlight());
+    }
+
+    @Test
+    void failedSendsDoNotStallTheQueue() throws Exception {
+        NBIOptions options = new NBIOptions();
+        options.setProtocol("http://");
+        options.setHost("127.0.0.1");
+        try (ServerSocket socket = new ServerSocket(0)) {
+            // nothing listens on the port once it is closed
+            options.setPort(socket.getLocalPort());
+        }
+        options.setHttp2(false);
+        options.setMaxConcurrentRequests(1);
+        YangJsonToNBI nbi = new YangJsonToNBI(options);
+        List<CompletableFuture<NBIResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            responses.add(nbi.deleteConfig("if", "interfaces/interface/eth" + i));
+        }
+        for (CompletableFuture<NBIResponse> response : responses) {
+            assertThrows(ExecutionException.class, () -> get(response));
+        }
+        assertEquals(0, nbi.getInFlight());
+        assertEquals(0, nbi.getQueued());
+    }
+
+    @Test
+    void getSendsTheCompiledFilter() throws Exception {
+        YangJsonToNBI nbi = start(2, 0, 8);
+        FilterCompiler filter = new FilterCompiler("urn:if", module -> "urn:" + module)
+                .add("interfaces/interface[name='eth0']/mtu")
+                .add("interfaces/interface[name='eth0']/type");
+        NBIResponse response = get(nbi.getConfig(filter));
+        assertEquals(200, response.getStatus());
+        assertEquals(filter.compile(), MAPPER.readTree(response.getBody()).path("output").path("data").asText());
+    }
+
+    @Test
+    void rpcInputIsEchoed() throws Exception {
+        YangJsonToNBI nbi = start(2, 0, 8);
+        NBIResponse response = get(nbi.execRpc("sys", "restart", MAPPER.readTree("{\"delay\":5}")));
+        assertEquals(200, response.getStatus());
+        assertEquals(5, MAPPER.readTree(response.getBody()).path("output").path("delay").asInt());
+    }
+
+    @Test
+    void requestsInFlightStayWithinTheLimit() throws Exception {
+        YangJsonToNBI nbi = start(16, 20, 4);
+        List<CompletableFuture<NBIResponse>> responses = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            responses.add(nbi.putConfig("if", param("interfaces/interface/eth" + i, "{\"mtu\":" + i + "}")));
+        }
+        assertTrue(nbi.getQueued() > 0, "nothing queued");
+        for (CompletableFuture<NBIResponse> response : responses) {
+            assertEquals(201, get(response).getStatus());
+        }
+        assertEquals(40, stub.getRequests());
+        assertEquals(4, stub.getMaxInFlight());
+        assertEquals(0, nbi.getInFlight());
+        assertEquals(0, nbi.getQueued());
+    }
+
+    @Test
+    void latenciesAreRecordedPerOperation() throws Exception {
+        YangJsonToNBI nbi = start(4, 0, 8);
+        for (int i = 0; i < 3; i++) {
+            get(nbi.putConfig("if", param("interfaces/interface/eth" + i, "{}")));
+        }
+        get(nbi.postConfig("if", param("interfaces/interface/eth9", "{}")));
+        get(nbi.deleteConfig("if", "interfaces/interface/eth0"));
+        get(nbi.deleteConfig("if", "interfaces/interface/eth1"));
+        get(nbi.execRpc("sys", "restart", null));
+
+        assertEquals(3, nbi.getLatency(YangJsonToNBI.Operation.PUT_CONFIG).getCount());
+        assertEquals(1, nbi.getLatency(YangJsonToNBI.Operation.POST_CONFIG).getCount());
+        assertEquals(2, nbi.getLatency(YangJsonToNBI.Operation.DELETE_CONFIG).getCount());
+        assertEquals(1, nbi.getLatency(YangJsonToNBI.Operation.EXEC_RPC).getCount());
+        assertEquals(0, nbi.getLatency(YangJsonToNBI.Operation.GET_CONFIG).getCount());
+        assertEquals(3, nbi.getLatencySummary().get(YangJsonToNBI.Operation.PUT_CONFIG).getCount());
+        assertTrue(nbi.getLatency(YangJsonToNBI.Operation.PUT_CONFIG).getMax() > 0);
+    }
+}
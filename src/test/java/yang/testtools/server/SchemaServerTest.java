@@ -0,0 +1,109 @@
+package yang.testtools.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import yang.testtools.yangparser.YangParserOptions;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchemaServerTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    @TempDir
+    static Path directory;
+    private static SchemaServer server;
+
+    @BeforeAll
+    static void start() throws Exception {
+        Files.writeString(directory.resolve("good.yang"), String.join("\n",
+                "module good {",
+                "  namespace urn:good;",
+                "  prefix g;",
+                "  container top { leaf name { type string; } }",
+                "}"));
+        // the path does not resolve, converting the module fails
+        Files.writeString(directory.resolve("broken.yang"), String.join("\n",
+                "module broken {",
+                "  namespace urn:broken;",
+                "  prefix b;",
+                "  container top { leaf ref { type leafref { path \"/b:nowhere/b:name\"; } } }",
+                "}"));
+        server = new SchemaServer(new YangParserOptions(), 8, directory.toString());
+        server.start(0);
+    }
+
+    @AfterAll
+    static void stop() {
+        server.stop();
+    }
+
+    private static HttpResponse<String> get(String path) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).GET().build());
+    }
+
+    private static HttpResponse<String> post(String path) throws Exception {
+        return send(HttpRequest.newBuilder(uri(path)).POST(HttpRequest.BodyPublishers.noBody()).build());
+    }
+
+    private static URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private static HttpResponse<String> send(HttpRequest request) throws Exception {
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void listsTheModules() throws Exception {
+        HttpResponse<String> response = get("/modules");
+        assertEquals(200, response.statusCode());
+        assertEquals("[\"broken\",\"good\"]", response.body());
+    }
+
+    @Test
+    void convertsAModuleOnce() throws Exception {
+        HttpResponse<String> first = get("/modules/good");
+        assertEquals(200, first.statusCode());
+        assertEquals("good", MAPPER.readTree(first.body()).path("name").asText());
+        assertEquals(first.body(), get("/modules/good/").body());
+
+        JsonNode stats = MAPPER.readTree(get("/stats").body());
+        assertTrue(stats.path("hits").asLong() >= 1, stats.toString());
+    }
+
+    @Test
+    void unknownModuleIsNotFound() throws Exception {
+        assertEquals(404, get("/modules/missing").statusCode());
+    }
+
+    @Test
+    void failedConversionIsAServerError() throws Exception {
+        HttpResponse<String> response = get("/modules/broken");
+        assertEquals(500, response.statusCode());
+        assertTrue(MAPPER.readTree(response.body()).has("error"), response.body());
+        // the server keeps serving
+        assertEquals(200, get("/modules/good").statusCode());
+    }
+
+    @Test
+    void reloadsTheContext() throws Exception {
+        assertEquals(405, get("/reload").statusCode());
+        HttpResponse<String> response = post("/reload");
+        assertEquals(200, response.statusCode());
+        assertEquals(2, MAPPER.readTree(response.body()).path("modules").asInt());
+        assertEquals(200, get("/modules/good").statusCode());
+    }
+}
@@ -0,0 +1,138 @@
+package yang.testtools.validator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import yang.testtools.helper.YangUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ConstraintEvaluatorTest {
+    private static final String MODULE = String.join("\n",
+            "module checks {",
+            "  yang-version 1.1;",
+            "  namespace urn:checks;",
+            "  prefix c;",
+            "  identity transport;",
+            "  identity tcp { base transport; }",
+            "  identity tls { base tcp; }",
+            "  container system {",
+            "    leaf mtu { type uint16; must \". >= 68\" { error-message \"mtu below 68\"; } }",
+            "    leaf mode { type string; }",
+            "    leaf name { type string; must \"re-match(., '[a-z]+')\"; }",
+            "    leaf tunnel { when \"../mode = 'tunnel'\"; type string; }",
+            "    leaf protocol { type identityref { base transport; } }",
+            "    leaf secure { when \"derived-from(../protocol, 'c:tcp')\"; type string; }",
+            "    leaf stream { when \"derived-from-or-self(../protocol, 'tcp')\"; type string; }",
+            "    list server {",
+            "      key name;",
+            "      must \"not(port = current()/../mtu)\";",
+            "      leaf name { type string; }",
+            "      leaf port { type uint16; }",
+            "    }",
+            "    leaf primary { type string; must \"../server[name = current()]\"; }",
+            "    leaf max-servers { type uint8; must \"count(../server) <= .\"; }",
+            "    leaf label { type string; must \"concat(string(../mtu), '/', string(../mtu div 2)) = .\"; }",
+            "    leaf first { type string; must \"(../name | ../mode)[1] = .\"; }",
+            "    leaf linked { type string; must \"deref(.)\"; }",
+            "  }",
+            "}");
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    static Path directory;
+    private static ConstraintEvaluator evaluator;
+
+    @BeforeAll
+    static void compile() throws Exception {
+        Files.writeString(directory.resolve("checks.yang"), MODULE);
+        evaluator = new ConstraintEvaluator(YangUtils.getSchemaContext(YangUtils.getYangFiles(directory.toString())));
+    }
+
+    @Test
+    void mustHoldsOrFailsWithItsMessage() throws Exception {
+        assertEquals(List.of(), evaluate("\"mtu\":1500"));
+        assertError("\"mtu\":60", "/checks:system/mtu", "mtu below 68");
+        assertError("\"name\":\"Upper\"", "/checks:system/name", "must \"re-match(., '[a-z]+')\" is false");
+        assertEquals(List.of(), evaluate("\"name\":\"lower\""));
+    }
+
+    @Test
+    void whenHoldsOrFails() throws Exception {
+        assertEquals(List.of(), evaluate("\"mode\":\"tunnel\",\"tunnel\":\"gre\""));
+        assertError("\"mode\":\"direct\",\"tunnel\":\"gre\"", "/checks:system/tunnel",
+                "when \"../mode = 'tunnel'\" is false, the node must not be present");
+        assertError("\"tunnel\":\"gre\"", "/checks:system/tunnel",
+                "when \"../mode = 'tunnel'\" is false, the node must not be present");
+    }
+
+    @Test
+    void currentAndParentSteps() throws Exception {
+        String servers = "\"mtu\":1500,\"server\":[{\"name\":\"a\",\"port\":80},{\"name\":\"b\",\"port\":1500}]";
+        assertError(servers, "/checks:system/server[1]", "must \"not(port = current()/../mtu)\" is false");
+        assertEquals(List.of(), evaluate("\"server\":[{\"name\":\"a\"}],\"primary\":\"a\""));
+        assertError("\"server\":[{\"name\":\"a\"}],\"primary\":\"b\"", "/checks:system/primary",
+                "must \"../server[name = current()]\" is false");
+    }
+
+    @Test
+    void derivedFromFollowsTheIdentityBases() throws Exception {
+        assertEquals(List.of(), evaluate("\"protocol\":\"tls\",\"secure\":\"x\",\"stream\":\"x\""));
+        assertEquals(List.of(), evaluate("\"protocol\":\"checks:tls\",\"secure\":\"x\""));
+        assertEquals(List.of(), evaluate("\"protocol\":\"tcp\",\"stream\":\"x\""));
+        assertError("\"protocol\":\"tcp\",\"secure\":\"x\"", "/checks:system/secure",
+                "when \"derived-from(../protocol, 'c:tcp')\" is false, the node must not be present");
+        assertError("\"protocol\":\"transport\",\"stream\":\"x\"", "/checks:system/stream",
+                "when \"derived-from-or-self(../protocol, 'tcp')\" is false, the node must not be present");
+    }
+
+    @Test
+    void countAndStringConversions() throws Exception {
+        String servers = "\"server\":[{\"name\":\"a\"},{\"name\":\"b\"}]";
+        assertEquals(List.of(), evaluate(servers + ",\"max-servers\":2"));
+        assertError(servers + ",\"max-servers\":1", "/checks:system/max-servers",
+                "must \"count(../server) <= .\" is false");
+        assertEquals(List.of(), evaluate("\"label\":\"1500/750\",\"mtu\":1500"));
+        assertEquals(List.of(), evaluate("\"label\":\"1501/750.5\",\"mtu\":1501"));
+        assertEquals(1, evaluate("\"label\":\"1500/750.0\",\"mtu\":1500").size());
+    }
+
+    @Test
+    void unionIsInDocumentOrder() throws Exception {
+        assertEquals(List.of(), evaluate("\"mode\":\"m\",\"name\":\"n\",\"first\":\"m\""));
+        assertEquals(List.of(), evaluate("\"name\":\"n\",\"mode\":\"m\",\"first\":\"n\""));
+        assertError("\"mode\":\"m\",\"name\":\"n\",\"first\":\"n\"", "/checks:system/first",
+                "must \"(../name | ../mode)[1] = .\" is false");
+    }
+
+    @Test
+    void conditionsThatDoNotCompileAreSkipped() throws Exception {
+        assertEquals(List.of(), evaluate("\"linked\":\"x\""));
+        assertEquals(10, evaluator.getConditionCount());
+        Map<String, String> prefixes = Map.of("c", "checks");
+        assertThrows(IllegalArgumentException.class, () -> XPathParser.compile("count(", "checks", prefixes));
+        assertThrows(IllegalArgumentException.class, () -> XPathParser.compile("a[1", "checks", prefixes));
+        assertThrows(IllegalArgumentException.class, () -> XPathParser.compile("a b", "checks", prefixes));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> XPathParser.compile("deref(.)", "checks", prefixes));
+        assertEquals("unsupported function deref()", e.getMessage());
+    }
+
+    private static void assertError(String members, String path, String message) throws Exception {
+        List<ValidationError> errors = evaluate(members);
+        assertEquals(1, errors.size(), members + ": " + errors);
+        assertEquals(path, errors.get(0).getPath(), members);
+        assertEquals(message, errors.get(0).getMessage(), members);
+    }
+
+    private static List<ValidationError> evaluate(String members) throws Exception {
+        return evaluator.evaluate(MAPPER.readTree("{\"checks:system\":{" + members + "}}"));
+    }
+}
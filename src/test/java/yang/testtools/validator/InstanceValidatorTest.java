@@ -0,0 +1,184 @@
+package yang.testtools.validator;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.yangparser.YangToJson;
+import yang.testtools.yangparser.schema.ModuleDto;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InstanceValidatorTest {
+    private static final String MODULE = String.join("\n",
+            "module ranges {",
+            "  namespace urn:ranges;",
+            "  prefix r;",
+            "  typedef level { type int32 { range \"-5..5 | 10..20\"; } }",
+            "  identity transport;",
+            "  identity tcp { base transport; }",
+            "  container top {",
+            "    leaf level { type level; }",
+            "    leaf narrowed { type level { range \"0..2 | 15\"; } }",
+            "    leaf big { type uint64 { range \"1..10 | 18446744073709551600..max\"; } }",
+            "    leaf ratio { type decimal64 { fraction-digits 2; range \"0..1 | 2.5..3\"; } }",
+            "    leaf code { type string { length \"1..3 | 8\"; } }",
+            "    leaf blob { type binary { length \"1 | 4\"; } }",
+            "    leaf either { type union { type int8 { range \"1..2 | 5\"; } type enumeration { enum none; } } }",
+            "    leaf level-ref { type leafref { path \"../level\"; } }",
+            "    leaf small { type int8; }",
+            "    leaf enabled { type boolean; }",
+            "    leaf state { type enumeration { enum up; } }",
+            "    leaf protocol { type identityref { base transport; } }",
+            "    leaf counter { config false; type uint32; }",
+            "    list subif {",
+            "      key \"id vlan\";",
+            "      leaf id { type string; }",
+            "      leaf vlan { type uint16; }",
+            "    }",
+            "  }",
+            "  container required {",
+            "    leaf name { mandatory true; type string; }",
+            "    leaf parent { mandatory true; type leafref { path \"../name\"; } }",
+            "    leaf optional-ref { type leafref { path \"../name\"; } }",
+            "  }",
+            "}");
+    private static final String AUGMENTING = String.join("\n",
+            "module extra {",
+            "  namespace urn:extra;",
+            "  prefix x;",
+            "  import ranges { prefix r; }",
+            "  augment /r:top { leaf note { type string; } }",
+            "}");
+
+    @TempDir
+    static Path directory;
+    private static InstanceValidator validator;
+    private static InstanceValidator withoutSchema;
+
+    @BeforeAll
+    static void compile() throws Exception {
+        Files.writeString(directory.resolve("ranges.yang"), MODULE);
+        Files.writeString(directory.resolve("extra.yang"), AUGMENTING);
+        EffectiveSchemaContext schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(directory.toString()));
+        List<ModuleDto> modules = new ArrayList<>();
+        for (Module module : schemaContext.getModules()) {
+            modules.add(new YangToJson().convertToDto(schemaContext, module));
+        }
+        validator = new InstanceValidator(schemaContext, modules);
+        withoutSchema = new InstanceValidator(modules);
+    }
+
+    @Test
+    void valuesInTheAllowedRangesAreValid() throws Exception {
+        assertEquals(List.of(), validate(validator, "\"level\":-5,\"narrowed\":15,\"big\":\"18446744073709551615\","
+                + "\"ratio\":\"2.75\",\"code\":\"abcdefgh\",\"blob\":\"AAAAAA==\",\"either\":5,\"level-ref\":12"));
+    }
+
+    @Test
+    void valuesBetweenRangesAreErrors() throws Exception {
+        assertError("\"level\":7", "7 is out of range -5..5 | 10..20");
+        assertError("\"narrowed\":10", "10 is out of range 0..2 | 15..15");
+        assertError("\"big\":\"11\"", "11 is out of range 1..10 | 18446744073709551600..18446744073709551615");
+        assertError("\"ratio\":\"1.5\"", "1.5 is out of range 0..1 | 2.5..3");
+        assertError("\"code\":\"abcd\"", "length 4 of \"abcd\" is out of 1..3 | 8..8");
+        assertError("\"blob\":\"AAA=\"", "length 2 bytes is out of 1..1 | 4..4");
+        assertError("\"either\":3", "3 is not valid for any type of the union");
+        assertError("\"level-ref\":7", "7 is out of range -5..5 | 10..20");
+    }
+
+    @Test
+    void withoutTheSchemaContextRangesAreTheirSpan() throws Exception {
+        assertEquals(List.of(), validate(withoutSchema, "\"level\":7"));
+        assertEquals(1, validate(withoutSchema, "\"level\":21").size());
+    }
+
+    @Test
+    void everyKeyOfACompositeKeyIsRequired() throws Exception {
+        assertEquals(List.of(), validate(validator, "\"subif\":[{\"id\":\"a\",\"vlan\":1}]"));
+        List<ValidationError> errors = validate(validator, "\"subif\":[{\"id\":\"a\"}]");
+        assertEquals(1, errors.size(), errors::toString);
+        assertEquals("/ranges:top/subif[0]", errors.get(0).getPath());
+        assertEquals("missing key ranges:vlan", errors.get(0).getMessage());
+    }
+
+    @Test
+    void valuesOfTheWrongTypeAreErrors() throws Exception {
+        assertError("\"small\":\"1\"", "\"1\" is not a valid int8");
+        assertError("\"small\":200", "200 is out of range -128..127");
+        assertError("\"enabled\":\"true\"", "expected true or false, got true");
+        assertError("\"state\":\"down\"", "\"down\" is not one of [up]");
+        assertError("\"protocol\":\"transport\"", "\"transport\" is not derived from identity transport");
+        assertError("\"protocol\":\"udp\"", "\"udp\" is not derived from identity transport");
+        assertError("\"level\":{}", "expected a single value");
+        assertEquals(List.of(), validate(validator, "\"state\":\"up\",\"protocol\":\"tcp\","
+                + "\"enabled\":false,\"small\":-128"));
+        assertEquals(List.of(), validate(validator, "\"protocol\":\"ranges:tcp\""));
+    }
+
+    @Test
+    void stateDataIsOnlyAllowedWithAllContent() throws Exception {
+        assertError("\"counter\":1", "state data in a config payload");
+        assertEquals(List.of(), validate(validator, "{\"ranges:top\":{\"counter\":1}}", InstanceValidator.Content.ALL));
+    }
+
+    @Test
+    void unknownAndDuplicateMembersAreErrors() throws Exception {
+        assertError("\"unknown\":1", "unknown member");
+        assertError("\"level\":1,\"level\":2", "duplicate member");
+        List<ValidationError> errors = validate(validator, "{\"top\":{}}", InstanceValidator.Content.CONFIG);
+        assertEquals(1, errors.size(), errors::toString);
+        assertEquals("top-level member must be qualified with its module", errors.get(0).getMessage());
+    }
+
+    @Test
+    void membersOfTheParentModuleAreNotQualified() throws Exception {
+        assertError("\"ranges:level\":1", "unknown member");
+        assertEquals(List.of(), validate(validator, "\"extra:note\":\"a\""));
+        assertError("\"note\":\"a\"", "unknown member");
+    }
+
+    @Test
+    void mandatoryLeavesAreRequired() throws Exception {
+        assertEquals(List.of(), validate(validator, "{\"ranges:required\":{\"name\":\"a\",\"parent\":\"a\"}}",
+                InstanceValidator.Content.CONFIG));
+        List<ValidationError> errors = validate(validator, "{\"ranges:required\":{\"name\":\"a\"}}",
+                InstanceValidator.Content.CONFIG);
+        assertEquals(1, errors.size(), errors::toString);
+        assertEquals("/ranges:required", errors.get(0).getPath());
+        assertEquals("missing mandatory leaf ranges:parent", errors.get(0).getMessage());
+        errors = validate(validator, "{\"ranges:required\":{\"parent\":\"a\"}}", InstanceValidator.Content.CONFIG);
+        assertEquals(1, errors.size(), errors::toString);
+        assertEquals("missing mandatory leaf ranges:name", errors.get(0).getMessage());
+    }
+
+    @Test
+    void withoutTheSchemaContextLeafrefsAreNotRequired() throws Exception {
+        assertEquals(List.of(), validate(withoutSchema, "{\"ranges:required\":{\"name\":\"a\"}}",
+                InstanceValidator.Content.CONFIG));
+    }
+
+    private static void assertError(String members, String message) throws Exception {
+        List<ValidationError> errors = validate(validator, members);
+        assertEquals(1, errors.size(), members + ": " + errors);
+        assertEquals(message, errors.get(0).getMessage(), members);
+    }
+
+    private static List<ValidationError> validate(InstanceValidator validator, String members) throws Exception {
+        return validate(validator, "{\"ranges:top\":{" + members + "}}", InstanceValidator.Content.CONFIG);
+    }
+
+    private static List<ValidationError> validate(InstanceValidator validator, String payload,
+                                                  InstanceValidator.Content content) throws Exception {
+        return validator.validate(new ByteArrayInputStream(payload.getBytes(StandardCharsets.UTF_8)), content);
+    }
+}
@@ -0,0 +1,79 @@
+package yang.testtools.yangparser;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opendaylight.yangtools.yang.model.api.IdentitySchemaNode;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.model.api.SchemaContext;
+import yang.testtools.generator.YangCorpusGenerator;
+import yang.testtools.generator.YangCorpusOptions;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.yangparser.schema.type.IdentityType;
+
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class IdentityClosureTest {
+    @TempDir
+    static Path corpus;
+
+    @BeforeAll
+    static void generateCorpus() throws Exception {
+        YangCorpusOptions options = new YangCorpusOptions();
+        options.setModuleCount(1);
+        YangCorpusGenerator.generate(options, corpus);
+    }
+
+    @Test
+    void derivedIdentitiesMatchTheContext() throws Exception {
+        SchemaContext schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(corpus.toString()));
+        IdentityClosure closure = IdentityClosure.of(schemaContext);
+        int withDerived = 0;
+        for (Module module : schemaContext.getModules()) {
+            for (IdentitySchemaNode identity : module.getIdentities()) {
+                Set<String> expected = schemaContext.getDerivedIdentities(identity).stream()
+                        .map(id -> id.getQName().getLocalName()).collect(Collectors.toSet());
+                List<IdentityType> derived = closure.getDerivedIdentities(identity);
+                Set<String> direct = derived.stream()
+                        .map(type -> type.getIdentity().substring(type.getIdentity().indexOf(':') + 1))
+                        .filter(expected::contains).collect(Collectors.toSet());
+                assertEquals(expected, direct, identity.getQName().getLocalName());
+                if (!derived.isEmpty()) {
+                    withDerived++;
+                }
+            }
+        }
+        assertFalse(withDerived == 0, "corpus has no derived identities");
+    }
+
+    @Test
+    void cachedClosureDoesNotHoldTheContext() throws Exception {
+        WeakReference<SchemaContext> reference = closeOverContext();
+        // the helper keeps the last context built, replace it
+        YangUtils.getSchemaContext(YangUtils.getYangFiles(corpus.toString()));
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(reference.get(), "schema context not collected");
+    }
+
+    private static WeakReference<SchemaContext> closeOverContext() throws Exception {
+        SchemaContext schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(corpus.toString()));
+        IdentityClosure closure = IdentityClosure.of(schemaContext);
+        for (Module module : schemaContext.getModules()) {
+            for (IdentitySchemaNode identity : module.getIdentities()) {
+                closure.getDerivedIdentities(identity);
+            }
+        }
+        return new WeakReference<>(schemaContext);
+    }
+}
@@ -0,0 +1,52 @@
+package yang.testtools.yangparser;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.generator.YangCorpusGenerator;
+import yang.testtools.generator.YangCorpusOptions;
+import yang.testtools.helper.YangUtils;
+
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LeafrefResolverTest {
+    @TempDir
+    static Path corpus;
+
+    @BeforeAll
+    static void generateCorpus() throws Exception {
+        YangCorpusOptions options = new YangCorpusOptions();
+        options.setModuleCount(2);
+        YangCorpusGenerator.generate(options, corpus);
+    }
+
+    @Test
+    void convertedContextIsCollectedAfterTheNextOne() throws Exception {
+        YangToJson yangToJson = new YangToJson();
+        WeakReference<EffectiveSchemaContext> reference = convert(yangToJson);
+        convert(yangToJson);
+        for (int i = 0; i < 20 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        assertNull(reference.get(), "schema context not collected");
+    }
+
+    private static WeakReference<EffectiveSchemaContext> convert(YangToJson yangToJson) throws Exception {
+        EffectiveSchemaContext schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(corpus.toString()));
+        boolean leafrefs = false;
+        for (Module module : schemaContext.getModules()) {
+            String json = new String(yangToJson.convertToJson(schemaContext, module), StandardCharsets.UTF_8);
+            leafrefs |= json.contains("\"leafref\"");
+        }
+        assertTrue(leafrefs, "corpus has no leafrefs");
+        return new WeakReference<>(schemaContext);
+    }
+}
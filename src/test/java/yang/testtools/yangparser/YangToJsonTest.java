@@ -0,0 +1,90 @@
+package yang.testtools.yangparser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.metrics.RunReport;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class YangToJsonTest {
+    @TempDir
+    static Path directory;
+    private static JsonNode leaves;
+
+    @BeforeAll
+    static void convert() throws Exception {
+        Files.writeString(directory.resolve("lengths.yang"), String.join("\n",
+                "module lengths {",
+                "  namespace urn:lengths;",
+                "  prefix l;",
+                "  typedef name-t { type string { length \"2..4\"; } }",
+                "  typedef word-t { type string { pattern \"[a-z]*\"; } }",
+                "  container c {",
+                "    leaf plain { type string; }",
+                "    leaf pattern-only { type string { pattern \"[a-z]*\"; } }",
+                "    leaf pattern-typedef { type word-t; }",
+                "    leaf length { type string { length \"1..8\"; pattern \"[a-z]*\"; } }",
+                "    leaf typedef { type name-t; }",
+                "    leaf narrowed { type name-t { length \"3\"; } }",
+                "    leaf typedef-pattern { type name-t { pattern \"[a-z]*\"; } }",
+                "    leaf binary { type binary { length \"4\"; } }",
+                "  }",
+                "}"));
+        EffectiveSchemaContext schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(directory.toString()));
+        YangToJson yangToJson = new YangToJson();
+        JsonNode module = yangToJson.getMapper().readTree(
+                yangToJson.convertToJson(schemaContext, schemaContext.getModules().iterator().next()));
+        leaves = module.path("dataTree").path("container").path("c").path("leaf");
+    }
+
+    @Test
+    void reportsOnlyTheModulesWritten() throws Exception {
+        EffectiveSchemaContext schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(directory.toString()));
+        for (String format : new String[]{"json", "streaming", "binary"}) {
+            YangParserOptions options = new YangParserOptions();
+            options.setOutputDirectory(directory.resolve("out-" + format).toString());
+            options.setStreaming(format.equals("streaming"));
+            options.setBinary(format.equals("binary"));
+            // a directory where the module goes, it cannot be written
+            String fileName = "lengths." + (options.isBinary() ? "ysb" : "json");
+            Files.createDirectories(directory.resolve("out-" + format).resolve(fileName));
+            RunReport report = new RunReport();
+            YangToJson yangToJson = new YangToJson(options);
+            yangToJson.setReport(report);
+            yangToJson.convertToDto(schemaContext);
+            assertEquals(List.of(), report.getModules(), format);
+        }
+    }
+
+    private static void assertLength(String leaf, String min, String max) {
+        JsonNode type = leaves.path(leaf).path("typeProperty");
+        assertEquals(min, type.path("min").asText(null), leaf);
+        assertEquals(max, type.path("max").asText(null), leaf);
+    }
+
+    @Test
+    void writesDeclaredLengths() {
+        assertLength("length", "1", "8");
+        assertLength("typedef", "2", "4");
+        assertLength("narrowed", "3", "3");
+        assertLength("typedef-pattern", "2", "4");
+        assertLength("binary", "4", "4");
+    }
+
+    @Test
+    void leavesOutTheImplicitLength() {
+        for (String leaf : new String[]{"plain", "pattern-only", "pattern-typedef"}) {
+            assertFalse(leaves.path(leaf).path("typeProperty").has("min"), leaf);
+            assertFalse(leaves.path(leaf).path("typeProperty").has("max"), leaf);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package yang.testtools.yangparser.schema.compact;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opendaylight.yangtools.yang.model.api.Module;
+import org.opendaylight.yangtools.yang.parser.stmt.reactor.EffectiveSchemaContext;
+import yang.testtools.generator.YangCorpusGenerator;
+import yang.testtools.generator.YangCorpusOptions;
+import yang.testtools.helper.YangUtils;
+import yang.testtools.yangparser.YangToJson;
+import yang.testtools.yangparser.schema.ModuleDto;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactModuleTest {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    @TempDir
+    static Path corpus;
+    private static EffectiveSchemaContext schemaContext;
+
+    @BeforeAll
+    static void generateCorpus() throws Exception {
+        YangCorpusGenerator.generate(new YangCorpusOptions(), corpus);
+        schemaContext = YangUtils.getSchemaContext(YangUtils.getYangFiles(corpus.toString()));
+    }
+
+    @Test
+    void serializesToTheSameJson() throws Exception {
+        YangToJson yangToJson = new YangToJson();
+        for (Module module : schemaContext.getModules()) {
+            CompactModule compact = yangToJson.convertToCompact(schemaContext, module);
+            assertArrayEquals(yangToJson.convertToJson(schemaContext, module),
+                    yangToJson.getMapper().writeValueAsBytes(compact), module.getName());
+        }
+    }
+
+    @Test
+    void retainsLessHeapPerNode() throws Exception {
+        int nodes = 0;
+        for (Module module : schemaContext.getModules()) {
+            nodes += new YangToJson().convertToCompact(schemaContext, module).nodeCount();
+        }
+
+        long before = usedHeap();
+        List<ModuleDto> dtos = new ArrayList<>();
+        YangToJson yangToJson = new YangToJson();
+        for (Module module : schemaContext.getModules()) {
+            dtos.add(yangToJson.convertToDto(schemaContext, module));
+        }
+        yangToJson = null;
+        double dtoBytes = (double) (usedHeap() - before) / nodes;
+        assertEquals(schemaContext.getModules().size(), dtos.size());
+        dtos = null;
+
+        before = usedHeap();
+        List<CompactModule> compactModules = new ArrayList<>();
+        yangToJson = new YangToJson();
+        for (Module module : schemaContext.getModules()) {
+            compactModules.add(yangToJson.convertToCompact(schemaContext, module));
+        }
+        yangToJson = null;
+        double compactBytes = (double) (usedHeap() - before) / nodes;
+        assertEquals(schemaContext.getModules().size(), compactModules.size());
+
+        // about 145 against 290 bytes per node when measured
+        assertTrue(compactBytes < 200, "compact model holds " + compactBytes + " bytes per node");
+        assertTrue(compactBytes < dtoBytes * 0.75,
+                "compact model holds " + compactBytes + " bytes per node, ModuleDto " + dtoBytes);
+    }
+
+    /**
+     * Used heap once full collections stop freeing anything.
+     */
+    private static long usedHeap() throws InterruptedException {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long now = MEMORY.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+}